@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.ab7500Ver1import;
+
+import java.io.File;
+import org.lreqpcr.data_import_services.FcDatasetLayout;
+import org.lreqpcr.data_import_services.ImportColumn;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.lreqpcr.data_import_services.TabularImportMapping;
+import org.lreqpcr.data_import_services.TabularRunImport;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Imports an AB7500 Version 1 xls export file, which is used both by the
+ * AB7500 Version 1 import provider and by batch import.
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportFileService.class)
+public class Ab7500Ver1ImportFileProvider implements RunImportFileService {
+
+    private static final TabularImportMapping MAPPING = createMapping();
+
+    public String getRunImportServiceName() {
+        return "AB7500 Ver 1";
+    }
+
+    public boolean isImportFile(File file) {
+        return RunImportUtilities.hasFileExtension(file, ".xls");
+    }
+
+    public RunImportData constructRunImportData(File importFile) throws RunImportException {
+        return TabularRunImport.constructRunImportData(importFile, MAPPING);
+    }
+
+    private static TabularImportMapping createMapping() {
+        TabularImportMapping mapping = new TabularImportMapping();
+        mapping.setResultSheet(1);
+        //This assumes that the dRn rows always correlate exactly with the Results rows
+        mapping.setFcDatasetSheet(0, FcDatasetLayout.wellRowsByResultRow(1, 3));
+        mapping.setAbsentSheetError("Invalid Excel import file",
+                "Either the \"Results\" or \"Delta Rn\" worksheet could not be imported. "
+                + "Data import will be terminated.");
+        mapping.setRunDateCell(true, 1, 7, "The Run Date appears to be invalid. Manually replace "
+                + "the run date in the Results sheet (B8), "
+                + "save the file, and try importing the xls file again.");
+        //No column headers are provided
+        mapping.setResultTableRows(-1, 15);
+        mapping.setWellLabelColumn(ImportColumn.at(0));
+        mapping.setWellNameColumn(ImportColumn.at(1), null);
+        mapping.setTaskColumn(ImportColumn.at(3), "Standard");
+        mapping.setQuantityColumn(ImportColumn.at(6));
+        mapping.setTmColumn(ImportColumn.at(10));
+        return mapping;
+    }
+}
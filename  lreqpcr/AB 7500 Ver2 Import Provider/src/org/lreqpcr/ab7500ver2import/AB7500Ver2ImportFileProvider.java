@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details. You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.ab7500ver2import;
+
+import java.io.File;
+import org.lreqpcr.data_import_services.FcDatasetLayout;
+import org.lreqpcr.data_import_services.ImportColumn;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.lreqpcr.data_import_services.TabularImportMapping;
+import org.lreqpcr.data_import_services.TabularRunImport;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Imports an AB7500 Version 2 xls export file, which is used both by the
+ * AB7500 Version 2 import provider and by batch import.
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportFileService.class)
+public class AB7500Ver2ImportFileProvider implements RunImportFileService {
+
+    private static final TabularImportMapping MAPPING = createMapping();
+
+    public String getRunImportServiceName() {
+        return "AB7500 Ver 2";
+    }
+
+    public boolean isImportFile(File file) {
+        return RunImportUtilities.hasFileExtension(file, ".xls");
+    }
+
+    public RunImportData constructRunImportData(File importFile) throws RunImportException {
+        return TabularRunImport.constructRunImportData(importFile, MAPPING);
+    }
+
+    private static TabularImportMapping createMapping() {
+        TabularImportMapping mapping = new TabularImportMapping();
+        mapping.setResultSheet("Results");
+        mapping.setFcDatasetSheet("Amplification Data", FcDatasetLayout.cycleRowsByWellLabel(0, 3, 8));
+        mapping.setAbsentSheetError("Invalid Excel import file",
+                "Either the \"Results\" or \"Amplification Data\" "
+                + "worksheet was not present or has been renamed.\n"
+                + "Data import will be terminated.");
+        mapping.setRunDateCell(true, 1, 3, "The Run Date appears to be invalid. Manually entry the "
+                + "run date in the \"Results\" sheet (B4), "
+                + "save the file, and try importing the xls file again.");
+        //Columns are identified by their header, as the user is able to change the column order
+        mapping.setResultTableRows(7, 8);
+        ImportColumn wellLabelCol = ImportColumn.named("Well");
+        wellLabelCol.setAbsentError("No Well column",
+                "The \"Well\" column was not found in the Results sheet (sheet #1)"
+                + "Data import will be terminated.");
+        mapping.setWellLabelColumn(wellLabelCol);
+        mapping.setWellNumberedFromWellLabel(true);
+        ImportColumn sampleNameCol = ImportColumn.named("Sample Name");
+        sampleNameCol.setAbsentError("No Sample Name column",
+                "The \"Sample Name\" column was not found in the Results sheet (sheet #1). "
+                + "Data import will be terminated.");
+        ImportColumn ampliconNameCol = ImportColumn.named("Target Name");
+        ampliconNameCol.setAbsentError("No Target Name column",
+                "The \"Target Name\" column was not found in the Results sheet (sheet #1). "
+                + "Data import will be terminated.");
+        mapping.setNameColumns(sampleNameCol, ampliconNameCol);
+        //Assume that if the target name is blank, this is a blank well
+        mapping.setWellWithoutAmpliconNameSkipped(true);
+        //Designates a calibrator (STANDARD) from a sample (UNKNOWN) profile
+        ImportColumn taskCol = ImportColumn.named("Task");
+        taskCol.setAbsentError("No Task column",
+                "The \"Task\" column was not found in the Results sheet (sheet #2)"
+                + "Data import will be terminated.");
+        mapping.setTaskColumn(taskCol, "STANDARD");
+        //Quantity of the lambda calibrator in picograms
+        mapping.setQuantityColumn(ImportColumn.named("Quantity"));
+        mapping.setCtColumn(ImportColumn.named("Cт"));
+        mapping.setFtColumn(ImportColumn.named("Ct Threshold"));
+        mapping.setTmColumn(ImportColumn.named("Tm1"));
+        return mapping;
+    }
+}
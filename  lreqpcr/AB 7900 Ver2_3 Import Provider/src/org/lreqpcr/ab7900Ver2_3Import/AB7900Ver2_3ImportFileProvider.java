@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.ab7900Ver2_3Import;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.lreqpcr.core.data_objects.*;
+import org.lreqpcr.core.utilities.PlateFormat;
+import org.lreqpcr.core.utilities.WellNumberToLabel;
+import org.lreqpcr.data_import_services.FcDatasetLayout;
+import org.lreqpcr.data_import_services.ImportColumn;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.lreqpcr.data_import_services.TabularImportMapping;
+import org.lreqpcr.data_import_services.TabularRunImport;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Imports an AB 7900 Version 2.3 xls export file, which is used both by the
+ * AB 7900 Version 2.3 import provider and by batch import.
+ * <p>
+ * In this version, no well labels are provided which must be
+ * translated from the well number. As the type of plate is not exported, the
+ * smallest plate that contains the highest well number is assumed. The well
+ * labels can then be reset via setWellLabels. 
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportFileService.class)
+public class AB7900Ver2_3ImportFileProvider implements RunImportFileService {
+
+    private static final TabularImportMapping MAPPING = createMapping();
+
+    public String getRunImportServiceName() {
+        return "AB7900 Ver 2.3";
+    }
+
+    public boolean isImportFile(File file) {
+        return RunImportUtilities.hasFileExtension(file, ".xls");
+    }
+
+    public RunImportData constructRunImportData(File importFile) throws RunImportException {
+        RunImportData importData = TabularRunImport.constructRunImportData(importFile, MAPPING);
+        int highestWellNumber = 0;
+        for (Profile profile : importData.getSampleProfileList()) {
+            highestWellNumber = Math.max(highestWellNumber, profile.getWellNumber());
+        }
+        for (Profile profile : importData.getCalibrationProfileList()) {
+            highestWellNumber = Math.max(highestWellNumber, profile.getWellNumber());
+        }
+        PlateFormat plateFormat = PlateFormat.forWellNumber(highestWellNumber);
+        setWellLabels(importData, plateFormat != null ? plateFormat : PlateFormat.PLATE_1536_WELL);
+        return importData;
+    }
+
+    private static TabularImportMapping createMapping() {
+        TabularImportMapping mapping = new TabularImportMapping();
+        mapping.setResultSheet(1);
+        mapping.setFcDatasetSheet(0, FcDatasetLayout.wellRowsByWellNumber(0, 3));
+        mapping.setAbsentSheetError("Invalid Excel import file",
+                "Either the \"Results\" or \"Rn\" worksheet could not be imported. "
+                + "Data import will be terminated.");
+        mapping.setRunDateCell(true, 1, 4, "The Run Date appears to be invalid. Manually replace "
+                + "the run date in the Results sheet (B5), "
+                + "save the file, and try importing the xls file again.");
+        //No column headers are provided; wells are designated by an integer well number
+        mapping.setResultTableRows(-1, 1);
+        mapping.setWellNumberColumn(ImportColumn.at(0));
+        mapping.setNameColumns(ImportColumn.at(1), ImportColumn.at(2));
+        mapping.setProfileNamedBySampleFirst(true);
+        mapping.setTaskColumn(ImportColumn.at(4), "Standard");
+        mapping.setQuantityColumn(ImportColumn.at(6));
+        mapping.setCtColumn(ImportColumn.at(5));
+        mapping.setFtColumn(ImportColumn.at(16));
+        //Tm is not exported!!!
+        // TODO present an error dialog if the Fc dataset is null
+        mapping.setWellWithoutFcDatasetSkipped(true);
+        return mapping;
+    }
+
+    /**
+     * Extracts the well labels of all the imported Profiles from their well
+     * numbers.
+     *
+     * @param importData the Run import data
+     * @param plateFormat the type of plate used
+     */
+    public static void setWellLabels(RunImportData importData, PlateFormat plateFormat) {
+        List<Profile> profileList = new ArrayList<Profile>(importData.getSampleProfileList());
+        profileList.addAll(importData.getCalibrationProfileList());
+        for (Profile profile : profileList) {
+            //Wells that are not present within the plate are not labeled
+            profile.setWellLabel(null);
+            WellNumberToLabel.numberToLabel(profile, plateFormat, false);
+        }
+    }
+}
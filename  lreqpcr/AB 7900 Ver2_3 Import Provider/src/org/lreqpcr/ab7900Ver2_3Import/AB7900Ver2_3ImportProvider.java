@@ -17,24 +17,13 @@
 package org.lreqpcr.ab7900Ver2_3Import;
 
 import java.io.File;
-import java.io.IOException;
-import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
 import javax.swing.JOptionPane;
-import jxl.DateCell;
-import jxl.Sheet;
-import jxl.Workbook;
-import jxl.read.biff.BiffException;
-import org.lreqpcr.core.data_objects.*;
 import org.lreqpcr.core.utilities.IOUtilities;
-import org.lreqpcr.core.utilities.WellNumberToLabel;
-import org.lreqpcr.data_import_services.DataImportType;
+import org.lreqpcr.core.utilities.PlateFormat;
 import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
 import org.lreqpcr.data_import_services.RunImportService;
 import org.lreqpcr.data_import_services.RunImportUtilities;
-import org.openide.util.Exceptions;
 import org.openide.util.lookup.ServiceProvider;
 import org.openide.windows.WindowManager;
 
@@ -44,6 +33,10 @@ import org.openide.windows.WindowManager;
  * translated from the well number. Also the data structure 
  * is fixed so there is no need to check for the presence of 
  * specific columns, unlike the 7500 data import
+ * <p>
+ * The selected xls export file is imported via the
+ * AB7900Ver2_3ImportFileProvider, after which the user designates the type 
+ * of plate used.
  * 
  * @author Bob Rutledge
  */
@@ -51,7 +44,6 @@ import org.openide.windows.WindowManager;
 public class AB7900Ver2_3ImportProvider extends RunImportService {
 
     @Override
-    @SuppressWarnings(value = "unchecked")
     public RunImportData constructRunImportData() {
 
         //Retrieve the export xls file
@@ -59,52 +51,18 @@ public class AB7900Ver2_3ImportProvider extends RunImportService {
         if (ver2_3ExcelImportFile == null) {
             return null;
         }
-        Workbook workbook = null;
+        RunImportData importData;
         try {
-            workbook = Workbook.getWorkbook(ver2_3ExcelImportFile);
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
-        } catch (BiffException ex) {
-            Exceptions.printStackTrace(ex);
-        }
-        if (workbook == null) {
-            String msg = "The selected file (" + ver2_3ExcelImportFile.getName() + " could not be opened";
-            JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                    msg,
-                    "Unable to open the selected file " + ver2_3ExcelImportFile.getName(),
-                    JOptionPane.ERROR_MESSAGE);
+            importData = new AB7900Ver2_3ImportFileProvider().constructRunImportData(ver2_3ExcelImportFile);
+        } catch (RunImportException ex) {
+            RunImportUtilities.displayRunImportError(ex);
             return null;
         }
-
-        Sheet resultSheet;
-        Sheet fcSheet;
-        try {
-            resultSheet = workbook.getSheet(1);
-            fcSheet = workbook.getSheet(0);
-        } catch (Exception e) {
-            String msg = "Either the \"Results\" or \"Rn\" worksheet could not be imported. "
-                    + "Data import will be terminated.";
-            JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                    msg,
-                    "Invalid Excel import file",
-                    JOptionPane.ERROR_MESSAGE);
-            return null;
+        PlateFormat[] plateFormats = PlateFormat.values();
+        Object[] plates = new Object[plateFormats.length];
+        for (int i = 0; i < plateFormats.length; i++) {
+            plates[i] = plateFormats[i].getNumberOfWells() + " Well";
         }
-        DateCell date;
-        try {
-            date = (DateCell) resultSheet.getCell(1, 4);
-        } catch (Exception e) {
-            String msg = "The Run Date appears to be invalid. Manually replace "
-                    + "the run date in the Results sheet (B5), "
-                    + "save the file, and try importing the xls file again.";
-            JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                    msg,
-                    "Invalid Run Date",
-                    JOptionPane.ERROR_MESSAGE);
-            return null;
-        }
-        boolean is96WellPlate;
-        Object[] plates = {"96 Well", "384 Well"};
         int n = JOptionPane.showOptionDialog(WindowManager.getDefault().getMainWindow(),
                 "Which type of plate was used",
                 "Designate the type of plate",
@@ -113,132 +71,16 @@ public class AB7900Ver2_3ImportProvider extends RunImportService {
                 null,
                 plates,
                 plates[0]);
-        if (n == 0) {
-            is96WellPlate = true;
-        } else {
-            is96WellPlate = false;
+        PlateFormat plateFormat;
+        if (n >= 0 && n < plateFormats.length) {
+            plateFormat = plateFormats[n];
+        } else {//The dialog was closed, so use the 384 well default
+            plateFormat = PlateFormat.PLATE_384_WELL;
         }
-
-        String runName = ver2_3ExcelImportFile.getName();
-        runName = runName.substring(0, runName.indexOf(".xls"));
-        Date runDate = RunImportUtilities.importExcelDate(date);
-
-        //Import the data
-        List<SampleProfile> sampleProfileList = new ArrayList<SampleProfile>();
-        List<CalibrationProfile> calbnProfileList = new ArrayList<CalibrationProfile>();
+        AB7900Ver2_3ImportFileProvider.setWellLabels(importData, plateFormat);
         //Determine the strandedness of the Targets
-        TargetStrandedness targetStrandedness = RunImportUtilities.isTheTargetSingleStranded();
-        NumberFormat numFormat = NumberFormat.getInstance();
-
-        int resultRow = 0;//Start at the top of the Result sheet; assumes no well data in first row
-        int fcRow = 0;//Starting row in the Fc Data sheet
-        boolean reachedTheBottom = false;
-
-        reachBottom:
-        while (!reachedTheBottom) {
-            //Find the next well or the bottom of the sheet
-            boolean foundWell = false;
-            while (!foundWell) {
-                resultRow++;
-                //Is this the bottom of the sheet?
-                try {
-                    resultSheet.getCell(0, resultRow).getContents();
-                } catch (Exception e) {
-                    //Reached the bottom of the sheet
-                    reachedTheBottom = true;
-                    break reachBottom;
-                }
-                //Test to see if this cell holds a well number designated by an integer
-                try {
-                    Integer.valueOf(resultSheet.getCell(0, resultRow).getContents());
-                    foundWell = true;
-                } catch (Exception e) {
-                    resultRow++;
-                }
-            }
-            Profile profile = null;
-            //Determine if this is a calibration profile
-            if (resultSheet.getCell(4, resultRow).getContents().equals("Standard")) {
-                profile = new CalibrationProfile();
-                CalibrationProfile calbnProfile = (CalibrationProfile) profile;
-                try {
-                    Number value = numFormat.parse(resultSheet.getCell(6, resultRow).getContents());
-                    calbnProfile.setLambdaMass(value.doubleValue());
-                } catch (Exception e) {
-                    calbnProfile.setLambdaMass(0);
-                }
-            } else {//Must be a Sample Profile
-                profile = new SampleProfile();
-                profile.setTargetStrandedness(targetStrandedness);
-            }
-            profile.setWellNumber(Integer.parseInt(resultSheet.getCell(0, resultRow).getContents()));
-            //Extract the well label from the well number
-            if (is96WellPlate) {
-                WellNumberToLabel.indexToLabel96WelL_AB7900(profile);
-            } else {
-                WellNumberToLabel.indexToLabel384Well_AB7900(profile);
-            }
-            profile.setSampleName(resultSheet.getCell(1, resultRow).getContents());
-            profile.setAmpliconName(resultSheet.getCell(2, resultRow).getContents());
-            profile.setName(profile.getSampleName() + "@" + profile.getAmpliconName());
-
-            try {
-                profile.setCt(Double.parseDouble(resultSheet.getCell(5, resultRow).getContents()));
-            } catch (Exception e) {
-            }
-            try {
-                profile.setFt(Double.parseDouble(resultSheet.getCell(16, resultRow).getContents()));
-            } catch (Exception e) {
-            }
-            //Tm is not exported!!!
-
-            //Retrieve and store the Fc dataset
-            //Retrieve the raw Fc readings (Rn)
-
-            ArrayList<Double> fcDataSet = new ArrayList<Double>();
-            int fcCol = 3;
-            //Move to the row containing the corresponding well based on well number
-            //This assumes that a corresponding well does exist
-            while (!fcSheet.getCell(0, fcRow).getContents().equals(String.valueOf(profile.getWellNumber()))) {
-                fcRow++;
-            }
-            //Move across the row until a blank cell is reached, signifying the end of te Rn Fc data
-            while (!fcSheet.getCell(fcCol, fcRow).getContents().equals("")) {
-                try {
-                    //NumberFormat needed to prevent locale differences in numbers (e.g. comma vs period)
-                    Number value = numFormat.parse(fcSheet.getCell(fcCol, fcRow).getContents());
-                    fcDataSet.add(value.doubleValue());
-                } catch (Exception e) {
-                    //Not sure if this will ever happen
-                }
-                fcCol++;
-            }
-            //Reset the row
-            fcRow = 0;
-            if (!fcDataSet.isEmpty()) {
-                double[] fcArray = new double[fcDataSet.size()];
-                for (int j = 0; j < fcDataSet.size(); j++) {
-                    fcArray[j] = fcDataSet.get(j);
-                }
-                profile.setRawFcReadings(fcArray);
-            }
-            //This is necessary to eliminate empty Fc datasets
-            // TODO present an error dialog if the Fc dataset is null
-            if (profile.getRawFcReadings() != null) {
-                if (CalibrationProfile.class.isAssignableFrom(profile.getClass())) {
-                    CalibrationProfile calProfile = (CalibrationProfile) profile;
-                    calbnProfileList.add(calProfile);
-
-                } else {
-                    SampleProfile sampleProfile = (SampleProfile) profile;
-                    sampleProfileList.add(sampleProfile);
-                }
-            }
-        }
-    RunImportData importData = new RunImportData(DataImportType.STANDARD, runDate, runName);
-    importData.setCalibrationProfileList (calbnProfileList);
-    importData.setSampleProfileList (sampleProfileList);
-    return importData ;
-}
+        RunImportUtilities.setTargetStrandedness(importData, RunImportUtilities.isTheTargetSingleStranded());
+        return importData;
+    }
 
 }
@@ -37,7 +37,7 @@ import org.lreqpcr.core.data_objects.SampleProfile;
 import org.lreqpcr.core.database_services.DatabaseProvider;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.utilities.UniversalLookupListener;
 import org.lreqpcr.data_export_services.DataExportServices;
@@ -157,10 +157,8 @@ public final class AmpliconOverviewTopComponent extends TopComponent
             facadeAmplicon.setName(ampName);
             //Retrieve all average profiles derived from this amplicon
             List ampliconNameAverageProfileList = currentDB.retrieveUsingFieldValue(AverageProfile.class, "ampliconName", ampName);
-            //Compile a list of all Emax values
-            ArrayList<Double> emaxArrayList = new ArrayList<Double>();
-            //Generate an Emax average and CV for this list
-            double emaxTotal = 0;
+            //Generate an Emax average and CV from all Emax values
+            StatisticsAccumulator emaxStats = new StatisticsAccumulator();
             for (int i = 0; i < ampliconNameAverageProfileList.size(); i++) {
                 //Ignore the replicate profiles, i.e. this is based only on AverageSampleProfiles
                 Profile profile = (Profile) ampliconNameAverageProfileList.get(i);
@@ -174,18 +172,16 @@ public final class AmpliconOverviewTopComponent extends TopComponent
                         AverageSampleProfile sampleProfile = (AverageSampleProfile) avPrf;
                         //Only includd AverageSampleProfiles with >10 molecules
                         if (!sampleProfile.isTheReplicateAverageNoLessThan10Molecules()) {
-                            emaxArrayList.add(profile.getEmax());
-                            emaxTotal = emaxTotal + profile.getEmax();
+                            emaxStats.add(profile.getEmax());
                         }
                     } else {//Must be a CalibrationProfile
-                        emaxArrayList.add(profile.getEmax());
-                        emaxTotal = emaxTotal + profile.getEmax();
+                        emaxStats.add(profile.getEmax());
                     }
                 }
             }
-            facadeAmplicon.setEmaxAverage(emaxTotal / emaxArrayList.size());
-            if (emaxArrayList.size() > 1) {
-                facadeAmplicon.setEmaxCV(MathFunctions.calcStDev(emaxArrayList) / facadeAmplicon.getEmaxAverage());
+            facadeAmplicon.setEmaxAverage(emaxStats.getMean());
+            if (emaxStats.getCount() > 1) {
+                facadeAmplicon.setEmaxCV(emaxStats.getStDev() / facadeAmplicon.getEmaxAverage());
             } else {
                 facadeAmplicon.setEmaxCV(0);
             }
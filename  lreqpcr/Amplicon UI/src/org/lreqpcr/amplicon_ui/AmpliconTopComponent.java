@@ -37,6 +37,7 @@ import org.lreqpcr.core.ui_elements.LabelFactory;
 import org.lreqpcr.core.ui_elements.LreActionFactory;
 import org.lreqpcr.core.ui_elements.LreNode;
 import org.lreqpcr.core.ui_elements.LreObjectChildren;
+import org.lreqpcr.core.utilities.AmpliconSizeDictionary;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.utilities.UniversalLookupListener;
 import org.lreqpcr.core.ui_elements.PanelMessages;
@@ -287,6 +288,7 @@ public final class AmpliconTopComponent extends TopComponent
         LreNode newNode = new LreNode(Children.LEAF, Lookups.singleton(newAmplicon), new Action[]{});
         newNode.setDatabaseService(ampliconDB);
         newNode.saveLreObject();//This also saves the new amplicon to disk
+        AmpliconSizeDictionary.getDictionary(ampliconDB).addAmplicon(newAmplicon);
         //Need to update the tree and put the selection on the new node
         //Construct a new root children list, which in this version is a simply a list of amplicons
         List newChildList = ampliconDB.getAllObjects(AmpliconImpl.class);
@@ -27,6 +27,7 @@ import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
 import org.lreqpcr.core.ui_elements.LreNode;
 import org.lreqpcr.core.ui_elements.LreObjectChildren;
+import org.lreqpcr.core.utilities.AmpliconSizeDictionary;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.openide.explorer.ExplorerManager;
 import org.openide.nodes.Node;
@@ -90,6 +91,8 @@ public class DeleteAmpliconAction extends AbstractAction {
                 }
             }
         }
+        //Deleted amplicons must be removed from the amplicon size dictionary
+        AmpliconSizeDictionary.getDictionary(ampliconDB).invalidate();
         //Update the tree
         children.setLreObjectList((List<? extends LreObject>) ampliconDB.getAllObjects(AmpliconImpl.class));
         //Refresh the tree, moving the selection to the node below the deleted node
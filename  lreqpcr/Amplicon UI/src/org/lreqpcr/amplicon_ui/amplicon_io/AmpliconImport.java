@@ -25,6 +25,7 @@ import jxl.read.biff.BiffException;
 import org.lreqpcr.core.data_objects.Amplicon;
 import org.lreqpcr.core.data_objects.AmpliconImpl;
 import org.lreqpcr.core.database_services.DatabaseServices;
+import org.lreqpcr.core.utilities.AmpliconSizeDictionary;
 import org.lreqpcr.core.utilities.IOUtilities;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.ui_elements.PanelMessages;
@@ -85,6 +86,8 @@ public class AmpliconImport {
 //        int colCount = sheet.getColumns();
         int rowCount = sheet.getRows();
         int row = 1;//Start column
+        //Amplicons are added to the amplicon size dictionary used during Run import
+        AmpliconSizeDictionary dictionary = AmpliconSizeDictionary.getDictionary(ampliconDB);
         while (row < rowCount) {
             Amplicon amp = new AmpliconImpl();
             amp.setName(sheet.getCell(0, row).getContents());
@@ -107,6 +110,7 @@ public class AmpliconImport {
             amp.setUniGene(sheet.getCell(6, row).getContents());
             amp.setLongDescription(sheet.getCell(7, row).getContents());
             ampliconDB.saveObject(amp);
+            dictionary.addAmplicon(amp);
             row++;
         }
         ampliconDB.commitChanges();
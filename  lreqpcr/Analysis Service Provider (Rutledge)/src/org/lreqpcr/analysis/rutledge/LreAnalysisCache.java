@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.analysis.rutledge;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import org.lreqpcr.core.data_objects.AverageProfile;
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+import org.lreqpcr.core.data_objects.Profile;
+
+/**
+ * Memory-bounded cache of LRE analysis results, which allows an analysis 
+ * to be skipped when an identical analysis has already been conducted, 
+ * for example when a database is reanalyzed using unchanged selection 
+ * parameters. 
+ * <p>
+ * Results are keyed only by the inputs of the analysis: the raw Fc readings, 
+ * the LRE window selection parameters, the analysis version, whether an 
+ * AverageProfile is valid, whether the Profile is excluded and, as an existing 
+ * LRE window is optimized rather than reinitialized, whether a window has been 
+ * found and its start cycle. 
+ * The outputs of a previous analysis held by the Profile are not part of the 
+ * key, as optimization of an existing window restarts from the average 
+ * Fb-derived Fc dataset rather than from a previous regression. The full 
+ * content is compared, so a hash collision cannot return the result of a 
+ * different analysis. 
+ * <p>
+ * Once the estimated size of the cached entries exceeds the memory budget, 
+ * the least recently used entries are evicted. Hit and miss counts are 
+ * maintained to allow the effectiveness of the cache to be assessed. 
+ * The cache is thread safe.
+ *
+ * @author Bob Rutledge
+ */
+public class LreAnalysisCache {
+
+    /**
+     * The version of the LRE analysis, which must be incremented whenever a 
+     * change to the analysis alters its results
+     */
+    static final int ANALYSIS_VERSION = 2;
+    /**
+     * The default memory budget in bytes
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 16 * 1024 * 1024;
+    //Estimated fixed size of an entry, its key and its result, excluding their arrays
+    private static final int ENTRY_OVERHEAD = 300;
+    //Estimated size of an array header
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final LreAnalysisCache DEFAULT = new LreAnalysisCache();
+    //Access ordered, so that iteration starts with the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private long memoryUsage = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @return the cache used by the LreAnalysisProvider
+     */
+    public static LreAnalysisCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a key holding the content of an analysis of the supplied Profile
+     *
+     * @param profile the Profile to be analyzed
+     * @param parameters the LRE window selection parameters
+     * @return the key
+     */
+    static Key createKey(Profile profile, LreWindowSelectionParameters parameters) {
+        return new Key(profile, parameters);
+    }
+
+    /**
+     * @param key the analysis key
+     * @return the cached result, or null if the analysis has not been cached
+     */
+    synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the result of an analysis, evicting the least recently used 
+     * entries if the memory budget is exceeded.
+     *
+     * @param key the analysis key
+     * @param result the result of the analysis
+     * @param returnValue the value returned by the analysis
+     */
+    synchronized void put(Key key, LreAnalysisResult result, boolean returnValue) {
+        Entry entry = new Entry(result, returnValue, key.estimateSize() + estimateSize(result));
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            memoryUsage -= previous.size;
+        }
+        memoryUsage += entry.size;
+        Iterator<Entry> it = entries.values().iterator();
+        while (memoryUsage > memoryBudget && it.hasNext()) {
+            memoryUsage -= it.next().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the estimated size of the result, including its working Fc readings
+     */
+    private static long estimateSize(LreAnalysisResult result) {
+        return ENTRY_OVERHEAD + estimateSize(result.getFcReadings());
+    }
+
+    private static long estimateSize(double[] array) {
+        return array == null ? 0 : ARRAY_OVERHEAD + 8L * array.length;
+    }
+
+    /**
+     * Removes all cached results. Note that the hit and miss counts are retained.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * Sets the memory budget, evicting the least recently used entries 
+     * if the budget is exceeded.
+     *
+     * @param memoryBudget the maximum estimated size of the cached entries in bytes
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("The memory budget cannot be negative");
+        }
+        this.memoryBudget = memoryBudget;
+        Iterator<Entry> it = entries.values().iterator();
+        while (memoryUsage > memoryBudget && it.hasNext()) {
+            memoryUsage -= it.next().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the maximum estimated size of the cached entries in bytes
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return the estimated size of the cached entries in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of analyses that were retrieved from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of analyses that were not present in the cache
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Resets the hit and miss counts to zero
+     */
+    public synchronized void resetCounts() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * A cached analysis result
+     */
+    static class Entry {
+
+        private final LreAnalysisResult result;
+        private final boolean returnValue;
+        private final long size;
+
+        private Entry(LreAnalysisResult result, boolean returnValue, long size) {
+            this.result = result;
+            this.returnValue = returnValue;
+            this.size = size;
+        }
+
+        /**
+         * @return the result of the analysis
+         */
+        LreAnalysisResult getResult() {
+            return result;
+        }
+
+        /**
+         * @return the value returned by the analysis
+         */
+        boolean getReturnValue() {
+            return returnValue;
+        }
+    }
+
+    /**
+     * The inputs of an analysis, which are copied so that subsequent changes 
+     * to the Profile do not alter the key.
+     */
+    static final class Key {
+
+        private final double[] values;
+        private final double[] rawFcReadings;
+        private final String nrServiceName;
+        private final int hash;
+
+        private Key(Profile profile, LreWindowSelectionParameters parameters) {
+            boolean isValidAverageProfile = true;
+            if (profile instanceof AverageProfile) {
+                AverageProfile avPrf = (AverageProfile) profile;
+                isValidAverageProfile = avPrf.areTheRepProfilesSufficientlyClustered()
+                        && !avPrf.isTheReplicateAverageNoLessThan10Molecules();
+            }
+            //Without a window the LRE window is reinitialized, so the start cycle is irrelevant
+            boolean hasWindow = profile.hasAnLreWindowBeenFound();
+            values = new double[]{
+                ANALYSIS_VERSION,
+                profile instanceof AverageProfile ? 1 : 0,
+                isValidAverageProfile ? 1 : 0,
+                //The LRE parameters of an excluded Profile are not calculated
+                profile.isExcluded() ? 1 : 0,
+                hasWindow ? 1 : 0,
+                hasWindow ? profile.getStrCycleInt() : 0,
+                valueOf(parameters.getMinFc()),
+                valueOf(parameters.getFoThreshold()),
+                valueOf(parameters.getNrConvergenceTolerance())
+            };
+            rawFcReadings = profile.getRawFcReadings() == null ? null : profile.getRawFcReadings().clone();
+            nrServiceName = parameters.getNrServiceName();
+            int h = Arrays.hashCode(values);
+            h = 31 * h + Arrays.hashCode(rawFcReadings);
+            h = 31 * h + (nrServiceName == null ? 0 : nrServiceName.hashCode());
+            hash = h;
+        }
+
+        private static double valueOf(Double value) {
+            return value == null ? Double.NaN : value;
+        }
+
+        private long estimateSize() {
+            return LreAnalysisCache.estimateSize(values) + LreAnalysisCache.estimateSize(rawFcReadings)
+                    + (nrServiceName == null ? 0 : 40 + 2L * nrServiceName.length());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            //Arrays.equals compares doubles bitwise, so NaN values are equal
+            return hash == other.hash
+                    && Arrays.equals(values, other.values)
+                    && Arrays.equals(rawFcReadings, other.rawFcReadings)
+                    && (nrServiceName == null ? other.nrServiceName == null : nrServiceName.equals(other.nrServiceName));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.analysis.rutledge;
+
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_processing.ProfileSummary;
+import org.lreqpcr.core.data_processing.ProfileSummaryImp;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionServices;
+
+/**
+ * Conducts LRE analysis of a single profile without a database, the user 
+ * interface or the NetBeans Lookup. 
+ * <p>
+ * The analysis is identical to that conducted by LreAnalysisProvider: the 
+ * LRE window is initialized and then, if requested, optimized using 
+ * nonlinear regression. It is conducted on a private working Profile 
+ * that is discarded once the immutable result has been generated, so 
+ * the analysis has no side effects. 
+ * <p>
+ * Each analysis uses its own working objects, so a single engine can analyze 
+ * profiles concurrently provided the nonlinear regression implementation 
+ * is reentrant.
+ *
+ * @author Bob Rutledge
+ */
+public class LreAnalysisEngine {
+
+    private final NonlinearRegressionServices nrService;
+
+    /**
+     * @param nrService the nonlinear regression implementation, or null if 
+     * nonlinear regression will not be used
+     */
+    public LreAnalysisEngine(NonlinearRegressionServices nrService) {
+        this.nrService = nrService;
+    }
+
+    /**
+     * Analyzes the profile held within the supplied input.
+     *
+     * @param input the raw Fc readings and LRE window selection parameters
+     * @return the result of the analysis
+     * @throws IllegalStateException if nonlinear regression is requested but 
+     * this engine does not have a nonlinear regression implementation
+     */
+    public LreAnalysisResult analyze(LreAnalysisInput input) {
+        if (input.isNonlinearRegressionUsed() && nrService == null) {
+            throw new IllegalStateException("A nonlinear regression implementation is required");
+        }
+        Profile profile = new WorkingProfile();
+        double[] rawFc = input.getRawFcReadings();
+        profile.setRawFcReadings(rawFc);
+        profile.setFcReadings(rawFc.clone());
+        //Without a database the ProfileSummary never saves the Profile
+        ProfileSummary prfSum = new ProfileSummaryImp(profile, null);
+        LreWindowSelectionParameters parameters = input.createSelectionParameters();
+        if (LreWindowSelector.initializeLreWindow(prfSum, parameters)
+                && input.isNonlinearRegressionUsed()) {
+            NonlinearRegressionImplementation nrAnalysis = new NonlinearRegressionImplementation(nrService);
+            nrAnalysis.setConvergenceTolerance(input.getNrConvergenceTolerance());
+            //Used to reinitialize the LRE window if the regression fails
+            nrAnalysis.setSelectionParameters(parameters);
+            LreWindowSelector.optimizeLreWindowUsingNR(prfSum, parameters, nrAnalysis);
+            prfSum.update();
+        }
+        return new LreAnalysisResult(profile);
+    }
+
+    /**
+     * The Profile analyzed by the engine, which is never stored
+     */
+    private static class WorkingProfile extends Profile {
+    }
+}
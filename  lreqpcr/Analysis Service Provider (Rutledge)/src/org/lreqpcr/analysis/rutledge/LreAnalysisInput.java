@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.analysis.rutledge;
+
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+
+/**
+ * Immutable input to the LreAnalysisEngine, consisting of the raw Fc readings 
+ * of a profile and the LRE window selection parameters. 
+ * <p>
+ * The readings and parameters are copied on construction, so subsequent 
+ * changes to the supplied objects have no effect.
+ *
+ * @author Bob Rutledge
+ */
+public final class LreAnalysisInput {
+
+    private final double[] rawFcReadings;
+    private final double minFc;
+    private final double foThreshold;
+    private final double nrConvergenceTolerance;
+    private final boolean useNonlinearRegression;
+
+    /**
+     * @param rawFcReadings raw fluorescence readings starting with Cycle 1
+     * @param parameters the LRE window selection parameters
+     * @param useNonlinearRegression whether the LRE window is to be optimized 
+     * using nonlinear regression-derived Fb and Fb-slope
+     */
+    public LreAnalysisInput(double[] rawFcReadings, LreWindowSelectionParameters parameters,
+            boolean useNonlinearRegression) {
+        this.rawFcReadings = rawFcReadings.clone();
+        this.minFc = parameters.getMinFc();
+        this.foThreshold = parameters.getFoThreshold();
+        this.nrConvergenceTolerance = parameters.getNrConvergenceTolerance();
+        this.useNonlinearRegression = useNonlinearRegression;
+    }
+
+    /**
+     * @return a copy of the raw fluorescence readings starting with Cycle 1
+     */
+    public double[] getRawFcReadings() {
+        return rawFcReadings.clone();
+    }
+
+    /**
+     * @return the minimum Fc used to select the start cycle, or zero if the 
+     * profile is to be scanned
+     */
+    public double getMinFc() {
+        return minFc;
+    }
+
+    /**
+     * @return the Fo threshold used to expand the LRE window
+     */
+    public double getFoThreshold() {
+        return foThreshold;
+    }
+
+    /**
+     * @return the nonlinear regression convergence tolerance, or zero to 
+     * conduct all regression passes
+     */
+    public double getNrConvergenceTolerance() {
+        return nrConvergenceTolerance;
+    }
+
+    /**
+     * @return whether the LRE window is to be optimized using nonlinear regression
+     */
+    public boolean isNonlinearRegressionUsed() {
+        return useNonlinearRegression;
+    }
+
+    /**
+     * @return new selection parameters holding the values of this input
+     */
+    LreWindowSelectionParameters createSelectionParameters() {
+        LreWindowSelectionParameters parameters = new LreWindowSelectionParameters();
+        parameters.setMinFc(minFc);
+        parameters.setFoThreshold(foThreshold);
+        parameters.setNrConvergenceTolerance(nrConvergenceTolerance);
+        return parameters;
+    }
+}
@@ -24,74 +24,95 @@ import org.openide.util.lookup.ServiceProvider;
 
 /**
  * Rutledge implementation of LRE window selection and optimization.
+ * <p>
+ * The analysis state is held within the supplied ProfileSummary and local 
+ * variables, so this provider is reentrant and different profiles can be 
+ * analyzed concurrently. 
+ * <p>
+ * The results of LRE window optimization are held in the LreAnalysisCache, 
+ * so that repeating an identical analysis only requires that the cached 
+ * result be applied to the Profile.
  *
  * @author Bob Rutledge
  */
 @ServiceProvider(service = LreAnalysisService.class)
 public class LreAnalysisProvider implements LreAnalysisService {
 
-    private Profile profile;
-    private ProfileSummary prfSum;
-    private LreWindowSelectionParameters parameters;
-    private NonlinearRegressionImplementation nrAnalysis = new NonlinearRegressionImplementation();
-
     public LreAnalysisProvider() {
     }
 
     public boolean lreWindowInitialization(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
-        this.prfSum = prfSum;
-        this.parameters = parameters;
-        this.profile = prfSum.getProfile();
-        //Reset the Profile to remove any previous LRE or NR analysis derived values
-        profile.setLreVariablesToZero();
-        //Be sure that the working Fc dataset is derived using an average Fb; 
-        //that is, to reverse any NR modification of the Fc dataset
-        LreWindowSelector.substractBackgroundUsingAvFc(profile);
-        prfSum.update();
-        //Selecting a start cycle also removes any previously determined LRE parameters
-        if (parameters.getMinFc() == 0) {
-            //No user selected minimum Fc, so need to scan the profile for a  LRE window
-            LreWindowSelector.selectLreStartCycleViaScanning(prfSum);
-        } else {//A user-selected minFc has be set, so use it
-            LreWindowSelector.selectLreStartCycleUsingMinFc(prfSum, parameters.getMinFc());
-        }
-        if (!profile.hasAnLreWindowBeenFound()) {
-//Failed to find a window, thus return as updating the LRE parameters is irrelevant
-            prfSum.update();
-            return false;
-        }
-        //Attempt to expand the upper limit of the LRE window
-        LreWindowSelector.expandLreWindowWithoutNR(prfSum, parameters.getFoThreshold());
-        prfSum.update();
-        if (!profile.hasAnLreWindowBeenFound()) {
-            return false;
-        }else {
-            return true;
+        //The Profile is only saved once the window has been initialized
+        prfSum.beginAnalysisSession();
+        try {
+            return initializeLreWindow(prfSum, parameters);
+        } finally {
+            prfSum.endAnalysisSession();
         }
     }
 
+    private boolean initializeLreWindow(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
+        return LreWindowSelector.initializeLreWindow(prfSum, parameters);
+    }
+
     public boolean optimizeLreWindowUsingNonlinearRegression(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
-        profile = prfSum.getProfile();
-        this.parameters = parameters;
+        //The Profile is only saved once the window has been optimized
+        prfSum.beginAnalysisSession();
+        try {
+            Profile profile = prfSum.getProfile();
+            LreAnalysisCache cache = LreAnalysisCache.getDefault();
+            LreAnalysisCache.Key key = LreAnalysisCache.createKey(profile, parameters);
+            LreAnalysisCache.Entry entry = cache.get(key);
+            if (entry != null) {
+                //This analysis has already been conducted
+                entry.getResult().applyTo(profile);
+                prfSum.update();
+                return entry.getReturnValue();
+            }
+            boolean succeeded = optimizeLreWindow(prfSum, parameters);
+            cache.put(key, new LreAnalysisResult(profile), succeeded);
+            return succeeded;
+        } finally {
+            prfSum.endAnalysisSession();
+        }
+    }
+
+    private boolean optimizeLreWindow(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
+        Profile profile = prfSum.getProfile();
         //Determine if a valid LRE window has been established
         if (!profile.hasAnLreWindowBeenFound()) {
             //Try to reinitialize the LRE window
-            lreWindowInitialization(prfSum, parameters);
+            initializeLreWindow(prfSum, parameters);
             if (!profile.hasAnLreWindowBeenFound()) {
                 //If a window has not been found, abort
                 prfSum.update();
                 return false;
             }
+        } else {
+            //Restart from the average Fb-derived Fc dataset, so that the result depends only 
+            //on the raw Fc readings and the start cycle rather than on a previous regression
+            LreWindowSelector.substractBackgroundUsingAvFc(profile);
+            profile.setNrFb(0);
+            profile.setNrFbSlope(0);
         }
         //Attempt to optimize the window using nonlinear regression
-        LreWindowSelector.optimizeLreWindowUsingNR(prfSum, parameters.getFoThreshold());
+        LreWindowSelector.optimizeLreWindowUsingNR(prfSum, parameters);
         prfSum.update();
         return prfSum.getProfile().didNonlinearRegressionSucceed();
     }
     
-    public boolean lreWindowUpdateUsingNR(ProfileSummary prfSum) {
-        nrAnalysis.generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
-        prfSum.update();
+    public boolean lreWindowUpdateUsingNR(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
+        NonlinearRegressionImplementation nrAnalysis = new NonlinearRegressionImplementation();
+        //Use the nonlinear regression settings held within the supplied selection parameters
+        nrAnalysis.configure(parameters != null ? parameters : new LreWindowSelectionParameters());
+        //The Profile is only saved once the regression is complete
+        prfSum.beginAnalysisSession();
+        try {
+            nrAnalysis.generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
+            prfSum.update();
+        } finally {
+            prfSum.endAnalysisSession();
+        }
         return prfSum.getProfile().didNonlinearRegressionSucceed();
     }
 }
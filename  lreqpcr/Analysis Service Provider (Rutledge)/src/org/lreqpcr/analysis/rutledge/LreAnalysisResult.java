@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.analysis.rutledge;
+
+import org.lreqpcr.core.data_objects.Profile;
+
+/**
+ * Immutable result of an LRE analysis conducted by the LreAnalysisEngine, 
+ * holding the LRE window, the LRE-derived parameters, the nonlinear 
+ * regression-derived parameters and their SDs, and the working Fc dataset. 
+ * Results are also held by the LreAnalysisCache, from which they are 
+ * applied to the Profile being analyzed.
+ *
+ * @author Bob Rutledge
+ */
+public final class LreAnalysisResult {
+
+    private final boolean windowFound;
+    private final boolean nonlinearRegressionSucceeded;
+    private final int strCycle;
+    private final int lreWinSize;
+    private final double emax;
+    private final double deltaE;
+    private final double r2;
+    private final double avFo;
+    private final double avFoCV;
+    private final double midC;
+    private final double fb;
+    private final double nrFb;
+    private final double nrFbSlope;
+    private final double nrEmax;
+    private final double nrFo;
+    private final double nrFmax;
+    private final double nrFbSD;
+    private final double nrFbSlopeSD;
+    private final double nrEmaxSD;
+    private final double nrFoSD;
+    private final double nrFmaxSD;
+    private final double[] fcReadings;
+
+    /**
+     * Copies the results of the analysis from the analyzed Profile.
+     *
+     * @param profile the analyzed Profile
+     */
+    LreAnalysisResult(Profile profile) {
+        windowFound = profile.hasAnLreWindowBeenFound();
+        nonlinearRegressionSucceeded = profile.didNonlinearRegressionSucceed();
+        strCycle = profile.getStrCycleInt();
+        lreWinSize = profile.getLreWinSize();
+        emax = profile.getEmax();
+        deltaE = profile.getDeltaE();
+        r2 = profile.getR2();
+        avFo = profile.getAvFo();
+        avFoCV = profile.getAvFoCV();
+        midC = profile.getMidC();
+        fb = profile.getFb();
+        nrFb = profile.getNrFb();
+        nrFbSlope = profile.getNrFbSlope();
+        nrEmax = profile.getNrEmax();
+        nrFo = profile.getNrFo();
+        nrFmax = profile.getNrFmax();
+        nrFbSD = profile.getNrFbSD();
+        nrFbSlopeSD = profile.getNrFbSlopeSD();
+        nrEmaxSD = profile.getNrEmaxSD();
+        nrFoSD = profile.getNrFoSD();
+        nrFmaxSD = profile.getNrFmaxSD();
+        fcReadings = profile.getFcReadings() == null ? null : profile.getFcReadings().clone();
+    }
+
+    /**
+     * Sets the results of the analysis into the supplied Profile. The average 
+     * Fo is set last, as this initiates the update of Sample and Calibration 
+     * Profiles. Note that the Profile is not saved.
+     *
+     * @param profile the Profile to receive the results
+     */
+    void applyTo(Profile profile) {
+        profile.setFcReadings(fcReadings == null ? null : fcReadings.clone());
+        profile.setHasAnLreWindowBeenFound(windowFound);
+        profile.setWasNonlinearRegressionSuccessful(nonlinearRegressionSucceeded);
+        profile.setStrCycleInt(strCycle);
+        profile.setLreWinSize(lreWinSize);
+        profile.setEmax(emax);
+        profile.setDeltaE(deltaE);
+        profile.setR2(r2);
+        profile.setAvFoCV(avFoCV);
+        profile.setMidC(midC);
+        profile.setFb(fb);
+        profile.setNrFb(nrFb);
+        profile.setNrFbSlope(nrFbSlope);
+        profile.setNrEmax(nrEmax);
+        profile.setNrFo(nrFo);
+        profile.setNrFmax(nrFmax);
+        profile.setNrFbSD(nrFbSD);
+        profile.setNrFbSlopeSD(nrFbSlopeSD);
+        profile.setNrEmaxSD(nrEmaxSD);
+        profile.setNrFoSD(nrFoSD);
+        profile.setNrFmaxSD(nrFmaxSD);
+        profile.setAvFo(avFo);
+    }
+
+    /**
+     * @return whether an LRE window was found
+     */
+    public boolean hasAnLreWindowBeenFound() {
+        return windowFound;
+    }
+
+    /**
+     * @return whether nonlinear regression was applied and succeeded
+     */
+    public boolean didNonlinearRegressionSucceed() {
+        return nonlinearRegressionSucceeded;
+    }
+
+    /**
+     * @return the first cycle of the LRE window, or zero if a window was not found
+     */
+    public int getStrCycleInt() {
+        return strCycle;
+    }
+
+    /**
+     * @return the number of cycles within the LRE window
+     */
+    public int getLreWinSize() {
+        return lreWinSize;
+    }
+
+    /**
+     * @return the LRE-derived maximal amplification efficiency
+     */
+    public double getEmax() {
+        return emax;
+    }
+
+    /**
+     * @return the LRE-derived loss in cycle efficiency per Fc unit
+     */
+    public double getDeltaE() {
+        return deltaE;
+    }
+
+    /**
+     * @return the r2 of the LRE window
+     */
+    public double getR2() {
+        return r2;
+    }
+
+    /**
+     * @return the average Fo of the LRE window
+     */
+    public double getAvFo() {
+        return avFo;
+    }
+
+    /**
+     * @return the coefficient of variation for the average Fo
+     */
+    public double getAvFoCV() {
+        return avFoCV;
+    }
+
+    /**
+     * @return C1/2, the fractional cycle at which Fc reaches half of Fmax
+     */
+    public double getMidC() {
+        return midC;
+    }
+
+    /**
+     * @return the baseline fluorescence derived from the average Fc of cycles 4-9
+     */
+    public double getFb() {
+        return fb;
+    }
+
+    /**
+     * @return the nonlinear regression-derived baseline fluorescence
+     */
+    public double getNrFb() {
+        return nrFb;
+    }
+
+    /**
+     * @return the nonlinear regression-derived baseline slope
+     */
+    public double getNrFbSlope() {
+        return nrFbSlope;
+    }
+
+    /**
+     * @return the nonlinear regression-derived Emax
+     */
+    public double getNrEmax() {
+        return nrEmax;
+    }
+
+    /**
+     * @return the nonlinear regression-derived Fo
+     */
+    public double getNrFo() {
+        return nrFo;
+    }
+
+    /**
+     * @return the nonlinear regression-derived Fmax
+     */
+    public double getNrFmax() {
+        return nrFmax;
+    }
+
+    /**
+     * @return the SD of the nonlinear regression-derived Fb
+     */
+    public double getNrFbSD() {
+        return nrFbSD;
+    }
+
+    /**
+     * @return the SD of the nonlinear regression-derived Fb-slope
+     */
+    public double getNrFbSlopeSD() {
+        return nrFbSlopeSD;
+    }
+
+    /**
+     * @return the SD of the nonlinear regression-derived Emax
+     */
+    public double getNrEmaxSD() {
+        return nrEmaxSD;
+    }
+
+    /**
+     * @return the SD of the nonlinear regression-derived Fo
+     */
+    public double getNrFoSD() {
+        return nrFoSD;
+    }
+
+    /**
+     * @return the SD of the nonlinear regression-derived Fmax
+     */
+    public double getNrFmaxSD() {
+        return nrFmaxSD;
+    }
+
+    /**
+     * @return the LRE-derived Fmax or -1 if a window was not found
+     */
+    public double getFmax() {
+        if (!windowFound) {
+            return -1;
+        }
+        return emax / -(deltaE);
+    }
+
+    /**
+     * @return a copy of the working Fc dataset, starting with Cycle 1
+     */
+    public double[] getFcReadings() {
+        return fcReadings == null ? null : fcReadings.clone();
+    }
+}
@@ -17,11 +17,12 @@
 package org.lreqpcr.analysis.rutledge;
 
 import org.lreqpcr.core.data_objects.AverageProfile;
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
 import org.lreqpcr.core.data_objects.Profile;
 import org.lreqpcr.core.data_processing.Cycle;
 import org.lreqpcr.core.data_processing.ProfileSummary;
 import org.lreqpcr.core.utilities.LREmath;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.RollingRegression;
 
 /**
  * Static functions used for automated LRE window selection
@@ -30,6 +31,49 @@ import org.lreqpcr.core.utilities.MathFunctions;
  */
 public class LreWindowSelector {
 
+    /**
+     * Initializes the LRE window of a Profile without using nonlinear regression. 
+     * <p>
+     * Any previous LRE or nonlinear regression analysis is removed, the working 
+     * Fc dataset is regenerated by subtraction of the average Fc (cycles 4-9), 
+     * and a start cycle selected either by scanning the profile or by using the 
+     * user-selected minimum Fc. The LRE window is then expanded using the Fo 
+     * threshold.
+     *
+     * @param prfSum the ProfileSummary encapsulating the Profile
+     * @param parameters the LRE window selection parameters
+     * @return true if a window was found or false if window selection failed
+     */
+    public static boolean initializeLreWindow(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
+        Profile profile = prfSum.getProfile();
+        //Reset the Profile to remove any previous LRE or NR analysis derived values
+        profile.setLreVariablesToZero();
+        //Be sure that the working Fc dataset is derived using an average Fb; 
+        //that is, to reverse any NR modification of the Fc dataset
+        substractBackgroundUsingAvFc(profile);
+        prfSum.update();
+        //Selecting a start cycle also removes any previously determined LRE parameters
+        if (parameters.getMinFc() == 0) {
+            //No user selected minimum Fc, so need to scan the profile for a  LRE window
+            selectLreStartCycleViaScanning(prfSum);
+        } else {//A user-selected minFc has be set, so use it
+            selectLreStartCycleUsingMinFc(prfSum, parameters.getMinFc());
+        }
+        if (!profile.hasAnLreWindowBeenFound()) {
+//Failed to find a window, thus return as updating the LRE parameters is irrelevant
+            prfSum.update();
+            return false;
+        }
+        //Attempt to expand the upper limit of the LRE window
+        expandLreWindowWithoutNR(prfSum, parameters.getFoThreshold());
+        prfSum.update();
+        if (!profile.hasAnLreWindowBeenFound()) {
+            return false;
+        }else {
+            return true;
+        }
+    }
+
     /**
      * Automated selection of the LRE window Start Cycle within an uninitialized
      * Profile in which a valid LRE window has not yet been identified.
@@ -69,46 +113,45 @@ public class LreWindowSelector {
                 return;
             }
         }
-        //Start at cycle 2
-        Cycle runner = prfSum.getZeroCycle().getNextCycle().getNextCycle();
-        
         //For each Cycle across the profile, calculate LRE parameters using the 
-        //two previous and two following cycles, that is, a five cycle LRE window
-        while (runner.getNextCycle().getNextCycle() != null) {
-            double[][] fcEcArray = new double[2][5];
-            fcEcArray[0][0] = runner.getPrevCycle().getPrevCycle().getFc();
-            fcEcArray[1][0] = runner.getPrevCycle().getPrevCycle().getEc();
-            fcEcArray[0][1] = runner.getPrevCycle().getFc();
-            fcEcArray[1][1] = runner.getPrevCycle().getEc();
-            fcEcArray[0][2] = runner.getFc();
-            fcEcArray[1][2] = runner.getEc();
-            fcEcArray[0][3] = runner.getNextCycle().getFc();
-            fcEcArray[1][3] = runner.getNextCycle().getEc();
-            fcEcArray[0][4] = runner.getNextCycle().getNextCycle().getFc();
-            fcEcArray[1][4] = runner.getNextCycle().getNextCycle().getEc();
-
+        //two previous and two following cycles, that is, a five cycle LRE window.
+        //The window is slid one cycle at a time, so that only the cycle leaving 
+        //and the cycle entering the window need to be processed. A non-finite Ec 
+        //(following a zero Fc) only invalidates the windows that include it.
+        RollingRegression regression = new RollingRegression();
+        double[] regressionValues = new double[3];//Reused for every cycle
+        int lastCycle = prfSum.getNumberOfCycles();
+        //Start at cycle 2, whose window spans cycles 0-4
+        for (int cycNum = 0; cycNum <= 4 && cycNum <= lastCycle; cycNum++) {
+            Cycle cycle = prfSum.getCycle(cycNum);
+            regression.add(cycle.getFc(), cycle.getEc());
+        }
+        for (int cycNum = 2; cycNum + 2 <= lastCycle; cycNum++) {
+            if (cycNum > 2) {
+                //Slide the window to the next cycle
+                Cycle leaving = prfSum.getCycle(cycNum - 3);
+                Cycle entering = prfSum.getCycle(cycNum + 2);
+                regression.remove(leaving.getFc(), leaving.getEc());
+                regression.add(entering.getFc(), entering.getEc());
+            }
+            Cycle runner = prfSum.getCycle(cycNum);
             //Calc cycle LRE paramaters [dE, Emax, r2]
-            double[] regressionValues;
-            runner.setCycLREparam(MathFunctions.linearRegressionAnalysis(fcEcArray));
-            int cycNum = runner.getCycNum();
-            double fc = runner.getFc();
-            regressionValues = runner.getCycLREparam();
+            regression.getRegressionValues(regressionValues);
+            runner.setCycLREparam(regressionValues);
             //Calculate Fo
             runner.setFo(LREmath.calcFo(
                     cycNum,
-                    fc,
+                    runner.getFc(),
                     regressionValues[0],
                     regressionValues[1]));
-            //Go to the next cycle
-            runner = runner.getNextCycle();
         }
         
         /*-----Find a start cycle based on the Cycle LRE r2-----*/
         //Attempt to find a valid LRE window by examing the LRE r2 of 3 
         //contiguous cycles, and if the Emax of the central cycle is above 40%.
         
-        //Reinitialize the runner and start at cycle 3
-        runner = prfSum.getZeroCycle().getNextCycle().getNextCycle().getNextCycle();         
+        //Initialize the runner and start at cycle 3
+        Cycle runner = prfSum.getZeroCycle().getNextCycle().getNextCycle().getNextCycle();         
         //Limit the analysis to 3 cycles before the end of the profile
         while (!profile.hasAnLreWindowBeenFound() && runner.getNextCycle().getNextCycle().getNextCycle() != null) {
 //Test for the minimum r2 >r2 tolerance across 1 cycle before and after the target cycle
@@ -296,7 +339,10 @@ public class LreWindowSelector {
      * determined from the cycles within the LRE window and the Fo value derived
      * from the first cycle immediately above the LRE window. If this difference
      * is smaller than the Fo threshold, this next cycle is added to the LRE
-     * window, and the analysis repeated.
+     * window, and the analysis repeated. Each expansion conducts a single 
+     * regression initialized with the parameters optimized for the previous 
+     * window, with the full averaged regression only conducted once the 
+     * window is final.
      * <p>
      * Note that the upper limit of this expansion is limited to the cycle Fc
      * less than 95% of Fmax, eliminating the possibility of including plateau
@@ -306,12 +352,31 @@ public class LreWindowSelector {
      * modified Profile is saved via ProfileSummary.update().
      *
      * @param prfSum the ProfileSummary to be processed
-     * @param foThreshold the Fo threshold used to determine whether the next
-     * cycle should be included into the LRE window
+     * @param parameters the LRE window selection parameters, which provide the 
+     * Fo threshold used to determine whether the next cycle should be included 
+     * into the LRE window and the nonlinear regression settings
      * @return returns true if a LRE window was optimized or false if an
      * optimized LRE window selection failed
      */
-    public static boolean optimizeLreWindowUsingNR(ProfileSummary prfSum, Double foThreshold) {
+    public static boolean optimizeLreWindowUsingNR(ProfileSummary prfSum, LreWindowSelectionParameters parameters) {
+        NonlinearRegressionImplementation nrAnalysis = new NonlinearRegressionImplementation();
+        nrAnalysis.configure(parameters);
+        return optimizeLreWindowUsingNR(prfSum, parameters, nrAnalysis);
+    }
+
+    /**
+     * Optimizes the LRE window as described above using the supplied nonlinear 
+     * regression implementation, which must already be configured.
+     *
+     * @param prfSum the ProfileSummary to be processed
+     * @param parameters the LRE window selection parameters
+     * @param nrAnalysis the nonlinear regression implementation
+     * @return returns true if a LRE window was optimized or false if an
+     * optimized LRE window selection failed
+     */
+    public static boolean optimizeLreWindowUsingNR(ProfileSummary prfSum, LreWindowSelectionParameters parameters,
+            NonlinearRegressionImplementation nrAnalysis) {
+        Double foThreshold = parameters.getFoThreshold();
         Profile profile = prfSum.getProfile();
         //A vaild LRE window must be present
         if (!profile.hasAnLreWindowBeenFound()) {
@@ -320,7 +385,6 @@ public class LreWindowSelector {
         //Reset the window size to 3 cycle in order to ensure optimized LRE parameters
         profile.setLreWinSize(3);
         prfSum.update();
-        NonlinearRegressionImplementation nrAnalysis = new NonlinearRegressionImplementation();
         //Conduct a preliminary NR to stabilize the LRE analysis
         //Note that this modifies the working Fc dataset
         nrAnalysis.generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
@@ -334,6 +398,7 @@ public class LreWindowSelector {
         //Try to expand the upper region of the window based on the Fo threshold
         //This also limits the top of the LRE window to 95% of Fmax
         double fmaxThreshold = profile.getFmax() * 0.95;
+        boolean windowExpanded = false;
         while (Math.abs(runner.getNextCycle().getFoFracFoAv()) < foThreshold
                 && runner.getNextCycle().getFc() < fmaxThreshold) {
             //Increase and set the LRE window size by 1 cycle
@@ -341,8 +406,10 @@ public class LreWindowSelector {
             //Need to conduct nonlinear regression analysis
             //First update the LRE parameters, which also generates a new Cycle linked list
             prfSum.update();
-            //Conduct NR which also updates the LRE parameters and instantiates a new Cycle list
-            nrAnalysis.generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
+            //Conduct a single NR initialized from the previous window's optimized parameters,
+            //which also updates the LRE parameters and instantiates a new Cycle list
+            nrAnalysis.updateFcDatasetUsingWarmStartedRegression(prfSum);
+            windowExpanded = true;
             //Must now set the runner to the new last Cycle in the LRE window
             runner = prfSum.getLreWindowEndCycle();
             //Test if the runner has reached the end of the profile
@@ -351,6 +418,10 @@ public class LreWindowSelector {
                 break;//Odd situation in which the end of the profile is reached
             }
         }
+        if (windowExpanded) {
+            //The window is now final, so conduct the full averaged regression
+            nrAnalysis.generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
+        }
         return true;
     }
 
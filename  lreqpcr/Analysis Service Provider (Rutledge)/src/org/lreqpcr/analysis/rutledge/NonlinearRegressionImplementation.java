@@ -16,21 +16,12 @@
  */
 package org.lreqpcr.analysis.rutledge;
 
-import java.awt.Toolkit;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TreeMap;
-import javax.swing.JOptionPane;
-import org.lreqpcr.analysis_services.LreAnalysisService;
 import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
 import org.lreqpcr.core.data_objects.Profile;
 import org.lreqpcr.core.data_processing.ProfileSummary;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.nonlinear_regression_services.LreParameters;
 import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionServices;
-import org.openide.util.Lookup;
-import org.openide.windows.WindowManager;
 
 /**
  *
@@ -40,7 +31,99 @@ public class NonlinearRegressionImplementation {
 
     private ProfileSummary prfSum;
     private Profile profile;
-    private NonlinearRegressionServices nrService = Lookup.getDefault().lookup(NonlinearRegressionServices.class);
+    private NonlinearRegressionServices nrService;
+    //The parameters used to reinitialize the LRE window if the regression fails
+    private LreWindowSelectionParameters selectionParameters;
+    //Reused across fits to avoid declaring new objects for every regression
+    private LreParameters lreDerivedParam = new LreParameters();
+    private LreParameters optParam = new LreParameters();
+    //The maximum number of averaged regression passes following the stabilizing regression
+    private static final int NUMBER_OF_PASSES = 3;
+    //At least two passes are averaged so that the SD of each parameter can be determined
+    private static final int MIN_NUMBER_OF_PASSES = 2;
+    //Zero signifies that all passes are conducted
+    private double convergenceTolerance = 0;
+    private StatisticsAccumulator emaxStats = new StatisticsAccumulator();
+    private StatisticsAccumulator fbStats = new StatisticsAccumulator();
+    private StatisticsAccumulator foStats = new StatisticsAccumulator();
+    private StatisticsAccumulator fmaxStats = new StatisticsAccumulator();
+    private StatisticsAccumulator fbSlopeStats = new StatisticsAccumulator();
+    //The trimmed profile included in the regression
+    private double[] cycles;
+    private double[] trimmedFc;
+    private int lastCycle;
+    //True once optParam holds the result of a regression that can seed the next
+    private boolean hasOptimizedParameters = false;
+
+    /**
+     * Uses the default nonlinear regression implementation.
+     */
+    public NonlinearRegressionImplementation() {
+        this(NonlinearRegressionServices.getService(null));
+    }
+
+    /**
+     * @param nrService the nonlinear regression implementation used to derive Fb and Fb-slope
+     */
+    public NonlinearRegressionImplementation(NonlinearRegressionServices nrService) {
+        this.nrService = nrService;
+    }
+
+    /**
+     * Sets the tolerance used to terminate the regression passes once the 
+     * NR-derived baseline has converged. The change in Fb, and in the Fb-slope 
+     * extrapolated to the last cycle included in the regression, between 
+     * successive passes must both be smaller than this fraction of the 
+     * NR-derived Fmax. 
+     * <p>
+     * The average and SD of the NR-derived parameters are determined only 
+     * from the passes conducted after the initial stabilizing regression, so 
+     * at least 2 passes are conducted before convergence is tested. Zero 
+     * disables this test so that all 3 passes are always conducted and averaged.
+     *
+     * @param convergenceTolerance the fraction of Fmax or zero to conduct all passes
+     */
+    public void setConvergenceTolerance(double convergenceTolerance) {
+        this.convergenceTolerance = convergenceTolerance;
+    }
+
+    /**
+     * Selects the nonlinear regression implementation used to derive Fb and 
+     * Fb-slope.
+     *
+     * @param name the name of the implementation, or null for the default implementation
+     * @see NonlinearRegressionServices#getService(String)
+     */
+    public void setNonlinearRegressionService(String name) {
+        nrService = NonlinearRegressionServices.getService(name);
+    }
+
+    /**
+     * Applies the nonlinear regression settings held within the LRE window 
+     * selection parameters, that is, the convergence tolerance and the 
+     * nonlinear regression implementation.
+     *
+     * @param parameters the LRE window selection parameters
+     */
+    public void configure(LreWindowSelectionParameters parameters) {
+        setConvergenceTolerance(parameters.getNrConvergenceTolerance());
+        setNonlinearRegressionService(parameters.getNrServiceName());
+        setSelectionParameters(parameters);
+    }
+
+    /**
+     * Sets the LRE window selection parameters used to reinitialize the LRE 
+     * window if the regression fails, which must be set before a regression 
+     * is conducted, either directly or via configure().
+     *
+     * @param parameters the LRE window selection parameters
+     */
+    public void setSelectionParameters(LreWindowSelectionParameters parameters) {
+        if (parameters == null) {
+            throw new IllegalArgumentException("The LRE window selection parameters are required");
+        }
+        selectionParameters = parameters;
+    }
 
     /**
      * Generates an optimized working Fc dataset via nonlinear regression 
@@ -49,47 +132,42 @@ public class NonlinearRegressionImplementation {
      * Nonlinear regression is conducted using Emax, Fmax and Fo derived from 
      * the current LRE window, from WHICH values for Fb and Fb-slope are determined. 
      * These are then used to calculate a new working Fc dataset, followed by 
-     * recalculation of the LRE parameters. This process repeated 3 times from which  
+     * recalculation of the LRE parameters. This process repeated 3 times, or until 
+     * Fb and Fb-slope have converged if a convergence tolerance has been set, from which  
      * an average Fb and Fb-slope are then determined and a final
      * optimized working Fc dataset generated. This is followed by a final
      * recalculation of the LRE parameters to determine final values for Emax, Fmax and Fo. 
      * THIS DOES THIS INCLUDE ANY MODIFICATION TO THE LRE WINDOW.
      * <p>
-     * Note also that the LRE parameters are updated and the modified Profile is
-     * saved, which includes initialization of a new Cycle linked list, so any calling
-     * function must reset its runner.
+     * Note also that the LRE parameters are updated via ProfileSummary.update(), 
+     * which marks the Profile as modified. The Profile is saved immediately 
+     * unless an analysis session is open. Cycles retrieved from the 
+     * ProfileSummary remain valid, as they are views of its cycle store.
+     * <p>
+     * Only a successful regression can seed a subsequent warm-started 
+     * regression. If the regression fails, the Profile is returned to average 
+     * Fb background subtraction and its LRE window is reinitialized.
      *
      * @param prfSum the ProfileSummary encapsulating the Profile
      * @return true if nonlinear regression analysis was successful or false if it failed
+     * @throws IllegalStateException if the LRE window selection parameters have not been set
      */
     public boolean generateOptimizedFcDatasetUsingNonliearRegression(ProfileSummary prfSum) {
+        if (selectionParameters == null) {
+            throw new IllegalStateException("The LRE window selection parameters have not been set");
+        }
         this.prfSum = prfSum;
         profile = prfSum.getProfile();
+        //Cleared until this regression has been shown to be successful
+        hasOptimizedParameters = false;
 
         //The profile must have a valid LRE window
-        if (!profile.hasAnLreWindowBeenFound()) {
+        if (!profile.hasAnLreWindowBeenFound() || !trimProfile()) {
             return false;
         }
-//Need to trim the profile in order to avoid aberrancies within early cycles and within the plateau phase
-        //Exclude the first three cycles
-        int firstCycle = 4;//Start at cycle 4        
-//Use the top of the LRE window as the last cycle included in the regression analysis******THIS IS VERY IMPORTANT
-        double[] fcArray = profile.getRawFcReadings();
-        int lastCycle = 0;
-        if (prfSum.getLreWindowEndCycle() != null){
-            lastCycle = prfSum.getLreWindowEndCycle().getCycNum();
-        }else{
-            return false;
-        }
-        int numberOfCycles = lastCycle - firstCycle + 1;
-        //Construct the trimmed Fc dataset TreeMap<cycle number, Fc reading>
-        TreeMap<Integer, Double> profileMap = new TreeMap<Integer, Double>();
-        for (int i = 0; i < numberOfCycles; i++) {
-            profileMap.put(firstCycle + i, fcArray[firstCycle - 1 + i]);
-        }
         //Run NR once to grossly stablize the LRE-derived parameters
-        LreParameters lreDerivedParam = getLreParameters();
-        LreParameters optParam = nrService.conductNonlinearRegression(lreDerivedParam, profileMap);
+        updateLreParameters();
+        nrService.conductNonlinearRegression(lreDerivedParam, cycles, trimmedFc, optParam);
         //Reinitialize the LRE-derived parameters
         //First Reset nonlinear regression-derived Fb and Fb-slope within the profile
         profile.setNrFb(optParam.getFb());
@@ -100,32 +178,20 @@ public class NonlinearRegressionImplementation {
         //However, this assumes that the NR was successful
         prfSum.update();
         //Reset the LRE-derived paramaters
-        lreDerivedParam = getLreParameters();
-        //Run the regression analysis 10 times to determine the average and SD
+        updateLreParameters();
+        //Run the regression analysis 3 times to determine the average and SD
 //This is necessary due to the poor performance of Peter Abeles’s EJML implementation
-        int numberOfIterations = 3;
-        ArrayList<Double> emaxArray = new ArrayList<Double>();
-        ArrayList<Double> fbArray = new ArrayList<Double>();
-        ArrayList<Double> foArray = new ArrayList<Double>();
-        ArrayList<Double> fmaxArray = new ArrayList<Double>();
-        ArrayList<Double> fbSlopeArray = new ArrayList<Double>();
-        double emaxSum = 0;
-        double fbSum = 0;
-        double foSum = 0;
-        double fmaxSum = 0;
-        double fbSlopeSum = 0;
-        for (int i = 0; i < numberOfIterations; i++) {
-            optParam = nrService.conductNonlinearRegression(lreDerivedParam, profileMap);
-            emaxArray.add(optParam.getEmax());
-            emaxSum += optParam.getEmax();
-            fbArray.add(optParam.getFb());
-            fbSum += optParam.getFb();
-            foArray.add(optParam.getFo());
-            foSum += optParam.getFo();
-            fmaxArray.add(optParam.getFmax());
-            fmaxSum += optParam.getFmax();
-            fbSlopeArray.add(optParam.getFbSlope());
-            fbSlopeSum += optParam.getFbSlope();
+        emaxStats.clear();
+        fbStats.clear();
+        foStats.clear();
+        fmaxStats.clear();
+        fbSlopeStats.clear();
+        boolean testForConvergence = convergenceTolerance > 0;
+        for (int i = 0; i < NUMBER_OF_PASSES; i++) {
+            double prevFb = optParam.getFb();
+            double prevFbSlope = optParam.getFbSlope();
+            nrService.conductNonlinearRegression(lreDerivedParam, cycles, trimmedFc, optParam);
+            addToPassStatistics();
             //Reinitialize the LRE-derived parameters
             //First reset nonlinear regression-derived Fb and Fb-slope within the profile
             profile.setNrFb(optParam.getFb());
@@ -135,26 +201,131 @@ public class NonlinearRegressionImplementation {
             //Update the LRE-derived parameters within the Profile
             prfSum.update();
             //Retrieve the new LRE parameters
-            lreDerivedParam = getLreParameters();
+            updateLreParameters();
+            //The stabilizing regression is never compared, as it is not included within the average
+            if (testForConvergence && i + 1 >= MIN_NUMBER_OF_PASSES
+                    && hasBaselineConverged(prevFb, prevFbSlope, lastCycle)) {
+                break;
+            }
         }
 //Set the average for each parameter into the Profile 
 //This allows the final recalculation of the LRE parameters based on the average Fb and Fb-slope
-        profile.setNrEmax(emaxSum / numberOfIterations);
-        profile.setNrFb(fbSum / numberOfIterations);
-        profile.setNrFo(foSum / numberOfIterations);
-        profile.setNrFmax(fmaxSum / numberOfIterations);
-        profile.setNrFbSlope(fbSlopeSum / numberOfIterations);
+        profile.setNrEmax(emaxStats.getMean());
+        profile.setNrFb(fbStats.getMean());
+        profile.setNrFo(foStats.getMean());
+        profile.setNrFmax(fmaxStats.getMean());
+        profile.setNrFbSlope(fbSlopeStats.getMean());
         //Determine and set the parameter SD
-        profile.setNrEmaxSD(MathFunctions.calcStDev(emaxArray));
-        profile.setNrFbSD(MathFunctions.calcStDev(fbArray));
-        profile.setNrFoSD(MathFunctions.calcStDev(foArray));
-        profile.setNrFmaxSD(MathFunctions.calcStDev(fmaxArray));
-        profile.setNrFbSlopeSD(MathFunctions.calcStDev(fbSlopeArray));
+        profile.setNrEmaxSD(emaxStats.getStDev());
+        profile.setNrFbSD(fbStats.getStDev());
+        profile.setNrFoSD(foStats.getStDev());
+        profile.setNrFmaxSD(fmaxStats.getStDev());
+        profile.setNrFbSlopeSD(fbSlopeStats.getStDev());
 //Recaculate the optimized Fc dataset using the average NR-derived Fb and Fb-slope
         conductBaselineCorrection();
         //Update the LRE parameters
         prfSum.update();
-        return testIfRegressionWasSuccessful();
+        hasOptimizedParameters = testIfRegressionWasSuccessful();
+        return hasOptimizedParameters;
+    }
+
+    /**
+     * Generates a working Fc dataset for the current LRE window via a single 
+     * nonlinear regression that is initialized with the parameters optimized 
+     * for the previous LRE window. 
+     * <p>
+     * This is intended for LRE window expansion, where the window grows by one 
+     * cycle at a time such that the previous optimized parameters are already 
+     * close to the new optimum. No averaging is conducted, and the NR-derived 
+     * Emax, Fo, Fmax and SDs within the Profile are not updated, so 
+     * generateOptimizedFcDatasetUsingNonliearRegression must be called once 
+     * the window is final. If no previous regression has been conducted by 
+     * this instance, or if the previous full regression failed, the full 
+     * regression is conducted instead.
+     * <p>
+     * As with the full regression, the LRE parameters are updated via 
+     * ProfileSummary.update(), which marks the Profile as modified.
+     *
+     * @param prfSum the ProfileSummary encapsulating the Profile
+     * @return true if the regression was conducted or false if the Profile 
+     * does not have a valid LRE window
+     */
+    public boolean updateFcDatasetUsingWarmStartedRegression(ProfileSummary prfSum) {
+        if (!hasOptimizedParameters || prfSum != this.prfSum) {
+            return generateOptimizedFcDatasetUsingNonliearRegression(prfSum);
+        }
+        if (!profile.hasAnLreWindowBeenFound() || !trimProfile()) {
+            return false;
+        }
+        //Seed the regression with the parameters optimized for the previous window
+        lreDerivedParam.setEmax(optParam.getEmax());
+        lreDerivedParam.setFb(optParam.getFb());
+        lreDerivedParam.setFo(optParam.getFo());
+        lreDerivedParam.setFmax(optParam.getFmax());
+        lreDerivedParam.setFbSlope(optParam.getFbSlope());
+        nrService.conductNonlinearRegression(lreDerivedParam, cycles, trimmedFc, optParam);
+        profile.setNrFb(optParam.getFb());
+        profile.setNrFbSlope(optParam.getFbSlope());
+        conductBaselineCorrection();
+        prfSum.update();
+        return true;
+    }
+
+    /**
+     * Constructs the cycle number and Fc datasets included in the regression, 
+     * which exclude cycles 1-3 and all cycles above the LRE window.
+     *
+     * @return false if the LRE window has no end cycle or ends below the first cycle
+     */
+    private boolean trimProfile() {
+//Need to trim the profile in order to avoid aberrancies within early cycles and within the plateau phase
+        //Exclude the first three cycles
+        int firstCycle = 4;//Start at cycle 4        
+//Use the top of the LRE window as the last cycle included in the regression analysis******THIS IS VERY IMPORTANT
+        double[] fcArray = profile.getRawFcReadings();
+        if (prfSum.getLreWindowEndCycle() != null){
+            lastCycle = prfSum.getLreWindowEndCycle().getCycNum();
+        }else{
+            return false;
+        }
+        int numberOfCycles = lastCycle - firstCycle + 1;
+        if (numberOfCycles < 1) {
+            return false;//No cycles remain following trimming
+        }
+        //Construct the trimmed cycle number and Fc datasets
+        cycles = new double[numberOfCycles];
+        trimmedFc = new double[numberOfCycles];
+        for (int i = 0; i < numberOfCycles; i++) {
+            cycles[i] = firstCycle + i;
+            trimmedFc[i] = fcArray[firstCycle - 1 + i];
+        }
+        return true;
+    }
+
+    /**
+     * Records the parameters derived from the latest regression pass
+     */
+    private void addToPassStatistics() {
+        emaxStats.add(optParam.getEmax());
+        fbStats.add(optParam.getFb());
+        foStats.add(optParam.getFo());
+        fmaxStats.add(optParam.getFmax());
+        fbSlopeStats.add(optParam.getFbSlope());
+    }
+
+    /**
+     * Determines if the latest regression pass has changed the NR-derived 
+     * baseline by less than the convergence tolerance
+     *
+     * @param prevFb the Fb derived from the previous pass
+     * @param prevFbSlope the Fb-slope derived from the previous pass
+     * @param lastCycle the last cycle included in the regression
+     * @return true if both Fb and Fb-slope have converged
+     */
+    private boolean hasBaselineConverged(double prevFb, double prevFbSlope, int lastCycle) {
+        double threshold = convergenceTolerance * Math.abs(optParam.getFmax());
+        return Math.abs(optParam.getFb() - prevFb) < threshold
+                && Math.abs((optParam.getFbSlope() - prevFbSlope) * lastCycle) < threshold;
     }
 
     /**
@@ -177,14 +348,11 @@ public class NonlinearRegressionImplementation {
     }
 
     /**
-     * Retrieves the current LRE parameters from the Profile
-     *
-     * @param profile
-     * @return
+     * Retrieves the current LRE parameters from the Profile into the reused 
+     * LRE-derived initial parameters
      */
-    private LreParameters getLreParameters() {
+    private void updateLreParameters() {
         //Setup the initial parameters 
-        LreParameters lreDerivedParam = new LreParameters();
 //Testing indicates that if Fb=0 the NR fails
         if (profile.getNrFb() == 0) {
             lreDerivedParam.setFb(profile.getFb());//This Fb is derived from the average of cycles 4-9
@@ -195,7 +363,6 @@ public class NonlinearRegressionImplementation {
         lreDerivedParam.setFmax(profile.getFmax());//Current LRE-derived Fmax
         lreDerivedParam.setFo(profile.getAvFo());//Current LRE-derived average Fo
         lreDerivedParam.setFbSlope(profile.getNrFbSlope());//Current Fb slope
-        return lreDerivedParam;
     }
 
     private boolean testIfRegressionWasSuccessful() {//**** TODO Design a more effective scheme to test for NR success   
@@ -223,10 +390,7 @@ public class NonlinearRegressionImplementation {
             //Recalculate the LRE parameters
             prfSum.update();
             //Reinitialize the profile
-            List<LreWindowSelectionParameters> l = prfSum.getDatabase().getAllObjects(LreWindowSelectionParameters.class);
-            LreWindowSelectionParameters parameters = l.get(0);
-            LreAnalysisService lreAnalService = Lookup.getDefault().lookup(LreAnalysisService.class);
-            lreAnalService.lreWindowInitialization(prfSum, parameters);
+            LreWindowSelector.initializeLreWindow(prfSum, selectionParameters);
             return false;
         }
         profile.setWasNonlinearRegressionSuccessful(true);
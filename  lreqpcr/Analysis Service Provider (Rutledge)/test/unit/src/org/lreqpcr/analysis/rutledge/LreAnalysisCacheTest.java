@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.analysis.rutledge;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+import org.lreqpcr.core.data_objects.RunImpl;
+import org.lreqpcr.core.data_objects.SampleProfile;
+import org.lreqpcr.core.data_processing.ProfileSummary;
+import org.lreqpcr.core.data_processing.ProfileSummaryImp;
+
+/**
+ * Checks that the LreAnalysisCache only returns the result of an analysis
+ * conducted on identical inputs, in particular that a Profile that has been
+ * excluded and then included again is reanalyzed rather than receiving the
+ * cached result of its analysis while excluded.
+ * <p>
+ * The nonlinear regression service is retrieved via the default Lookup, so
+ * the nonlinear regression provider must be present on the test classpath.
+ *
+ * @author Bob Rutledge
+ */
+public class LreAnalysisCacheTest {
+
+    private final LreAnalysisProvider provider = new LreAnalysisProvider();
+    private final LreWindowSelectionParameters parameters = new LreWindowSelectionParameters();
+    private final LreAnalysisCache cache = LreAnalysisCache.getDefault();
+
+    @Before
+    public void clearCache() {
+        cache.clear();
+        cache.resetCounts();
+    }
+
+    @Test
+    public void testExcludedProfileIsReanalyzedOnceIncluded() {
+        //The LRE parameters of a Profile that has never been excluded
+        SampleProfile reference = createProfile();
+        ProfileSummary referenceSummary = new ProfileSummaryImp(reference, null);
+        provider.lreWindowInitialization(referenceSummary, parameters);
+        provider.optimizeLreWindowUsingNonlinearRegression(referenceSummary, parameters);
+        assertTrue(reference.hasAnLreWindowBeenFound());
+        double includedAvFo = reference.getAvFo();
+        assertTrue(includedAvFo > 0);
+        cache.clear();
+
+        //Excluded Profiles are reanalyzed, but their LRE parameters are not calculated
+        SampleProfile profile = createProfile();
+        ProfileSummary prfSum = new ProfileSummaryImp(profile, null);
+        provider.lreWindowInitialization(prfSum, parameters);
+        profile.setExcluded(true);
+        provider.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
+        assertFalse("The excluded analysis must differ for this test to be meaningful",
+                profile.getAvFo() == includedAvFo);
+
+        //Once included again the window is reinitialized, which restores the window 
+        //that was analyzed while excluded, but the reanalysis must not be retrieved from the cache
+        profile.setExcluded(false);
+        provider.lreWindowInitialization(prfSum, parameters);
+        long hitCount = cache.getHitCount();
+        provider.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
+        assertEquals(hitCount, cache.getHitCount());
+        assertEquals(includedAvFo, profile.getAvFo(), includedAvFo * 1e-9);
+
+        //Repeating the included analysis is retrieved from the cache
+        provider.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
+        assertEquals(hitCount + 1, cache.getHitCount());
+        assertEquals(includedAvFo, profile.getAvFo(), includedAvFo * 1e-9);
+    }
+
+    /**
+     * @return a SampleProfile holding a sigmoidal profile with a sloping
+     * baseline and a small amount of noise
+     */
+    private static SampleProfile createProfile() {
+        Random random = new Random(3);
+        double[] rawFc = new double[45];
+        for (int i = 0; i < rawFc.length; i++) {
+            int cycle = i + 1;
+            rawFc[i] = 1000 + 0.5 * cycle + 5000 / (1 + Math.exp(-(cycle - 24) / 1.6))
+                    + random.nextGaussian() * 0.5;
+        }
+        SampleProfile profile = new SampleProfile();
+        //A Run is required to exclude a Profile
+        profile.setRun(new RunImpl());
+        profile.setRawFcReadings(rawFc);
+        return profile;
+    }
+}
@@ -24,7 +24,14 @@ import org.lreqpcr.core.data_processing.ProfileSummary;
  * Identifies and optimizes LRE window selection for the Profile encapsulated within 
  * the supplied ProfileSummary. 
  * <p>
- * 
+ * Implementations conduct each analysis within an analysis session of the 
+ * ProfileSummary, so that the modified Profile is saved once on completion 
+ * rather than after every intermediate update. If the caller has already 
+ * opened a session, nothing is saved until the caller ends its session, 
+ * allowing several analyses to be conducted without any database I/O.
+ * <p>
+ * Implementations must be reentrant, so that different profiles can be 
+ * analyzed concurrently.
  *
  * @author Bob Rutledge
  */
@@ -40,7 +47,7 @@ public abstract interface LreAnalysisService {
      * and automated LRE window selection conducted using the supplied LreWindowSelectionParameters 
      * <p>
      * Note also that this function saves the modified to Profile to the 
-     * corresponding database via ProfileSummary.update().
+     * corresponding database when its analysis session ends.
      *
      * @param prfSum the ProfileSummary encapsulating the Profile
      * @param parameters the LRE window selection parameters or null if default values are to be used
@@ -61,7 +68,7 @@ public abstract interface LreAnalysisService {
      * attempting nonlinear regression analysis; otherwise the existing start cycle is used. 
      * <p>
      * Note also that this function also saves the 
-     * modified Profile to the corresponding database via ProfileSummary.update().
+     * modified Profile to the corresponding database when its analysis session ends.
      * 
      * @param prfSum the ProfileSummary encapsulating the Profile to be initialized
      * @param parameters the LRE window selection parameters or null if default values are to be used
@@ -78,11 +85,12 @@ public abstract interface LreAnalysisService {
      * window updating without nonlinear regression. 
      * <p>
      * Note also that this function also saves the modified to Profile to the 
-     * corresponding database via ProfileSummary.update().
+     * corresponding database when its analysis session ends.
      * 
      * @param prfSum the ProfileSummary encapsulating the Profile to be updated
-     * @param parameters the LRE window selection parameters
+     * @param parameters the LRE window selection parameters, which supply the 
+     * nonlinear regression settings, or null if default values are to be used
      * @return whether the LRE window was updated successfully
      */
-    public abstract boolean lreWindowUpdateUsingNR(ProfileSummary prfSum);
+    public abstract boolean lreWindowUpdateUsingNR(ProfileSummary prfSum, LreWindowSelectionParameters parameters);
 }
@@ -16,11 +16,9 @@
  */
 package org.lreqpcr.calibration_ui.components;
 
-import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.List;
 import javax.swing.Action;
 import javax.swing.JOptionPane;
@@ -37,7 +35,7 @@ import org.lreqpcr.core.ui_elements.LabelFactory;
 import org.lreqpcr.core.ui_elements.LreActionFactory;
 import org.lreqpcr.core.ui_elements.LreNode;
 import org.lreqpcr.core.utilities.FormatingUtilities;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.ui_elements.PanelMessages;
 import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionUtilities;
@@ -181,21 +179,19 @@ public class CalbnTree extends JPanel {
             avProfileOCFdisplay.setText("");
             return;
         }
-        double ocfSum = 0;
-        ArrayList ocfArray = Lists.newArrayList();
+        StatisticsAccumulator ocfStats = new StatisticsAccumulator();
         dfCV.applyPattern("0.0");
         for (AverageCalibrationProfile avProfile : avCalProfileList) {
             //Display the curve fitting derived OCF..OFF
             if (!avProfile.isExcluded() && avProfile.getOCF() != Double.POSITIVE_INFINITY) {
-                ocfSum += avProfile.getOCF();
-                ocfArray.add(avProfile.getOCF());
+                ocfStats.add(avProfile.getOCF());
             }
         }
-        double averageOCF = ocfSum / ocfArray.size();
-        double sd = MathFunctions.calcStDev(ocfArray);
+        double averageOCF = ocfStats.getMean();
+        double sd = ocfStats.getStDev();
         double cv = sd / averageOCF;
         df.applyPattern(FormatingUtilities.decimalFormatPattern(averageOCF));
-        if (ocfArray.size() == 1) {
+        if (ocfStats.getCount() == 1) {
             avProfileOCFdisplay.setText(df.format(averageOCF));
         } else {
             avProfileOCFdisplay.setText(df.format(averageOCF) + " +/-" + dfCV.format(cv * 100) + "%");
@@ -31,6 +31,13 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
     private double avTm = 0;//The average amplicon melting temperature of the SampleProfiles
     private double repAvNo = -1;//This should also conform when Fmax normalization has been applied
     private double replicateScatterTolerance = 0.7;//The maximum C1/2 range of the replicate profiles allowed for valid average profile construction
+    //Replicate statistics are not stored, but determined when first needed and then held until invalidated
+    //Replicates can be invalidated from other threads, e.g. during background reanalysis
+    private transient volatile boolean areReplicateStatisticsCurrent = false;
+    private transient int numberOfActiveReplicates;//Replicate profiles that are included and have an LRE window
+    private transient double replicateMidCRange;//The C1/2 range of the active replicate profiles
+    private transient boolean isAReplicateNoNormalizedToFmax;//Replicate No then depends on the Run average Fmax
+    private transient double replicateStatisticsRunAvFmax;//The Run average Fmax when the statistics were determined
 
     /**
      * An average sample profile constructed from its sample replicate profiles.
@@ -56,9 +63,83 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
     @SuppressWarnings(value = "unchecked")
     public void setReplicateProfileList(List<? extends Profile> replicateProfileList) {
         this.sampleProfileList = (List<SampleProfile>) replicateProfileList;
+        invalidateReplicateStatistics();
         calculateAvAmpTm();
     }
 
+    /**
+     * Discards the replicate statistics (the number of active replicate 
+     * profiles, their C1/2 range and the replicate average No), which are 
+     * then redetermined when next needed. Replicate SampleProfiles call this 
+     * when they are excluded or included, reanalyzed or their OCF is changed. 
+     * This must also be called if the replicate profile list is modified.
+     * Synchronized with their determination, so that an invalidation made 
+     * while the statistics are being determined is not lost.
+     */
+    public synchronized void invalidateReplicateStatistics() {
+        areReplicateStatisticsCurrent = false;
+    }
+
+    /**
+     * Determines the replicate statistics in a single pass through the
+     * replicate profiles, if they have been invalidated. Replicate No can be
+     * normalized to the Run average Fmax, in which case a change in the Run 
+     * average Fmax also requires that the statistics be redetermined.
+     */
+    private synchronized void updateReplicateStatistics() {
+        if (areReplicateStatisticsCurrent) {
+            if (!isAReplicateNoNormalizedToFmax
+                    || getRun().getAverageFmax() == replicateStatisticsRunAvFmax) {
+                return;
+            }
+        }
+        boolean isNormalizedToFmax = false;
+        int activeCounter = 0;
+        double lowestMidC = 0;
+        double highestMidC = 0;
+        double noSum = 0;
+        int noCounter = 0;
+        for (SampleProfile repPrf : sampleProfileList) {
+            //It is important not to include excluded profiles
+            if (repPrf.isExcluded()) {
+                continue;
+            }
+            if (!repPrf.hasAnLreWindowBeenFound()) {
+//Without an LRE Window, a valid LRE-derived avNo is not available
+//However, such profiles (i.e. flat profiles) default to zero molecules and thus must be counted
+                noCounter++;
+                continue;
+            }
+            noSum += repPrf.getNo();
+            noCounter++;
+            if (repPrf.isTargetQuantityNormalizedToFmax() && repPrf.getOCF() > 0) {
+                isNormalizedToFmax = true;
+            }
+            double midC = repPrf.getMidC();
+            if (activeCounter == 0 || midC < lowestMidC) {
+                lowestMidC = midC;
+            }
+            if (activeCounter == 0 || midC > highestMidC) {
+                highestMidC = midC;
+            }
+            activeCounter++;
+        }
+        numberOfActiveReplicates = activeCounter;
+        replicateMidCRange = highestMidC - lowestMidC;
+        if (noCounter == 0) {
+            //No replicate profiles are avaiable
+            //This should never happen
+            repAvNo = -1;
+        } else {
+            repAvNo = noSum / noCounter;
+        }
+        isAReplicateNoNormalizedToFmax = isNormalizedToFmax;
+        if (isNormalizedToFmax) {
+            replicateStatisticsRunAvFmax = getRun().getAverageFmax();
+        }
+        areReplicateStatisticsCurrent = true;
+    }
+
     /**
      * Returns the average melting temperature (Tm) of the SampleProfile(s)
      * amplicons. Note that this will return -1 if a Tm is not available.
@@ -99,6 +180,8 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
      */
     @Override
     public void updateSampleProfile() {
+        //The replicate average No is redetermined
+        invalidateReplicateStatistics();
         //Without an OCF, No values cannot be calculated
         if (getOCF() >= 0) {
             isTheReplicateAverageNoLessThan10Molecules();//This simply updates the Replicate average No
@@ -147,9 +230,8 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
             //Occurs during data import
             return false;
         }
-        //Update the replicate average No
-        getReplicatePrfAvNo();
-        if (repAvNo < 10) {
+        //Update the replicate average No, if it has been invalidated
+        if (getReplicatePrfAvNo() < 10) {
             return true;
         } else {
             return false;
@@ -221,14 +303,17 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
         return "Multiple";
     }
 
-    public int getTheNumberOfActiveReplicateProfiles() {
-        int numberOfActiveReplicateProfiles = 0;
-        for (Profile profile : sampleProfileList) {
-            if (!profile.isExcluded() && profile.hasAnLreWindowBeenFound()) {
-                numberOfActiveReplicateProfiles++;
-            }
-        }
-        return numberOfActiveReplicateProfiles;
+    public synchronized int getTheNumberOfActiveReplicateProfiles() {
+        updateReplicateStatistics();
+        return numberOfActiveReplicates;
+    }
+
+    /**
+     * @return the C1/2 range of the active replicate profiles
+     */
+    private synchronized double getReplicateMidCRange() {
+        updateReplicateStatistics();
+        return replicateMidCRange;
     }
 
     /**
@@ -241,54 +326,23 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
      * @return whether this is a valid average profile
      */
     public boolean areTheRepProfilesSufficientlyClustered() {
-        //No issue if there is only one replicate profile
-        if (getTheNumberOfActiveReplicateProfiles() == 1) {
+        //No issue if there is only one (or no) active replicate profile
+        if (getTheNumberOfActiveReplicateProfiles() < 2) {
             return true;
         }
-        //Determine if the replicate C1/2 values spread is >replicateScatterTolerance
-        //Determine the 2 most different C1/2 values
-        Profile highest = null;
-        Profile lowest = null;
-        for (Profile prf : getReplicateProfileList()) {
-            if (prf.hasAnLreWindowBeenFound() && !prf.isExcluded()) {
-                if (highest == null) {
-                    highest = prf;
-                }
-                if (prf.getMidC() >= highest.getMidC()) {
-                    //prf has the higher C1/2, so check to see if it is higher than lowest
-                    if (lowest != null) {
-                        if (lowest.getMidC() > highest.getMidC()) {
-                            lowest = highest;
-                        }
-                    } else {
-                        lowest = highest;
-                    }
-                    highest = prf;
-                } else {//prf is lower, so check if it is lower that lowest
-                    if (lowest != null) {
-                        if (lowest.getMidC() > prf.getMidC()) {
-                            lowest = prf;
-                        }
-                    } else {//No lower has been identified, so make prf the lowest
-                        lowest = prf;
-                    }
-                }
-            }
-        }
         if (replicateScatterTolerance == 0) {//Profile predates scatter tolerance testing
             replicateScatterTolerance = 0.7;//Default value at the time of first implementation
             //Future versions should included the ability for the user to set the scatter tolerance
         }
-        if (highest != null && lowest != null) {//This should never be false
-            if (highest.getMidC() - lowest.getMidC() > replicateScatterTolerance) {
-                //This is an invalide average profile
+        //Determine if the replicate C1/2 values spread is >replicateScatterTolerance
+        if (getReplicateMidCRange() > replicateScatterTolerance) {
+            //This is an invalide average profile
+            if (hasAnLreWindowBeenFound()) {
                 setHasAnLreWindowBeenFound(false);
-                return false;
-            } else {
-                return true;
             }
+            return false;
         }
-        return true;//This should never be reached as this should only occur when there is one replicate profile
+        return true;
     }
 
     /**
@@ -321,29 +375,8 @@ public class AverageSampleProfile extends SampleProfile implements AverageProfil
      * @return the updates average replicate target quantity expressed in
      * molecules
      */
-    public double getReplicatePrfAvNo() {
-        double sum = 0;
-        int counter = 0;
-        for (SampleProfile repPrf : getReplicateProfileList()) {
-            //It is important not to include excluded profiles
-            if (!repPrf.isExcluded()) {
-                if (!repPrf.hasAnLreWindowBeenFound()) {
-//Without an LRE Window, a valid LRE-derived avNo is not available
-//However, such profiles (i.e. flat profiles) default to zero molecules and thus must be counted
-                    counter++;
-                } else {
-                    sum += repPrf.getNo();
-                    counter++;
-                }
-            }
-        }
-        if (counter == 0) {
-            //No replicate profiles are avaiable
-            //This should never happen
-            repAvNo = -1;
-        } else {
-            repAvNo = sum / counter;
-        }
+    public synchronized double getReplicatePrfAvNo() {
+        updateReplicateStatistics();
         return repAvNo;
     }
 }
@@ -16,8 +16,7 @@
  */
 package org.lreqpcr.core.data_objects;
 
-import java.util.ArrayList;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 
 /**
  * A Run derivative holding Calibration Profiles which is dedicated to optically
@@ -75,19 +74,15 @@ public class CalibrationRun extends Run {
         }
         if (getAverageProfileList().get(0) instanceof CalibrationProfile) {
             //Base the average OCF on AverageCalibrationProfiles only
-            double sum = 0;
-            int count = 0;
-            ArrayList<Double> ocfList = new ArrayList<Double>();//Used to determine the SD
+            StatisticsAccumulator ocfStats = new StatisticsAccumulator();//Used to determine the average and SD
             for (AverageProfile prf : getAverageProfileList()) {
                 AverageCalibrationProfile avCalPrf = (AverageCalibrationProfile) prf;
-                sum += avCalPrf.getOCF();
-                count++;
-                ocfList.add(avCalPrf.getOCF());
+                ocfStats.add(avCalPrf.getOCF());
             }
-            if (count >= 1 && sum > 0) {
-                avOCF = sum / count;
-                if (ocfList.size() > 1) {
-                    avOcfCV = MathFunctions.calcStDev(ocfList) / avOCF;
+            if (ocfStats.getCount() >= 1 && ocfStats.getMean() > 0) {
+                avOCF = ocfStats.getMean();
+                if (ocfStats.getCount() > 1) {
+                    avOcfCV = ocfStats.getStDev() / avOCF;
                 } else {
                     avOcfCV = 0;
                 }
@@ -28,6 +28,8 @@ public class LreWindowSelectionParameters {
 
     private Double minFc = 0d;
     private Double foThreshold = 0.06;//6% default
+    private Double nrConvergenceTolerance = 0d;//Zero signifies all nonlinear regression passes are conducted
+    private String nrServiceName;//Null signifies the default nonlinear regression implementation
 
     /**
      * Returns he Fo threshold (fraction of the cycle Fo vs the average Fo) beyond which the
@@ -66,4 +68,50 @@ public class LreWindowSelectionParameters {
     public void setMinFc(Double minFc) {
         this.minFc = minFc;
     }   
+
+    /**
+     * Returns the tolerance, as a fraction of Fmax, below which changes in the 
+     * nonlinear regression-derived Fb and Fb-slope between successive 
+     * regression passes are considered to have converged, terminating 
+     * further passes.
+     * 
+     * @return the convergence tolerance or zero (default) if a fixed number of passes is to be conducted
+     */
+    public Double getNrConvergenceTolerance() {
+        //Parameters stored within databases predating this setting will hold null
+        if (nrConvergenceTolerance == null) {
+            return 0d;
+        }
+        return nrConvergenceTolerance;
+    }
+
+    /**
+     * Sets the tolerance, as a fraction of Fmax, below which changes in the 
+     * nonlinear regression-derived Fb and Fb-slope are considered to have converged.
+     * 
+     * @param nrConvergenceTolerance the convergence tolerance or zero to conduct a fixed number of passes
+     */
+    public void setNrConvergenceTolerance(Double nrConvergenceTolerance) {
+        this.nrConvergenceTolerance = nrConvergenceTolerance;
+    }
+
+    /**
+     * Returns the name of the nonlinear regression implementation used to 
+     * determine Fb and Fb-slope.
+     * 
+     * @return the implementation name or null (default) for the default implementation
+     */
+    public String getNrServiceName() {
+        return nrServiceName;
+    }
+
+    /**
+     * Sets the name of the nonlinear regression implementation used to 
+     * determine Fb and Fb-slope.
+     * 
+     * @param nrServiceName the implementation name or null for the default implementation
+     */
+    public void setNrServiceName(String nrServiceName) {
+        this.nrServiceName = nrServiceName;
+    }
 }
\ No newline at end of file
@@ -17,12 +17,11 @@
 
 package org.lreqpcr.core.data_objects;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 
 /**
  * Data object representing a Run loosely based on the RDML 1.0 specification.  
@@ -201,25 +200,21 @@ public abstract class Run extends LreObject {
      * SampleProfiles for which an LRE window has not been found.
      */
     public void calculateAverageFmax(){
-        ArrayList<Double> fmaxList = new ArrayList<Double>();//Used to determine the SD
-        double fmaxSum = 0;
-        int profileCount = 0;
+        StatisticsAccumulator fmaxStats = new StatisticsAccumulator();//Used to determine the average and SD
         if (averageProfileList == null){
             return;
         }
         for (AverageProfile avProfile: averageProfileList){
             for(Profile profile: avProfile.getReplicateProfileList()){
                 if(profile.hasAnLreWindowBeenFound() && !profile.isExcluded()){
-                    fmaxSum += profile.getFmax();
-                    profileCount++;
-                    fmaxList.add(profile.getFmax());
+                    fmaxStats.add(profile.getFmax());
                 }
             }
         }
-        if (profileCount >= 1 && fmaxSum > 0){
-            averageFmax = fmaxSum/profileCount;
-            if(fmaxList.size()>1){
-                avFmaxCV = MathFunctions.calcStDev(fmaxList)/averageFmax;
+        if (fmaxStats.getCount() >= 1 && fmaxStats.getMean() > 0){
+            averageFmax = fmaxStats.getMean();
+            if(fmaxStats.getCount()>1){
+                avFmaxCV = fmaxStats.getStDev()/averageFmax;
             }else{
                 avFmaxCV = 0;
             }
@@ -229,25 +224,21 @@ public abstract class Run extends LreObject {
     }
     
     public void calculateAverageEmax(){
-        ArrayList<Double> emaxList = new ArrayList<Double>();//Used to determine the SD
-        double emaxSum = 0;
-        int profileCount = 0;
+        StatisticsAccumulator emaxStats = new StatisticsAccumulator();//Used to determine the average and SD
         if (averageProfileList == null){
             return;
         }
         for (AverageProfile avProfile: averageProfileList){
             for(Profile profile: avProfile.getReplicateProfileList()){
                 if(profile.hasAnLreWindowBeenFound() && !profile.isExcluded()){
-                    emaxSum += profile.getFmax();
-                    profileCount++;
-                    emaxList.add(profile.getFmax());
+                    emaxStats.add(profile.getFmax());
                 }
             }
         }
-        if (profileCount >= 1 && emaxSum > 0){
-            averageEmax = emaxSum/profileCount;
-            if(emaxList.size()>1){
-                avEmaxCV = MathFunctions.calcStDev(emaxList)/averageEmax;
+        if (emaxStats.getCount() >= 1 && emaxStats.getMean() > 0){
+            averageEmax = emaxStats.getMean();
+            if(emaxStats.getCount()>1){
+                avEmaxCV = emaxStats.getStDev()/averageEmax;
             }else{
                 avEmaxCV = 0;
             }
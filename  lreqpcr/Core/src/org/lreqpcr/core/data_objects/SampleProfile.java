@@ -58,6 +58,48 @@ public class SampleProfile extends Profile {
         updateSampleProfile();
     }
 
+//Replicate profiles must also invalidate the replicate statistics held by their AverageSampleProfile
+//when changes are made that alter which replicates are active, their C1/2 or their Fmax
+    @Override
+    public void setExcluded(boolean excluded) {
+        super.setExcluded(excluded);
+        invalidateAverageProfileStatistics();
+    }
+
+    @Override
+    public void setHasAnLreWindowBeenFound(boolean hasAnLreWindowBeenFound) {
+        super.setHasAnLreWindowBeenFound(hasAnLreWindowBeenFound);
+        invalidateAverageProfileStatistics();
+    }
+
+    @Override
+    public void setMidC(double midC) {
+        super.setMidC(midC);
+        invalidateAverageProfileStatistics();
+    }
+
+    @Override
+    public void setDeltaE(double deltaE) {
+        super.setDeltaE(deltaE);
+        invalidateAverageProfileStatistics();
+    }
+
+    @Override
+    public void setLreVariablesToZero() {
+        super.setLreVariablesToZero();
+        invalidateAverageProfileStatistics();
+    }
+
+    /**
+     * If this is a replicate profile, the replicate statistics held by its
+     * AverageSampleProfile are invalidated.
+     */
+    private void invalidateAverageProfileStatistics() {
+        if (getParent() instanceof AverageSampleProfile) {
+            ((AverageSampleProfile) getParent()).invalidateReplicateStatistics();
+        }
+    }
+
     /**
      * Calculate the number of target molecules (No) based on the profile
      * average Fo, OCF, amplicon size and target strandedness.
@@ -66,6 +108,7 @@ public class SampleProfile extends Profile {
         //Check to see if a valid No value is available
         if (isExcluded() || ocf <= 0) {
             no = -1;
+            invalidateAverageProfileStatistics();
             return;
         }
 
@@ -74,6 +117,7 @@ public class SampleProfile extends Profile {
         } else {
             no = (((getAvFo() / ocf) * 910000000000d) / getAmpliconSize());
         }
+        invalidateAverageProfileStatistics();
     }
 
     /**
@@ -111,6 +155,7 @@ public class SampleProfile extends Profile {
      */
     public void setIsTargetQuantityNormalizedToFmax(boolean normalizeToFmax) {
         this.isTragetQuantityNormalizedToFmax = normalizeToFmax;
+        invalidateAverageProfileStatistics();
     }
 
     /**
@@ -21,35 +21,26 @@ package org.lreqpcr.core.data_processing;
  * Abstract class representing the cycles within a Profile via a linked-list that 
  * allows analysis and display of the Profile. This in turn allows data retrieval
  * by transversing the Cycle linked-list.
+ * <p>
+ * A Cycle is a lightweight view of one cycle held within the primitive arrays 
+ * of the ProfileSummary's cycle store, such that the next and previous Cycles 
+ * are retrieved by cycle number rather than held as links.
  * 
  * @author Bob Rutledge
  */
 public abstract class Cycle {
 
-    private int cycNum; //The cycle number
-    private Cycle nextCycle;
-    private Cycle prevCycle;
-    private double fc; //The fluorescence reading for this Cycle
-    private double ec; //Cycle efficiency derived by dividing the Fc by the previous cycle Fc
-    private double fo; //Fc to Fo conversion based on the current LRE window settings
-    private double pFc; //Predicted Fc based on the current LRE window settings
-    private double oFfracFoAv;//The fractional difference between Fo and the average Fo
-    private double[] cycLREparam;//Linear regression values [slope, intercept, r2]
+    private final CycleStore store;
+    private final int cycNum; //The cycle number
 
     /**
      * 
+     *@param store the cycle store holding the values of this Cycle
      *@param cycleNumber the cycle number of this Cycle
-     *@param fluorReading the fluorescence reading from this Cycle (Fc)
-     *@param previousCycle the previous Cycle
      */
-    public Cycle(int cycleNumber, double fluorReading, Cycle previousCycle) {
-        cycNum = cycleNumber; //The cycle number
-        fc = fluorReading; //The Fc reading
-        prevCycle = previousCycle; //Pointer to the previous cycle{
-        //Skip cycle 0 and 1
-        //First cycle has no Fc-1; Ec is left at zero (default value)
-        //Calculate and sets the cycle efficiency Ec
-        if(cycNum != 0 && cycleNumber !=1){ec = (fc/prevCycle.fc)-1;}
+    Cycle(CycleStore store, int cycleNumber) {
+        this.store = store;
+        cycNum = cycleNumber;
     }
 
     /**
@@ -57,7 +48,7 @@ public abstract class Cycle {
      * @return the cycle efficiency
      */
     public double getEc() {
-        return ec;
+        return store.getEc(cycNum);
     }
 
     /**
@@ -65,7 +56,7 @@ public abstract class Cycle {
      * @param ec the cycle efficiency
      */
     public void setEc(double ec) {
-        this.ec = ec;
+        store.setEc(cycNum, ec);
     }
 
     /**
@@ -73,7 +64,7 @@ public abstract class Cycle {
      * @return the cycle fluorescence
      */
     public double getFc() {
-        return fc;
+        return store.getFc(cycNum);
     }
 
     /**
@@ -81,7 +72,7 @@ public abstract class Cycle {
      * @param fc the cycle fluorescence
      */
     public void setFc(double fc) {
-        this.fc = fc;
+        store.setFc(cycNum, fc);
     }
 
     /**
@@ -92,28 +83,12 @@ public abstract class Cycle {
         return cycNum;
     }
 
-    /**
-     * Sets the cycle number 
-     * @param cycNum the cycle number
-     */
-    public void setCycNum(int cycNum) {
-        this.cycNum = cycNum;
-    }
-
     /**
      * Return the next cycle object, or null if none exists.
      * @return the next Cycle object
      */
     public Cycle getNextCycle() {
-        return nextCycle;
-    }
-
-    /**
-     * Sets the next cycle object.
-     * @param nextCycle the next Cycle object
-     */
-    public void setNextCycle(Cycle nextCycle) {
-        this.nextCycle = nextCycle;
+        return store.getCycle(cycNum + 1);
     }
 
     /**
@@ -123,7 +98,7 @@ public abstract class Cycle {
      * @return he predicted Fo derived from this cycle
      */
     public double getFo() {
-        return fo;
+        return store.getFo(cycNum);
     }
 
     /**
@@ -133,7 +108,7 @@ public abstract class Cycle {
      * @param fo the Fo predicted for this cycle
      */
     public void setFo(double fo) {
-        this.fo = fo;
+        store.setFo(cycNum, fo);
     }
 
     /**
@@ -141,7 +116,7 @@ public abstract class Cycle {
      * @return the predicted Fc for this cycle
      */
     public double getPredFc() {
-        return pFc;
+        return store.getPredFc(cycNum);
     }
 
     /**
@@ -149,7 +124,7 @@ public abstract class Cycle {
      * @param pFc the predicted Fc for this cycle
      */
     public void setPredFc(double pFc) {
-        this.pFc = pFc;
+        store.setPredFc(cycNum, pFc);
     }
 
     /**
@@ -157,15 +132,7 @@ public abstract class Cycle {
      * @return the previous cycle object
      */
     public Cycle getPrevCycle() {
-        return prevCycle;
-    }
-
-    /**
-     * Sets the previous Cycle object.
-     * @param prevCycle the previous cycle object
-     */
-    public void setPrevCycle(Cycle prevCycle) {
-        this.prevCycle = prevCycle;
+        return store.getCycle(cycNum - 1);
     }
 
     /**
@@ -174,7 +141,7 @@ public abstract class Cycle {
      * @return the fractional Fo difference i
      */
     public double getFoFracFoAv() {
-        return oFfracFoAv;
+        return store.getFoFracFoAv(cycNum);
     }
 
     /**
@@ -183,7 +150,7 @@ public abstract class Cycle {
      * @param oFfracFoAv the fractional Fo difference 
      */
     public void setFoFracFoAv(double oFfracFoAv) {
-        this.oFfracFoAv = oFfracFoAv;
+        store.setFoFracFoAv(cycNum, oFfracFoAv);
     }
 
     /**
@@ -191,16 +158,17 @@ public abstract class Cycle {
      * @return the linear regression parameters for this cycle [slope, intercept, r2]
      */
     public double[] getCycLREparam() {
-        return cycLREparam;
+        return store.getCycLreParam(cycNum);
     }
 
     /**
      * Sets the the LRE linear regression parameters for this cycle [slope, intercept, r2].
+     * The values are copied, so the supplied array can be reused.
      * 
      * @param cycLREparam the LRE linear regression parameters for this cycle [slope, intercept, r2]
      */
     public void setCycLREparam(double[] cycLREparam) {
-        this.cycLREparam = cycLREparam;
+        store.setCycLreParam(cycNum, cycLREparam);
     }
 
 }
@@ -21,7 +21,7 @@ package org.lreqpcr.core.data_processing;
  * @author Bob Rutledge
  */
 public class CycleImp extends Cycle{
-    public CycleImp(int cycleNumber, double fluorReading, Cycle previousCycle) {
-            super(cycleNumber, fluorReading, previousCycle);
+    CycleImp(CycleStore store, int cycleNumber) {
+            super(store, cycleNumber);
         }
 }
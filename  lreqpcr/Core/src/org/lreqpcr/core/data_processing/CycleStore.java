@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.data_processing;
+
+/**
+ * Holds the values of every cycle within a Profile as parallel primitive 
+ * arrays indexed by cycle number, with cycle zero serving as the header. 
+ * <p>
+ * The arrays, and a Cycle view of each cycle, are declared once and then 
+ * reused each time the store is reloaded, so reloading a profile whose 
+ * length does not exceed any previously loaded profile declares no new objects. 
+ * Because the views are reused, a Cycle retrieved from the store remains 
+ * valid after the store is reloaded.
+ *
+ * @author Bob Rutledge
+ */
+class CycleStore {
+
+    private int numberOfCycles = -1;//-1 signifies that no profile has been loaded
+    private double[] fc = new double[0];
+    private double[] ec = new double[0];
+    private double[] fo = new double[0];
+    private double[] predFc = new double[0];
+    private double[] foFracFoAv = new double[0];
+    private double[][] cycLreParam = new double[0][];
+    private double[][] cycLreParamRows = new double[0][];//Reused to hold the cycle LRE parameters
+    private Cycle[] cycles = new Cycle[0];
+
+    /**
+     * Loads the Fc readings of a profile, calculating the cycle efficiency (Ec) 
+     * of each cycle and clearing all other values.
+     *
+     * @param fcReadings the Fc readings starting at cycle 1
+     * @return true if the Fc readings differ from those previously loaded
+     */
+    boolean load(double[] fcReadings) {
+        int n = fcReadings.length;
+        boolean changed = n != numberOfCycles;
+        for (int i = 0; !changed && i < n; i++) {
+            changed = Double.doubleToLongBits(fc[i + 1]) != Double.doubleToLongBits(fcReadings[i]);
+        }
+        if (changed) {
+            ensureCapacity(n + 1);
+            numberOfCycles = n;
+            fc[0] = 0;
+            System.arraycopy(fcReadings, 0, fc, 1, n);
+            //Cycle 0 and 1 have no previous Fc, so Ec is left at zero
+            ec[0] = 0;
+            if (n > 0) {
+                ec[1] = 0;
+            }
+            for (int i = 2; i <= n; i++) {
+                ec[i] = (fc[i] / fc[i - 1]) - 1;
+            }
+        }
+        for (int i = 0; i <= n; i++) {
+            fo[i] = 0;
+            predFc[i] = 0;
+            foFracFoAv[i] = 0;
+            cycLreParam[i] = null;
+        }
+        return changed;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (cycles.length >= capacity) {
+            return;
+        }
+        fc = new double[capacity];
+        ec = new double[capacity];
+        fo = new double[capacity];
+        predFc = new double[capacity];
+        foFracFoAv = new double[capacity];
+        cycLreParam = new double[capacity][];
+        cycLreParamRows = new double[capacity][];
+        Cycle[] views = new Cycle[capacity];
+        //Retain the existing views so that they remain valid
+        System.arraycopy(cycles, 0, views, 0, cycles.length);
+        for (int i = cycles.length; i < capacity; i++) {
+            views[i] = new CycleImp(this, i);
+        }
+        cycles = views;
+    }
+
+    /**
+     * @return the number of cycles, excluding cycle zero, or -1 if no profile has been loaded
+     */
+    int getNumberOfCycles() {
+        return numberOfCycles;
+    }
+
+    /**
+     * @param cycNum the cycle number
+     * @return the view of the cycle, or null if the profile does not contain this cycle
+     */
+    Cycle getCycle(int cycNum) {
+        if (cycNum < 0 || cycNum > numberOfCycles) {
+            return null;
+        }
+        return cycles[cycNum];
+    }
+
+    //Direct array access for the ProfileSummary calculations, indexed by cycle number
+    double[] getFcArray() {
+        return fc;
+    }
+
+    double[] getEcArray() {
+        return ec;
+    }
+
+    double[] getFoArray() {
+        return fo;
+    }
+
+    double[] getPredFcArray() {
+        return predFc;
+    }
+
+    double[] getFoFracFoAvArray() {
+        return foFracFoAv;
+    }
+
+    double getFc(int cycNum) {
+        return fc[cycNum];
+    }
+
+    void setFc(int cycNum, double value) {
+        fc[cycNum] = value;
+    }
+
+    double getEc(int cycNum) {
+        return ec[cycNum];
+    }
+
+    void setEc(int cycNum, double value) {
+        ec[cycNum] = value;
+    }
+
+    double getFo(int cycNum) {
+        return fo[cycNum];
+    }
+
+    void setFo(int cycNum, double value) {
+        fo[cycNum] = value;
+    }
+
+    double getPredFc(int cycNum) {
+        return predFc[cycNum];
+    }
+
+    void setPredFc(int cycNum, double value) {
+        predFc[cycNum] = value;
+    }
+
+    double getFoFracFoAv(int cycNum) {
+        return foFracFoAv[cycNum];
+    }
+
+    void setFoFracFoAv(int cycNum, double value) {
+        foFracFoAv[cycNum] = value;
+    }
+
+    double[] getCycLreParam(int cycNum) {
+        return cycLreParam[cycNum];
+    }
+
+    /**
+     * The values are copied into an array held by the store, so the supplied 
+     * array can be reused by the caller.
+     */
+    void setCycLreParam(int cycNum, double[] value) {
+        if (value == null) {
+            cycLreParam[cycNum] = null;
+            return;
+        }
+        double[] row = cycLreParamRows[cycNum];
+        if (row == null || row.length != value.length) {
+            row = new double[value.length];
+            cycLreParamRows[cycNum] = row;
+        }
+        System.arraycopy(value, 0, row, 0, value.length);
+        cycLreParam[cycNum] = row;
+    }
+}
@@ -16,13 +16,12 @@
  */
 package org.lreqpcr.core.data_processing;
 
-import com.google.common.collect.Lists;
-import java.util.ArrayList;
 import org.lreqpcr.core.data_objects.AverageProfile;
 import org.lreqpcr.core.data_objects.Profile;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.utilities.LREmath;
 import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.RollingRegression;
 
 /**
  * Provides functions required for initializing, editing and display of a Profile, which
@@ -30,6 +29,21 @@ import org.lreqpcr.core.utilities.MathFunctions;
  * associated LRE parameters within the Profile. A central aspect of these
  * functions is utilization of a linked-list of Cycle objects that represents
  * the cycles of the amplification profile within the Profile object.
+ * <p>
+ * The cycle values are held within a cycle store of primitive arrays that is 
+ * reused by every update, with each Cycle being a view of one cycle within 
+ * the store. Cycles can therefore be retrieved directly by cycle number, 
+ * and a Cycle remains valid after the ProfileSummary is updated.
+ * <p>
+ * Each update marks the Profile as modified (dirty). Outside of an analysis 
+ * session the Profile is then saved immediately. Within an analysis session 
+ * the Profile is only modified in memory, and is saved once when the 
+ * outermost session ends or when flush is called as an explicit checkpoint. 
+ * This allows analyses that update the Profile many times to save only 
+ * its final state.
+ * <p>
+ * The LRE window regression is retained between updates, so that when the 
+ * window is expanded only the added cycles need to be included in the regression.
  *
  * @author Bob Rutledge
  */
@@ -37,12 +51,18 @@ public abstract class ProfileSummary {
 
     private DatabaseServices db;
     private Profile profile;
+    private CycleStore cycleStore = new CycleStore();
     private Cycle zeroCycle;
+    private boolean dirty = false;
+    private int sessionDepth = 0;//The number of open analysis sessions
+    private RollingRegression lreWindowRegression = new RollingRegression();
+    private int regressionStartCycle = -1;//Start cycle of the regression window, -1 if invalid
+    private int regressionWinSize = 0;//The number of cycles within the regression window
 
     /**
      * 
      * @param profile the Profile to encapsulate
-     * @param db the database holding the Profile
+     * @param db the database holding the Profile, or null if the Profile is not to be saved
      */
     public ProfileSummary(Profile profile, DatabaseServices db) {
         this.profile = profile;
@@ -59,7 +79,9 @@ public abstract class ProfileSummary {
      * whenever the encapsulated Profile is modified. This involves either
      * changes to the LRE window or changes to the working Fc dataset. 
      * <p>
-     * Note that the Profile is also saved to the database from which it was derived. 
+     * Note that the Profile is also saved to the database from which it was derived, 
+     * unless an analysis session is open, in which case it is marked as 
+     * modified and saved when the session ends. 
      *
      */
     public void update() {
@@ -78,6 +100,10 @@ public abstract class ProfileSummary {
                     return;
                 }
             }
+            //A start cycle derived from an invalid C1/2 can place the window outside of the profile
+            if (!isLreWindowWithinProfile()) {
+                return;
+            }
             //This is a valid profile with a LRE window, so complete processing
             //Update the LRE parameters within the profile
             calcLreParameters();
@@ -89,7 +115,7 @@ public abstract class ProfileSummary {
             calcPredictedFc();
             //Update C1/2
             profile.setMidC(LREmath.getMidC(profile.getDeltaE(), profile.getEmax(), profile.getAvFo()));
-            db.saveObject(profile);
+            markDirty();
         }
     }
 
@@ -113,29 +139,109 @@ public abstract class ProfileSummary {
      * Saves the encapsulated Profile to the database from which is was derived
      */
     public void saveProfile(){
-        db.saveObject(profile);
+        if (db != null) {
+            db.saveObject(profile);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Marks the encapsulated Profile as modified. If an analysis session is 
+     * not open, the Profile is saved immediately.
+     */
+    public void markDirty() {
+        dirty = true;
+        if (sessionDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * 
+     * @return true if the Profile has been modified since it was last saved
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Saves the encapsulated Profile if it has been modified since it was last 
+     * saved. Within an analysis session this serves as a checkpoint. 
+     * Nothing is saved if this ProfileSummary does not have a database.
+     */
+    public void flush() {
+        if (dirty && db != null) {
+            db.saveObject(profile);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Opens an analysis session, during which updates modify the Profile 
+     * in memory only. Sessions can be nested, with the Profile saved when 
+     * the outermost session is ended. 
+     * <p>
+     * Each call must be paired with a call to endAnalysisSession, typically 
+     * within a finally block.
+     */
+    public void beginAnalysisSession() {
+        sessionDepth++;
+    }
+
+    /**
+     * Ends the current analysis session. If this is the outermost session, 
+     * the Profile is saved if it has been modified.
+     */
+    public void endAnalysisSession() {
+        if (sessionDepth == 0) {
+            throw new IllegalStateException("No analysis session is open");
+        }
+        sessionDepth--;
+        if (sessionDepth == 0) {
+            flush();
+        }
     }
 
     /**
-     * Constructs a Cycle linked-list for a Profile that is used for display and
-     * editing of the cycles within the amplification profile. Note that no
-     * additional analysis is conducted other than to generate the link list in
-     * which the Fc readings are set for each cycle.
+     * 
+     * @return true if an analysis session is open
+     */
+    public boolean isAnalysisSessionOpen() {
+        return sessionDepth > 0;
+    }
+
+    /**
+     * Loads the working Fc dataset of the Profile into the cycle store that is 
+     * used for display and editing of the cycles within the amplification profile. 
+     * Note that no additional analysis is conducted other than to set the 
+     * Fc readings, and the resulting Ec, for each cycle.
      *
      */
     private void makeCycleList() {
         if (profile.getFcReadings() == null) {
             zeroCycle = null;
+            regressionStartCycle = -1;
             return;
         }
-        double[] fc = profile.getFcReadings();
-        zeroCycle = new CycleImp(0, 0, null); //Zero cycle does not have a previous cycle
-        Cycle prevCycle = zeroCycle; //Prepares for initialization of the link list construction
-        for (int i = 0; i < fc.length; i++) { //Link list construction
-            Cycle cycle = new CycleImp(i + 1, fc[i], prevCycle); //Sets the previous cycle pointer in Cycle constructor
-            prevCycle.setNextCycle(cycle); //Sets the nextCycle pointer within the previous cycle object
-            prevCycle = cycle; //Move to the next Cycle
+        if (cycleStore.load(profile.getFcReadings())) {
+            //The Fc dataset has changed, invalidating the LRE window regression
+            regressionStartCycle = -1;
         }
+        zeroCycle = cycleStore.getCycle(0);
+    }
+
+    /**
+     * Determines if the LRE window lies within the cycles of the profile. The 
+     * start cycle must be at least cycle 1, as the Fo of the cycle preceding 
+     * the start cycle is included within the average Fo.
+     *
+     * @return true if the LRE window lies within the profile
+     */
+    private boolean isLreWindowWithinProfile() {
+        int startCycle = profile.getStrCycleInt();
+        int winSize = profile.getLreWinSize();
+        return startCycle >= 1 && winSize >= 1
+                && startCycle + winSize - 1 <= cycleStore.getNumberOfCycles();
     }
 
     /**
@@ -150,38 +256,29 @@ public abstract class ProfileSummary {
         if (profile.isExcluded() || !profile.hasAnLreWindowBeenFound()) {//Invalid profile
             return;//Invalid profile
         }
-        Cycle runner = getLreWindowStartCycle();
-        //Gather Fc and Ec from the LRE window
+        if (!isLreWindowWithinProfile()) {
+            return;//The LRE window extends beyond the start or end of the profile
+        }
+        int startCycle = profile.getStrCycleInt();
         int winSize = profile.getLreWinSize();
-        double[][] lreWinPts = new double[2][winSize];
-        for (int i = 0; i < winSize; i++) {
-            try {
-                lreWinPts[0][i] = runner.getFc();
-            } catch (Exception e) {
-                return;
-            }
-            lreWinPts[1][i] = runner.getEc();
-            runner = runner.getNextCycle();
+        if (startCycle != regressionStartCycle || winSize < regressionWinSize) {
+            //Not an expansion of the previous window, so start a new regression
+            lreWindowRegression.clear();
+            regressionStartCycle = startCycle;
+            regressionWinSize = 0;
         }
-        //Calculates and transfers the LRE parameters to the Profile
-        double[] regressionValues = MathFunctions.linearRegressionAnalysis(lreWinPts);
-        profile.setDeltaE(regressionValues[0]);
-        profile.setEmax(regressionValues[1]);
-        profile.setR2(regressionValues[2]);
-        //Gather the LRE window Fc and predicted Fc
-        //Start at the cycle immediately preceeding the start cycle
-        runner = getLreWindowStartCycle().getPrevCycle();
-        double[][] winFcpFc = new double[2][winSize + 1];
-        //Transverse the LRE window Fc values to construct the Fc-pFc list
-        try {
-            for (int i = 0; i < winSize + 1; i++) {
-                winFcpFc[0][i] = runner.getFc();
-                winFcpFc[1][i] = runner.getPredFc();
-                runner = runner.getNextCycle();
-            }
-        } catch (Exception e) {
-            //Not sure if this is necessary
+        //Add the Fc and Ec of the cycles not yet within the regression
+        //A non-finite Ec is held apart by the regression, generating NaN LRE parameters
+        double[] fc = cycleStore.getFcArray();
+        double[] ec = cycleStore.getEcArray();
+        for (int i = regressionWinSize; i < winSize; i++) {
+            lreWindowRegression.add(fc[startCycle + i], ec[startCycle + i]);
         }
+        regressionWinSize = winSize;
+        //Transfers the LRE parameters to the Profile
+        profile.setDeltaE(lreWindowRegression.getSlope());
+        profile.setEmax(lreWindowRegression.getIntercept());
+        profile.setR2(lreWindowRegression.getR2());
     }
 
     /**
@@ -195,14 +292,10 @@ public abstract class ProfileSummary {
      * @param prfSum the ProfileSummary holding the Profile to be processed
      */
     private void calcAllFo() {
-        //The Linked Cycle List is traversed & Fo values assigned to each cycle
-        //The Cycle#-Fo Point2D.Double is also initialized 
-        Cycle runner = zeroCycle.getNextCycle();//Start at cycle #1
-        do { //This should provide Fo and FoEmax100 values for all Cycles
-            runner.setFo(LREmath.calcFo(runner.getCycNum(), runner.getFc(),
-                    profile.getDeltaE(), profile.getEmax()));
-            runner = runner.getNextCycle();
-        } while (runner != null);
+        //Fo values are assigned to each cycle, starting at cycle #1
+        double[] fc = cycleStore.getFcArray();
+        double[] fo = cycleStore.getFoArray();
+        LREmath.calcFo(fc, 1, cycleStore.getNumberOfCycles(), profile.getDeltaE(), profile.getEmax(), fo);
     }
 
     /**
@@ -214,34 +307,32 @@ public abstract class ProfileSummary {
      * @param prfSum the ProfileSummary holding the Profile to be processed
      */
     private void calcAverageFo() {
+        if (!isLreWindowWithinProfile()) {
+            return;//The Fo arrays cannot be indexed outside of the profile
+        }
         //The current LRE window is traversed and the average Fo calculated
         double sumFo = 0;
-        ArrayList<Double> foList = Lists.newArrayList();//Used to calculate average Fo CV
+        double[] fo = cycleStore.getFoArray();
+        int numberOfCycles = cycleStore.getNumberOfCycles();
         //The Fo from the cycle previous to the start cycle must be included
-        Cycle runner = getLreWindowStartCycle().getPrevCycle(); //First cycle to be included in the average
-        for (int i = 0; i < profile.getLreWinSize() + 1; i++) { //Calculates the sum of the LRE window Fo values
-            try {
-                foList.add(runner.getFo());
-            sumFo += runner.getFo();
-            runner = runner.getNextCycle();
-            } catch (Exception e) {
-                int stop =0;
-            }
-            
+        int firstCycle = profile.getStrCycleInt() - 1; //First cycle to be included in the average
+        //The cycle following the last cycle to be included, limited to the end of the profile
+        int endCycle = Math.min(firstCycle + profile.getLreWinSize() + 1, numberOfCycles + 1);
+        for (int cycNum = firstCycle; cycNum < endCycle; cycNum++) { //Calculates the sum of the LRE window Fo values
+            sumFo += fo[cycNum];
         }
         //Calculate the LRE window average Fo value using the LRE-derived Emax
         double averageFo = (sumFo / (profile.getLreWinSize() + 1));
         //Sets the average Fo CV
-        profile.setAvFoCV(MathFunctions.calcStDev(foList) / profile.getAvFo());
+        profile.setAvFoCV(MathFunctions.calcStDev(fo, firstCycle, endCycle) / profile.getAvFo());
         //Sets the LRE window average Fo value calculated with Emax fixed to 100%
         //Setting the average Fo values will initiate an auto update within both Sample and Calibration Profiles
         profile.setAvFo(averageFo);
-        //Goto to cycle 1
-        runner = zeroCycle.getNextCycle();
+        double[] foFracFoAv = cycleStore.getFoFracFoAvArray();
 //Sets the fractional difference between Fo and the averageFo across the entire profile using the LRE derived Emax
-        while (runner.getNextCycle() != null) {
-            runner.setFoFracFoAv(1 - (runner.getFo() / profile.getAvFo()));
-            runner = runner.getNextCycle();
+        //Starting at cycle 1, the last cycle is not included
+        for (int cycNum = 1; cycNum < numberOfCycles; cycNum++) {
+            foFracFoAv[cycNum] = 1 - (fo[cycNum] / profile.getAvFo());
         }
     }
 
@@ -251,13 +342,9 @@ public abstract class ProfileSummary {
      * Profile is not modified.
      */
     private void calcPredictedFc() {
-//The cycle linked-list is traversed & predicted Fc values assigned to each cycle
-        Cycle runner = getZeroCycle().getNextCycle();//Goto cycle #1
-        do {
-            runner.setPredFc(LREmath.calcPrdFc(runner.getCycNum(), profile.getDeltaE(),
-                    profile.getEmax(), profile.getAvFo()));
-            runner = runner.getNextCycle();
-        } while (runner != null);
+//Predicted Fc values are assigned to each cycle, starting at cycle #1
+        double[] predFc = cycleStore.getPredFcArray();
+        LREmath.calcPrdFc(1, cycleStore.getNumberOfCycles(), profile.getDeltaE(), profile.getEmax(), profile.getAvFo(), predFc);
     }
 
     /**
@@ -272,8 +359,31 @@ public abstract class ProfileSummary {
     }
 
     /**
-     * Traverses the Cycle linked-list to the first cycle of the LRE window and
-     * returns the corresponding Cycle object.
+     * Retrieves a Cycle directly by its cycle number.
+     *
+     * @param cycNum the cycle number
+     * @return the Cycle, or null if the profile does not contain this cycle
+     */
+    public Cycle getCycle(int cycNum) {
+        if (zeroCycle == null) {
+            return null;
+        }
+        return cycleStore.getCycle(cycNum);
+    }
+
+    /**
+     * @return the number of cycles within the profile, excluding the zero cycle, 
+     * or zero if the profile does not have an Fc dataset
+     */
+    public int getNumberOfCycles() {
+        if (zeroCycle == null) {
+            return 0;
+        }
+        return cycleStore.getNumberOfCycles();
+    }
+
+    /**
+     * Returns the Cycle object corresponding to the first cycle of the LRE window.
      *
      * @return the first Cycle of the LRE window or null if a LRE window has not
      * been found
@@ -282,11 +392,7 @@ public abstract class ProfileSummary {
         if (!profile.hasAnLreWindowBeenFound()) {
             return null;
         }
-        Cycle runner = zeroCycle;
-        for (int i = 0; i < profile.getStrCycleInt(); i++) {
-            runner = runner.getNextCycle();
-        }
-        return runner;
+        return getCycle(profile.getStrCycleInt());
     }
 
     /**
@@ -300,10 +406,6 @@ public abstract class ProfileSummary {
         if (!profile.hasAnLreWindowBeenFound()) {
             return null;
         }
-        Cycle runner = zeroCycle;
-        for (int i = 0; i < profile.getStrCycleInt() + profile.getLreWinSize() - 1; i++) {
-            runner = runner.getNextCycle();
-        }
-        return runner;
+        return getCycle(profile.getStrCycleInt() + profile.getLreWinSize() - 1);
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.lreqpcr.core.data_objects.Amplicon;
+import org.lreqpcr.core.data_objects.AmpliconImpl;
+import org.lreqpcr.core.database_services.DatabaseServices;
+
+/**
+ * In-memory dictionary of the amplicon sizes held within an Amplicon
+ * database, keyed by amplicon name. This allows the amplicon size of every
+ * imported Profile to be determined without querying the Amplicon database.
+ * <p>
+ * The dictionary is loaded from the database when first needed and is then
+ * held until the database file changes or the dictionary is invalidated.
+ * Amplicons added to the database should be added to the dictionary, whereas
+ * amplicons that are renamed, resized or deleted require that the dictionary
+ * be invalidated.
+ *
+ * @author Bob Rutledge
+ */
+public class AmpliconSizeDictionary {
+
+    //One dictionary for each Amplicon database service
+    private static final IdentityHashMap<DatabaseServices, AmpliconSizeDictionary> dictionaries =
+            new IdentityHashMap<DatabaseServices, AmpliconSizeDictionary>();
+    private final DatabaseServices ampliconDB;
+    private File databaseFile;//The database file from which the dictionary was loaded
+    private HashMap<String, Integer> ampliconSizes;//Null if the dictionary must be loaded
+    private HashSet<String> nonUniqueNames;
+
+    private AmpliconSizeDictionary(DatabaseServices ampliconDB) {
+        this.ampliconDB = ampliconDB;
+    }
+
+    /**
+     * Returns the dictionary for the supplied Amplicon database.
+     *
+     * @param ampliconDB the Amplicon database
+     * @return the amplicon size dictionary for the database
+     */
+    public static synchronized AmpliconSizeDictionary getDictionary(DatabaseServices ampliconDB) {
+        AmpliconSizeDictionary dictionary = dictionaries.get(ampliconDB);
+        if (dictionary == null) {
+            dictionary = new AmpliconSizeDictionary(ampliconDB);
+            dictionaries.put(ampliconDB, dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Determines if an amplicon with the supplied name is present.
+     *
+     * @param ampliconName the amplicon name
+     * @return true if the amplicon is present within the Amplicon database
+     */
+    public synchronized boolean containsAmplicon(String ampliconName) {
+        loadIfNeeded();
+        return ampliconSizes.containsKey(ampliconName);
+    }
+
+    /**
+     * Returns the size of the amplicon with the supplied name. If the name is
+     * not unique, the size is taken from the first amplicon that was found.
+     *
+     * @param ampliconName the amplicon name
+     * @return the amplicon size, or -1 if the amplicon is not present
+     */
+    public synchronized int getAmpliconSize(String ampliconName) {
+        loadIfNeeded();
+        Integer size = ampliconSizes.get(ampliconName);
+        if (size == null) {
+            return -1;
+        }
+        return size;
+    }
+
+    /**
+     * Determines if more than one amplicon has the supplied name.
+     *
+     * @param ampliconName the amplicon name
+     * @return true if the amplicon name is not unique
+     */
+    public synchronized boolean isAmpliconNameNotUnique(String ampliconName) {
+        loadIfNeeded();
+        return nonUniqueNames.contains(ampliconName);
+    }
+
+    /**
+     * Adds an amplicon that has been saved to the Amplicon database. Note that
+     * if the dictionary has not yet been loaded, the amplicon will be
+     * retrieved along with all other amplicons when it is loaded.
+     *
+     * @param amplicon the new amplicon
+     */
+    public synchronized void addAmplicon(Amplicon amplicon) {
+        if (ampliconSizes == null || !isLoadedFromCurrentDatabaseFile()) {
+            return;
+        }
+        add(amplicon);
+    }
+
+    /**
+     * Discards the dictionary, which is then reloaded when next needed. This
+     * must be called when an amplicon is renamed, resized or deleted.
+     */
+    public synchronized void invalidate() {
+        ampliconSizes = null;
+        nonUniqueNames = null;
+        databaseFile = null;
+    }
+
+    private void loadIfNeeded() {
+        if (ampliconSizes != null && isLoadedFromCurrentDatabaseFile()) {
+            return;
+        }
+        ampliconSizes = new HashMap<String, Integer>();
+        nonUniqueNames = new HashSet<String>();
+        databaseFile = ampliconDB.getDatabaseFile();
+        if (!ampliconDB.isDatabaseOpen()) {
+            return;
+        }
+        List<?> ampliconList = ampliconDB.getAllObjects(AmpliconImpl.class);
+        for (Object object : ampliconList) {
+            add((Amplicon) object);
+        }
+    }
+
+    private boolean isLoadedFromCurrentDatabaseFile() {
+        File currentFile = ampliconDB.getDatabaseFile();
+        if (databaseFile == null) {
+            return currentFile == null;
+        }
+        return databaseFile.equals(currentFile);
+    }
+
+    private void add(Amplicon amplicon) {
+        String name = amplicon.getName();
+        if (ampliconSizes.containsKey(name)) {
+            //The size of the first amplicon found is retained
+            nonUniqueNames.add(name);
+            return;
+        }
+        ampliconSizes.put(name, amplicon.getAmpliconSize());
+    }
+}
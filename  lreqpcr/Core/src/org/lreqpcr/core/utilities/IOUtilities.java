@@ -176,15 +176,28 @@ public class IOUtilities {
     }
     
      /**
-     * Returns a user selected XML file. This is used for importing RDML
+     * Returns a user selected RDML file, which is either a zipped rdml file
+     * or an uncompressed xml file. This is used for importing RDML
      * data (www.rdml.org).
      *
      * @param title the file chooser title
-     * @return the selected xml file, or null if it does not exist
+     * @return the selected rdml or xml file, or null if it does not exist
      */
     public static File openXmlFile(String title){
         FileNameExtensionFilter filter = new FileNameExtensionFilter(
-                "RDML file", "xml");
+                "RDML file", "rdml", "xml");
+        return createFileChooser(title, filter);
+    }
+
+    /**
+     * Returns a user selected comma or tab delimited text file.
+     *
+     * @param title the file chooser title
+     * @return the selected csv, tsv or txt file, or null if it does not exist
+     */
+    public static File openDelimitedTextFile(String title) {
+        FileNameExtensionFilter filter = new FileNameExtensionFilter(
+                "CSV or TSV file", "csv", "tsv", "txt");
         return createFileChooser(title, filter);
     }
     
@@ -46,6 +46,31 @@ public class LREmath {
         return trgFo;
     }
     
+    /**
+     * Calculates Target Quantity in fluorescence units (Fo) for a series of 
+     * consecutive cycles. 
+     * 
+     * <p>This is equivalent to calling {@link #calcFo(int, double, double, double)} 
+     * for each cycle, except that (Emax + 1)^c is generated by successive 
+     * multiplication rather than calculating the power for every cycle.
+     * 
+     * @param fc the cycle fluorescence readings (Fc) indexed by cycle number
+     * @param firstCycle the first cycle to calculate
+     * @param lastCycle the last cycle to calculate
+     * @param dE the rate of loss in cycle efficiency (deltaE)
+     * @param mE the maximal amplification efficiency (Emax)
+     * @param fo receives the target quantity in fluorescence units (Fo) indexed by cycle number
+     */
+    public static void calcFo(double[] fc, int firstCycle, int lastCycle, double dE, double mE, double[] fo) {
+        double maxF = (mE)/-dE;
+        double base = mE+1;
+        double power = Math.pow(base, firstCycle);
+        for (int c = firstCycle; c <= lastCycle; c++) {
+            fo[c] = maxF/(1+(((maxF/fc[c])-1)*power));
+            power *= base;
+        }
+    }
+    
     /**
      * Calculates Target Quantity in fluorescence units (Fo) using an overridden Emax
      * value
@@ -84,6 +109,31 @@ public class LREmath {
         return pFc;
     }
 
+    /**
+     * Calculates the predicted cycle fluorescence for a series of consecutive cycles. 
+     * 
+     * <p>This is equivalent to calling {@link #calcPrdFc(int, double, double, double)} 
+     * for each cycle, except that (Emax + 1)^-c is generated by successive 
+     * multiplication rather than calculating the power for every cycle.
+     * 
+     * @param firstCycle the first cycle to calculate
+     * @param lastCycle the last cycle to calculate
+     * @param dE the rate of loss in cycle efficiency (deltaE)
+     * @param mE the maximal amplification efficiency (Emax)
+     * @param oF the target quantity in fluorescence units (Fo)
+     * @param pFc receives the predicted cycle fluorescence (pFc) indexed by cycle number
+     */
+    public static void calcPrdFc(int firstCycle, int lastCycle, double dE, double mE, double oF, double[] pFc) {
+        double mF = (mE)/-dE; //Fmax
+        double fmaxFoRatio = (mF/oF)-1;
+        double inverseBase = 1/(mE+1);
+        double power = Math.pow(mE+1, -firstCycle);
+        for (int c = firstCycle; c <= lastCycle; c++) {
+            pFc[c] = mF/(1+(fmaxFoRatio*power));
+            power *= inverseBase;
+        }
+    }
+
     /**
      * Calculate predicted Fo using an overridden Emax
      * @param c
@@ -46,24 +46,21 @@ public class MathFunctions {
         }
         avX = sumX/arraySize;
         avY = sumY/arraySize;
-        double numSum = 0, demSum = 0; //numerator and denominator sums
-        for (int i=0; i < arraySize; i++) {
-            numSum += (avX - pointArray[0][i])*(avY - pointArray[1][i]);
-            demSum += Math.pow(avX - pointArray[0][i], 2);
-        }
-        slope = numSum/demSum;
-        intercept = (sumY-(slope*sumX))/arraySize;
-        int i;
-        numSum = 0;
+        //The deviation sums serve both the slope and r2
+        double numSum = 0; //numerator sum
         double demXsum = 0;
         double demYsum = 0;
-        double r2;
-        for (i=0; i < arraySize; i++) {
-            numSum += (avX - pointArray[0][i])*(avY - pointArray[1][i]);
-            demXsum += Math.pow((avX - pointArray[0][i]), 2);
-            demYsum += Math.pow((avY - pointArray[1][i]), 2);
+        for (int i=0; i < arraySize; i++) {
+            double dX = avX - pointArray[0][i];
+            double dY = avY - pointArray[1][i];
+            numSum += dX*dY;
+            demXsum += dX*dX;
+            demYsum += dY*dY;
         }
-        r2 = Math.pow((numSum/(Math.sqrt(demXsum*demYsum))), 2);
+        slope = numSum/demXsum;
+        intercept = (sumY-(slope*sumX))/arraySize;
+        double r = numSum/(Math.sqrt(demXsum*demYsum));
+        double r2 = r*r;
         double[] regressionValues = new double[3];
         regressionValues[0] = slope;
         regressionValues[1] = intercept;
@@ -72,21 +69,69 @@ public class MathFunctions {
     }
     
      /**
-     * Calculates standard deviation based on Excel's stdev function
+     * Calculates standard deviation based on Excel's stdev function. 
+     * Note that primitive values are better processed using 
+     * {@link #calcStDev(double[], int, int)} or a {@link StatisticsAccumulator}.
      *
       *@param values the Double values to process
-      * @return stDev the standard deviation
+      * @return stDev the standard deviation, or NaN if less than two values are supplied
      */
     public static double calcStDev(List<Double> values) {
-        double stDev;
-        double xSum = 0; //Sum of values
-        double x2Sum = 0; //Sum of the values squared
+        StatisticsAccumulator stats = new StatisticsAccumulator();
         for(Double v : values){
-            xSum += v;
-            x2Sum += Math.pow(v, 2);
+            stats.add(v);
+        }
+        return stats.getStDev();
+    }
+
+    /**
+     * Calculates the average of a slice of an array
+     *
+     * @param values the values to process
+     * @param from the index of the first value
+     * @param to the index following the last value
+     * @return the average, or NaN if the slice is empty
+     */
+    public static double calcAverage(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum/(to - from);
+    }
+
+    /**
+     * Calculates standard deviation based on Excel's stdev function
+     *
+     * @param values the values to process
+     * @return the standard deviation, or NaN if less than two values are supplied
+     */
+    public static double calcStDev(double[] values) {
+        return calcStDev(values, 0, values.length);
+    }
+
+    /**
+     * Calculates the standard deviation of a slice of an array based on 
+     * Excel's stdev function. The squared deviations are summed from the 
+     * average, which avoids the loss of precision produced by summing the 
+     * squared values.
+     *
+     * @param values the values to process
+     * @param from the index of the first value
+     * @param to the index following the last value
+     * @return the standard deviation, or NaN if the slice holds less than two values
+     */
+    public static double calcStDev(double[] values, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double average = calcAverage(values, from, to);
+        double sumSqDev = 0;
+        for (int i = from; i < to; i++) {
+            double dev = values[i] - average;
+            sumSqDev += dev*dev;
         }
-        int n = values.size();
-        stDev = Math.sqrt(((n*x2Sum)-Math.pow(xSum, 2))/(n*(n-1)));
-        return stDev;
+        return Math.sqrt(sumSqDev/(n - 1));
     }
 }
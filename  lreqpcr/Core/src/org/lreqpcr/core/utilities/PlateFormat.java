@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+/**
+ * The layout of a multiwell plate, which converts between well numbers and
+ * well labels (e.g. A1). Rows are labeled A to Z followed by AA, AB etc.,
+ * so that the 32 rows of a 1536 well plate are labeled A to AF. Wells can be
+ * numbered either row by row (A1, A2...), as used by the AB cyclers, or
+ * column by column (A1, B1...).
+ * <p>
+ * The well labels are held within precomputed arrays, whereas well labels
+ * are converted to well numbers by parsing the row letters and the column
+ * number.
+ *
+ * @author Bob Rutledge
+ */
+public enum PlateFormat {
+
+    PLATE_96_WELL(8, 12),
+    PLATE_384_WELL(16, 24),
+    PLATE_1536_WELL(32, 48);
+    private final int numberOfRows;
+    private final int numberOfColumns;
+    //Well labels indexed by well number - 1
+    private final String[] rowMajorLabels;
+    private final String[] columnMajorLabels;
+
+    private PlateFormat(int numberOfRows, int numberOfColumns) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        rowMajorLabels = new String[numberOfRows * numberOfColumns];
+        columnMajorLabels = new String[numberOfRows * numberOfColumns];
+        for (int row = 0; row < numberOfRows; row++) {
+            String rowLabel = getRowLabel(row);
+            for (int column = 0; column < numberOfColumns; column++) {
+                String label = rowLabel + (column + 1);
+                rowMajorLabels[row * numberOfColumns + column] = label;
+                columnMajorLabels[column * numberOfRows + row] = label;
+            }
+        }
+    }
+
+    private static String getRowLabel(int row) {
+        if (row < 26) {
+            return String.valueOf((char) ('A' + row));
+        }
+        return String.valueOf((char) ('A' + row / 26 - 1)) + (char) ('A' + row % 26);
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getNumberOfWells() {
+        return numberOfRows * numberOfColumns;
+    }
+
+    /**
+     * Converts a well number to the well label.
+     *
+     * @param wellNumber the well number, starting at 1
+     * @param isColumnMajor true if the wells are numbered column by column
+     * @return the well label, or null if the well is not present within the plate
+     */
+    public String getWellLabel(int wellNumber, boolean isColumnMajor) {
+        if (wellNumber < 1 || wellNumber > rowMajorLabels.length) {
+            return null;
+        }
+        return isColumnMajor ? columnMajorLabels[wellNumber - 1] : rowMajorLabels[wellNumber - 1];
+    }
+
+    /**
+     * Converts a well label to the well number. Row letters are not case
+     * sensitive and the column number can contain leading zeros (e.g. A01).
+     *
+     * @param wellLabel the well label
+     * @param isColumnMajor true if the wells are numbered column by column
+     * @return the well number, or -1 if the label is invalid or the well is
+     * not present within the plate
+     */
+    public int getWellNumber(String wellLabel, boolean isColumnMajor) {
+        int row = parseRow(wellLabel);
+        int column = parseColumn(wellLabel);
+        if (row < 0 || row >= numberOfRows || column < 0 || column >= numberOfColumns) {
+            return -1;
+        }
+        if (isColumnMajor) {
+            return column * numberOfRows + row + 1;
+        }
+        return row * numberOfColumns + column + 1;
+    }
+
+    /**
+     * Determines the smallest plate that contains the well.
+     *
+     * @param wellLabel the well label
+     * @return the plate format, or null if the label is invalid or the well is
+     * not present within a 1536 well plate
+     */
+    public static PlateFormat forWellLabel(String wellLabel) {
+        int row = parseRow(wellLabel);
+        int column = parseColumn(wellLabel);
+        if (row < 0 || column < 0) {
+            return null;
+        }
+        for (PlateFormat plateFormat : values()) {
+            if (row < plateFormat.numberOfRows && column < plateFormat.numberOfColumns) {
+                return plateFormat;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines the smallest plate that contains the well.
+     *
+     * @param wellNumber the well number, starting at 1
+     * @return the plate format, or null if the well is not present within a
+     * 1536 well plate
+     */
+    public static PlateFormat forWellNumber(int wellNumber) {
+        for (PlateFormat plateFormat : values()) {
+            if (wellNumber >= 1 && wellNumber <= plateFormat.getNumberOfWells()) {
+                return plateFormat;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the zero based row index, or -1 if the label does not begin
+     * with one or two letters
+     */
+    private static int parseRow(String wellLabel) {
+        if (wellLabel == null) {
+            return -1;
+        }
+        int row = -1;
+        int i = 0;
+        while (i < wellLabel.length() && i < 3) {
+            char c = Character.toUpperCase(wellLabel.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            row = (row + 1) * 26 + (c - 'A');
+            i++;
+        }
+        return i == 0 || i > 2 ? -1 : row;
+    }
+
+    /**
+     * @return the zero based column index, or -1 if the row letters are not
+     * followed by only digits
+     */
+    private static int parseColumn(String wellLabel) {
+        if (wellLabel == null) {
+            return -1;
+        }
+        int i = 0;
+        while (i < wellLabel.length() && Character.isLetter(wellLabel.charAt(i))) {
+            i++;
+        }
+        if (i == wellLabel.length() || wellLabel.length() - i > 4) {
+            return -1;
+        }
+        int column = 0;
+        for (; i < wellLabel.length(); i++) {
+            char c = wellLabel.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            column = column * 10 + (c - '0');
+        }
+        return column - 1;
+    }
+}
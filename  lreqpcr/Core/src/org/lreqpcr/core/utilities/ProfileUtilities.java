@@ -16,7 +16,6 @@
  */
 package org.lreqpcr.core.utilities;
 
-import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.List;
 import org.lreqpcr.core.data_objects.DatabaseInfo;
@@ -82,19 +81,17 @@ public class ProfileUtilities {
         List l = db.getAllObjects(DatabaseInfo.class);
         DatabaseInfo dbInfo = (DatabaseInfo) l.get(0);
         List<Run> runList = db.getAllObjects(Run.class);
-        ArrayList<Double> fmaxList = Lists.newArrayList();//Used to determine SD
-        double fmaxSum = 0;
+        StatisticsAccumulator fmaxStats = new StatisticsAccumulator();//Used to determine the average and SD
         for (Run run : runList) {
-            //Sum Fmax averages from all runs
-            fmaxSum += run.getAverageFmax();
-            fmaxList.add(run.getAverageFmax());
+            //Accumulate Fmax averages from all runs
+            fmaxStats.add(run.getAverageFmax());
         }
-        if (fmaxList.size() >= 1 && fmaxSum > 0) {
-            double avRunFmax = fmaxSum / fmaxList.size();
+        if (fmaxStats.getCount() >= 1 && fmaxStats.getMean() > 0) {
+            double avRunFmax = fmaxStats.getMean();
             dbInfo.setAvRunFmax(avRunFmax);
             //Calculate the avFmax CV is there is more than one value
-            if (fmaxList.size() > 1) {
-                double avRunFmaxCV = MathFunctions.calcStDev(fmaxList) / avRunFmax;
+            if (fmaxStats.getCount() > 1) {
+                double avRunFmaxCV = fmaxStats.getStDev() / avRunFmax;
                 dbInfo.setAvRunFmaxCV(avRunFmaxCV);
             }
             db.saveObject(dbInfo);
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+
+package org.lreqpcr.core.utilities;
+
+/**
+ * Linear regression across a window of xy points that can be updated one 
+ * point at a time, such that sliding or expanding a window does not require 
+ * the regression to be recalculated from all of the points within the window. 
+ * <p>
+ * Rather than raw sums, the means and the sums of the squared deviations 
+ * from the means are updated, which avoids the loss of precision that raw 
+ * sums suffer when the x values (e.g. Fc) are large relative to their spread. 
+ * The regression values are identical to those generated by 
+ * {@link MathFunctions#linearRegressionAnalysis(double[][])} apart from 
+ * rounding differences.
+ * <p>
+ * A point with a non-finite value (e.g. the Ec of a cycle following a zero 
+ * Fc) is counted but excluded from the means and sums, so that it does not 
+ * corrupt them. While such a point is within the window the regression 
+ * values are NaN, as a full regression would generate, and once it has been 
+ * removed the regression values are again those of the remaining points.
+ *
+ * @author Bob Rutledge
+ */
+public class RollingRegression {
+
+    private int n = 0;//The number of finite points included in the means and sums
+    private int nonFiniteCount = 0;//The number of points with a non-finite value
+    private double avX = 0;
+    private double avY = 0;
+    private double sumXX = 0;//Sum of the squared x deviations
+    private double sumYY = 0;//Sum of the squared y deviations
+    private double sumXY = 0;//Sum of the xy deviation products
+
+    /**
+     * Removes all points from the window
+     */
+    public void clear() {
+        nonFiniteCount = 0;
+        clearSums();
+    }
+
+    private void clearSums() {
+        n = 0;
+        avX = 0;
+        avY = 0;
+        sumXX = 0;
+        sumYY = 0;
+        sumXY = 0;
+    }
+
+    /**
+     * Adds a point to the window
+     *
+     * @param x the x value
+     * @param y the y value
+     */
+    public void add(double x, double y) {
+        if (isNonFinite(x, y)) {
+            nonFiniteCount++;
+            return;
+        }
+        n++;
+        double dx = x - avX;
+        double dy = y - avY;
+        avX += dx / n;
+        avY += dy / n;
+        sumXX += dx * (x - avX);
+        sumYY += dy * (y - avY);
+        sumXY += dx * (y - avY);
+    }
+
+    /**
+     * Removes a point that was previously added to the window
+     *
+     * @param x the x value
+     * @param y the y value
+     */
+    public void remove(double x, double y) {
+        if (isNonFinite(x, y)) {
+            if (nonFiniteCount > 0) {
+                nonFiniteCount--;
+            }
+            return;
+        }
+        if (n <= 1) {
+            clearSums();
+            return;
+        }
+        double dx = x - avX;
+        double dy = y - avY;
+        sumXX -= dx * dx * n / (n - 1);
+        sumYY -= dy * dy * n / (n - 1);
+        sumXY -= dx * dy * n / (n - 1);
+        n--;
+        avX -= dx / n;
+        avY -= dy / n;
+    }
+
+    /**
+     * @return the number of points within the window
+     */
+    public int getCount() {
+        return n + nonFiniteCount;
+    }
+
+    /**
+     * @return true if a point with a non-finite value is within the window
+     */
+    public boolean hasNonFinitePoint() {
+        return nonFiniteCount > 0;
+    }
+
+    /**
+     * @return the slope of the regression line, or NaN if a non-finite point is within the window
+     */
+    public double getSlope() {
+        if (nonFiniteCount > 0) {
+            return Double.NaN;
+        }
+        return sumXY / sumXX;
+    }
+
+    /**
+     * @return the intercept of the regression line, or NaN if a non-finite point is within the window
+     */
+    public double getIntercept() {
+        return avY - (getSlope() * avX);
+    }
+
+    /**
+     * @return the coefficient of determination (r2), or NaN if a non-finite point is within the window
+     */
+    public double getR2() {
+        if (nonFiniteCount > 0) {
+            return Double.NaN;
+        }
+        double r = sumXY / Math.sqrt(sumXX * sumYY);
+        return r * r;
+    }
+
+    /**
+     * Places the regression values into the supplied array, allowing 
+     * the array to be reused across successive windows.
+     *
+     * @param regressionValues an array of at least 3 elements that receives 
+     * [slope, intercept, r2]
+     * @return the supplied array
+     */
+    public double[] getRegressionValues(double[] regressionValues) {
+        regressionValues[0] = getSlope();
+        regressionValues[1] = getIntercept();
+        regressionValues[2] = getR2();
+        return regressionValues;
+    }
+
+    private static boolean isNonFinite(double x, double y) {
+        return Double.isNaN(x) || Double.isInfinite(x) || Double.isNaN(y) || Double.isInfinite(y);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+/**
+ * Streaming accumulation of the count, mean, variance, minimum and maximum 
+ * of a series of values without the values having to be retained. 
+ * <p>
+ * The mean and variance are updated via Welford's algorithm, which avoids 
+ * the loss of precision produced by the sum of squares formula when the 
+ * spread of the values is small relative to their magnitude. 
+ * Accumulators can be merged, allowing values to be accumulated on 
+ * separate threads and then combined. Note that an accumulator is not 
+ * itself thread safe.
+ *
+ * @author Bob Rutledge
+ */
+public class StatisticsAccumulator {
+
+    private long count = 0;
+    private double mean = 0;
+    private double sumSqDev = 0;//Sum of the squared deviations from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Adds a value
+     *
+     * @param value the value to add
+     */
+    public void add(double value) {
+        count++;
+        double dev = value - mean;
+        mean += dev / count;
+        sumSqDev += dev * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds a slice of an array of values
+     *
+     * @param values the values
+     * @param from the index of the first value to add
+     * @param to the index following the last value to add
+     */
+    public void addAll(double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Combines the values accumulated by another accumulator into this 
+     * accumulator. The other accumulator is not modified.
+     *
+     * @param other the accumulator to merge
+     */
+    public void merge(StatisticsAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumSqDev = other.sumSqDev;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double dev = other.mean - mean;
+        mean += dev * other.count / total;
+        sumSqDev += other.sumSqDev + (dev * dev * count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all values
+     */
+    public void clear() {
+        count = 0;
+        mean = 0;
+        sumSqDev = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean, or NaN if no values have been added
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the sample variance (n - 1), or NaN if fewer than two values have been added
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : sumSqDev / (count - 1);
+    }
+
+    /**
+     * Equivalent to Excel's stdev function.
+     *
+     * @return the sample standard deviation, or NaN if fewer than two values have been added
+     */
+    public double getStDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the coefficient of variation (SD/mean), or NaN if fewer than two values have been added
+     */
+    public double getCV() {
+        return getStDev() / mean;
+    }
+
+    /**
+     * @return the smallest value, or NaN if no values have been added
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return the largest value, or NaN if no values have been added
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+}
@@ -20,510 +20,45 @@ package org.lreqpcr.core.utilities;
 import org.lreqpcr.core.data_objects.Profile;
 
 /**
- * Converts the well number to well label
+ * Converts the well number to well label via the PlateFormat.
  * @author Bob Rutledge
  */
 public class WellNumberToLabel {
 
     /**
-     * Converts the well number to well label for the provided Profile
+     * Converts the well number to well label for the provided Profile.
+     * The well label is not changed if the well is not present within a
+     * 96 well plate.
+     *
      * @param prf the profile
      */
     public static void indexToLabel96WelL_AB7900(Profile prf){
-            int wellNumber = prf.getWellNumber();
-            switch (wellNumber){
-                case 1: prf.setWellLabel("A1"); break;
-                case 2: prf.setWellLabel("A2"); break;
-                case 3: prf.setWellLabel("A3"); break;
-                case 4: prf.setWellLabel("A4"); break;
-                case 5: prf.setWellLabel("A5"); break;
-                case 6: prf.setWellLabel("A6"); break;
-                case 7: prf.setWellLabel("A7"); break;
-                case 8: prf.setWellLabel("A8"); break;
-                case 9: prf.setWellLabel("A9"); break;
-                case 10: prf.setWellLabel("A10"); break;
-                case 11: prf.setWellLabel("A11"); break;
-                case 12: prf.setWellLabel("A12"); break;
-                case 13: prf.setWellLabel("B1"); break;
-                case 14: prf.setWellLabel("B2"); break;
-                case 15: prf.setWellLabel("B3"); break;
-                case 16: prf.setWellLabel("B4"); break;
-                case 17: prf.setWellLabel("B5"); break;
-                case 18: prf.setWellLabel("B6"); break;
-                case 19: prf.setWellLabel("B7"); break;
-                case 20: prf.setWellLabel("B8"); break;
-                case 21: prf.setWellLabel("B9"); break;
-                case 22: prf.setWellLabel("B10"); break;
-                case 23: prf.setWellLabel("B11"); break;
-                case 24: prf.setWellLabel("B12"); break;
-                case 25: prf.setWellLabel("C1"); break;
-                case 26: prf.setWellLabel("C2"); break;
-                case 27: prf.setWellLabel("C3"); break;
-                case 28: prf.setWellLabel("C4"); break;
-                case 29: prf.setWellLabel("C5"); break;
-                case 30: prf.setWellLabel("C6"); break;
-                case 31: prf.setWellLabel("C7"); break;
-                case 32: prf.setWellLabel("C8"); break;
-                case 33: prf.setWellLabel("C9"); break;
-                case 34: prf.setWellLabel("C10"); break;
-                case 35: prf.setWellLabel("C11"); break;
-                case 36: prf.setWellLabel("C12"); break;
-                case 37: prf.setWellLabel("D1"); break;
-                case 38: prf.setWellLabel("D2"); break;
-                case 39: prf.setWellLabel("D3"); break;
-                case 40: prf.setWellLabel("D4"); break;
-                case 41: prf.setWellLabel("D5"); break;
-                case 42: prf.setWellLabel("D6"); break;
-                case 43: prf.setWellLabel("D7"); break;
-                case 44: prf.setWellLabel("D8"); break;
-                case 45: prf.setWellLabel("D9"); break;
-                case 46: prf.setWellLabel("D10"); break;
-                case 47: prf.setWellLabel("D11"); break;
-                case 48: prf.setWellLabel("D12"); break;
-                case 49: prf.setWellLabel("E1"); break;
-                case 50: prf.setWellLabel("E2"); break;
-                case 51: prf.setWellLabel("E3"); break;
-                case 52: prf.setWellLabel("E4"); break;
-                case 53: prf.setWellLabel("E5"); break;
-                case 54: prf.setWellLabel("E6"); break;
-                case 55: prf.setWellLabel("E7"); break;
-                case 56: prf.setWellLabel("E8"); break;
-                case 57: prf.setWellLabel("E9"); break;
-                case 58: prf.setWellLabel("E10"); break;
-                case 59: prf.setWellLabel("E11"); break;
-                case 60: prf.setWellLabel("E12"); break;
-                case 61: prf.setWellLabel("F1"); break;
-                case 62: prf.setWellLabel("F2"); break;
-                case 63: prf.setWellLabel("F3"); break;
-                case 64: prf.setWellLabel("F4"); break;
-                case 65: prf.setWellLabel("F5"); break;
-                case 66: prf.setWellLabel("F6"); break;
-                case 67: prf.setWellLabel("F7"); break;
-                case 68: prf.setWellLabel("F8"); break;
-                case 69: prf.setWellLabel("F9"); break;
-                case 70: prf.setWellLabel("F10"); break;
-                case 71: prf.setWellLabel("F11"); break;
-                case 72: prf.setWellLabel("F12"); break;
-                case 73: prf.setWellLabel("G1"); break;
-                case 74: prf.setWellLabel("G2"); break;
-                case 75: prf.setWellLabel("G3"); break;
-                case 76: prf.setWellLabel("G4"); break;
-                case 77: prf.setWellLabel("G5"); break;
-                case 78: prf.setWellLabel("G6"); break;
-                case 79: prf.setWellLabel("G7"); break;
-                case 80: prf.setWellLabel("G8"); break;
-                case 81: prf.setWellLabel("G9"); break;
-                case 82: prf.setWellLabel("G10"); break;
-                case 83: prf.setWellLabel("G11"); break;
-                case 84: prf.setWellLabel("G12"); break;
-                case 85: prf.setWellLabel("H1"); break;
-                case 86: prf.setWellLabel("H2"); break;
-                case 87: prf.setWellLabel("H3"); break;
-                case 88: prf.setWellLabel("H4"); break;
-                case 89: prf.setWellLabel("H5"); break;
-                case 90: prf.setWellLabel("H6"); break;
-                case 91: prf.setWellLabel("H7"); break;
-                case 92: prf.setWellLabel("H8"); break;
-                case 93: prf.setWellLabel("H9"); break;
-                case 94: prf.setWellLabel("H10"); break;
-                case 95: prf.setWellLabel("H11"); break;
-                case 96: prf.setWellLabel("H12"); break;
+        numberToLabel(prf, PlateFormat.PLATE_96_WELL, false);
+    }
 
-            }
-        }
+    /**
+     * Well number to well label conversion for a AB 7900 384 well plate.
+     * The well label is not changed if the well is not present within a
+     * 384 well plate.
+     *
+     * @param prf the profile in which to determine the well label
+     */
+    public static void indexToLabel384Well_AB7900(Profile prf){
+        numberToLabel(prf, PlateFormat.PLATE_384_WELL, false);
+    }
 
-        /**
-         * Well number to well label conversion for a AB 7900 384 well plate.
-         *
-         * @param prf the profile in which to determine the well label
-         */
-        public static void indexToLabel384Well_AB7900(Profile prf){
-            int wellNumber = prf.getWellNumber();
-            switch (wellNumber){
-                case 1: prf.setWellLabel("A1"); break;
-                case 2: prf.setWellLabel("A2"); break;
-                case 3: prf.setWellLabel("A3"); break;
-                case 4: prf.setWellLabel("A4"); break;
-                case 5: prf.setWellLabel("A5"); break;
-                case 6: prf.setWellLabel("A6"); break;
-                case 7: prf.setWellLabel("A7"); break;
-                case 8: prf.setWellLabel("A8"); break;
-                case 9: prf.setWellLabel("A9"); break;
-                case 10: prf.setWellLabel("A10"); break;
-                case 11: prf.setWellLabel("A11"); break;
-                case 12: prf.setWellLabel("A12"); break;
-                case 13: prf.setWellLabel("A13"); break;
-                case 14: prf.setWellLabel("A14"); break;
-                case 15: prf.setWellLabel("A15"); break;
-                case 16: prf.setWellLabel("A16"); break;
-                case 17: prf.setWellLabel("A17"); break;
-                case 18: prf.setWellLabel("A18"); break;
-                case 19: prf.setWellLabel("A19"); break;
-                case 20: prf.setWellLabel("A20"); break;
-                case 21: prf.setWellLabel("A21"); break;
-                case 22: prf.setWellLabel("A22"); break;
-                case 23: prf.setWellLabel("A23"); break;
-                case 24: prf.setWellLabel("A24"); break;
-                case 25: prf.setWellLabel("B1"); break;
-                case 26: prf.setWellLabel("B2"); break;
-                case 27: prf.setWellLabel("B3"); break;
-                case 28: prf.setWellLabel("B4"); break;
-                case 29: prf.setWellLabel("B5"); break;
-                case 30: prf.setWellLabel("B6"); break;
-                case 31: prf.setWellLabel("B7"); break;
-                case 32: prf.setWellLabel("B8"); break;
-                case 33: prf.setWellLabel("B9"); break;
-                case 34: prf.setWellLabel("B10"); break;
-                case 35: prf.setWellLabel("B11"); break;
-                case 36: prf.setWellLabel("B12"); break;
-                case 37: prf.setWellLabel("B13"); break;
-                case 38: prf.setWellLabel("B14"); break;
-                case 39: prf.setWellLabel("B15"); break;
-                case 40: prf.setWellLabel("B16"); break;
-                case 41: prf.setWellLabel("B17"); break;
-                case 42: prf.setWellLabel("B18"); break;
-                case 43: prf.setWellLabel("B19"); break;
-                case 44: prf.setWellLabel("B20"); break;
-                case 45: prf.setWellLabel("B21"); break;
-                case 46: prf.setWellLabel("B22"); break;
-                case 47: prf.setWellLabel("B23"); break;
-                case 48: prf.setWellLabel("B24"); break;
-                case 49: prf.setWellLabel("C1"); break;
-                case 50: prf.setWellLabel("C2"); break;
-                case 51: prf.setWellLabel("C3"); break;
-                case 52: prf.setWellLabel("C4"); break;
-                case 53: prf.setWellLabel("C5"); break;
-                case 54: prf.setWellLabel("C6"); break;
-                case 55: prf.setWellLabel("C7"); break;
-                case 56: prf.setWellLabel("C8"); break;
-                case 57: prf.setWellLabel("C9"); break;
-                case 58: prf.setWellLabel("C10"); break;
-                case 59: prf.setWellLabel("C11"); break;
-                case 60: prf.setWellLabel("C12"); break;
-                case 61: prf.setWellLabel("C13"); break;
-                case 62: prf.setWellLabel("C14"); break;
-                case 63: prf.setWellLabel("C15"); break;
-                case 64: prf.setWellLabel("C16"); break;
-                case 65: prf.setWellLabel("C17"); break;
-                case 66: prf.setWellLabel("C18"); break;
-                case 67: prf.setWellLabel("C19"); break;
-                case 68: prf.setWellLabel("C20"); break;
-                case 69: prf.setWellLabel("C21"); break;
-                case 70: prf.setWellLabel("C22"); break;
-                case 71: prf.setWellLabel("C23"); break;
-                case 72: prf.setWellLabel("C24"); break;
-                case 73: prf.setWellLabel("D1"); break;
-                case 74: prf.setWellLabel("D2"); break;
-                case 75: prf.setWellLabel("D3"); break;
-                case 76: prf.setWellLabel("D4"); break;
-                case 77: prf.setWellLabel("D5"); break;
-                case 78: prf.setWellLabel("D6"); break;
-                case 79: prf.setWellLabel("D7"); break;
-                case 80: prf.setWellLabel("D8"); break;
-                case 81: prf.setWellLabel("D9"); break;
-                case 82: prf.setWellLabel("D10"); break;
-                case 83: prf.setWellLabel("D11"); break;
-                case 84: prf.setWellLabel("D12"); break;
-                case 85: prf.setWellLabel("D13"); break;
-                case 86: prf.setWellLabel("D14"); break;
-                case 87: prf.setWellLabel("D15"); break;
-                case 88: prf.setWellLabel("D16"); break;
-                case 89: prf.setWellLabel("D17"); break;
-                case 90: prf.setWellLabel("D18"); break;
-                case 91: prf.setWellLabel("D19"); break;
-                case 92: prf.setWellLabel("D20"); break;
-                case 93: prf.setWellLabel("D21"); break;
-                case 94: prf.setWellLabel("D22"); break;
-                case 95: prf.setWellLabel("D23"); break;
-                case 96: prf.setWellLabel("D24"); break;
-                case 97: prf.setWellLabel("E1"); break;
-                case 98: prf.setWellLabel("E2"); break;
-                case 99: prf.setWellLabel("E3"); break;
-                case 100: prf.setWellLabel("E4"); break;
-                case 101: prf.setWellLabel("E5"); break;
-                case 102: prf.setWellLabel("E6"); break;
-                case 103: prf.setWellLabel("E7"); break;
-                case 104: prf.setWellLabel("E8"); break;
-                case 105: prf.setWellLabel("E9"); break;
-                case 106: prf.setWellLabel("E10"); break;
-                case 107: prf.setWellLabel("E11"); break;
-                case 108: prf.setWellLabel("E12"); break;
-                case 109: prf.setWellLabel("E13"); break;
-                case 110: prf.setWellLabel("E14"); break;
-                case 111: prf.setWellLabel("E15"); break;
-                case 112: prf.setWellLabel("E16"); break;
-                case 113: prf.setWellLabel("E17"); break;
-                case 114: prf.setWellLabel("E18"); break;
-                case 115: prf.setWellLabel("E19"); break;
-                case 116: prf.setWellLabel("E20"); break;
-                case 117: prf.setWellLabel("E21"); break;
-                case 118: prf.setWellLabel("E22"); break;
-                case 119: prf.setWellLabel("E23"); break;
-                case 120: prf.setWellLabel("E24"); break;
-                case 121: prf.setWellLabel("F1"); break;
-                case 122: prf.setWellLabel("F2"); break;
-                case 123: prf.setWellLabel("F3"); break;
-                case 124: prf.setWellLabel("F4"); break;
-                case 125: prf.setWellLabel("F5"); break;
-                case 126: prf.setWellLabel("F6"); break;
-                case 127: prf.setWellLabel("F7"); break;
-                case 128: prf.setWellLabel("F8"); break;
-                case 129: prf.setWellLabel("F9"); break;
-                case 130: prf.setWellLabel("F10"); break;
-                case 131: prf.setWellLabel("F11"); break;
-                case 132: prf.setWellLabel("F12"); break;
-                case 133: prf.setWellLabel("F13"); break;
-                case 134: prf.setWellLabel("F14"); break;
-                case 135: prf.setWellLabel("F15"); break;
-                case 136: prf.setWellLabel("F16"); break;
-                case 137: prf.setWellLabel("F17"); break;
-                case 138: prf.setWellLabel("F18"); break;
-                case 139: prf.setWellLabel("F19"); break;
-                case 140: prf.setWellLabel("F20"); break;
-                case 141: prf.setWellLabel("F21"); break;
-                case 142: prf.setWellLabel("F22"); break;
-                case 143: prf.setWellLabel("F23"); break;
-                case 144: prf.setWellLabel("F24"); break;
-                case 145: prf.setWellLabel("G1"); break;
-                case 146: prf.setWellLabel("G2"); break;
-                case 147: prf.setWellLabel("G3"); break;
-                case 148: prf.setWellLabel("G4"); break;
-                case 149: prf.setWellLabel("G5"); break;
-                case 150: prf.setWellLabel("G6"); break;
-                case 151: prf.setWellLabel("G7"); break;
-                case 152: prf.setWellLabel("G8"); break;
-                case 153: prf.setWellLabel("G9"); break;
-                case 154: prf.setWellLabel("G10"); break;
-                case 155: prf.setWellLabel("G11"); break;
-                case 156: prf.setWellLabel("G12"); break;
-                case 157: prf.setWellLabel("G13"); break;
-                case 158: prf.setWellLabel("G14"); break;
-                case 159: prf.setWellLabel("G15"); break;
-                case 160: prf.setWellLabel("G16"); break;
-                case 161: prf.setWellLabel("G17"); break;
-                case 162: prf.setWellLabel("G18"); break;
-                case 163: prf.setWellLabel("G19"); break;
-                case 164: prf.setWellLabel("G20"); break;
-                case 165: prf.setWellLabel("G21"); break;
-                case 166: prf.setWellLabel("G22"); break;
-                case 167: prf.setWellLabel("G23"); break;
-                case 168: prf.setWellLabel("G24"); break;
-                case 169: prf.setWellLabel("H1"); break;
-                case 170: prf.setWellLabel("H2"); break;
-                case 171: prf.setWellLabel("H3"); break;
-                case 172: prf.setWellLabel("H4"); break;
-                case 173: prf.setWellLabel("H5"); break;
-                case 174: prf.setWellLabel("H6"); break;
-                case 175: prf.setWellLabel("H7"); break;
-                case 176: prf.setWellLabel("H8"); break;
-                case 177: prf.setWellLabel("H9"); break;
-                case 178: prf.setWellLabel("H10"); break;
-                case 179: prf.setWellLabel("H11"); break;
-                case 180: prf.setWellLabel("H12"); break;
-                case 181: prf.setWellLabel("H13"); break;
-                case 182: prf.setWellLabel("H14"); break;
-                case 183: prf.setWellLabel("H15"); break;
-                case 184: prf.setWellLabel("H16"); break;
-                case 185: prf.setWellLabel("H17"); break;
-                case 186: prf.setWellLabel("H18"); break;
-                case 187: prf.setWellLabel("H19"); break;
-                case 188: prf.setWellLabel("H20"); break;
-                case 189: prf.setWellLabel("H21"); break;
-                case 190: prf.setWellLabel("H22"); break;
-                case 191: prf.setWellLabel("H23"); break;
-                case 192: prf.setWellLabel("H24"); break;
-                case 193: prf.setWellLabel("I1"); break;
-                case 194: prf.setWellLabel("I2"); break;
-                case 195: prf.setWellLabel("I3"); break;
-                case 196: prf.setWellLabel("I4"); break;
-                case 197: prf.setWellLabel("I5"); break;
-                case 198: prf.setWellLabel("I6"); break;
-                case 199: prf.setWellLabel("I7"); break;
-                case 200: prf.setWellLabel("I8"); break;
-                case 201: prf.setWellLabel("I9"); break;
-                case 202: prf.setWellLabel("I10"); break;
-                case 203: prf.setWellLabel("I11"); break;
-                case 204: prf.setWellLabel("I12"); break;
-                case 205: prf.setWellLabel("I13"); break;
-                case 206: prf.setWellLabel("I14"); break;
-                case 207: prf.setWellLabel("I15"); break;
-                case 208: prf.setWellLabel("I16"); break;
-                case 209: prf.setWellLabel("I17"); break;
-                case 210: prf.setWellLabel("I18"); break;
-                case 211: prf.setWellLabel("I19"); break;
-                case 212: prf.setWellLabel("I20"); break;
-                case 213: prf.setWellLabel("I21"); break;
-                case 214: prf.setWellLabel("I22"); break;
-                case 215: prf.setWellLabel("I23"); break;
-                case 216: prf.setWellLabel("I24"); break;
-                case 217: prf.setWellLabel("J1"); break;
-                case 218: prf.setWellLabel("J2"); break;
-                case 219: prf.setWellLabel("J3"); break;
-                case 220: prf.setWellLabel("J4"); break;
-                case 221: prf.setWellLabel("J5"); break;
-                case 222: prf.setWellLabel("J6"); break;
-                case 223: prf.setWellLabel("J7"); break;
-                case 224: prf.setWellLabel("J8"); break;
-                case 225: prf.setWellLabel("J9"); break;
-                case 226: prf.setWellLabel("J10"); break;
-                case 227: prf.setWellLabel("J11"); break;
-                case 228: prf.setWellLabel("J12"); break;
-                case 229: prf.setWellLabel("J13"); break;
-                case 230: prf.setWellLabel("J14"); break;
-                case 231: prf.setWellLabel("J15"); break;
-                case 232: prf.setWellLabel("J16"); break;
-                case 233: prf.setWellLabel("J17"); break;
-                case 234: prf.setWellLabel("J18"); break;
-                case 235: prf.setWellLabel("J19"); break;
-                case 236: prf.setWellLabel("J20"); break;
-                case 237: prf.setWellLabel("J21"); break;
-                case 238: prf.setWellLabel("J22"); break;
-                case 239: prf.setWellLabel("J23"); break;
-                case 240: prf.setWellLabel("J24"); break;
-                case 241: prf.setWellLabel("K1"); break;
-                case 242: prf.setWellLabel("K2"); break;
-                case 243: prf.setWellLabel("K3"); break;
-                case 244: prf.setWellLabel("K4"); break;
-                case 245: prf.setWellLabel("K5"); break;
-                case 246: prf.setWellLabel("K6"); break;
-                case 247: prf.setWellLabel("K7"); break;
-                case 248: prf.setWellLabel("K8"); break;
-                case 249: prf.setWellLabel("K9"); break;
-                case 250: prf.setWellLabel("K10"); break;
-                case 251: prf.setWellLabel("K11"); break;
-                case 252: prf.setWellLabel("K12"); break;
-                case 253: prf.setWellLabel("K13"); break;
-                case 254: prf.setWellLabel("K14"); break;
-                case 255: prf.setWellLabel("K15"); break;
-                case 256: prf.setWellLabel("K16"); break;
-                case 257: prf.setWellLabel("K17"); break;
-                case 258: prf.setWellLabel("K18"); break;
-                case 259: prf.setWellLabel("K19"); break;
-                case 260: prf.setWellLabel("K20"); break;
-                case 261: prf.setWellLabel("K21"); break;
-                case 262: prf.setWellLabel("K22"); break;
-                case 263: prf.setWellLabel("K23"); break;
-                case 264: prf.setWellLabel("K24"); break;
-                case 265: prf.setWellLabel("L1"); break;
-                case 266: prf.setWellLabel("L2"); break;
-                case 267: prf.setWellLabel("L3"); break;
-                case 268: prf.setWellLabel("L4"); break;
-                case 269: prf.setWellLabel("L5"); break;
-                case 270: prf.setWellLabel("L6"); break;
-                case 271: prf.setWellLabel("L7"); break;
-                case 272: prf.setWellLabel("L8"); break;
-                case 273: prf.setWellLabel("L9"); break;
-                case 274: prf.setWellLabel("L10"); break;
-                case 275: prf.setWellLabel("L11"); break;
-                case 276: prf.setWellLabel("L12"); break;
-                case 277: prf.setWellLabel("L13"); break;
-                case 278: prf.setWellLabel("L14"); break;
-                case 279: prf.setWellLabel("L15"); break;
-                case 280: prf.setWellLabel("L16"); break;
-                case 281: prf.setWellLabel("L17"); break;
-                case 282: prf.setWellLabel("L18"); break;
-                case 283: prf.setWellLabel("L19"); break;
-                case 284: prf.setWellLabel("L20"); break;
-                case 285: prf.setWellLabel("L21"); break;
-                case 286: prf.setWellLabel("L22"); break;
-                case 287: prf.setWellLabel("L23"); break;
-                case 288: prf.setWellLabel("L24"); break;
-                case 289: prf.setWellLabel("M1"); break;
-                case 290: prf.setWellLabel("M2"); break;
-                case 291: prf.setWellLabel("M3"); break;
-                case 292: prf.setWellLabel("M4"); break;
-                case 293: prf.setWellLabel("M5"); break;
-                case 294: prf.setWellLabel("M6"); break;
-                case 295: prf.setWellLabel("M7"); break;
-                case 296: prf.setWellLabel("M8"); break;
-                case 297: prf.setWellLabel("M9"); break;
-                case 298: prf.setWellLabel("M10"); break;
-                case 299: prf.setWellLabel("M11"); break;
-                case 300: prf.setWellLabel("M12"); break;
-                case 301: prf.setWellLabel("M13"); break;
-                case 302: prf.setWellLabel("M14"); break;
-                case 303: prf.setWellLabel("M15"); break;
-                case 304: prf.setWellLabel("M16"); break;
-                case 305: prf.setWellLabel("M17"); break;
-                case 306: prf.setWellLabel("M18"); break;
-                case 307: prf.setWellLabel("M19"); break;
-                case 308: prf.setWellLabel("M20"); break;
-                case 309: prf.setWellLabel("M21"); break;
-                case 310: prf.setWellLabel("M22"); break;
-                case 311: prf.setWellLabel("M23"); break;
-                case 312: prf.setWellLabel("M24"); break;
-                case 313: prf.setWellLabel("N1"); break;
-                case 314: prf.setWellLabel("N2"); break;
-                case 315: prf.setWellLabel("N3"); break;
-                case 316: prf.setWellLabel("N4"); break;
-                case 317: prf.setWellLabel("N5"); break;
-                case 318: prf.setWellLabel("N6"); break;
-                case 319: prf.setWellLabel("N7"); break;
-                case 320: prf.setWellLabel("N8"); break;
-                case 321: prf.setWellLabel("N9"); break;
-                case 322: prf.setWellLabel("N10"); break;
-                case 323: prf.setWellLabel("N11"); break;
-                case 324: prf.setWellLabel("N12"); break;
-                case 325: prf.setWellLabel("N13"); break;
-                case 326: prf.setWellLabel("N14"); break;
-                case 327: prf.setWellLabel("N15"); break;
-                case 328: prf.setWellLabel("N16"); break;
-                case 329: prf.setWellLabel("N17"); break;
-                case 330: prf.setWellLabel("N18"); break;
-                case 331: prf.setWellLabel("N19"); break;
-                case 332: prf.setWellLabel("N20"); break;
-                case 333: prf.setWellLabel("N21"); break;
-                case 334: prf.setWellLabel("N22"); break;
-                case 335: prf.setWellLabel("N23"); break;
-                case 336: prf.setWellLabel("N24"); break;
-                case 337: prf.setWellLabel("O1"); break;
-                case 338: prf.setWellLabel("O2"); break;
-                case 339: prf.setWellLabel("O3"); break;
-                case 340: prf.setWellLabel("O4"); break;
-                case 341: prf.setWellLabel("O5"); break;
-                case 342: prf.setWellLabel("O6"); break;
-                case 343: prf.setWellLabel("O7"); break;
-                case 344: prf.setWellLabel("O8"); break;
-                case 345: prf.setWellLabel("O9"); break;
-                case 346: prf.setWellLabel("O10"); break;
-                case 347: prf.setWellLabel("O11"); break;
-                case 348: prf.setWellLabel("O12"); break;
-                case 349: prf.setWellLabel("O13"); break;
-                case 350: prf.setWellLabel("O14"); break;
-                case 351: prf.setWellLabel("O15"); break;
-                case 352: prf.setWellLabel("O16"); break;
-                case 353: prf.setWellLabel("O17"); break;
-                case 354: prf.setWellLabel("O18"); break;
-                case 355: prf.setWellLabel("O19"); break;
-                case 356: prf.setWellLabel("O20"); break;
-                case 357: prf.setWellLabel("O21"); break;
-                case 358: prf.setWellLabel("O22"); break;
-                case 359: prf.setWellLabel("O23"); break;
-                case 360: prf.setWellLabel("O24"); break;
-                case 361: prf.setWellLabel("P1"); break;
-                case 362: prf.setWellLabel("P2"); break;
-                case 363: prf.setWellLabel("P3"); break;
-                case 364: prf.setWellLabel("P4"); break;
-                case 365: prf.setWellLabel("P5"); break;
-                case 366: prf.setWellLabel("P6"); break;
-                case 367: prf.setWellLabel("P7"); break;
-                case 368: prf.setWellLabel("P8"); break;
-                case 369: prf.setWellLabel("P9"); break;
-                case 370: prf.setWellLabel("P10"); break;
-                case 371: prf.setWellLabel("P11"); break;
-                case 372: prf.setWellLabel("P12"); break;
-                case 373: prf.setWellLabel("P13"); break;
-                case 374: prf.setWellLabel("P14"); break;
-                case 375: prf.setWellLabel("P15"); break;
-                case 376: prf.setWellLabel("P16"); break;
-                case 377: prf.setWellLabel("P17"); break;
-                case 378: prf.setWellLabel("P18"); break;
-                case 379: prf.setWellLabel("P19"); break;
-                case 380: prf.setWellLabel("P20"); break;
-                case 381: prf.setWellLabel("P21"); break;
-                case 382: prf.setWellLabel("P22"); break;
-                case 383: prf.setWellLabel("P23"); break;
-                case 384: prf.setWellLabel("P24"); break;
-            }
+    /**
+     * Converts the well number to well label for the provided Profile. The
+     * well label is not changed if the well is not present within the plate.
+     *
+     * @param prf the profile
+     * @param plateFormat the plate format
+     * @param isColumnMajor true if the wells are numbered column by column
+     */
+    public static void numberToLabel(Profile prf, PlateFormat plateFormat, boolean isColumnMajor) {
+        String wellLabel = plateFormat.getWellLabel(prf.getWellNumber(), isColumnMajor);
+        if (wellLabel != null) {
+            prf.setWellLabel(wellLabel);
         }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the array versions of calcFo and calcPrdFc, which generate
+ * the power of (Emax + 1) by successive multiplication, agree element by
+ * element with the scalar versions, including for Fc readings of zero or
+ * NaN, and that only the requested cycles are calculated.
+ *
+ * @author Bob Rutledge
+ */
+public class LREmathTest {
+
+    private static final double DELTA_E = -0.0125;
+    private static final double EMAX = 0.95;
+    //The repeated multiplication introduces a small rounding error at each cycle
+    private static final double RELATIVE_TOLERANCE = 1e-12;
+
+    @Test
+    public void testArrayFoMatchesScalarFo() {
+        Random random = new Random(4);
+        double[] fc = new double[51];
+        for (int c = 1; c < fc.length; c++) {
+            fc[c] = 10 + 5000 / (1 + Math.exp(-(c - 24) / 1.6)) + random.nextGaussian();
+        }
+        double[] fo = new double[fc.length];
+        LREmath.calcFo(fc, 1, 50, DELTA_E, EMAX, fo);
+        for (int c = 1; c <= 50; c++) {
+            assertMatches("Cycle " + c, LREmath.calcFo(c, fc[c], DELTA_E, EMAX), fo[c]);
+        }
+    }
+
+    @Test
+    public void testArrayFoMatchesScalarFoForZeroAndNaNFc() {
+        double[] fc = {100, 0, Double.NaN, 250, -0.0, 400};
+        double[] fo = new double[fc.length];
+        LREmath.calcFo(fc, 0, fc.length - 1, DELTA_E, EMAX, fo);
+        for (int c = 0; c < fc.length; c++) {
+            assertMatches("Cycle " + c, LREmath.calcFo(c, fc[c], DELTA_E, EMAX), fo[c]);
+        }
+        assertTrue(Double.isNaN(fo[2]));
+        //A NaN Fc only affects its own cycle
+        assertFalse(Double.isNaN(fo[3]));
+    }
+
+    @Test
+    public void testArrayPrdFcMatchesScalarPrdFc() {
+        double[] fos = {1e-5, 0.003, 0, Double.NaN};
+        for (double oF : fos) {
+            double[] pFc = new double[51];
+            LREmath.calcPrdFc(1, 50, DELTA_E, EMAX, oF, pFc);
+            for (int c = 1; c <= 50; c++) {
+                assertMatches("Fo " + oF + " cycle " + c, LREmath.calcPrdFc(c, DELTA_E, EMAX, oF), pFc[c]);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyTheRequestedCyclesAreCalculated() {
+        double[] fc = new double[20];
+        Arrays.fill(fc, 100);
+        double[] fo = new double[fc.length];
+        double[] pFc = new double[fc.length];
+        Arrays.fill(fo, -1);
+        Arrays.fill(pFc, -1);
+        LREmath.calcFo(fc, 5, 9, DELTA_E, EMAX, fo);
+        LREmath.calcPrdFc(5, 9, DELTA_E, EMAX, 0.001, pFc);
+        for (int c = 0; c < fc.length; c++) {
+            boolean isCalculated = c >= 5 && c <= 9;
+            assertEquals("Fo cycle " + c, isCalculated, fo[c] != -1);
+            assertEquals("pFc cycle " + c, isCalculated, pFc[c] != -1);
+        }
+    }
+
+    /**
+     * NaN and infinite values must be identical, finite values equal to
+     * within the rounding error of the repeated multiplication.
+     */
+    private static void assertMatches(String message, double expected, double actual) {
+        if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+            assertEquals(message, expected, actual, 0);
+        } else {
+            assertEquals(message, expected, actual, Math.abs(expected) * RELATIVE_TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the StatisticsAccumulator, its merging and the calcStDev
+ * variants agree, and that they remain accurate when the spread of the
+ * values is small relative to their magnitude.
+ *
+ * @author Bob Rutledge
+ * @see StatisticsBenchmark
+ */
+public class StatisticsAccumulatorTest {
+
+    @Test
+    public void testAccumulatorMatchesTwoPassCalculation() {
+        Random random = new Random(1);
+        double[] values = new double[384];
+        List<Double> boxedValues = new ArrayList<Double>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 5000 + random.nextGaussian() * 300;
+            boxedValues.add(values[i]);
+        }
+        StatisticsAccumulator stats = new StatisticsAccumulator();
+        stats.addAll(values, 0, values.length);
+        double stDev = MathFunctions.calcStDev(values, 0, values.length);
+        assertEquals(values.length, stats.getCount());
+        assertEquals(MathFunctions.calcAverage(values, 0, values.length), stats.getMean(), 1e-9);
+        assertEquals(stDev, stats.getStDev(), stDev * 1e-12);
+        assertEquals(stDev, MathFunctions.calcStDev(boxedValues), stDev * 1e-12);
+    }
+
+    @Test
+    public void testMergedAccumulatorsMatchSingleAccumulator() {
+        Random random = new Random(2);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 100;
+        }
+        StatisticsAccumulator single = new StatisticsAccumulator();
+        single.addAll(values, 0, values.length);
+        //Uneven slices, including an empty slice
+        int[] bounds = {0, 1, 1, 300, 999, 1000};
+        StatisticsAccumulator merged = new StatisticsAccumulator();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            StatisticsAccumulator slice = new StatisticsAccumulator();
+            slice.addAll(values, bounds[i], bounds[i + 1]);
+            merged.merge(slice);
+        }
+        assertEquals(single.getCount(), merged.getCount());
+        assertEquals(single.getMean(), merged.getMean(), 1e-12);
+        assertEquals(single.getStDev(), merged.getStDev(), single.getStDev() * 1e-12);
+        assertEquals(single.getMin(), merged.getMin(), 0);
+        assertEquals(single.getMax(), merged.getMax(), 0);
+    }
+
+    @Test
+    public void testLargeOffsetDoesNotLosePrecision() {
+        //Values with an SD of exactly 1 about a mean of 1e9
+        double[] values = {1e9 - 1, 1e9, 1e9 + 1};
+        StatisticsAccumulator stats = new StatisticsAccumulator();
+        stats.addAll(values, 0, values.length);
+        assertEquals(1, stats.getStDev(), 1e-9);
+        assertEquals(1, MathFunctions.calcStDev(values), 1e-9);
+    }
+
+    @Test
+    public void testFewerThanTwoValues() {
+        StatisticsAccumulator stats = new StatisticsAccumulator();
+        assertTrue(Double.isNaN(stats.getStDev()));
+        stats.add(3);
+        assertTrue(Double.isNaN(stats.getStDev()));
+        assertTrue(Double.isNaN(MathFunctions.calcStDev(new double[]{3})));
+    }
+}
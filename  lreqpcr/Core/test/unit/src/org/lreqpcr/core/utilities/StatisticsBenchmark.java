@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.core.utilities;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the speed and accuracy of the standard deviation calculations,
+ * that is, the sum of squares formula applied to a boxed List that was
+ * previously used throughout, calcStDev applied to a boxed List and to a
+ * primitive array slice, a StatisticsAccumulator, and StatisticsAccumulators
+ * merged across threads. Usage:
+ * <pre>
+ * StatisticsBenchmark [-warmup n] [-iterations n] [-time ms]
+ * </pre>
+ * As with a JMH average time benchmark, each calculation is run for a number
+ * of timed iterations (by default 10 of 200 ms) following warm-up iterations
+ * (by default 5), and the mean time per calculation is reported along with
+ * its SD across the iterations. Every result is consumed, so that the
+ * calculation cannot be eliminated by the compiler.
+ * <p>
+ * The accuracy of each calculation is reported as the relative error vs.
+ * the exact standard deviation of values whose spread is small relative
+ * to their magnitude (e.g. Fc readings with a large baseline).
+ *
+ * @author Bob Rutledge
+ */
+public class StatisticsBenchmark {
+
+    //The number of values: NR passes, a 96 and 384 well Run, and a large reduction
+    private static final int[] SIZES = {5, 96, 384, 100000};
+    private static final int NUMBER_OF_THREADS = 4;
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        int warmup = 5;
+        int iterations = 10;
+        long iterationTime = 200;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-warmup")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-iterations")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-time")) {
+                iterationTime = Long.parseLong(args[++i]);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            System.out.println(String.format("%-32s %8s %14s %10s %14s",
+                    "Calculation", "Values", "ns/op", "SD", "Relative error"));
+            for (int size : SIZES) {
+                Random random = new Random(size);
+                double[] values = new double[size];
+                List<Double> boxedValues = new ArrayList<Double>(size);
+                for (int i = 0; i < size; i++) {
+                    //A large offset with a small spread, as found within Fc readings
+                    values[i] = 1e6 + random.nextGaussian();
+                    boxedValues.add(values[i]);
+                }
+                double exact = exactStDev(values);
+                Calculation[] calculations = {
+                    new LegacySumOfSquares(boxedValues),
+                    new BoxedStDev(boxedValues),
+                    new ArraySliceStDev(values),
+                    new Accumulator(values),
+                    new MergedAccumulators(values, executor)};
+                for (Calculation calculation : calculations) {
+                    if (calculation instanceof MergedAccumulators && size < 1000) {
+                        continue;//Merging across threads only pays for large reductions
+                    }
+                    double error = Math.abs(calculation.calculate() - exact) / exact;
+                    for (int i = 0; i < warmup; i++) {
+                        measure(calculation, iterationTime);
+                    }
+                    double[] nsPerOp = new double[iterations];
+                    for (int i = 0; i < iterations; i++) {
+                        nsPerOp[i] = measure(calculation, iterationTime);
+                    }
+                    System.out.println(String.format("%-32s %8d %14.1f %10.1f %14.3g",
+                            calculation.getName(), size, MathFunctions.calcAverage(nsPerOp, 0, iterations),
+                            MathFunctions.calcStDev(nsPerOp), error));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the calculation repeatedly for the iteration time.
+     *
+     * @return the mean time per calculation in ns
+     */
+    private static double measure(Calculation calculation, long iterationTime) throws Exception {
+        long end = System.nanoTime() + iterationTime * 1000000L;
+        long operations = 0;
+        double result = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            for (int i = 0; i < 100; i++) {
+                result += calculation.calculate();
+            }
+            operations += 100;
+            now = System.nanoTime();
+        } while (now < end);
+        sink = result;
+        return (double) (now - start) / operations;
+    }
+
+    /**
+     * @return the standard deviation calculated with 50 significant digits
+     */
+    private static double exactStDev(double[] values) {
+        MathContext mc = new MathContext(50);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double v : values) {
+            sum = sum.add(new BigDecimal(v));
+        }
+        BigDecimal average = sum.divide(new BigDecimal(values.length), mc);
+        BigDecimal sumSqDev = BigDecimal.ZERO;
+        for (double v : values) {
+            BigDecimal dev = new BigDecimal(v).subtract(average);
+            sumSqDev = sumSqDev.add(dev.multiply(dev, mc));
+        }
+        return Math.sqrt(sumSqDev.divide(new BigDecimal(values.length - 1), mc).doubleValue());
+    }
+
+    private static abstract class Calculation {
+
+        abstract String getName();
+
+        abstract double calculate() throws Exception;
+    }
+
+    /**
+     * The sum of squares formula previously used by MathFunctions.calcStDev
+     */
+    private static class LegacySumOfSquares extends Calculation {
+
+        private final List<Double> values;
+
+        LegacySumOfSquares(List<Double> values) {
+            this.values = values;
+        }
+
+        String getName() {
+            return "Sum of squares (List)";
+        }
+
+        double calculate() {
+            double xSum = 0;
+            double x2Sum = 0;
+            for (Double v : values) {
+                xSum += v;
+                x2Sum += Math.pow(v, 2);
+            }
+            int n = values.size();
+            return Math.sqrt(((n * x2Sum) - Math.pow(xSum, 2)) / (n * (n - 1)));
+        }
+    }
+
+    private static class BoxedStDev extends Calculation {
+
+        private final List<Double> values;
+
+        BoxedStDev(List<Double> values) {
+            this.values = values;
+        }
+
+        String getName() {
+            return "calcStDev(List)";
+        }
+
+        double calculate() {
+            return MathFunctions.calcStDev(values);
+        }
+    }
+
+    private static class ArraySliceStDev extends Calculation {
+
+        private final double[] values;
+
+        ArraySliceStDev(double[] values) {
+            this.values = values;
+        }
+
+        String getName() {
+            return "calcStDev(double[], from, to)";
+        }
+
+        double calculate() {
+            return MathFunctions.calcStDev(values, 0, values.length);
+        }
+    }
+
+    private static class Accumulator extends Calculation {
+
+        private final double[] values;
+        private final StatisticsAccumulator stats = new StatisticsAccumulator();
+
+        Accumulator(double[] values) {
+            this.values = values;
+        }
+
+        String getName() {
+            return "StatisticsAccumulator";
+        }
+
+        double calculate() {
+            stats.clear();
+            stats.addAll(values, 0, values.length);
+            return stats.getStDev();
+        }
+    }
+
+    /**
+     * Each thread accumulates a slice of the values, and the accumulators are then merged
+     */
+    private static class MergedAccumulators extends Calculation {
+
+        private final ExecutorService executor;
+        private final List<Callable<StatisticsAccumulator>> slices = new ArrayList<Callable<StatisticsAccumulator>>();
+
+        MergedAccumulators(final double[] values, ExecutorService executor) {
+            this.executor = executor;
+            for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+                final int from = t * values.length / NUMBER_OF_THREADS;
+                final int to = (t + 1) * values.length / NUMBER_OF_THREADS;
+                slices.add(new Callable<StatisticsAccumulator>() {
+
+                    public StatisticsAccumulator call() {
+                        StatisticsAccumulator stats = new StatisticsAccumulator();
+                        stats.addAll(values, from, to);
+                        return stats;
+                    }
+                });
+            }
+        }
+
+        String getName() {
+            return "Merged accumulators (" + NUMBER_OF_THREADS + " threads)";
+        }
+
+        double calculate() throws Exception {
+            StatisticsAccumulator stats = new StatisticsAccumulator();
+            for (Future<StatisticsAccumulator> slice : executor.invokeAll(slices)) {
+                stats.merge(slice.get());
+            }
+            return stats.getStDev();
+        }
+    }
+}
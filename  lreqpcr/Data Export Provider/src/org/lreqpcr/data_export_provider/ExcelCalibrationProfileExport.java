@@ -16,7 +16,6 @@
  */
 package org.lreqpcr.data_export_provider;
 
-import com.google.common.collect.Lists;
 import java.awt.Desktop;
 import java.io.File;
 import java.io.IOException;
@@ -34,7 +33,7 @@ import jxl.write.Number;
 import org.lreqpcr.core.data_objects.AverageCalibrationProfile;
 import org.lreqpcr.core.data_objects.CalibrationProfile;
 import org.lreqpcr.core.utilities.IOUtilities;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.openide.windows.WindowManager;
 
 /**
@@ -53,17 +52,15 @@ public class ExcelCalibrationProfileExport {
         ArrayList<AverageCalibrationProfile> profileList = new ArrayList<AverageCalibrationProfile>(prfList);
         Collections.sort(profileList);
         //Calculate the average OCF and CV
-        double ocfSum = 0;
-        ArrayList<Double> ocfArray = Lists.newArrayList();
+        StatisticsAccumulator ocfStats = new StatisticsAccumulator();
         for (int i = 0; i < profileList.size(); i++) {
             CalibrationProfile profile = (CalibrationProfile) profileList.get(i);
             if (!profile.isExcluded()) {
-                ocfSum = ocfSum + profile.getOCF();
-                ocfArray.add(profile.getOCF());
+                ocfStats.add(profile.getOCF());
             }
         }
-        double averageOCF = ocfSum / ocfArray.size();
-        double sd = MathFunctions.calcStDev(ocfArray);
+        double averageOCF = ocfStats.getMean();
+        double sd = ocfStats.getStDev();
         double cv = sd / averageOCF;
         //Get the workbook file from the user
         File selectedFile = IOUtilities.newExcelFile();
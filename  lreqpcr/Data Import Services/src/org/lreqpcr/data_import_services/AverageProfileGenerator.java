@@ -18,7 +18,7 @@
 package org.lreqpcr.data_import_services;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import javax.swing.JOptionPane;
 import org.lreqpcr.analysis_services.LreAnalysisService;
@@ -35,10 +35,12 @@ import org.lreqpcr.core.data_processing.ProfileSummary;
 import org.lreqpcr.core.data_processing.ProfileSummaryImp;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.openide.util.Lookup;
-import org.openide.windows.WindowManager;
 
 /**
  * Static methods for generating initialized AverageProfiles.
+ * <p>
+ * AverageProfile construction can also be separated from AverageProfile 
+ * analysis, so that the AverageProfiles can be analyzed concurrently.
  *
  * @author Bob Rutledge
  */
@@ -54,62 +56,72 @@ public class AverageProfileGenerator {
      * @param parentRun the Run from which this Profile dataset was derived
      * @param ocf the Experiment database OCF
      * @param parameters the LRE window selection parameters
+     * @param db the database holding the Profiles
      * @return a list containing generated AverageSampleProfiles
      */
-    @SuppressWarnings(value = "unchecked")
     public static ArrayList<AverageProfile> averageSampleProfileConstruction(
             List<SampleProfile> profileList,
             Run parentRun,
             double ocf,
             LreWindowSelectionParameters parameters,
             DatabaseServices db) {
-        ArrayList<SampleProfile> profileArray = new ArrayList<SampleProfile>(profileList);
+        ArrayList<AverageProfile> averageProfileList =
+                averageSampleProfileConstruction(profileList, parentRun, ocf);
+        if (averageProfileList != null) {
+            for (AverageProfile avProfile : averageProfileList) {
+                analyzeAverageProfile(avProfile, parameters, db);
+            }
+        }
+        return averageProfileList;
+    }
+
+    /**
+     * Generates a list of AverageSampleProfiles from the provided list of
+     * SampleProfiles, without analyzing the AverageSampleProfiles, which must
+     * then be conducted via analyzeAverageProfile. Note that the replicate
+     * SampleProfiles must have already been analyzed.
+     *
+     * @param profileList a list of the Profiles to be processed
+     * @param parentRun the Run from which this Profile dataset was derived
+     * @param ocf the Experiment database OCF
+     * @return a list containing generated AverageSampleProfiles, or null if
+     * the amplicon or sample name is missing from a Profile
+     */
+    public static ArrayList<AverageProfile> averageSampleProfileConstruction(
+            List<SampleProfile> profileList,
+            Run parentRun,
+            double ocf) {
         //Generate new ReplicatSampleProfiles for each replicate profile set within the profile list
         ArrayList<AverageProfile> averageProfileList = new ArrayList<AverageProfile>();
         //Parse out the replicate Profiles based on identical sample and amlipcon names
-        //Prevent changes to the passed Profile list
-        ArrayList<SampleProfile> listCopy = (ArrayList<SampleProfile>) profileArray.clone();
-        while (!listCopy.isEmpty()) {
-            SampleProfile profile = listCopy.get(0);
+        //This assumes that profiles with the same sample and name are replicate profiles
+        LinkedHashMap<ReplicateKey, ArrayList<SampleProfile>> replicateGroups =
+                new LinkedHashMap<ReplicateKey, ArrayList<SampleProfile>>();
+        for (SampleProfile prf : profileList) {
+            //This is needed because in version 0.8.6 the Run is not available during profile creation 
+            //Run objects are now created by the Run initializer
+            if (prf.getRun() == null) {
+                prf.setRun(parentRun);
+            }
+            if (prf.getAmpliconName() == null || prf.getSampleName() == null) {
+                String msg = "Either the Amplicon or Sample\n name is missing for well: "
+                        + prf.getWellLabel() + "\nData import will be aborted";
+                RunImportUtilities.displayImportMessage("Missing Amplicon or Sample", msg,
+                        JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+            addToReplicateGroup(replicateGroups, prf);
+        }
+        for (ArrayList<SampleProfile> replicateProfileList : replicateGroups.values()) {
+            SampleProfile profile = replicateProfileList.get(0);
             AverageSampleProfile avSampleProfile = new AverageSampleProfile();
             avSampleProfile.setRunDate(parentRun.getRunDate());
             avSampleProfile.setRun(parentRun);//Also sets the run date and sets the parent to this Runt
             avSampleProfile.setTargetStrandedness(profile.getTargetStrandedness());
-            ArrayList<SampleProfile> replicateProfileList = new ArrayList<SampleProfile>();
-            //This orders the sample profiles into the correct AverageProfile list using the sample and amplicon name.
-            //This assumes that profiles with the same sample and name are replicate profiles
-            for (SampleProfile prf : listCopy) {
-                try {
-                    //This is needed because in version 0.8.6 the Run is not available during profile creation 
-                    //Run objects are now created by the Run initializer
-                    if (prf.getRun() == null) {
-                        prf.setRun(parentRun);
-                    }
-                    if (profile.getAmpliconName().equals(prf.getAmpliconName()) && profile.getSampleName().equals(prf.getSampleName())) {
-                        replicateProfileList.add(prf);
-                    }
-                } catch (Exception e) {
-                    String well = "Unknown";
-                    if (prf.getAmpliconName() == null || prf.getSampleName() == null) {
-                        well = prf.getWellLabel();
-                    }
-                    String msg = "Either the Amplicon or Sample\n name is missing for well: "
-                            + well + "\nData import will be aborted";
-                    JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                            msg,
-                            "Missing Amplicon or Sample",
-                            JOptionPane.ERROR_MESSAGE);
-                    return null;
-                }
-            }
-            //Remove the replicate Profiles from the list copy
-            for (SampleProfile prf : replicateProfileList) {
-                listCopy.remove(prf);
-            }
             avSampleProfile.setReplicateProfileList(replicateProfileList);
             avSampleProfile.setRawFcReadings(generateAverageFcDataset(replicateProfileList));
             avSampleProfile.setOCF(ocf);
-            intializeAverageProfile(avSampleProfile, parameters, db);
+            prepareAverageProfile(avSampleProfile);
             averageProfileList.add(avSampleProfile);
         }
         return averageProfileList;
@@ -125,52 +137,60 @@ public class AverageProfileGenerator {
      * @param rxnSetup the ReactionSetup object for this calibration
      * @param parameters the LRE window parameters
      * @param parentRun the Run that generated the Profiles
+     * @param db the database holding the Profiles
      * @return a list of AverageCalibrationProfiles
      */
-    @SuppressWarnings(value = "unchecked")
     public static ArrayList<AverageProfile> averageCalbrationProfileConstruction(
             List<CalibrationProfile> profileList,
             LreWindowSelectionParameters parameters,
             Run parentRun,
             DatabaseServices db) {
-        ArrayList<CalibrationProfile> profileArray = new ArrayList<CalibrationProfile>(profileList);
+        ArrayList<AverageProfile> averageCalbnProfileList =
+                averageCalbrationProfileConstruction(profileList, parentRun);
+        if (averageCalbnProfileList != null) {
+            for (AverageProfile avProfile : averageCalbnProfileList) {
+                analyzeAverageProfile(avProfile, parameters, db);
+            }
+        }
+        return averageCalbnProfileList;
+    }
+
+    /**
+     * Generates a list of AverageCalibrationProfiles from the provided list of
+     * CalibrationProfiles, without analyzing the AverageCalibrationProfiles,
+     * which must then be conducted via analyzeAverageProfile. Note that the
+     * replicate CalibrationProfiles must have already been analyzed.
+     *
+     * @param profileList the list of CalibrationProfiles
+     * @param parentRun the Run that generated the Profiles
+     * @return a list of AverageCalibrationProfiles, or null if the amplicon or
+     * sample name is missing from a Profile
+     */
+    public static ArrayList<AverageProfile> averageCalbrationProfileConstruction(
+            List<CalibrationProfile> profileList,
+            Run parentRun) {
         //Generate new AverageCalibrationProfile for each replicate profile set within the profile list
         ArrayList<AverageProfile> averageCalbnProfileList =
                 new ArrayList<AverageProfile>();
         //Parse out the replicate Profiles based on identical sample and amlipcon names
-        //Prevent changes to the passed Profile list
-        ArrayList<CalibrationProfile> listCopy = (ArrayList<CalibrationProfile>) profileArray.clone();
-        while (!listCopy.isEmpty()) {
-            Profile profile = listCopy.get(0);
-            ArrayList<CalibrationProfile> calibrationProfileList = new ArrayList<CalibrationProfile>();
-            for (CalibrationProfile prf : listCopy) {
-                //This is needed because in version 0.8.6 the Run is not available during profile creation 
-                //Run objects are now created by the Run initializer
-                if (prf.getRun() == null) {
-                    prf.setRun(parentRun);
-                }
-                try {
-                    if (profile.getAmpliconName().equals(prf.getAmpliconName()) && profile.getSampleName().equals(prf.getSampleName())) {
-                        calibrationProfileList.add(prf);
-                    }
-                } catch (Exception e) {
-                    String well = "Unknown";
-                    if (prf.getAmpliconName() == null || prf.getSampleName() == null) {
-                        well = prf.getWellLabel();
-                    }
-                    String msg = "Either the Calibration Amplicon or Sample\n name is missing for well: "
-                            + well + "\n Calibration data import will be aborted";
-                    JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                            msg,
-                            "Missing Calibration Amplicon or Sample",
-                            JOptionPane.ERROR_MESSAGE);
-                    return null;
-                }
+        LinkedHashMap<ReplicateKey, ArrayList<CalibrationProfile>> replicateGroups =
+                new LinkedHashMap<ReplicateKey, ArrayList<CalibrationProfile>>();
+        for (CalibrationProfile prf : profileList) {
+            //This is needed because in version 0.8.6 the Run is not available during profile creation 
+            //Run objects are now created by the Run initializer
+            if (prf.getRun() == null) {
+                prf.setRun(parentRun);
             }
-            //Remove the replicate Profiles from the list copy
-            for (CalibrationProfile prf : calibrationProfileList) {
-                listCopy.remove(prf);
+            if (prf.getAmpliconName() == null || prf.getSampleName() == null) {
+                String msg = "Either the Calibration Amplicon or Sample\n name is missing for well: "
+                        + prf.getWellLabel() + "\n Calibration data import will be aborted";
+                RunImportUtilities.displayImportMessage("Missing Calibration Amplicon or Sample", msg,
+                        JOptionPane.ERROR_MESSAGE);
+                return null;
             }
+            addToReplicateGroup(replicateGroups, prf);
+        }
+        for (ArrayList<CalibrationProfile> calibrationProfileList : replicateGroups.values()) {
             //Average the replicates Profile raw Fc datasets
             AverageCalibrationProfile avCalbnProfile = new AverageCalibrationProfile();
             avCalbnProfile.setRun(parentRun);//This also sets the Run data and the parent to this run
@@ -186,66 +206,112 @@ public class AverageProfileGenerator {
             avCalbnProfile.setRawFcReadings(generateAverageFcDataset(calibrationProfileList));
             if (avCalbnProfile.getRawFcReadings().length != 0) {
                 //0 indicates that all replicate profiles must be excluded
-                intializeAverageProfile(avCalbnProfile, parameters, db);
+                prepareAverageProfile(avCalbnProfile);
             }
             averageCalbnProfileList.add(avCalbnProfile);
         }
         return averageCalbnProfileList;
     }
+
+    /**
+     * Adds a profile to the replicate group holding its amplicon and sample 
+     * name, creating the group if this is the first replicate. Groups are 
+     * held in the order that they were created, so the AverageProfiles 
+     * follow the order of the profile list.
+     */
+    private static <T extends Profile> void addToReplicateGroup(
+            LinkedHashMap<ReplicateKey, ArrayList<T>> replicateGroups, T profile) {
+        ReplicateKey key = new ReplicateKey(profile.getAmpliconName(), profile.getSampleName());
+        ArrayList<T> group = replicateGroups.get(key);
+        if (group == null) {
+            group = new ArrayList<T>();
+            replicateGroups.put(key, group);
+        }
+        group.add(profile);
+    }
 // TODO this is redundant to org.lreqpcr.core.utilities 
 //GenerateAverageFcDataset.public static double[] generateAverageFcDataset(List<? extends Profile> replicates)
 
     private static double[] generateAverageFcDataset(ArrayList<? extends Profile> replicateProfiles) {
         int numberOfCycles = replicateProfiles.get(0).getRawFcReadings().length;
-        int numberOfProfiles = replicateProfiles.size();
-        HashMap<Integer, double[]> fcMap = new HashMap<Integer, double[]>();
-        int key = 0;
-        for (int i = 0; i < numberOfProfiles; i++) {
-            if (!replicateProfiles.get(i).isExcluded()
-                    && replicateProfiles.get(i).hasAnLreWindowBeenFound()) {
-                fcMap.put(key, replicateProfiles.get(i).getRawFcReadings());
-                key++;
+        //Only replicates that are not excluded and have an LRE window are averaged
+        double[][] includedFc = new double[replicateProfiles.size()][];
+        int numberOfIncluded = 0;
+        boolean isCycleNumberMismatched = false;
+        for (Profile profile : replicateProfiles) {
+            if (!profile.isExcluded() && profile.hasAnLreWindowBeenFound()) {
+                double[] fc = profile.getRawFcReadings();
+                if (fc.length < numberOfCycles) {
+                    isCycleNumberMismatched = true;
+                }
+                includedFc[numberOfIncluded] = fc;
+                numberOfIncluded++;
             }
         }
-        if (fcMap.isEmpty()) {
+        if (numberOfIncluded == 0) {
             //All of the replicate profiles are excluded
             //return an empty double[]
             return new double[0];
         }
-        //Calculate average Fc for each cycle and put it into a new double[]
-        double[] averageFcDataset = new double[numberOfCycles];
+        if (isCycleNumberMismatched) {
+            String msg = "An error has occurred, likely due replicate profiles containing "
+                    + "\ndifferent number of cycles. Be sure the import file only contains "
+                    + "\nprofiles containing the same number of cycles.";
+            RunImportUtilities.displayImportMessage("Data Emport Error", msg,
+                    JOptionPane.ERROR_MESSAGE);
+        }
+        //Calculate average Fc for each cycle, summing the replicates cycle by cycle
+        double[] fcSum = new double[numberOfCycles];
+        for (int j = 0; j < numberOfIncluded; j++) {
+            double[] fc = includedFc[j];
+            //Missing cycles within a shorter replicate are not included in the sum
+            int length = Math.min(fc.length, numberOfCycles);
+            for (int i = 0; i < length; i++) {
+                fcSum[i] += fc[i];
+            }
+        }
         for (int i = 0; i < numberOfCycles; i++) {
-            double fcSum = 0;
-            for (int j = 0; j < fcMap.size(); j++) {
-                try {
-                    fcSum += fcMap.get(j)[i];
-                } catch (Exception e) {
-                    String msg = "An error has occurred, likely due replicate profiles containing "
-                            + "\ndifferent number of cycles. Be sure the import file only contains "
-                            + "\nprofiles containing the same number of cycles.";
-                    JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
-                            msg,
-                            "Data Emport Error",
-                            JOptionPane.ERROR_MESSAGE);
-                }
-                averageFcDataset[i] = fcSum / fcMap.size();
+            fcSum[i] = fcSum[i] / numberOfIncluded;
+        }
+        return fcSum;
+    }
+
+    /**
+     * Identifies a set of replicate profiles, which share an amplicon and sample name
+     */
+    private static class ReplicateKey {
+
+        private final String ampliconName;
+        private final String sampleName;
+
+        ReplicateKey(String ampliconName, String sampleName) {
+            this.ampliconName = ampliconName;
+            this.sampleName = sampleName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ReplicateKey)) {
+                return false;
             }
+            ReplicateKey other = (ReplicateKey) obj;
+            return ampliconName.equals(other.ampliconName) && sampleName.equals(other.sampleName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ampliconName.hashCode() + sampleName.hashCode();
         }
-        return averageFcDataset;
     }
 
     /**
-     * A clumsy attempt to avoid duplicate code for initializing Sample and
-     * Calibration AverageProfiles
+     * A clumsy attempt to avoid duplicate code for preparing Sample and
+     * Calibration AverageProfiles for analysis
      *
      * @param averageProfile
-     * @param parameters
      */
-    @SuppressWarnings(value = "unchecked")
-    private static void intializeAverageProfile(AverageProfile averageProfile, LreWindowSelectionParameters parameters, DatabaseServices db) {
+    private static void prepareAverageProfile(AverageProfile averageProfile) {
         averageProfile.calculateAvAmpTm();
-        LreAnalysisService lreAnalysisService =
-                Lookup.getDefault().lookup(LreAnalysisService.class);
         //This is necessary because AverageProfile is an interface
         Profile fooProfile = (Profile) averageProfile;
         Profile firstRepProfile = averageProfile.getReplicateProfileList().get(0);
@@ -253,15 +319,35 @@ public class AverageProfileGenerator {
         fooProfile.setAmpliconSize(firstRepProfile.getAmpliconSize());
         fooProfile.setSampleName(firstRepProfile.getSampleName());
         fooProfile.setName(fooProfile.getAmpliconName() + "@" + fooProfile.getSampleName());
+        for (Profile profile : averageProfile.getReplicateProfileList()) {
+            profile.setParent(fooProfile);
+        }
+    }
+
+    /**
+     * Initializes the LRE window of an AverageProfile, which is only possible 
+     * if the AverageProfile is valid. AverageProfiles are independent of one 
+     * another, so that different AverageProfiles can be analyzed concurrently 
+     * provided that a database is not supplied.
+     *
+     * @param averageProfile the AverageProfile generated by this class
+     * @param parameters the LRE window selection parameters
+     * @param db the database holding the AverageProfile, or null if the 
+     * AverageProfile is not to be saved
+     */
+    public static void analyzeAverageProfile(AverageProfile averageProfile, LreWindowSelectionParameters parameters, DatabaseServices db) {
+        Profile fooProfile = (Profile) averageProfile;
+        if (fooProfile.getRawFcReadings().length == 0) {
+            //All replicate profiles are excluded or lack an LRE window
+            return;
+        }
         //If the replicate No average is <10 it cannot be initialized
-        AverageProfile avProfile = (AverageProfile) fooProfile;
-        if (!avProfile.isTheReplicateAverageNoLessThan10Molecules() && avProfile.areTheRepProfilesSufficientlyClustered()) {//
+        if (!averageProfile.isTheReplicateAverageNoLessThan10Molecules() && averageProfile.areTheRepProfilesSufficientlyClustered()) {//
             //Note the the replicate sample profiles have already been initialized
+            LreAnalysisService lreAnalysisService =
+                    Lookup.getDefault().lookup(LreAnalysisService.class);
             ProfileSummary prfSum = new ProfileSummaryImp(fooProfile, db);
             lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
         }
-        for (Profile profile : averageProfile.getReplicateProfileList()) {
-            profile.setParent(fooProfile);
-        }
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.util.Arrays;
+
+/**
+ * Collects the Fc readings of a well indexed by cycle number, for import
+ * files in which each reading is identified by its cycle number. The
+ * readings can be added in any order and can be cleared so that the
+ * arrays are reused for the next well.
+ *
+ * @author Bob Rutledge
+ */
+public class CycleFcReadings {
+
+    /**
+     * The largest cycle number that can be added, which corresponds to the
+     * four digit cycle numbers accepted as column headers. Importers are
+     * expected to reject larger cycle numbers, which can only result from a
+     * corrupt file and would otherwise require the allocation of arrays
+     * sized by the cycle number.
+     */
+    public static final int MAXIMUM_CYCLE = 9999;
+    private static final int INITIAL_NUMBER_OF_CYCLES = 64;
+    private double[] fcReadings = new double[INITIAL_NUMBER_OF_CYCLES];
+    private boolean[] hasFcReading = new boolean[INITIAL_NUMBER_OF_CYCLES];
+    private int numberOfCycles;
+
+    /**
+     * Adds a reading, replacing any previous reading of the cycle. Readings
+     * in which the cycle or Fc is not a number, or the cycle is less than 1,
+     * are ignored.
+     *
+     * @param cycle the cycle number, which is rounded to the nearest cycle
+     * @param fcReading the Fc reading
+     * @throws IllegalArgumentException if the cycle exceeds MAXIMUM_CYCLE
+     */
+    public void add(double cycle, double fcReading) {
+        if (Double.isNaN(cycle) || Double.isNaN(fcReading) || cycle < 1) {
+            return;
+        }
+        if (!isWithinCycleRange(cycle)) {
+            throw new IllegalArgumentException("Cycle " + cycle + " exceeds the maximum cycle number");
+        }
+        int cycleIndex = (int) Math.round(cycle) - 1;
+        if (cycleIndex >= fcReadings.length) {
+            int length = Math.max(cycleIndex + 1, fcReadings.length * 2);
+            fcReadings = Arrays.copyOf(fcReadings, length);
+            hasFcReading = Arrays.copyOf(hasFcReading, length);
+        }
+        fcReadings[cycleIndex] = fcReading;
+        hasFcReading[cycleIndex] = true;
+        numberOfCycles = Math.max(numberOfCycles, cycleIndex + 1);
+    }
+
+    /**
+     * @param cycle the cycle number, which is rounded to the nearest cycle
+     * @return false if the cycle exceeds MAXIMUM_CYCLE
+     */
+    public static boolean isWithinCycleRange(double cycle) {
+        return Math.round(cycle) <= MAXIMUM_CYCLE;
+    }
+
+    /**
+     * Removes all readings
+     */
+    public void clear() {
+        Arrays.fill(hasFcReading, 0, numberOfCycles, false);
+        numberOfCycles = 0;
+    }
+
+    /**
+     * Constructs the raw Fc dataset, in which each reading is placed at its
+     * cycle number. Cycles without a reading, such as the initial cycles that
+     * some cyclers do not export, are assigned the preceding reading, or the
+     * first reading if no preceding reading is available, so that the cycle
+     * numbers are retained.
+     *
+     * @return the raw Fc readings, or null if no readings are present
+     */
+    public double[] getRawFcReadings() {
+        int firstCycleIndex = 0;
+        while (firstCycleIndex < numberOfCycles && !hasFcReading[firstCycleIndex]) {
+            firstCycleIndex++;
+        }
+        if (firstCycleIndex == numberOfCycles) {
+            return null;
+        }
+        double[] rawFcReadings = new double[numberOfCycles];
+        double previousReading = fcReadings[firstCycleIndex];
+        for (int i = 0; i < numberOfCycles; i++) {
+            if (hasFcReading[i]) {
+                previousReading = fcReadings[i];
+            }
+            rawFcReadings[i] = previousReading;
+        }
+        return rawFcReadings;
+    }
+}
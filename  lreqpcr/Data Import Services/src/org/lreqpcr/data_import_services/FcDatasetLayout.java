@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.lreqpcr.core.data_objects.Profile;
+
+/**
+ * Declares how the Fc datasets are laid out within the Fc dataset sheet of 
+ * an import file. The complete sheet is read in a single pass, after which 
+ * the Fc dataset of each imported well is retrieved via its well label, 
+ * well number or position within the results table. Fc readings that are not
+ * numbers are ignored, as are wells without a corresponding Fc dataset.
+ *
+ * @author Bob Rutledge
+ */
+public abstract class FcDatasetLayout {
+
+    FcDatasetLayout() {
+    }
+
+    /**
+     * One row per cycle, in which the well label is followed by the
+     * Fc reading.
+     *
+     * @param wellLabelColumn the column holding the well label
+     * @param fcColumn the column holding the Fc reading
+     * @param firstRow the first row of the Fc datasets
+     * @return the layout
+     */
+    public static FcDatasetLayout cycleRowsByWellLabel(int wellLabelColumn, int fcColumn, int firstRow) {
+        return new CycleRowLayout(wellLabelColumn, fcColumn, firstRow);
+    }
+
+    /**
+     * One row per well identified by its well number, with the Fc readings
+     * extending across the row until a blank cell is reached.
+     *
+     * @param wellNumberColumn the column holding the well number
+     * @param firstFcColumn the column holding the first Fc reading
+     * @return the layout
+     */
+    public static FcDatasetLayout wellRowsByWellNumber(int wellNumberColumn, int firstFcColumn) {
+        return new WellRowLayout(wellNumberColumn, firstFcColumn);
+    }
+
+    /**
+     * One row per well, in which each row corresponds to the same row within
+     * the results table.
+     *
+     * @param firstRow the row corresponding to the first row of the
+     * results table
+     * @param firstFcColumn the column holding the first Fc reading
+     * @return the layout
+     */
+    public static FcDatasetLayout wellRowsByResultRow(int firstRow, int firstFcColumn) {
+        return new ResultRowLayout(firstRow, firstFcColumn);
+    }
+
+    /**
+     * The Fc datasets are placed one after the other within a single column,
+     * each followed by a label row, in the same order as the wells within
+     * the results table.
+     *
+     * @param column the column holding the Fc datasets
+     * @param firstRow the first row of the first Fc dataset
+     * @param labelText text found only within the label rows
+     * @return the layout
+     */
+    public static FcDatasetLayout labelledBlocksByWellOrder(int column, int firstRow, String labelText) {
+        return new LabelledBlockLayout(column, firstRow, labelText);
+    }
+
+    /**
+     * Reads all of the Fc datasets within the sheet.
+     *
+     * @param sheet the Fc dataset sheet
+     * @return the Fc datasets
+     */
+    abstract FcDatasets read(ImportSheet sheet);
+
+    /**
+     * The Fc datasets read from an import file.
+     */
+    static abstract class FcDatasets {
+
+        /**
+         * @param profile the well Profile, with its well label and number set
+         * @param resultRowIndex the index of the well's row within the 
+         * results table, relative to its first row
+         * @param wellIndex the index of the well among the imported wells
+         * @return the raw Fc readings or null if no Fc dataset was found
+         */
+        abstract double[] getFcReadings(Profile profile, int resultRowIndex, int wellIndex);
+    }
+
+    private static class KeyedFcDatasets extends FcDatasets {
+
+        private final HashMap<String, double[]> fcDatasets = new HashMap<String, double[]>();
+        private final boolean isKeyedByWellNumber;
+
+        KeyedFcDatasets(boolean isKeyedByWellNumber) {
+            this.isKeyedByWellNumber = isKeyedByWellNumber;
+        }
+
+        double[] getFcReadings(Profile profile, int resultRowIndex, int wellIndex) {
+            if (isKeyedByWellNumber) {
+                return fcDatasets.get(String.valueOf(profile.getWellNumber()));
+            }
+            return fcDatasets.get(profile.getWellLabel());
+        }
+    }
+
+    private static class OrderedFcDatasets extends FcDatasets {
+
+        private final List<double[]> fcDatasets = new ArrayList<double[]>();
+        private final boolean isOrderedByResultRow;
+
+        OrderedFcDatasets(boolean isOrderedByResultRow) {
+            this.isOrderedByResultRow = isOrderedByResultRow;
+        }
+
+        double[] getFcReadings(Profile profile, int resultRowIndex, int wellIndex) {
+            int index = isOrderedByResultRow ? resultRowIndex : wellIndex;
+            if (index >= fcDatasets.size()) {
+                return null;
+            }
+            return fcDatasets.get(index);
+        }
+    }
+
+    private static class CycleRowLayout extends FcDatasetLayout {
+
+        private final int wellLabelColumn;
+        private final int fcColumn;
+        private final int firstRow;
+
+        CycleRowLayout(int wellLabelColumn, int fcColumn, int firstRow) {
+            this.wellLabelColumn = wellLabelColumn;
+            this.fcColumn = fcColumn;
+            this.firstRow = firstRow;
+        }
+
+        FcDatasets read(ImportSheet sheet) {
+            HashMap<String, FcReadings> readingsMap = new HashMap<String, FcReadings>();
+            String previousWellLabel = null;
+            FcReadings readings = null;
+            for (int row = firstRow; row < sheet.getRowCount(); row++) {
+                String wellLabel = sheet.getString(wellLabelColumn, row);
+                if (wellLabel.length() == 0) {
+                    continue;
+                }
+                //The readings of each well are usually held within consecutive rows
+                if (!wellLabel.equals(previousWellLabel)) {
+                    readings = readingsMap.get(wellLabel);
+                    if (readings == null) {
+                        readings = new FcReadings();
+                        readingsMap.put(wellLabel, readings);
+                    }
+                    previousWellLabel = wellLabel;
+                }
+                readings.add(sheet.getNumber(fcColumn, row));
+            }
+            KeyedFcDatasets fcDatasets = new KeyedFcDatasets(false);
+            for (String wellLabel : readingsMap.keySet()) {
+                fcDatasets.fcDatasets.put(wellLabel, readingsMap.get(wellLabel).toArray());
+            }
+            return fcDatasets;
+        }
+    }
+
+    private static class WellRowLayout extends FcDatasetLayout {
+
+        private final int wellNumberColumn;
+        private final int firstFcColumn;
+
+        WellRowLayout(int wellNumberColumn, int firstFcColumn) {
+            this.wellNumberColumn = wellNumberColumn;
+            this.firstFcColumn = firstFcColumn;
+        }
+
+        FcDatasets read(ImportSheet sheet) {
+            KeyedFcDatasets fcDatasets = new KeyedFcDatasets(true);
+            for (int row = 0; row < sheet.getRowCount(); row++) {
+                double wellNumber = sheet.getNumber(wellNumberColumn, row);
+                if (Double.isNaN(wellNumber) || wellNumber != Math.rint(wellNumber)) {
+                    continue;
+                }
+                String key = String.valueOf((int) wellNumber);
+                //Only the first row of each well is used
+                if (!fcDatasets.fcDatasets.containsKey(key)) {
+                    fcDatasets.fcDatasets.put(key, readRow(sheet, row, firstFcColumn));
+                }
+            }
+            return fcDatasets;
+        }
+    }
+
+    private static class ResultRowLayout extends FcDatasetLayout {
+
+        private final int firstRow;
+        private final int firstFcColumn;
+
+        ResultRowLayout(int firstRow, int firstFcColumn) {
+            this.firstRow = firstRow;
+            this.firstFcColumn = firstFcColumn;
+        }
+
+        FcDatasets read(ImportSheet sheet) {
+            OrderedFcDatasets fcDatasets = new OrderedFcDatasets(true);
+            for (int row = firstRow; row < sheet.getRowCount(); row++) {
+                fcDatasets.fcDatasets.add(readRow(sheet, row, firstFcColumn));
+            }
+            return fcDatasets;
+        }
+    }
+
+    private static class LabelledBlockLayout extends FcDatasetLayout {
+
+        private final int column;
+        private final int firstRow;
+        private final String labelText;
+
+        LabelledBlockLayout(int column, int firstRow, String labelText) {
+            this.column = column;
+            this.firstRow = firstRow;
+            this.labelText = labelText;
+        }
+
+        FcDatasets read(ImportSheet sheet) {
+            OrderedFcDatasets fcDatasets = new OrderedFcDatasets(false);
+            FcReadings readings = new FcReadings();
+            boolean isBlockOpen = false;
+            for (int row = firstRow; row < sheet.getRowCount(); row++) {
+                if (sheet.getString(column, row).contains(labelText)) {
+                    fcDatasets.fcDatasets.add(readings.toArray());
+                    readings = new FcReadings();
+                    isBlockOpen = false;
+                } else {
+                    readings.add(sheet.getNumber(column, row));
+                    isBlockOpen = true;
+                }
+            }
+            //The last Fc dataset is terminated by the bottom of the sheet
+            if (isBlockOpen) {
+                fcDatasets.fcDatasets.add(readings.toArray());
+            }
+            return fcDatasets;
+        }
+    }
+
+    /**
+     * Reads the Fc readings across a row until a blank cell is reached.
+     */
+    private static double[] readRow(ImportSheet sheet, int row, int firstFcColumn) {
+        FcReadings readings = new FcReadings();
+        for (int col = firstFcColumn; col < sheet.getColumnCount(); col++) {
+            if (sheet.getString(col, row).length() == 0) {
+                break;
+            }
+            readings.add(sheet.getNumber(col, row));
+        }
+        return readings.toArray();
+    }
+
+    /**
+     * Accumulates Fc readings without boxing each reading.
+     */
+    private static class FcReadings {
+
+        private double[] readings = new double[64];
+        private int size;
+
+        void add(double reading) {
+            if (Double.isNaN(reading)) {
+                return;
+            }
+            if (size == readings.length) {
+                double[] enlarged = new double[readings.length * 2];
+                System.arraycopy(readings, 0, enlarged, 0, size);
+                readings = enlarged;
+            }
+            readings[size++] = reading;
+        }
+
+        double[] toArray() {
+            double[] array = new double[size];
+            System.arraycopy(readings, 0, array, 0, size);
+            return array;
+        }
+    }
+}
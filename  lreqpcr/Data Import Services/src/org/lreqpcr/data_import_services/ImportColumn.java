@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+/**
+ * Declares a column within the results table of an import file. A column is 
+ * identified either by its header, which allows the user to change 
+ * the column order, or by a fixed index for export formats that
+ * do not provide column headers.
+ * <p>
+ * A compulsory column is declared by setting the error that is reported
+ * when the column is absent.
+ *
+ * @author Bob Rutledge
+ */
+public class ImportColumn {
+
+    /**
+     * The index of a column that is not present
+     */
+    public static final int ABSENT = -1;
+    private final String header;
+    private final boolean matchHeaderPrefix;
+    private final int index;
+    private String absentTitle;
+    private String absentMessage;
+
+    private ImportColumn(String header, boolean matchHeaderPrefix, int index) {
+        this.header = header;
+        this.matchHeaderPrefix = matchHeaderPrefix;
+        this.index = index;
+    }
+
+    /**
+     * @param header the column header
+     * @return a column identified by its header
+     */
+    public static ImportColumn named(String header) {
+        return new ImportColumn(header, false, ABSENT);
+    }
+
+    /**
+     * @param headerPrefix the start of the column header
+     * @return a column identified by the start of its header
+     */
+    public static ImportColumn startingWith(String headerPrefix) {
+        return new ImportColumn(headerPrefix, true, ABSENT);
+    }
+
+    /**
+     * @param index the zero-based column index
+     * @return a column at a fixed position
+     */
+    public static ImportColumn at(int index) {
+        return new ImportColumn(null, false, index);
+    }
+
+    /**
+     * Makes this a compulsory column, such that the import is terminated
+     * if the column is not present.
+     *
+     * @param title a short description of the error
+     * @param message the error message
+     */
+    public void setAbsentError(String title, String message) {
+        absentTitle = title;
+        absentMessage = message;
+    }
+
+    /**
+     * Determines the index of this column. If the header appears more than 
+     * once, the last column is used.
+     *
+     * @param headers the column headers, or null if the table has no headers
+     * @return the column index or ABSENT if the column is not present
+     * @throws RunImportException if this is a compulsory column that is absent
+     */
+    int resolve(String[] headers) throws RunImportException {
+        int column = index;
+        if (header != null && headers != null) {
+            for (int i = 0; i < headers.length; i++) {
+                if (matchHeaderPrefix ? headers[i].startsWith(header) : headers[i].equals(header)) {
+                    column = i;
+                }
+            }
+        }
+        if (column == ABSENT && absentMessage != null) {
+            throw new RunImportException(absentTitle, absentMessage);
+        }
+        return column;
+    }
+}
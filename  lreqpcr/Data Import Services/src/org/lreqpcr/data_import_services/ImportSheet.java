@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Date;
+import jxl.Cell;
+import jxl.DateCell;
+import jxl.NumberCell;
+import jxl.Sheet;
+
+/**
+ * A worksheet within an xls import file, providing typed access to its cells.
+ * Cells outside of the sheet are treated as blank cells, so that the end of
+ * the sheet can be determined from the row and column counts.
+ * <p>
+ * Note that a sheet is not thread safe and is intended to be read only
+ * by the thread importing the file.
+ *
+ * @author Bob Rutledge
+ */
+public class ImportSheet {
+
+    private final Sheet sheet;
+    private final int rowCount;
+    private final int columnCount;
+    //NumberFormat needed to prevent locale differences in numbers (e.g. comma vs period)
+    private final NumberFormat numFormat = NumberFormat.getInstance();
+
+    ImportSheet(Sheet sheet) {
+        this.sheet = sheet;
+        rowCount = sheet.getRows();
+        columnCount = sheet.getColumns();
+    }
+
+    /**
+     * @return the name of the sheet
+     */
+    public String getName() {
+        return sheet.getName();
+    }
+
+    /**
+     * @return the number of rows within the sheet
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of columns within the sheet
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    private Cell getCell(int column, int row) {
+        if (column < 0 || row < 0 || column >= columnCount || row >= rowCount) {
+            return null;
+        }
+        return sheet.getCell(column, row);
+    }
+
+    /**
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the contents of the cell as displayed, or an empty String if
+     * the cell is blank
+     */
+    public String getString(int column, int row) {
+        Cell cell = getCell(column, row);
+        if (cell == null) {
+            return "";
+        }
+        return cell.getContents();
+    }
+
+    /**
+     * Retrieves the contents of a row, which is intended to be used to 
+     * retrieve the column headers of a table.
+     *
+     * @param row the row
+     * @return the contents of each cell within the row
+     */
+    public String[] getRowContents(int row) {
+        String[] contents = new String[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            contents[column] = getString(column, row);
+        }
+        return contents;
+    }
+
+    /**
+     * Retrieves the value of a numeric cell. Numbers entered as text are 
+     * parsed using the default locale.
+     *
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the value of the cell, or NaN if the cell does not hold a number
+     */
+    public double getNumber(int column, int row) {
+        Cell cell = getCell(column, row);
+        if (cell == null) {
+            return Double.NaN;
+        }
+        if (cell instanceof NumberCell) {
+            //Avoids formatting the value into a String that must then be parsed
+            return ((NumberCell) cell).getValue();
+        }
+        String contents = cell.getContents().trim();
+        if (contents.length() == 0) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(contents);
+        } catch (NumberFormatException e) {
+        }
+        ParsePosition position = new ParsePosition(0);
+        Number value = numFormat.parse(contents, position);
+        if (value == null || position.getIndex() == 0) {
+            return Double.NaN;
+        }
+        return value.doubleValue();
+    }
+
+    /**
+     * Retrieves a Run date, as described in RunImportUtilities.importExcelDate.
+     *
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the date or null if the cell does not hold a date
+     */
+    public Date getDate(int column, int row) {
+        Cell cell = getCell(column, row);
+        if (!(cell instanceof DateCell)) {
+            return null;
+        }
+        return RunImportUtilities.importExcelDate((DateCell) cell);
+    }
+}
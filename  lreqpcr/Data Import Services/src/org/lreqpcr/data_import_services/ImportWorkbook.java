@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import jxl.Sheet;
+import jxl.Workbook;
+import jxl.WorkbookSettings;
+import jxl.read.biff.BiffException;
+
+/**
+ * An xls import file opened for reading by a Run import provider.
+ * <p>
+ * JExcel reads the complete file into memory and holds the cells of the most
+ * recently retrieved sheet, so the sheets of an import file should be read
+ * one after the other. The workbook is opened without the drawings, names,
+ * cell validations and property sets that are of no use to data import, and
+ * without the garbage collection that JExcel otherwise requests each time a
+ * workbook or sheet is read, which dominates the time needed to import a
+ * series of files.
+ *
+ * @author Bob Rutledge
+ */
+public class ImportWorkbook {
+
+    private static final int MINIMUM_INITIAL_FILE_SIZE = 64 * 1024;
+    private final Workbook workbook;
+
+    private ImportWorkbook(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /**
+     * Opens an xls import file, which must be closed once the import is
+     * complete.
+     *
+     * @param importFile the xls import file
+     * @return the opened workbook
+     * @throws RunImportException if the file could not be opened
+     */
+    public static ImportWorkbook open(File importFile) throws RunImportException {
+        WorkbookSettings settings = new WorkbookSettings();
+        settings.setGCDisabled(true);
+        settings.setDrawingsDisabled(true);
+        settings.setNamesDisabled(true);
+        settings.setCellValidationDisabled(true);
+        settings.setAutoFilterDisabled(true);
+        settings.setPropertySets(false);
+        settings.setIgnoreBlanks(true);
+        settings.setSuppressWarnings(true);
+        //The entire file is read into a single array, which by default is 5 MB
+        settings.setInitialFileSize((int) Math.min(Integer.MAX_VALUE - 1,
+                Math.max(MINIMUM_INITIAL_FILE_SIZE, importFile.length() + 1)));
+        try {
+            return new ImportWorkbook(Workbook.getWorkbook(importFile, settings));
+        } catch (IOException ex) {
+            throw new RunImportException("Unable to open the selected file " + importFile.getName(),
+                    "The selected file (" + importFile.getName() + " could not be opened", ex);
+        } catch (BiffException ex) {
+            throw new RunImportException("Unable to open the selected file " + importFile.getName(),
+                    "The selected file (" + importFile.getName() + " could not be opened", ex);
+        }
+    }
+
+    /**
+     * @param sheetName the name of the sheet
+     * @return true if the workbook contains the sheet
+     */
+    public boolean hasSheet(String sheetName) {
+        return Arrays.asList(workbook.getSheetNames()).contains(sheetName);
+    }
+
+    /**
+     * @param sheetIndex the zero-based index of the sheet
+     * @return true if the workbook contains the sheet
+     */
+    public boolean hasSheet(int sheetIndex) {
+        return sheetIndex >= 0 && sheetIndex < workbook.getNumberOfSheets();
+    }
+
+    /**
+     * Retrieves and reads a sheet, which releases the cells of the previously
+     * retrieved sheet.
+     *
+     * @param sheetName the name of the sheet
+     * @return the sheet or null if the workbook does not contain the sheet
+     */
+    public ImportSheet getSheet(String sheetName) {
+        Sheet sheet = workbook.getSheet(sheetName);
+        if (sheet == null) {
+            return null;
+        }
+        return new ImportSheet(sheet);
+    }
+
+    /**
+     * Retrieves and reads a sheet, which releases the cells of the previously
+     * retrieved sheet.
+     *
+     * @param sheetIndex the zero-based index of the sheet
+     * @return the sheet or null if the workbook does not contain the sheet
+     */
+    public ImportSheet getSheet(int sheetIndex) {
+        if (!hasSheet(sheetIndex)) {
+            return null;
+        }
+        return new ImportSheet(workbook.getSheet(sheetIndex));
+    }
+
+    /**
+     * Releases the contents of the import file.
+     */
+    public void close() {
+        workbook.close();
+    }
+}
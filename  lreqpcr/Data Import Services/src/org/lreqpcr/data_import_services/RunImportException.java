@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+/**
+ * Signals that a Run import file could not be imported. The title and
+ * message are intended to be presented to the user, either via an error
+ * dialog or within a batch import report.
+ *
+ * @author Bob Rutledge
+ */
+public class RunImportException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+    private String title;
+
+    /**
+     * @param title a short description of the error
+     * @param message the error message
+     */
+    public RunImportException(String title, String message) {
+        super(message);
+        this.title = title;
+    }
+
+    /**
+     * @param title a short description of the error
+     * @param message the error message
+     * @param cause the exception that prevented the file from being imported
+     */
+    public RunImportException(String title, String message, Throwable cause) {
+        super(message, cause);
+        this.title = title;
+    }
+
+    /**
+     * @return a short description of the error
+     */
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.io.File;
+
+/**
+ * Constructs RunImportData from a cycler export file without any user
+ * interaction, so that the same import file format can be used by both
+ * a RunImportService, which retrieves the file from the user, and by a
+ * batch import of a directory of export files.
+ * <p>
+ * Target strandedness is not provided by the export files and so is not set
+ * within the SampleProfiles, which must be set via 
+ * RunImportUtilities.setTargetStrandedness. Implementations must be 
+ * reentrant, as import files can be read concurrently.
+ *
+ * @author Bob Rutledge
+ */
+public interface RunImportFileService {
+
+    /**
+     * @return the name of the import file format (e.g. "AB7500 Ver 2")
+     */
+    public String getRunImportServiceName();
+
+    /**
+     * Determines whether the supplied file is an import file of this format,
+     * which is based only on the file name.
+     *
+     * @param file the file
+     * @return true if the file appears to be an import file of this format
+     */
+    public boolean isImportFile(File file);
+
+    /**
+     * Constructs the RunImportData from the supplied import file.
+     *
+     * @param importFile the cycler export file
+     * @return the Run data ready for importation
+     * @throws RunImportException if the import file is invalid
+     */
+    public RunImportData constructRunImportData(File importFile) throws RunImportException;
+}
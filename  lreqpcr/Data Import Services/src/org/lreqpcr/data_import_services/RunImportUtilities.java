@@ -16,20 +16,24 @@
  */
 package org.lreqpcr.data_import_services;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.io.File;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import jxl.DateCell;
-import org.lreqpcr.core.data_objects.AmpliconImpl;
 import org.lreqpcr.core.data_objects.Profile;
 import org.lreqpcr.core.data_objects.RunDatafileStorage;
+import org.lreqpcr.core.data_objects.SampleProfile;
 import org.lreqpcr.core.data_objects.TargetStrandedness;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
@@ -71,21 +75,114 @@ public class RunImportUtilities {
      * @param profile the profile generated by the amplicon
      */
     public static void getAmpliconSize(DatabaseServices ampliconDB, Profile profile) {
-        List ampliconList = ampliconDB.retrieveUsingFieldValue(AmpliconImpl.class, "name",
-                profile.getAmpliconName());
-        if (ampliconList.size() > 1) {
+        AmpliconSizeDictionary dictionary = AmpliconSizeDictionary.getDictionary(ampliconDB);
+        if (dictionary.isAmpliconNameNotUnique(profile.getAmpliconName())) {
             Toolkit.getDefaultToolkit().beep();
             String msg = "There is more than one amplicon with the name '" + profile.getAmpliconName()
                     + "'. The amplicon size will be taken from the first amplicon found";
             JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(), msg,
                     "Amplicon name is not unique", JOptionPane.ERROR_MESSAGE);
         }
-        if (!ampliconList.isEmpty()) {
-            AmpliconImpl amplicon = (AmpliconImpl) ampliconList.get(0);
-            profile.setAmpliconSize(amplicon.getAmpliconSize());
+        if (dictionary.containsAmplicon(profile.getAmpliconName())) {
+            profile.setAmpliconSize(dictionary.getAmpliconSize(profile.getAmpliconName()));
         }
     }
 
+    /**
+     * Retrieves the amplicon size of each of the supplied profiles from the 
+     * supplied amplicon database, which is only queried once. Profiles 
+     * without an amplicon name or that already have an amplicon size (e.g.
+     * manual import) are not changed. Rather than reporting each amplicon name 
+     * that is not unique, these names are returned so that they can be 
+     * reported once data import is complete.
+     * 
+     * @param ampliconDB the amplicon database holding the amplicons
+     * @param profiles the profiles generated by the amplicons
+     * @return the amplicon names that are not unique, in the order found
+     */
+    public static Collection<String> getAmpliconSizes(DatabaseServices ampliconDB, List<? extends Profile> profiles) {
+        AmpliconSizeDictionary dictionary = AmpliconSizeDictionary.getDictionary(ampliconDB);
+        LinkedHashSet<String> nonUniqueNames = new LinkedHashSet<String>();
+        for (Profile profile : profiles) {
+            String ampliconName = profile.getAmpliconName();
+            if (ampliconName == null || ampliconName.equals("")
+                    || profile.getAmpliconSize() != 0) {//Prevents over writting when using manual import
+                continue;
+            }
+            if (dictionary.isAmpliconNameNotUnique(ampliconName)) {
+                nonUniqueNames.add(ampliconName);
+            }
+            if (dictionary.containsAmplicon(ampliconName)) {
+                profile.setAmpliconSize(dictionary.getAmpliconSize(ampliconName));
+            }
+        }
+        return nonUniqueNames;
+    }
+
+    /**
+     * Displays a single report listing the amplicon names that are not unique.
+     * 
+     * @param nonUniqueNames the amplicon names that are not unique
+     */
+    public static void displayNonUniqueAmpliconNames(Collection<String> nonUniqueNames) {
+        if (nonUniqueNames.isEmpty()) {
+            return;
+        }
+        StringBuilder names = new StringBuilder();
+        for (String name : nonUniqueNames) {
+            names.append("\n   '").append(name).append("'");
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            Toolkit.getDefaultToolkit().beep();
+        }
+        String msg = "There is more than one amplicon with the following names:"
+                + names.toString()
+                + "\n\nThe amplicon size was taken from the first amplicon found";
+        displayImportMessage("Amplicon name is not unique", msg, JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Displays a data import message dialog. If no display is available 
+     * (e.g. a batch import) the message is logged instead, which allows the 
+     * message to be included within the batch import report.
+     * 
+     * @param title the dialog title
+     * @param msg the message
+     * @param messageType the JOptionPane message type
+     */
+    public static void displayImportMessage(String title, String msg, int messageType) {
+        if (GraphicsEnvironment.isHeadless()) {
+            Logger.getLogger(RunImportUtilities.class.getName()).warning(title + ": " + msg);
+            return;
+        }
+        JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(), msg,
+                title, messageType);
+    }
+
+    /**
+     * Displays the error that prevented a Run import file from being imported.
+     * 
+     * @param exception the Run import exception
+     */
+    public static void displayRunImportError(RunImportException exception) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            Toolkit.getDefaultToolkit().beep();
+        }
+        displayImportMessage(exception.getTitle(), exception.getMessage(), JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Determines if the name of the supplied file has the supplied extension,
+     * ignoring case.
+     * 
+     * @param file the file
+     * @param extension the file extension, including the period (e.g. ".xls")
+     * @return true if the file name ends with the extension
+     */
+    public static boolean hasFileExtension(File file, String extension) {
+        return file.getName().toLowerCase().endsWith(extension.toLowerCase());
+    }
+
     /**
      * Generates a generic yes/no question dialog.
      * @param title dialog title
@@ -267,4 +364,21 @@ public class RunImportUtilities {
         }
         return TargetStrandedness.DOUBLESTRANDED;
     }
+
+    /**
+     * Sets the target strandedness of all the SampleProfiles within the 
+     * supplied Run import data. CalibrationProfiles are not changed as 
+     * Lambda calibrators are always double stranded.
+     * 
+     * @param importData the Run import data
+     * @param targetStrandedness the target strandedness
+     */
+    public static void setTargetStrandedness(RunImportData importData, TargetStrandedness targetStrandedness) {
+        if (importData.getSampleProfileList() == null) {
+            return;
+        }
+        for (SampleProfile sampleProfile : importData.getSampleProfileList()) {
+            sampleProfile.setTargetStrandedness(targetStrandedness);
+        }
+    }
 }
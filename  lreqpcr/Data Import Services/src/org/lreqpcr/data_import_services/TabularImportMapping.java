@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+/**
+ * Declares the layout of a tabular import file, which is then imported by 
+ * TabularRunImport. The file must contain a results table holding one row
+ * per well, and a sheet holding the Fc datasets, which can be the same sheet.
+ * <p>
+ * A mapping is only declared once by each import provider and must not be
+ * changed once it is used to import a file.
+ *
+ * @author Bob Rutledge
+ */
+public class TabularImportMapping {
+
+    private Object resultSheet;//Sheet name or index
+    private Object fcDatasetSheet;
+    private String absentSheetTitle = "Invalid Excel import file";
+    private String absentSheetMessage;
+    private boolean runDateInResultSheet;
+    private int runDateColumn;
+    private int runDateRow;
+    private String invalidRunDateMessage;
+    private int headerRow = -1;
+    private int firstRow;
+    private ImportColumn wellLabelColumn;
+    private ImportColumn wellNumberColumn;
+    private ImportColumn sampleNameColumn;
+    private ImportColumn ampliconNameColumn;
+    private ImportColumn wellNameColumn;
+    private String singleWellNameAmpliconName;
+    private ImportColumn taskColumn;
+    private String calibratorTask;
+    private ImportColumn quantityColumn;
+    private ImportColumn ctColumn;
+    private ImportColumn ftColumn;
+    private ImportColumn tmColumn;
+    private FcDatasetLayout fcDatasetLayout;
+    private boolean wellNumberedFromWellLabel;
+    private boolean profileNamedBySampleFirst;
+    private boolean wellWithoutAmpliconNameSkipped;
+    private boolean wellWithoutFcDatasetSkipped;
+
+    /**
+     * @param sheetName the name of the sheet holding the results table
+     */
+    public void setResultSheet(String sheetName) {
+        resultSheet = sheetName;
+    }
+
+    /**
+     * @param sheetIndex the zero-based index of the sheet holding the
+     * results table
+     */
+    public void setResultSheet(int sheetIndex) {
+        resultSheet = sheetIndex;
+    }
+
+    Object getResultSheet() {
+        return resultSheet;
+    }
+
+    /**
+     * @param sheetName the name of the sheet holding the Fc datasets
+     * @param layout the layout of the Fc datasets
+     */
+    public void setFcDatasetSheet(String sheetName, FcDatasetLayout layout) {
+        fcDatasetSheet = sheetName;
+        fcDatasetLayout = layout;
+    }
+
+    /**
+     * @param sheetIndex the zero-based index of the sheet holding the
+     * Fc datasets
+     * @param layout the layout of the Fc datasets
+     */
+    public void setFcDatasetSheet(int sheetIndex, FcDatasetLayout layout) {
+        fcDatasetSheet = sheetIndex;
+        fcDatasetLayout = layout;
+    }
+
+    Object getFcDatasetSheet() {
+        return fcDatasetSheet;
+    }
+
+    FcDatasetLayout getFcDatasetLayout() {
+        return fcDatasetLayout;
+    }
+
+    /**
+     * Sets the error that is reported if either the result or the
+     * Fc dataset sheet is not present.
+     *
+     * @param title a short description of the error
+     * @param message the error message
+     */
+    public void setAbsentSheetError(String title, String message) {
+        absentSheetTitle = title;
+        absentSheetMessage = message;
+    }
+
+    String getAbsentSheetTitle() {
+        return absentSheetTitle;
+    }
+
+    String getAbsentSheetMessage() {
+        return absentSheetMessage;
+    }
+
+    /**
+     * Sets the cell holding the Run date.
+     *
+     * @param inResultSheet true if the date is within the result sheet,
+     * false if it is within the Fc dataset sheet
+     * @param column the column of the date cell
+     * @param row the row of the date cell
+     * @param invalidDateMessage the error message reported if a date 
+     * is not present
+     */
+    public void setRunDateCell(boolean inResultSheet, int column, int row, String invalidDateMessage) {
+        runDateInResultSheet = inResultSheet;
+        runDateColumn = column;
+        runDateRow = row;
+        invalidRunDateMessage = invalidDateMessage;
+    }
+
+    boolean isRunDateInResultSheet() {
+        return runDateInResultSheet;
+    }
+
+    int getRunDateColumn() {
+        return runDateColumn;
+    }
+
+    int getRunDateRow() {
+        return runDateRow;
+    }
+
+    String getInvalidRunDateMessage() {
+        return invalidRunDateMessage;
+    }
+
+    /**
+     * @param headerRow the row holding the column headers, or -1 if the
+     * results table has no headers
+     * @param firstRow the first row of well data
+     */
+    public void setResultTableRows(int headerRow, int firstRow) {
+        this.headerRow = headerRow;
+        this.firstRow = firstRow;
+    }
+
+    int getHeaderRow() {
+        return headerRow;
+    }
+
+    int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Rows without a well label are ignored.
+     *
+     * @param column the well label column
+     */
+    public void setWellLabelColumn(ImportColumn column) {
+        wellLabelColumn = column;
+    }
+
+    ImportColumn getWellLabelColumn() {
+        return wellLabelColumn;
+    }
+
+    /**
+     * Rows without an integer well number are ignored.
+     *
+     * @param column the well number column
+     */
+    public void setWellNumberColumn(ImportColumn column) {
+        wellNumberColumn = column;
+    }
+
+    ImportColumn getWellNumberColumn() {
+        return wellNumberColumn;
+    }
+
+    /**
+     * Sets separate sample and amplicon name columns.
+     *
+     * @param sampleNameColumn the sample name column
+     * @param ampliconNameColumn the amplicon name column
+     */
+    public void setNameColumns(ImportColumn sampleNameColumn, ImportColumn ampliconNameColumn) {
+        this.sampleNameColumn = sampleNameColumn;
+        this.ampliconNameColumn = ampliconNameColumn;
+    }
+
+    ImportColumn getSampleNameColumn() {
+        return sampleNameColumn;
+    }
+
+    ImportColumn getAmpliconNameColumn() {
+        return ampliconNameColumn;
+    }
+
+    /**
+     * Sets a well name column holding both the amplicon and sample name, 
+     * separated by a comma (see RunImportUtilities.parseAmpSampleNames).
+     *
+     * @param column the well name column
+     * @param singleNameAmpliconName the amplicon name used when the well
+     * name only contains the sample name, which can be null
+     */
+    public void setWellNameColumn(ImportColumn column, String singleNameAmpliconName) {
+        wellNameColumn = column;
+        singleWellNameAmpliconName = singleNameAmpliconName;
+    }
+
+    ImportColumn getWellNameColumn() {
+        return wellNameColumn;
+    }
+
+    String getSingleWellNameAmpliconName() {
+        return singleWellNameAmpliconName;
+    }
+
+    /**
+     * @param column the column designating a calibrator or a sample well
+     * @param calibratorTask the contents designating a calibrator well
+     */
+    public void setTaskColumn(ImportColumn column, String calibratorTask) {
+        taskColumn = column;
+        this.calibratorTask = calibratorTask;
+    }
+
+    ImportColumn getTaskColumn() {
+        return taskColumn;
+    }
+
+    String getCalibratorTask() {
+        return calibratorTask;
+    }
+
+    /**
+     * @param column the column holding the quantity of lambda gDNA 
+     * within a calibrator well
+     */
+    public void setQuantityColumn(ImportColumn column) {
+        quantityColumn = column;
+    }
+
+    ImportColumn getQuantityColumn() {
+        return quantityColumn;
+    }
+
+    /**
+     * @param column the cycle threshold (Ct) column
+     */
+    public void setCtColumn(ImportColumn column) {
+        ctColumn = column;
+    }
+
+    ImportColumn getCtColumn() {
+        return ctColumn;
+    }
+
+    /**
+     * @param column the fluorescence threshold (Ft) column
+     */
+    public void setFtColumn(ImportColumn column) {
+        ftColumn = column;
+    }
+
+    ImportColumn getFtColumn() {
+        return ftColumn;
+    }
+
+    /**
+     * @param column the amplicon melting temperature (Tm) column
+     */
+    public void setTmColumn(ImportColumn column) {
+        tmColumn = column;
+    }
+
+    ImportColumn getTmColumn() {
+        return tmColumn;
+    }
+
+    /**
+     * @param wellNumberedFromWellLabel true if the well number is derived 
+     * from the well label, based on the smallest plate (96, 384 or 1536 well)
+     * that contains all of the wells within the Run
+     */
+    public void setWellNumberedFromWellLabel(boolean wellNumberedFromWellLabel) {
+        this.wellNumberedFromWellLabel = wellNumberedFromWellLabel;
+    }
+
+    boolean isWellNumberedFromWellLabel() {
+        return wellNumberedFromWellLabel;
+    }
+
+    /**
+     * @param profileNamedBySampleFirst true if Profiles are named 
+     * "sample@amplicon" rather than "amplicon@sample"
+     */
+    public void setProfileNamedBySampleFirst(boolean profileNamedBySampleFirst) {
+        this.profileNamedBySampleFirst = profileNamedBySampleFirst;
+    }
+
+    boolean isProfileNamedBySampleFirst() {
+        return profileNamedBySampleFirst;
+    }
+
+    /**
+     * @param wellWithoutAmpliconNameSkipped true if wells without an 
+     * amplicon name are blank wells that are not imported
+     */
+    public void setWellWithoutAmpliconNameSkipped(boolean wellWithoutAmpliconNameSkipped) {
+        this.wellWithoutAmpliconNameSkipped = wellWithoutAmpliconNameSkipped;
+    }
+
+    boolean isWellWithoutAmpliconNameSkipped() {
+        return wellWithoutAmpliconNameSkipped;
+    }
+
+    /**
+     * @param wellWithoutFcDatasetSkipped true if wells without 
+     * an Fc dataset are not imported
+     */
+    public void setWellWithoutFcDatasetSkipped(boolean wellWithoutFcDatasetSkipped) {
+        this.wellWithoutFcDatasetSkipped = wellWithoutFcDatasetSkipped;
+    }
+
+    boolean isWellWithoutFcDatasetSkipped() {
+        return wellWithoutFcDatasetSkipped;
+    }
+}
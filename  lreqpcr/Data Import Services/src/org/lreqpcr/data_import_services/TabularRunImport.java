@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.data_import_services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.lreqpcr.core.data_objects.CalibrationProfile;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_objects.SampleProfile;
+import org.lreqpcr.core.utilities.WellLabelToWellNumber;
+
+/**
+ * Imports a tabular xls import file as declared by a TabularImportMapping.
+ * <p>
+ * The column headers are resolved once, after which the Sample and 
+ * Calibration Profiles are constructed in a single pass through the results
+ * table. The Fc dataset sheet is then read in a single pass and the Fc 
+ * datasets assigned to the Profiles, such that only one sheet is held 
+ * in memory at a time. Target strandedness is not set.
+ *
+ * @author Bob Rutledge
+ */
+public class TabularRunImport {
+
+    private TabularRunImport() {
+    }
+
+    /**
+     * Imports the supplied file.
+     *
+     * @param importFile the xls import file
+     * @param mapping the layout of the import file
+     * @return the Run import data
+     * @throws RunImportException if the file could not be imported
+     */
+    public static RunImportData constructRunImportData(File importFile, TabularImportMapping mapping) throws RunImportException {
+        ImportWorkbook workbook = ImportWorkbook.open(importFile);
+        try {
+            return constructRunImportData(importFile, workbook, mapping);
+        } finally {
+            workbook.close();
+        }
+    }
+
+    private static RunImportData constructRunImportData(File importFile, ImportWorkbook workbook,
+            TabularImportMapping mapping) throws RunImportException {
+        if (!hasSheet(workbook, mapping.getResultSheet())
+                || !hasSheet(workbook, mapping.getFcDatasetSheet())) {
+            throw new RunImportException(mapping.getAbsentSheetTitle(), mapping.getAbsentSheetMessage());
+        }
+        //Retrieving a sheet releases the cells of the previously retrieved sheet
+        ImportSheet resultSheet = getSheet(workbook, mapping.getResultSheet());
+        Date runDate = null;
+        if (mapping.isRunDateInResultSheet()) {
+            runDate = getRunDate(resultSheet, mapping);
+        }
+        List<Profile> profileList = new ArrayList<Profile>();
+        List<Integer> resultRowList = new ArrayList<Integer>();
+        readResultTable(resultSheet, mapping, profileList, resultRowList);
+        if (mapping.isWellNumberedFromWellLabel()) {
+            //The plate size is determined from the well labels of the entire Run
+            WellLabelToWellNumber.labelToNumber(profileList);
+        }
+
+        ImportSheet fcSheet = getSheet(workbook, mapping.getFcDatasetSheet());
+        if (!mapping.isRunDateInResultSheet()) {
+            runDate = getRunDate(fcSheet, mapping);
+        }
+        FcDatasetLayout.FcDatasets fcDatasets = mapping.getFcDatasetLayout().read(fcSheet);
+        List<SampleProfile> sampleProfileList = new ArrayList<SampleProfile>();
+        List<CalibrationProfile> calbnProfileList = new ArrayList<CalibrationProfile>();
+        for (int i = 0; i < profileList.size(); i++) {
+            Profile profile = profileList.get(i);
+            int resultRowIndex = resultRowList.get(i) - mapping.getFirstRow();
+            double[] fcReadings = fcDatasets.getFcReadings(profile, resultRowIndex, i);
+            if (fcReadings != null && fcReadings.length > 0) {
+                profile.setRawFcReadings(fcReadings);
+            } else if (mapping.isWellWithoutFcDatasetSkipped()) {
+                continue;
+            }
+            if (profile instanceof CalibrationProfile) {
+                calbnProfileList.add((CalibrationProfile) profile);
+            } else {
+                sampleProfileList.add((SampleProfile) profile);
+            }
+        }
+
+        //Remove the file extension
+        String runName = importFile.getName();
+        if (runName.lastIndexOf(".") > 0) {
+            runName = runName.substring(0, runName.lastIndexOf("."));
+        }
+        RunImportData importData = new RunImportData(DataImportType.STANDARD, runDate, runName);
+        importData.setCalibrationProfileList(calbnProfileList);
+        importData.setSampleProfileList(sampleProfileList);
+        return importData;
+    }
+
+    private static boolean hasSheet(ImportWorkbook workbook, Object sheet) {
+        if (sheet instanceof Integer) {
+            return workbook.hasSheet(((Integer) sheet).intValue());
+        }
+        return workbook.hasSheet((String) sheet);
+    }
+
+    private static ImportSheet getSheet(ImportWorkbook workbook, Object sheet) {
+        if (sheet instanceof Integer) {
+            return workbook.getSheet(((Integer) sheet).intValue());
+        }
+        return workbook.getSheet((String) sheet);
+    }
+
+    private static Date getRunDate(ImportSheet sheet, TabularImportMapping mapping) throws RunImportException {
+        Date runDate = sheet.getDate(mapping.getRunDateColumn(), mapping.getRunDateRow());
+        if (runDate == null) {
+            throw new RunImportException("Invalid Run Date", mapping.getInvalidRunDateMessage());
+        }
+        return runDate;
+    }
+
+    private static int resolve(ImportColumn column, String[] headers) throws RunImportException {
+        if (column == null) {
+            return ImportColumn.ABSENT;
+        }
+        return column.resolve(headers);
+    }
+
+    /**
+     * Constructs a Profile for each well within the results table.
+     */
+    private static void readResultTable(ImportSheet sheet, TabularImportMapping mapping,
+            List<Profile> profileList, List<Integer> resultRowList) throws RunImportException {
+        String[] headers = null;
+        if (mapping.getHeaderRow() >= 0) {
+            headers = sheet.getRowContents(mapping.getHeaderRow());
+        }
+        //Check to see if all of the compulsory columns were found
+        int wellLabelCol = resolve(mapping.getWellLabelColumn(), headers);
+        int wellNumberCol = resolve(mapping.getWellNumberColumn(), headers);
+        int ampliconNameCol = resolve(mapping.getAmpliconNameColumn(), headers);
+        int sampleNameCol = resolve(mapping.getSampleNameColumn(), headers);
+        int wellNameCol = resolve(mapping.getWellNameColumn(), headers);
+        int taskCol = resolve(mapping.getTaskColumn(), headers);
+        int quantityCol = resolve(mapping.getQuantityColumn(), headers);
+        int ctCol = resolve(mapping.getCtColumn(), headers);
+        int ftCol = resolve(mapping.getFtColumn(), headers);
+        int tmCol = resolve(mapping.getTmColumn(), headers);
+        int absent = ImportColumn.ABSENT;
+
+        for (int row = mapping.getFirstRow(); row < sheet.getRowCount(); row++) {
+            //Blank rows and rows that do not hold a well are ignored
+            String wellLabel = null;
+            if (wellLabelCol != absent) {
+                wellLabel = sheet.getString(wellLabelCol, row);
+                if (wellLabel.length() == 0) {
+                    continue;
+                }
+            }
+            double wellNumber = Double.NaN;
+            if (wellNumberCol != absent) {
+                wellNumber = sheet.getNumber(wellNumberCol, row);
+                if (Double.isNaN(wellNumber) || wellNumber != Math.rint(wellNumber)) {
+                    continue;
+                }
+            }
+            if (mapping.isWellWithoutAmpliconNameSkipped() && ampliconNameCol != absent
+                    && sheet.getString(ampliconNameCol, row).length() == 0) {
+                continue;
+            }
+
+            Profile profile;
+            if (taskCol != absent && sheet.getString(taskCol, row).equals(mapping.getCalibratorTask())) {
+                CalibrationProfile calbnProfile = new CalibrationProfile();
+                if (quantityCol != absent) {
+                    double lambdaMass = sheet.getNumber(quantityCol, row);
+                    calbnProfile.setLambdaMass(Double.isNaN(lambdaMass) ? 0 : lambdaMass);
+                }
+                profile = calbnProfile;
+            } else {//Must be a Sample Profile; target strandedness is set once imported
+                profile = new SampleProfile();
+            }
+
+            if (wellLabel != null) {
+                profile.setWellLabel(wellLabel);
+            }
+            if (!Double.isNaN(wellNumber)) {
+                profile.setWellNumber((int) wellNumber);
+            }
+            if (sampleNameCol != absent) {
+                profile.setSampleName(sheet.getString(sampleNameCol, row));
+            }
+            if (ampliconNameCol != absent) {
+                profile.setAmpliconName(sheet.getString(ampliconNameCol, row));
+            }
+            if (wellNameCol != absent) {
+                String[] names = RunImportUtilities.parseAmpSampleNames(sheet.getString(wellNameCol, row));
+                if (names[1] == null) {
+                    //Only one name is present, which is assumed to be the sample name
+                    profile.setSampleName(names[0]);
+                    profile.setAmpliconName(mapping.getSingleWellNameAmpliconName());
+                } else {
+                    profile.setAmpliconName(names[0]);
+                    profile.setSampleName(names[1]);
+                }
+            }
+            if (mapping.isProfileNamedBySampleFirst()) {
+                profile.setName(profile.getSampleName() + "@" + profile.getAmpliconName());
+            } else {
+                profile.setName(profile.getAmpliconName() + "@" + profile.getSampleName());
+            }
+
+            if (ctCol != absent) {
+                double ct = sheet.getNumber(ctCol, row);
+                if (!Double.isNaN(ct)) {
+                    profile.setCt(ct);
+                }
+            }
+            if (ftCol != absent) {
+                double ft = sheet.getNumber(ftCol, row);
+                if (!Double.isNaN(ft)) {
+                    profile.setFt(ft);
+                }
+            }
+            if (tmCol != absent) {
+                double tm = sheet.getNumber(tmCol, row);
+                if (!Double.isNaN(tm)) {
+                    profile.setAmpTm(tm);
+                }
+            }
+            profileList.add(profile);
+            resultRowList.add(row);
+        }
+    }
+}
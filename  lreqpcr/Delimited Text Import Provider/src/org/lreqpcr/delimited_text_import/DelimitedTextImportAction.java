@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.awt.ActionRegistration;
+import org.openide.util.NbBundle.Messages;
+
+@ActionID(
+        category = "Tools",
+        id = "org.lreqpcr.delimited_text_import.DelimitedTextImportAction")
+@ActionRegistration(
+        displayName = "#CTL_DelimitedTextImportAction")
+@ActionReference(path = "Menu/Import", position = 380)
+@Messages("CTL_DelimitedTextImportAction=CSV/TSV Amplification Data")
+public final class DelimitedTextImportAction implements ActionListener {
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        new DelimitedTextImportProvider();
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import org.lreqpcr.core.data_objects.CalibrationProfile;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_objects.SampleProfile;
+import org.lreqpcr.core.utilities.WellLabelToWellNumber;
+import org.lreqpcr.data_import_services.CycleFcReadings;
+import org.lreqpcr.data_import_services.DataImportType;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Imports amplification data from a CSV or TSV file, which can be exported
+ * directly by newer cyclers and by a LIMS. The columns are identified by
+ * their header (ignoring case) and two layouts are supported:
+ * <ul>
+ * <li>long format, in which each row holds the reading of one cycle, within
+ * the "Cycle" and "Fluorescence" (or "Fluor", "Fc", "Rn") columns</li>
+ * <li>wide format, in which each row holds the Fc dataset of one well,
+ * within columns headed by the cycle number (e.g. "1" or "Cycle 1")</li>
+ * </ul>
+ * Each row must identify the well via a "Well" column, holding either the
+ * well number or label, and/or a "Well Position" column holding the well
+ * label. Wells identified only by their label are numbered row by row
+ * within the smallest plate (96, 384 or 1536 well) that contains all of the
+ * wells. The "Sample" (or "Sample Name"), "Target" (or "Target Name",
+ * "Amplicon"), "Task", "Quantity" and "Ct" (or "Cq") columns are optional.
+ * Rows with a "STANDARD" task are imported as CalibrationProfiles and rows
+ * without a target name are assumed to be blank wells.
+ * <p>
+ * The file is memory mapped and parsed directly from its bytes, so that
+ * Strings are only constructed for the values that are specific to a well,
+ * not for the Fc readings. As these files do not contain a run date, the date
+ * the file was last modified is used.
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportFileService.class)
+public class DelimitedTextImportFileProvider implements RunImportFileService {
+
+    private static final String CALIBRATOR_TASK = "STANDARD";
+    private static final String[] WELL_HEADERS = {"Well", "Well Number"};
+    private static final String[] WELL_LABEL_HEADERS = {"Well Position", "Well Label", "Position", "Pos"};
+    private static final String[] SAMPLE_HEADERS = {"Sample", "Sample Name"};
+    private static final String[] TARGET_HEADERS = {"Target", "Target Name", "Amplicon", "Amplicon Name", "Detector"};
+    private static final String[] TASK_HEADERS = {"Task"};
+    private static final String[] QUANTITY_HEADERS = {"Quantity"};
+    private static final String[] CT_HEADERS = {"Ct", "Cq", "C(t)"};
+    private static final String[] CYCLE_HEADERS = {"Cycle", "Cycle Number"};
+    private static final String[] FC_HEADERS = {"Fluorescence", "Fluor", "Fc", "Rn"};
+    private static final int ABSENT = -1;
+
+    public String getRunImportServiceName() {
+        return "CSV/TSV";
+    }
+
+    public boolean isImportFile(File file) {
+        return RunImportUtilities.hasFileExtension(file, ".csv")
+                || RunImportUtilities.hasFileExtension(file, ".tsv")
+                || RunImportUtilities.hasFileExtension(file, ".txt");
+    }
+
+    public RunImportData constructRunImportData(File importFile) throws RunImportException {
+        DelimitedTextParser parser = new DelimitedTextParser(mapFile(importFile));
+        if (!parser.nextRecord()) {
+            throw new RunImportException("Invalid import file",
+                    "The selected file (" + importFile.getName() + ") is empty");
+        }
+        Columns columns = new Columns(parser.getStrings());
+        if (columns.wellCol == ABSENT && columns.wellLabelCol == ABSENT) {
+            throw new RunImportException("No Well column",
+                    "Neither a \"Well\" nor a \"Well Position\" column was found in the "
+                    + "first row of the import file.\nData import will be terminated.");
+        }
+        List<WellDataset> wellDatasets;
+        if (columns.cycleCol != ABSENT && columns.fcCol != ABSENT) {
+            wellDatasets = readLongFormat(parser, columns, importFile);
+        } else if (columns.cycleCols.length > 0) {
+            wellDatasets = readWideFormat(parser, columns);
+        } else {
+            throw new RunImportException("No amplification data",
+                    "Neither \"Cycle\" and \"Fluorescence\" columns nor columns headed by "
+                    + "the cycle number were found in the first row of the import file.\n"
+                    + "Data import will be terminated.");
+        }
+
+        List<SampleProfile> sampleProfileList = new ArrayList<SampleProfile>();
+        List<CalibrationProfile> calbnProfileList = new ArrayList<CalibrationProfile>();
+        List<Profile> profilesNumberedFromWellLabel = new ArrayList<Profile>();
+        for (WellDataset wellDataset : wellDatasets) {
+            //Cycles without a reading are filled from the preceding reading
+            double[] fcReadings = wellDataset.fcReadings.getRawFcReadings();
+            if (fcReadings == null) {
+                continue;
+            }
+            Profile profile = wellDataset.profile;
+            profile.setRawFcReadings(fcReadings);
+            if (wellDataset.isNumberedFromWellLabel) {
+                profilesNumberedFromWellLabel.add(profile);
+            }
+            if (profile instanceof CalibrationProfile) {
+                calbnProfileList.add((CalibrationProfile) profile);
+            } else {
+                sampleProfileList.add((SampleProfile) profile);
+            }
+        }
+        //The plate size is determined from the well labels of the entire Run
+        WellLabelToWellNumber.labelToNumber(profilesNumberedFromWellLabel);
+        String runName = importFile.getName();
+        if (runName.lastIndexOf(".") > 0) {
+            runName = runName.substring(0, runName.lastIndexOf("."));
+        }
+        RunImportData importData = new RunImportData(DataImportType.STANDARD,
+                new Date(importFile.lastModified()), runName);
+        importData.setCalibrationProfileList(calbnProfileList);
+        importData.setSampleProfileList(sampleProfileList);
+        return importData;
+    }
+
+    private static ByteBuffer mapFile(File importFile) throws RunImportException {
+        try {
+            FileInputStream inputStream = new FileInputStream(importFile);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new RunImportException("Import file too large",
+                            "The selected file (" + importFile.getName() + ") exceeds 2 GB");
+                }
+                //The mapping remains valid once the channel has been closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException ex) {
+            throw new RunImportException("Unable to open the selected file " + importFile.getName(),
+                    "The selected file (" + importFile.getName() + ") could not be opened", ex);
+        }
+    }
+
+    /**
+     * Each row holds one reading, the rows of a well being identified by
+     * the well and target fields, which are compared directly from the file
+     * so that the row order is of no importance.
+     */
+    private static List<WellDataset> readLongFormat(DelimitedTextParser parser, Columns columns,
+            File importFile) throws RunImportException {
+        List<WellDataset> wellDatasets = new ArrayList<WellDataset>();
+        HashMap<Integer, WellDataset> wellDatasetTable = new HashMap<Integer, WellDataset>();
+        int wellKeyCol = columns.wellCol != ABSENT ? columns.wellCol : columns.wellLabelCol;
+        WellDataset previousDataset = null;
+        while (parser.nextRecord()) {
+            if (columns.targetCol != ABSENT && parser.isBlank(columns.targetCol)) {
+                continue;
+            }
+            WellDataset wellDataset = previousDataset;
+            //Rows are normally grouped by well, in which case a hash is not needed
+            if (wellDataset == null || !wellDataset.matches(parser, wellKeyCol, columns.targetCol)) {
+                int hash = parser.hash(columns.targetCol, parser.hash(wellKeyCol, 0));
+                wellDataset = wellDatasetTable.get(hash);
+                while (wellDataset != null && !wellDataset.matches(parser, wellKeyCol, columns.targetCol)) {
+                    wellDataset = wellDataset.nextWithSameHash;
+                }
+                if (wellDataset == null) {
+                    wellDataset = new WellDataset(parser, columns, wellKeyCol);
+                    wellDataset.nextWithSameHash = wellDatasetTable.get(hash);
+                    wellDatasetTable.put(hash, wellDataset);
+                    wellDatasets.add(wellDataset);
+                }
+            }
+            double cycle = parser.getNumber(columns.cycleCol);
+            if (!CycleFcReadings.isWithinCycleRange(cycle)) {
+                throw new RunImportException("Invalid cycle number",
+                        "Line " + parser.getLineNumber() + " of the selected file ("
+                        + importFile.getName() + ") contains an invalid cycle number ("
+                        + parser.getString(columns.cycleCol) + ").\nData import will be terminated.");
+            }
+            wellDataset.fcReadings.add(cycle, parser.getNumber(columns.fcCol));
+            previousDataset = wellDataset;
+        }
+        return wellDatasets;
+    }
+
+    /**
+     * Each row holds the Fc dataset of one well.
+     */
+    private static List<WellDataset> readWideFormat(DelimitedTextParser parser, Columns columns) {
+        List<WellDataset> wellDatasets = new ArrayList<WellDataset>();
+        int wellKeyCol = columns.wellCol != ABSENT ? columns.wellCol : columns.wellLabelCol;
+        while (parser.nextRecord()) {
+            if (parser.isBlank(wellKeyCol)
+                    || (columns.targetCol != ABSENT && parser.isBlank(columns.targetCol))) {
+                continue;
+            }
+            WellDataset wellDataset = new WellDataset(parser, columns, wellKeyCol);
+            for (int i = 0; i < columns.cycleCols.length; i++) {
+                wellDataset.fcReadings.add(columns.cycleNumbers[i], parser.getNumber(columns.cycleCols[i]));
+            }
+            wellDatasets.add(wellDataset);
+        }
+        return wellDatasets;
+    }
+
+    /**
+     * The column indices resolved from the header row.
+     */
+    private static class Columns {
+
+        private int wellCol;
+        private int wellLabelCol;
+        private int sampleCol;
+        private int targetCol;
+        private int taskCol;
+        private int quantityCol;
+        private int ctCol;
+        private int cycleCol;
+        private int fcCol;
+        private int[] cycleCols;
+        private int[] cycleNumbers;
+
+        Columns(String[] headers) {
+            wellCol = find(headers, WELL_HEADERS);
+            wellLabelCol = find(headers, WELL_LABEL_HEADERS);
+            sampleCol = find(headers, SAMPLE_HEADERS);
+            targetCol = find(headers, TARGET_HEADERS);
+            taskCol = find(headers, TASK_HEADERS);
+            quantityCol = find(headers, QUANTITY_HEADERS);
+            ctCol = find(headers, CT_HEADERS);
+            cycleCol = find(headers, CYCLE_HEADERS);
+            fcCol = find(headers, FC_HEADERS);
+            //Wide format columns are headed by the cycle number
+            cycleCols = new int[headers.length];
+            cycleNumbers = new int[headers.length];
+            int count = 0;
+            for (int i = 0; i < headers.length; i++) {
+                int cycleNumber = parseCycleNumber(headers[i]);
+                if (cycleNumber > 0) {
+                    cycleCols[count] = i;
+                    cycleNumbers[count] = cycleNumber;
+                    count++;
+                }
+            }
+            cycleCols = Arrays.copyOf(cycleCols, count);
+            cycleNumbers = Arrays.copyOf(cycleNumbers, count);
+        }
+
+        /**
+         * The first alias that is present is used.
+         */
+        private static int find(String[] headers, String[] aliases) {
+            for (String alias : aliases) {
+                for (int i = 0; i < headers.length; i++) {
+                    if (headers[i].equalsIgnoreCase(alias)) {
+                        return i;
+                    }
+                }
+            }
+            return ABSENT;
+        }
+
+        /**
+         * @return the cycle number, or -1 if the header is not a cycle number
+         */
+        private static int parseCycleNumber(String header) {
+            String number = header;
+            if (number.regionMatches(true, 0, "Cycle", 0, 5)) {
+                number = number.substring(5).trim();
+            }
+            if (number.length() == 0 || number.length() > 4) {
+                return -1;
+            }
+            for (int i = 0; i < number.length(); i++) {
+                if (!Character.isDigit(number.charAt(i))) {
+                    return -1;
+                }
+            }
+            return Integer.parseInt(number);
+        }
+    }
+
+    /**
+     * The Profile of a well, along with its Fc readings indexed by cycle
+     * number.
+     */
+    private static class WellDataset {
+
+        private final Profile profile;
+        private final byte[] wellKey;
+        private final byte[] targetKey;
+        private boolean isNumberedFromWellLabel;
+        private WellDataset nextWithSameHash;
+        private final CycleFcReadings fcReadings = new CycleFcReadings();
+
+        /**
+         * Constructs the Profile from the well specific values of the current record.
+         */
+        WellDataset(DelimitedTextParser parser, Columns columns, int wellKeyCol) {
+            wellKey = parser.getBytes(wellKeyCol);
+            targetKey = parser.getBytes(columns.targetCol);
+            if (parser.getString(columns.taskCol).equalsIgnoreCase(CALIBRATOR_TASK)) {
+                CalibrationProfile calbnProfile = new CalibrationProfile();
+                double lambdaMass = parser.getNumber(columns.quantityCol);
+                calbnProfile.setLambdaMass(Double.isNaN(lambdaMass) ? 0 : lambdaMass);
+                profile = calbnProfile;
+            } else {//Must be a Sample Profile; target strandedness is set once imported
+                profile = new SampleProfile();
+            }
+            double wellNumber = parser.getNumber(columns.wellCol);
+            if (!Double.isNaN(wellNumber)) {
+                profile.setWellNumber((int) wellNumber);
+            }
+            String wellLabel = null;
+            if (columns.wellLabelCol != ABSENT) {
+                wellLabel = parser.getString(columns.wellLabelCol);
+            } else if (Double.isNaN(wellNumber)) {
+                //The Well column holds the well label
+                wellLabel = parser.getString(columns.wellCol);
+            }
+            if (wellLabel != null && wellLabel.length() > 0) {
+                profile.setWellLabel(wellLabel);
+                isNumberedFromWellLabel = Double.isNaN(wellNumber);
+            }
+            profile.setSampleName(parser.getString(columns.sampleCol));
+            profile.setAmpliconName(parser.getString(columns.targetCol));
+            profile.setName(profile.getAmpliconName() + "@" + profile.getSampleName());
+            double ct = parser.getNumber(columns.ctCol);
+            if (!Double.isNaN(ct)) {
+                profile.setCt(ct);
+            }
+        }
+
+        boolean matches(DelimitedTextParser parser, int wellKeyCol, int targetCol) {
+            return parser.matches(wellKeyCol, wellKey) && parser.matches(targetCol, targetKey);
+        }
+    }
+}
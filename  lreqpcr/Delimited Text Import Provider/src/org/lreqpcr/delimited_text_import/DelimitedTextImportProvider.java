@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.io.File;
+import org.lreqpcr.core.utilities.IOUtilities;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * CSV/TSV amplification data import, in which the user selects the delimited
+ * text file that is then imported via the DelimitedTextImportFileProvider.
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportService.class)
+public class DelimitedTextImportProvider extends RunImportService {
+
+    @Override
+    public RunImportData constructRunImportData() {
+        //Retrieve the csv or tsv file
+        File importFile = IOUtilities.openDelimitedTextFile("CSV/TSV Data Import");
+        if (importFile == null) {
+            return null;
+        }
+        RunImportData importData;
+        try {
+            importData = new DelimitedTextImportFileProvider().constructRunImportData(importFile);
+        } catch (RunImportException ex) {
+            RunImportUtilities.displayRunImportError(ex);
+            return null;
+        }
+        //Determine the strandedness of the Targets
+        RunImportUtilities.setTargetStrandedness(importData, RunImportUtilities.isTheTargetSingleStranded());
+        return importData;
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Parses the records of a comma, semicolon or tab delimited text file held
+ * within a ByteBuffer, which is normally memory mapped. The fields of the
+ * current record are held only as positions within the buffer, so that
+ * numbers can be parsed and fields compared directly from the bytes without
+ * constructing a String for each field. Fields can be enclosed in double
+ * quotes, although a quoted field cannot span more than one line.
+ * Semicolon delimited files are normally exported using a locale in which the
+ * comma is the decimal separator, so numbers within these files can contain
+ * either a decimal point or a decimal comma.
+ *
+ * @author Bob Rutledge
+ */
+class DelimitedTextParser {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte QUOTE = '"';
+    //Powers of ten that are exactly represented by a double
+    private static final double[] POWERS_OF_TEN = new double[23];
+    //Larger mantissas cannot be exactly represented by a double
+    private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final byte delimiter;
+    private final boolean isDecimalCommaAllowed;
+    private int position;
+    //The line number of the current record
+    private int lineNumber;
+    //The start and end positions of each field within the current record
+    private int[] fieldStarts = new int[64];
+    private int[] fieldEnds = new int[64];
+    private boolean[] isFieldQuoted = new boolean[64];
+    private int fieldCount;
+    private byte[] stringBytes = new byte[256];
+
+    /**
+     * @param buffer the text file, which is read from its current position
+     */
+    DelimitedTextParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        limit = buffer.limit();
+        position = buffer.position();
+        //Skip the UTF-8 byte order mark
+        if (limit - position >= 3 && buffer.get(position) == (byte) 0xEF
+                && buffer.get(position + 1) == (byte) 0xBB && buffer.get(position + 2) == (byte) 0xBF) {
+            position += 3;
+        }
+        delimiter = detectDelimiter();
+        isDecimalCommaAllowed = delimiter == ';';
+    }
+
+    /**
+     * The delimiter is taken to be the tab, comma or semicolon that occurs
+     * most often within the first line, tabs being preferred.
+     */
+    private byte detectDelimiter() {
+        int tabs = 0;
+        int commas = 0;
+        int semicolons = 0;
+        for (int i = position; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            if (b == '\t') {
+                tabs++;
+            } else if (b == ',') {
+                commas++;
+            } else if (b == ';') {
+                semicolons++;
+            }
+        }
+        if (tabs > 0 && tabs >= commas && tabs >= semicolons) {
+            return '\t';
+        }
+        return semicolons > commas ? (byte) ';' : (byte) ',';
+    }
+
+    /**
+     * Moves to the next record, skipping blank lines.
+     *
+     * @return false if the end of the file has been reached
+     */
+    boolean nextRecord() {
+        while (position < limit) {
+            lineNumber++;
+            fieldCount = 0;
+            boolean isLastField = false;
+            while (!isLastField) {
+                isLastField = readField();
+            }
+            //Consume the line terminator
+            if (position < limit && buffer.get(position) == '\r') {
+                position++;
+            }
+            if (position < limit && buffer.get(position) == '\n') {
+                position++;
+            }
+            if (fieldCount > 1 || fieldEnds[0] > fieldStarts[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the line number of the current record, the first line being 1
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return true if this is the last field of the record
+     */
+    private boolean readField() {
+        int start = position;
+        int end;
+        boolean isQuoted = position < limit && buffer.get(position) == QUOTE;
+        if (isQuoted) {
+            start++;
+            position++;
+            //Doubled quotes within a quoted field represent a single quote
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == QUOTE) {
+                    if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+                        position += 2;
+                        continue;
+                    }
+                    break;
+                }
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                position++;
+            }
+            end = position;
+            //Ignore anything between the closing quote and the delimiter
+            while (position < limit && !isFieldEnd(buffer.get(position))) {
+                position++;
+            }
+        } else {
+            while (position < limit && !isFieldEnd(buffer.get(position))) {
+                position++;
+            }
+            end = position;
+        }
+        addField(start, end, isQuoted);
+        if (position < limit && buffer.get(position) == delimiter) {
+            position++;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isFieldEnd(byte b) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+
+    private void addField(int start, int end, boolean isQuoted) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            isFieldQuoted = Arrays.copyOf(isFieldQuoted, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        isFieldQuoted[fieldCount] = isQuoted;
+        fieldCount++;
+    }
+
+    /**
+     * Returns the trimmed text of a field, which should only be used for
+     * fields that are not repeated for each cycle.
+     *
+     * @param field the field index
+     * @return the text of the field, or an empty string if the field is not present
+     */
+    String getString(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return "";
+        }
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (stringBytes.length < end - start) {
+            stringBytes = new byte[end - start];
+        }
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            stringBytes[length++] = b;
+            if (b == QUOTE && isFieldQuoted[field]) {
+                //Skip the second quote of a doubled quote
+                i++;
+            }
+        }
+        return new String(stringBytes, 0, length, UTF8).trim();
+    }
+
+    /**
+     * @return the fields of the current record
+     */
+    String[] getStrings() {
+        String[] strings = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            strings[i] = getString(i);
+        }
+        return strings;
+    }
+
+    /**
+     * Determines if a field is empty or only contains whitespace.
+     *
+     * @param field the field index
+     * @return true if the field is empty or not present
+     */
+    boolean isBlank(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return true;
+        }
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            if (buffer.get(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number directly from the bytes of a field. Numbers
+     * that cannot be exactly converted in this way (e.g. those having more
+     * than 15 significant digits) are parsed via Double.parseDouble. Within
+     * semicolon delimited files a decimal comma is also accepted.
+     *
+     * @param field the field index
+     * @return the number, or NaN if the field does not contain a number
+     */
+    double getNumber(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return Double.NaN;
+        }
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        while (i < end && buffer.get(i) <= ' ') {
+            i++;
+        }
+        while (end > i && buffer.get(end - 1) <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return Double.NaN;
+        }
+        boolean isNegative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            isNegative = b == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            i++;
+        }
+        if (i < end && isDecimalSeparator(buffer.get(i))) {
+            i++;
+            while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                exponent--;
+                digits++;
+                i++;
+            }
+        }
+        if (digits == 0 || digits > 18) {
+            return parseNumberString(field);
+        }
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean isExponentNegative = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                isExponentNegative = buffer.get(i) == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            while (i < end && (b = buffer.get(i)) >= '0' && b <= '9' && exponentDigits < 4) {
+                explicitExponent = explicitExponent * 10 + (b - '0');
+                exponentDigits++;
+                i++;
+            }
+            if (exponentDigits == 0) {
+                return parseNumberString(field);
+            }
+            exponent += isExponentNegative ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) {
+            return parseNumberString(field);
+        }
+        double value;
+        if (exponent == 0) {
+            value = mantissa;
+        } else if (mantissa < MAXIMUM_EXACT_MANTISSA && exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            //Division of two exactly represented values is correctly rounded
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (mantissa < MAXIMUM_EXACT_MANTISSA && exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return parseNumberString(field);
+        }
+        return isNegative ? -value : value;
+    }
+
+    private boolean isDecimalSeparator(byte b) {
+        return b == '.' || (b == ',' && isDecimalCommaAllowed);
+    }
+
+    private double parseNumberString(int field) {
+        String number = getString(field);
+        if (isDecimalCommaAllowed) {
+            number = number.replace(',', '.');
+        }
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Computes a hash code from the bytes of a field.
+     *
+     * @param field the field index
+     * @param hash the hash code of any preceding fields
+     * @return the hash code
+     */
+    int hash(int field, int hash) {
+        if (field < 0 || field >= fieldCount) {
+            return hash * 31;
+        }
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            hash = hash * 31 + buffer.get(i);
+        }
+        return hash * 31;
+    }
+
+    /**
+     * @param field the field index
+     * @return a copy of the bytes of the field
+     */
+    byte[] getBytes(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return new byte[0];
+        }
+        byte[] bytes = new byte[fieldEnds[field] - fieldStarts[field]];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(fieldStarts[field] + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Compares the bytes of a field with the supplied bytes.
+     *
+     * @param field the field index
+     * @param bytes the bytes, which are normally retrieved via getBytes
+     * @return true if the field is identical to the bytes
+     */
+    boolean matches(int field, byte[] bytes) {
+        if (field < 0 || field >= fieldCount) {
+            return bytes.length == 0;
+        }
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
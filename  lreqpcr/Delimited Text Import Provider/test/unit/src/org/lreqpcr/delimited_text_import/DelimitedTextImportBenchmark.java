@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.lreqpcr.core.utilities.PlateFormat;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+
+/**
+ * Measures the throughput of CSV/TSV import in MB/s. Usage:
+ * <pre>
+ * DelimitedTextImportBenchmark [-iterations n] [-wells n] [-cycles n] [file ...]
+ * </pre>
+ * If no files are supplied, a long format csv file and a wide format tsv file
+ * are generated using the supplied number of wells and cycles (by default
+ * 1536 wells, the maximum, and 50 cycles). Each file is imported a number of times before
+ * the measurement is made, so that the parser has been compiled.
+ *
+ * @author Bob Rutledge
+ */
+public class DelimitedTextImportBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    public static void main(String[] args) throws IOException, RunImportException {
+        int iterations = 50;
+        int numberOfWells = 1536;
+        int numberOfCycles = 50;
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-wells") && i + 1 < args.length) {
+                numberOfWells = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-cycles") && i + 1 < args.length) {
+                numberOfCycles = Integer.parseInt(args[++i]);
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        if (numberOfWells < 1 || numberOfWells > PlateFormat.PLATE_1536_WELL.getNumberOfWells()) {
+            throw new IllegalArgumentException("The number of wells must be 1-"
+                    + PlateFormat.PLATE_1536_WELL.getNumberOfWells());
+        }
+        boolean isGenerated = files.isEmpty();
+        if (isGenerated) {
+            files.add(generateFile(true, numberOfWells, numberOfCycles));
+            files.add(generateFile(false, numberOfWells, numberOfCycles));
+        }
+        try {
+            for (File file : files) {
+                benchmark(file, iterations);
+            }
+        } finally {
+            if (isGenerated) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static void benchmark(File file, int iterations) throws RunImportException {
+        DelimitedTextImportFileProvider provider = new DelimitedTextImportFileProvider();
+        RunImportData importData = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            importData = provider.constructRunImportData(file);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            importData = provider.constructRunImportData(file);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double megabytes = file.length() * (double) iterations / (1024 * 1024);
+        int numberOfProfiles = importData.getSampleProfileList().size()
+                + importData.getCalibrationProfileList().size();
+        System.out.println(String.format("%s: %.1f MB, %d profiles, %.1f ms per import, %.1f MB/s",
+                file.getName(), file.length() / (1024.0 * 1024), numberOfProfiles,
+                seconds * 1000 / iterations, megabytes / seconds));
+    }
+
+    /**
+     * Generates a file holding sigmoidal profiles with random noise.
+     */
+    private static File generateFile(boolean isLongFormat, int numberOfWells, int numberOfCycles)
+            throws IOException {
+        File file = File.createTempFile("lre_benchmark", isLongFormat ? ".csv" : ".tsv");
+        String delimiter = isLongFormat ? "," : "\t";
+        Random random = new Random(1);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            String header = "Well" + delimiter + "Well Position" + delimiter + "Sample Name"
+                    + delimiter + "Target Name" + delimiter + "Task" + delimiter + "Quantity"
+                    + delimiter + "Ct";
+            if (isLongFormat) {
+                writer.write(header + delimiter + "Cycle" + delimiter + "Rn\n");
+            } else {
+                writer.write(header);
+                for (int cycle = 1; cycle <= numberOfCycles; cycle++) {
+                    writer.write(delimiter + cycle);
+                }
+                writer.write("\n");
+            }
+            for (int well = 1; well <= numberOfWells; well++) {
+                //Row major numbering of a 1536 well plate, in which the rows are labeled A to AF
+                String wellLabel = PlateFormat.PLATE_1536_WELL.getWellLabel(well, false);
+                boolean isCalibrator = well % 12 == 0;
+                String wellValues = well + delimiter + wellLabel + delimiter + "Sample " + (well % 24)
+                        + delimiter + "Target " + (well % 16)
+                        + delimiter + (isCalibrator ? "STANDARD" : "UNKNOWN")
+                        + delimiter + (isCalibrator ? "100" : "")
+                        + delimiter + String.format(Locale.US, "%.3f", 20 + random.nextDouble() * 10);
+                double midC = 18 + random.nextDouble() * 12;
+                if (!isLongFormat) {
+                    writer.write(wellValues);
+                }
+                for (int cycle = 1; cycle <= numberOfCycles; cycle++) {
+                    double fc = 0.1 + 2 / (1 + Math.exp(-(cycle - midC) / 1.5)) + random.nextGaussian() * 0.005;
+                    String fcReading = String.format(Locale.US, "%.6f", fc);
+                    if (isLongFormat) {
+                        writer.write(wellValues + delimiter + cycle + delimiter + fcReading + "\n");
+                    } else {
+                        writer.write(delimiter + fcReading);
+                    }
+                }
+                if (!isLongFormat) {
+                    writer.write("\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.delimited_text_import;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+
+/**
+ * Tests the import of long format delimited text files.
+ *
+ * @author Bob Rutledge
+ */
+public class DelimitedTextImportFileProviderTest {
+
+    private final DelimitedTextImportFileProvider provider = new DelimitedTextImportFileProvider();
+    private File importFile;
+
+    @Before
+    public void createImportFile() throws IOException {
+        importFile = File.createTempFile("lre-import-test", ".csv");
+    }
+
+    @After
+    public void deleteImportFile() {
+        importFile.delete();
+    }
+
+    @Test
+    public void testLongFormatImport() throws IOException, RunImportException {
+        writeImportFile("Well,Cycle,Fluorescence\n"
+                + "1,1,100\n"
+                + "1,2,110\n"
+                + "1,3,130\n");
+        RunImportData importData = provider.constructRunImportData(importFile);
+        assertEquals(1, importData.getSampleProfileList().size());
+        assertArrayEquals(new double[]{100, 110, 130},
+                importData.getSampleProfileList().get(0).getRawFcReadings(), 0);
+    }
+
+    @Test
+    public void testOutOfRangeCycleIsRejected() throws IOException {
+        writeImportFile("Well,Cycle,Fluorescence\n"
+                + "1,1,100\n"
+                + "\n"
+                + "1,1000000000,110\n");
+        try {
+            provider.constructRunImportData(importFile);
+            fail("A cycle number of 1000000000 must be rejected");
+        } catch (RunImportException ex) {
+            //The line holding the invalid cycle number is identified
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Line 4 "));
+            assertTrue(ex.getMessage(), ex.getMessage().contains("1000000000"));
+        }
+    }
+
+    private void writeImportFile(String text) throws IOException {
+        FileWriter writer = new FileWriter(importFile);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -123,6 +123,7 @@ public class DeleteSampleProfileAction extends AbstractAction {
             return;
         }
         samplePrfList.remove(sampleProfile);
+        avProfile.invalidateReplicateStatistics();
         db.saveObject(samplePrfList);
         //Recalculate the average Fmax which should not be time consuming
         sampleProfile.getRun().calculateAverageFmax();
@@ -15,45 +15,27 @@
  */
 package org.lreqpcr.lightcycler_import;
 
+import java.io.File;
 import java.net.URL;
-import org.lreqpcr.core.data_objects.*;
-import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.lreqpcr.core.data_objects.TargetStrandedness;
 import org.lreqpcr.core.utilities.IOUtilities;
-import java.io.File;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import javax.swing.JOptionPane;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.lreqpcr.data_import_services.DataImportType;
 import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
 import org.lreqpcr.data_import_services.RunImportService;
-import org.openide.util.Exceptions;
-import org.openide.windows.WindowManager;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.openide.util.lookup.ServiceProvider;
 
 /**
- * Rudimentary RDML import service that only imports profiles along with the
- * corresponding Run, which ignores all other RDML specified data
- * (www.rdml.org). A dedicated RDML import service would make this provider
- * redundant.
+ * RDML import service (www.rdml.org), in which the user selects the RDML file
+ * exported by the Lightcycler that is then read via the RdmlRunReader. As
+ * RDML files can contain more than one Run, each Run is imported as soon as
+ * it has been read.
  *
  * @author Bob Rutledge
  */
+@ServiceProvider(service = RunImportService.class)
 public class LightcyclerRdmlImportProvider extends RunImportService {
 
-    private NodeList sampleNodeList;
-
     public String getRunImportServiceName() {
         return "Lightcycler";
     }
@@ -74,87 +56,29 @@ public class LightcyclerRdmlImportProvider extends RunImportService {
     }
 
     @Override
-    @SuppressWarnings(value = "unchecked")
     public RunImportData constructRunImportData() {
-        //Retrieve the xml file
-        //For development purposes, just use the example RDML file       
-//        File lcRdmlFile = IOUtilities.openXmlFile("Lightcycler XML Data Import");
-//        if (lcRdmlFile == null) {
-//            return null;
-//        }
-        //Instanciate the DOM document
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        docFactory.setIgnoringComments(true);
-        docFactory.setIgnoringElementContentWhitespace(true);
-        docFactory.setValidating(false);
-        DocumentBuilder docBuilder;
-        Document xmlDoc = null;
-        try {
-            docBuilder = docFactory.newDocumentBuilder();
-            xmlDoc = docBuilder.parse(new InputSource("./rdml_example.xml"));
-        } catch (Exception ex) {
-            Exceptions.printStackTrace(ex);
+        //Retrieve the RDML file
+        File rdmlFile = IOUtilities.openXmlFile("Lightcycler RDML Data Import");
+        if (rdmlFile == null) {
+            return null;
         }
-        //Get the all of the Run nodes
-        NodeList runNodeList = xmlDoc.getElementsByTagName("run");
-        sampleNodeList = xmlDoc.getElementsByTagName("sample");
-//        Boolean typePresent = sampleElement.hasAttribute("type");
+        //RDML does not provide target strandedness, which is requested once for all the Runs
+        final TargetStrandedness[] targetStrandedness = new TargetStrandedness[1];
+        try {
+            RdmlRunReader.readRuns(rdmlFile, new RdmlRunReader.RunHandler() {
 
-//        Date dateMade = new Date(dateString);
-//        int numberOfRuns = listOfRuns.getLength();
-        ArrayList<Run> runList = new ArrayList<Run>();
-        for (int i = 0; i < runNodeList.getLength(); i++) {
-            Run run = new RunImpl();
-            run.setRunDate(new Date());//Set the default to the current date
-            Element runElement = (Element) runNodeList.item(i);
-            //If a run date is provided, reset the Run's runDate
-            if (runElement.hasAttribute("runDate")) {
-                //TODO learn how to import the dateTime element for RDML run date
-                //Test how to extract a date using dateMade element
-                //Wow, this is complex...need to cast to Element, then get the child Node
-                NodeList dateMadeList = xmlDoc.getElementsByTagName("dateMade");
-                Element dateMadeElement = (Element) dateMadeList.item(0);
-                NodeList dateElementList = dateMadeElement.getChildNodes();
-                String dateString = dateElementList.item(0).getNodeValue();
-                //However, constructing a Date using a string has been disallowed
-            }
-            //Set the run name
-            run.setName(runElement.getAttribute("id"));
-            //Get ready to import the run data
-            ArrayList<SampleProfile> sampleProfileList = new ArrayList<SampleProfile>();
-            ArrayList<CalibrationProfile> calbnProfileList = new ArrayList<CalibrationProfile>();
-            //Determine the strandedness of the Targets
-            TargetStrandedness targetStrandedness = RunImportUtilities.isTheTargetSingleStranded();
-            //Get all of the reactions elements
-            NodeList listOfReactions = runElement.getElementsByTagName("react");
-            for (int j = 0; j < listOfReactions.getLength(); j++) {
-                Element reactionElement = (Element) listOfReactions.item(j);
-                //TODO determine if the reactions uses a calibrator or a sample
-                String reactionName = reactionElement.getAttribute("id");
-                //Get sample name of which there is only one
-                Element sampleElement = (Element) reactionElement.getElementsByTagName("sample").item(0);
-                String sampleName = sampleElement.getAttribute("id");
-                
-                //Get target name
-                Element targetElement = (Element) reactionElement.getElementsByTagName("tar").item(0);
-                String targetName = targetElement.getAttribute("id");
-                //Construct the Fc dataset
-                NodeList listOfFcReadings = reactionElement.getElementsByTagName("adp");
-                for (int k = 0; k < listOfFcReadings.getLength(); k++) {
+                public void runRead(RunImportData importData) {
+                    if (targetStrandedness[0] == null) {
+                        targetStrandedness[0] = RunImportUtilities.isTheTargetSingleStranded();
+                    }
+                    RunImportUtilities.setTargetStrandedness(importData, targetStrandedness[0]);
+                    importRun(importData);
                 }
-                int a = 0;
-            }
-
+            });
+        } catch (RunImportException ex) {
+            RunImportUtilities.displayRunImportError(ex);
         }
-        Node firstRunNode = runNodeList.item(1);
-        String runName = firstRunNode.getNodeValue();
-
-        int j = 0;
-
+        //All of the Runs have already been imported
         return null;
     }
-//       private void getSampeType(String sampleName){
-//           //Need to scroll through the enter
-//           Element sampleNodeList.
-//       }
 }
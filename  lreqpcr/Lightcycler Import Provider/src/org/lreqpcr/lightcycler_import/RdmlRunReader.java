@@ -0,0 +1,442 @@
+/**
+ * Copyright (C) 2013 Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details. You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/> and open
+ * the template in the editor.
+ */
+package org.lreqpcr.lightcycler_import;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.lreqpcr.core.data_objects.CalibrationProfile;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_objects.SampleProfile;
+import org.lreqpcr.data_import_services.CycleFcReadings;
+import org.lreqpcr.data_import_services.DataImportType;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+
+/**
+ * Reads the Runs within an RDML file (www.rdml.org) using a streaming (StAX)
+ * parser, so that the reactions are converted directly into Profiles without
+ * constructing a DOM of the file. Each Run is passed to the RunHandler as
+ * soon as its last reaction has been read, so that only one Run is held in
+ * memory regardless of the number of Runs within the file.
+ * <p>
+ * Only the samples, targets, runs and reactions are imported, all other RDML
+ * data (e.g. melting curves) being ignored. Reaction exclusions are also
+ * ignored, as Profiles can only be excluded once their Run has been
+ * initialized. Reactions using a standard ("std") sample are imported as
+ * CalibrationProfiles, in which a sample quantity in ng is converted to fg of
+ * lambda gDNA, whereas all other reactions are imported as SampleProfiles.
+ * Both zipped RDML files and uncompressed RDML xml files can be read.
+ *
+ * @author Bob Rutledge
+ */
+public class RdmlRunReader {
+
+    private static final String ERROR_TITLE = "Invalid RDML file";
+    private static final String STANDARD_SAMPLE_TYPE = "std";
+    //Values of the sample and target definitions
+    private final HashMap<String, String> sampleTypes = new HashMap<String, String>();
+    private final HashMap<String, Double> sampleLambdaMasses = new HashMap<String, Double>();
+    private Date dateMade;
+    private String sampleId;
+    private String sampleType;
+    private double sampleQuantity = Double.NaN;
+    private String sampleQuantityUnit;
+    //Values of the Run being read
+    private String runName;
+    private Date runDate;
+    private int numberOfRows;
+    private int numberOfColumns;
+    private String rowLabelFormat;
+    private String columnLabelFormat;
+    private List<SampleProfile> sampleProfileList;
+    private List<CalibrationProfile> calbnProfileList;
+    //Values of the reaction being read
+    private int wellNumber;
+    private String reactionSampleId;
+    //Values of the reaction data being read
+    private String targetId;
+    private double cq = Double.NaN;
+    private double cycle = Double.NaN;
+    private double fluor = Double.NaN;
+    //The Fc readings indexed by cycle number, which are reused for each reaction
+    private final CycleFcReadings fcReadings = new CycleFcReadings();
+
+    /**
+     * Receives each Run read from an RDML file.
+     */
+    public interface RunHandler {
+
+        /**
+         * Called once all the reactions within a Run have been read.
+         *
+         * @param importData the Run data ready for importation
+         */
+        public void runRead(RunImportData importData);
+    }
+
+    /**
+     * Reads all the Runs within an RDML file.
+     *
+     * @param rdmlFile the RDML file, which can be zipped
+     * @param handler receives each Run as it is read
+     * @return the number of Runs read
+     * @throws RunImportException if the file is not a valid RDML file
+     */
+    public static int readRuns(File rdmlFile, RunHandler handler) throws RunImportException {
+        return new RdmlRunReader().read(rdmlFile, handler);
+    }
+
+    private RdmlRunReader() {
+    }
+
+    private int read(File rdmlFile, RunHandler handler) throws RunImportException {
+        ZipFile zipFile = null;
+        InputStream inputStream = null;
+        try {
+            if (isZipFile(rdmlFile)) {
+                zipFile = new ZipFile(rdmlFile);
+                ZipEntry rdmlEntry = findRdmlEntry(zipFile);
+                if (rdmlEntry == null) {
+                    throw new RunImportException(ERROR_TITLE, "The selected file ("
+                            + rdmlFile.getName() + ") does not contain RDML data");
+                }
+                inputStream = new BufferedInputStream(zipFile.getInputStream(rdmlEntry));
+            } else {
+                inputStream = new BufferedInputStream(new FileInputStream(rdmlFile));
+            }
+            return read(inputStream, handler);
+        } catch (IOException ex) {
+            throw new RunImportException("Unable to open the selected file " + rdmlFile.getName(),
+                    "The selected file (" + rdmlFile.getName() + ") could not be opened", ex);
+        } catch (XMLStreamException ex) {
+            throw new RunImportException(ERROR_TITLE, "The selected file ("
+                    + rdmlFile.getName() + ") is not a valid RDML file: " + ex.getMessage(), ex);
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+                if (zipFile != null) {
+                    zipFile.close();
+                }
+            } catch (IOException ex) {
+                //Nothing remains to be read
+            }
+        }
+    }
+
+    private static boolean isZipFile(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            //All zip files begin with the local file header signature "PK"
+            return inputStream.read() == 'P' && inputStream.read() == 'K';
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static ZipEntry findRdmlEntry(ZipFile zipFile) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            //Ignore the resource forks added by OS X
+            if (!entry.isDirectory() && !entry.getName().startsWith("__MACOSX")
+                    && entry.getName().toLowerCase().endsWith(".xml")) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private int read(InputStream inputStream, RunHandler handler) throws XMLStreamException, RunImportException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+        int numberOfRuns = 0;
+        //The names of the elements enclosing the current element
+        ArrayList<String> elementPath = new ArrayList<String>();
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String parent = elementPath.isEmpty() ? "" : elementPath.get(elementPath.size() - 1);
+                    String element = reader.getLocalName();
+                    if (elementPath.isEmpty() && !element.equals("rdml")) {
+                        throw new RunImportException(ERROR_TITLE,
+                                "The selected file does not contain RDML data");
+                    }
+                    //Text elements are read through to their end element
+                    if (!readTextElement(reader, parent, element)) {
+                        startElement(reader, parent, element);
+                        elementPath.add(element);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = elementPath.remove(elementPath.size() - 1);
+                    String parent = elementPath.isEmpty() ? "" : elementPath.get(elementPath.size() - 1);
+                    if (endElement(parent, element)) {
+                        handler.runRead(constructRunImportData());
+                        sampleProfileList = null;
+                        calbnProfileList = null;
+                        numberOfRuns++;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return numberOfRuns;
+    }
+
+    private void startElement(XMLStreamReader reader, String parent, String element) throws RunImportException {
+        if (element.equals("sample") && parent.equals("rdml")) {
+            sampleId = getId(reader, element);
+            sampleType = null;
+            sampleQuantity = Double.NaN;
+            sampleQuantityUnit = null;
+        } else if (element.equals("run") && parent.equals("experiment")) {
+            runName = getId(reader, element);
+            runDate = null;
+            numberOfRows = 0;
+            numberOfColumns = 0;
+            rowLabelFormat = null;
+            columnLabelFormat = null;
+            sampleProfileList = new ArrayList<SampleProfile>();
+            calbnProfileList = new ArrayList<CalibrationProfile>();
+        } else if (element.equals("react") && parent.equals("run")) {
+            wellNumber = (int) parseNumber(getId(reader, element), element);
+            reactionSampleId = null;
+        } else if (element.equals("sample") && parent.equals("react")) {
+            reactionSampleId = getId(reader, element);
+        } else if (element.equals("data") && parent.equals("react")) {
+            targetId = null;
+            cq = Double.NaN;
+            fcReadings.clear();
+        } else if (element.equals("tar") && parent.equals("data")) {
+            targetId = getId(reader, element);
+        } else if (element.equals("adp") && parent.equals("data")) {
+            cycle = Double.NaN;
+            fluor = Double.NaN;
+        }
+    }
+
+    private boolean readTextElement(XMLStreamReader reader, String parent, String element)
+            throws XMLStreamException, RunImportException {
+        if (parent.equals("adp")) {
+            if (element.equals("cyc")) {
+                cycle = parseNumber(reader.getElementText(), element);
+                return true;
+            }
+            if (element.equals("fluor")) {
+                fluor = parseNumber(reader.getElementText(), element);
+                return true;
+            }
+        } else if (parent.equals("data")) {
+            if (element.equals("cq")) {
+                cq = parseNumber(reader.getElementText(), element);
+                return true;
+            }
+        } else if (parent.equals("pcrFormat")) {
+            if (element.equals("rows")) {
+                numberOfRows = (int) parseNumber(reader.getElementText(), element);
+                return true;
+            }
+            if (element.equals("columns")) {
+                numberOfColumns = (int) parseNumber(reader.getElementText(), element);
+                return true;
+            }
+            if (element.equals("rowLabel")) {
+                rowLabelFormat = reader.getElementText().trim();
+                return true;
+            }
+            if (element.equals("columnLabel")) {
+                columnLabelFormat = reader.getElementText().trim();
+                return true;
+            }
+        } else if (parent.equals("run") && element.equals("runDate")) {
+            runDate = parseDate(reader.getElementText());
+            return true;
+        } else if (parent.equals("quantity")) {
+            if (element.equals("value")) {
+                sampleQuantity = parseNumber(reader.getElementText(), element);
+                return true;
+            }
+            if (element.equals("unit")) {
+                sampleQuantityUnit = reader.getElementText().trim();
+                return true;
+            }
+        } else if (parent.equals("sample") && element.equals("type")) {
+            sampleType = reader.getElementText().trim();
+            return true;
+        } else if (parent.equals("rdml") && element.equals("dateMade")) {
+            dateMade = parseDate(reader.getElementText());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the end of a Run has been reached
+     */
+    private boolean endElement(String parent, String element) throws RunImportException {
+        if (element.equals("adp") && parent.equals("data")) {
+            if (!CycleFcReadings.isWithinCycleRange(cycle)) {
+                throw new RunImportException(ERROR_TITLE,
+                        "Reaction " + wellNumber + " of run " + runName
+                        + " contains an invalid cycle number: " + cycle);
+            }
+            fcReadings.add(cycle, fluor);
+        } else if (element.equals("data") && parent.equals("react")) {
+            addProfile();
+        } else if (element.equals("sample") && parent.equals("rdml")) {
+            sampleTypes.put(sampleId, sampleType);
+            //Quantities of lambda gDNA are expected in ng, which are converted to fg
+            if (STANDARD_SAMPLE_TYPE.equals(sampleType) && "ng".equals(sampleQuantityUnit)
+                    && !Double.isNaN(sampleQuantity)) {
+                sampleLambdaMasses.put(sampleId, sampleQuantity * 1000000);
+            }
+        } else if (element.equals("run") && parent.equals("experiment")) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Constructs the Profile from the reaction data that has just been read.
+     * Reactions without amplification data are ignored.
+     */
+    private void addProfile() {
+        //Cycles without a reading are filled from the preceding reading
+        double[] rawFcReadings = fcReadings.getRawFcReadings();
+        if (rawFcReadings == null) {
+            return;
+        }
+        String sampleName = reactionSampleId == null ? "" : reactionSampleId;
+        String ampliconName = targetId == null ? "" : targetId;
+        Profile profile;
+        if (STANDARD_SAMPLE_TYPE.equals(sampleTypes.get(sampleName))) {
+            CalibrationProfile calbnProfile = new CalibrationProfile();
+            Double lambdaMass = sampleLambdaMasses.get(sampleName);
+            calbnProfile.setLambdaMass(lambdaMass == null ? 0 : lambdaMass);
+            calbnProfileList.add(calbnProfile);
+            profile = calbnProfile;
+        } else {//Must be a Sample Profile; target strandedness is set once imported
+            SampleProfile sampleProfile = new SampleProfile();
+            sampleProfileList.add(sampleProfile);
+            profile = sampleProfile;
+        }
+        profile.setWellNumber(wellNumber);
+        String wellLabel = getWellLabel(wellNumber);
+        if (wellLabel != null) {
+            profile.setWellLabel(wellLabel);
+        }
+        profile.setSampleName(sampleName);
+        profile.setAmpliconName(ampliconName);
+        profile.setName(ampliconName + "@" + sampleName);
+        if (!Double.isNaN(cq) && cq > 0) {
+            profile.setCt(cq);
+        }
+        profile.setRawFcReadings(rawFcReadings);
+    }
+
+    /**
+     * Generates the well label (e.g. A1) from the reaction position, which
+     * RDML numbers row by row based on the PCR format of the Run.
+     *
+     * @return the well label, or null if the PCR format is not available
+     */
+    private String getWellLabel(int position) {
+        if (numberOfColumns < 1 || position < 1
+                || (numberOfRows > 0 && position > numberOfRows * numberOfColumns)) {
+            return null;
+        }
+        int row = (position - 1) / numberOfColumns;
+        int column = (position - 1) % numberOfColumns;
+        return formatLabel(row, rowLabelFormat, true) + formatLabel(column, columnLabelFormat, false);
+    }
+
+    private static String formatLabel(int index, String labelFormat, boolean isRow) {
+        boolean isNumeric = labelFormat == null ? !isRow : labelFormat.equals("123");
+        if (isNumeric) {
+            return String.valueOf(index + 1);
+        }
+        //Rows beyond Z are labelled AA, AB etc.
+        StringBuilder label = new StringBuilder();
+        int remainder = index;
+        do {
+            label.insert(0, (char) ('A' + remainder % 26));
+            remainder = remainder / 26 - 1;
+        } while (remainder >= 0);
+        return label.toString();
+    }
+
+    private RunImportData constructRunImportData() {
+        Date date = runDate;
+        if (date == null) {
+            date = dateMade != null ? dateMade : new Date();
+        }
+        RunImportData importData = new RunImportData(DataImportType.STANDARD, date, runName);
+        importData.setSampleProfileList(sampleProfileList);
+        importData.setCalibrationProfileList(calbnProfileList);
+        return importData;
+    }
+
+    private static String getId(XMLStreamReader reader, String element) throws RunImportException {
+        String id = reader.getAttributeValue(null, "id");
+        if (id == null) {
+            throw new RunImportException(ERROR_TITLE,
+                    "An RDML " + element + " element does not have an id");
+        }
+        return id;
+    }
+
+    private static double parseNumber(String text, String element) throws RunImportException {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException ex) {
+            throw new RunImportException(ERROR_TITLE,
+                    "The RDML " + element + " element contains an invalid number: " + text, ex);
+        }
+    }
+
+    private static Date parseDate(String text) throws RunImportException {
+        try {
+            return DatatypeFactory.newInstance().newXMLGregorianCalendar(text.trim())
+                    .toGregorianCalendar().getTime();
+        } catch (IllegalArgumentException ex) {
+            //The date is optional, so an invalid date is ignored
+            return null;
+        } catch (DatatypeConfigurationException ex) {
+            throw new RunImportException(ERROR_TITLE, "RDML dates cannot be read", ex);
+        }
+    }
+}
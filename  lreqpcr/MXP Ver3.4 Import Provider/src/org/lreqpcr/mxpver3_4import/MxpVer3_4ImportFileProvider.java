@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.mxpver3_4import;
+
+import java.io.File;
+import org.lreqpcr.data_import_services.FcDatasetLayout;
+import org.lreqpcr.data_import_services.ImportColumn;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.lreqpcr.data_import_services.TabularImportMapping;
+import org.lreqpcr.data_import_services.TabularRunImport;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Imports a Mx3000P Version 3.4 xls export file, which is used both by the
+ * Mx3000P import provider and by batch import.
+ *
+ * @author Bob Rutledge
+ */
+@ServiceProvider(service = RunImportFileService.class)
+public class MxpVer3_4ImportFileProvider implements RunImportFileService {
+
+    private static final TabularImportMapping MAPPING = createMapping();
+
+    public String getRunImportServiceName() {
+        return "Mx3000P Ver 3.4";
+    }
+
+    public boolean isImportFile(File file) {
+        return RunImportUtilities.hasFileExtension(file, ".xls");
+    }
+
+    public RunImportData constructRunImportData(File importFile) throws RunImportException {
+        return TabularRunImport.constructRunImportData(importFile, MAPPING);
+    }
+
+    private static TabularImportMapping createMapping() {
+        TabularImportMapping mapping = new TabularImportMapping();
+        mapping.setResultSheet(1);
+        //This assumes identical order of the wells in the report and the chart sheet
+        mapping.setFcDatasetSheet(0, FcDatasetLayout.labelledBlocksByWellOrder(2, 3, "Fluorescence"));
+        mapping.setAbsentSheetError("Invalid Excel import file",
+                "One of the worksheets could not be loaded."
+                + "Be sure that \nthe first sheet contains the Fc"
+                + "datasets and the second\n sheet contains the Report Data.");
+        mapping.setRunDateCell(false, 0, 0, "The Run Date appears to be invalid. Manually entry the\n "
+                + "run date in the \"Chart Data\" sheet (sheet #1) in cell A1,\n "
+                + "save the file, and try importing the xls file again.");
+        mapping.setResultTableRows(0, 1);
+        ImportColumn wellLabelCol = ImportColumn.named("Well");
+        wellLabelCol.setAbsentError("No Well column",
+                "The \"Well\" column was not found in the Text Report sheet (sheet #1). "
+                + "Data import will be terminated.");
+        mapping.setWellLabelColumn(wellLabelCol);
+        //The sample and amplicon names are separated by a comma
+        ImportColumn wellNameCol = ImportColumn.named("Well Name");
+        wellNameCol.setAbsentError("No Well column",
+                "The \"Sample Name\" column was not found in the Text Report sheet (sheet #1). "
+                + "Data import will be terminated.");
+        mapping.setWellNameColumn(wellNameCol, "none");
+        //Designates a calibrator (Standard) from a sample profile
+        ImportColumn wellTypeCol = ImportColumn.named("Well Type");
+        wellTypeCol.setAbsentError("No Well Type column",
+                "The \"Well Type\" column was not found in the Text Report sheet (sheet #1). "
+                + "Data import will be terminated.");
+        mapping.setTaskColumn(wellTypeCol, "Standard");
+        mapping.setQuantityColumn(ImportColumn.startingWith("Quantity"));
+        mapping.setCtColumn(ImportColumn.named("Ct (dR)"));
+        mapping.setFtColumn(ImportColumn.named("Threshold (dR)"));
+        mapping.setTmColumn(ImportColumn.named("Tm Product 1 (-R'(T))"));
+        //Wells beyond the last Fc dataset are not imported
+        mapping.setWellWithoutFcDatasetSkipped(true);
+        return mapping;
+    }
+}
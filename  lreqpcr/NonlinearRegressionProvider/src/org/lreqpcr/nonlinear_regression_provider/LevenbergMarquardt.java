@@ -19,9 +19,11 @@
 package org.lreqpcr.nonlinear_regression_provider;
 
 import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolver;
+import org.ejml.factory.LinearSolverFactory;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics.StopReason;
 
 import static org.ejml.ops.CommonOps.*;
-import static org.ejml.ops.SpecializedOps.diffNormF;
 
 /**
  * <p>
@@ -37,16 +39,28 @@ import static org.ejml.ops.SpecializedOps.diffNormF;
  * In each iteration the parameters are updated using the following
  * equations:<br>
  * <br>
- * P<sub>i+1</sub> = (H + &lambda; I)<sup>-1</sup> d <br>
+ * P<sub>i+1</sub> = (H + &lambda; diag(H))<sup>-1</sup> d <br>
  * d = (1/N) Sum{ i=1..N , (f(x<sub>i</sub>;P<sub>i</sub>) - y<sub>i</sub>) *
  * jacobian(:,i) } <br>
  * H = (1/N) Sum{ i=1..N , jacobian(:,i) * jacobian(:,i)<sup>T</sup> }
  * </p>
  * <p>
+ * Damping is scaled by the diagonal of H (Marquardt's scaling) rather than
+ * the identity, as the LRE parameters differ by up to ten orders of
+ * magnitude (Fo ~1e-6 vs. Fmax in the thousands).
+ * </p>
+ * <p>
  * Whenever possible the allocation of new memory is avoided. This is
  * accomplished by reshaping matrices. A matrix that is reshaped won't grow
  * unless the new shape requires more memory than it has available.
  * </p>
+ * <p>
+ * Iteration stops when the maximum number of iterations is reached, when the
+ * improvement in cost falls below the absolute or relative cost tolerance,
+ * when the largest element of the gradient falls below the gradient
+ * tolerance, or when no step size improves the cost. The reason is
+ * available from getStopReason().
+ * </p>
  *
  * @author Peter Abeles
  */
@@ -56,6 +70,15 @@ public class LevenbergMarquardt {
 
     private final static double DELTA = 1e-8;
     private double initialLambda;
+    // termination criteria
+    private int maxIterations = 20;
+    private double absoluteCostTolerance = 1e-6;
+    private double relativeCostTolerance = 1e-10;
+    private double gradientTolerance = 1e-12;
+    // diagnostics for the most recent fit
+    private int iterations;
+    private int functionEvaluations;
+    private StopReason stopReason;
     // the function that is optimized
     private Function func;
     // the optimized parameters and associated costs
@@ -68,12 +91,14 @@ public class LevenbergMarquardt {
     private DenseMatrix64F negDelta;
     private DenseMatrix64F tempParam;
     private DenseMatrix64F A;
+    // solves A*x = d, declared once per parameter count rather than on every step
+    private LinearSolver<DenseMatrix64F> solver;
     // variables used by the numerical jacobian algorithm
     private DenseMatrix64F temp0;
     private DenseMatrix64F temp1;
     // used when computing d and H variables
     private DenseMatrix64F tempDH;
-    // Where the numerical Jacobian is stored.
+    // Where the numerical or analytic Jacobian is stored.
     private DenseMatrix64F jacobian;
 
     /**
@@ -101,6 +126,7 @@ public class LevenbergMarquardt {
         this.negDelta = new DenseMatrix64F(numParam, 1);
         this.tempParam = new DenseMatrix64F(numParam, 1);
         this.A = new DenseMatrix64F(numParam, numParam);
+        this.solver = LinearSolverFactory.linear(numParam);
     }
 
     public double getInitialCost() {
@@ -115,6 +141,49 @@ public class LevenbergMarquardt {
         return optmzParam;
     }
 
+    /**
+     * @return the number of iterations conducted by the most recent fit
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of function evaluations conducted by the most recent fit
+     */
+    public int getFunctionEvaluations() {
+        return functionEvaluations;
+    }
+
+    /**
+     * @return the reason the most recent fit was terminated
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * Sets the criteria used to terminate iteration.
+     *
+     * @param maxIterations the maximum number of iterations
+     * @param absoluteCostTolerance stop once an iteration improves the cost by
+     * less than this
+     * @param relativeCostTolerance stop once an iteration improves the cost by
+     * less than this fraction of the previous cost
+     * @param gradientTolerance stop once the largest element of the cost
+     * gradient is smaller than this
+     */
+    public void setTerminationCriteria(int maxIterations, double absoluteCostTolerance,
+            double relativeCostTolerance, double gradientTolerance) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("At least one iteration is required");
+        }
+        this.maxIterations = maxIterations;
+        this.absoluteCostTolerance = absoluteCostTolerance;
+        this.relativeCostTolerance = relativeCostTolerance;
+        this.gradientTolerance = gradientTolerance;
+    }
+
     /**
      * Finds the best fit parameters.
      *
@@ -128,6 +197,8 @@ public class LevenbergMarquardt {
             DenseMatrix64F X,
             DenseMatrix64F Y) {
         configure(initParam, X, Y);
+        iterations = 0;
+        functionEvaluations = 0;
 
         // save the cost of the initial parameters so that it knows if it improves or not
         initialCost = cost(optmzParam, X, Y);
@@ -150,22 +221,30 @@ public class LevenbergMarquardt {
             double prevCost) {
         // lambda adjusts how big of a step it takes
         double lambda = initialLambda;
-        // the difference between the current and previous cost
-        double difference = 1000;
+        stopReason = StopReason.MAX_ITERATIONS;
 
-        for (int iter = 0; iter < 20 || difference < 1e-6; iter++) {
+        while (iterations < maxIterations) {
+            iterations++;
             // compute some variables based on the gradient
             computeDandH(optmzParam, X, Y);
+            if (elementMaxAbs(d) < gradientTolerance) {
+                stopReason = StopReason.GRADIENT_TOLERANCE;
+                break;
+            }
 
-            // try various step sizes and see if any of them improve the
+            // try various step sizes until one of them improves the
             // results over what has already been done
             boolean foundBetter = false;
-            for (int i = 0; i < 5; i++) {
+            double difference = 0;
+            for (int i = 0; i < 5 && !foundBetter; i++) {
                 computeA(A, H, lambda);
 
-                if (!solve(A, d, negDelta)) {
+                // A is rebuilt from H on every attempt so the solver may modify it
+                if (!solver.setA(A)) {
+                    stopReason = StopReason.SINGULAR;
                     return false;
                 }
+                solver.solve(d, negDelta);
                 // compute the candidate parameters
                 sub(optmzParam, negDelta, tempParam);
 
@@ -184,6 +263,15 @@ public class LevenbergMarquardt {
 
             // it reached a point where it can't improve so exit
             if (!foundBetter) {
+                stopReason = StopReason.NO_IMPROVEMENT;
+                break;
+            }
+            if (difference < absoluteCostTolerance) {
+                stopReason = StopReason.ABSOLUTE_COST_TOLERANCE;
+                break;
+            }
+            if (difference < relativeCostTolerance * (prevCost + difference)) {
+                stopReason = StopReason.RELATIVE_COST_TOLERANCE;
                 break;
             }
         }
@@ -216,6 +304,7 @@ public class LevenbergMarquardt {
             this.negDelta.reshape(numParam, 1, false);
             this.tempParam.reshape(numParam, 1, false);
             this.A.reshape(numParam, numParam, false);
+            this.solver = LinearSolverFactory.linear(numParam);
         }
 
         optmzParam.set(initParam);
@@ -235,9 +324,14 @@ public class LevenbergMarquardt {
      */
     private void computeDandH(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F y) {
         func.compute(param, x, tempDH);
+        functionEvaluations++;
         subEquals(tempDH, y);
 
-        computeNumericalJacobian(param, x, jacobian);
+        if (func instanceof JacobianFunction) {
+            ((JacobianFunction) func).computeJacobian(param, x, jacobian);
+        } else {
+            computeNumericalJacobian(param, x, jacobian);
+        }
 
         int numParam = param.getNumElements();
         int length = x.getNumElements();
@@ -257,16 +351,17 @@ public class LevenbergMarquardt {
     }
 
     /**
-     * A = H + lambda*I <br>
+     * A = H + lambda*diag(H) <br>
      * <br>
-     * where I is an identity matrix.
+     * where diag(H) is the diagonal of H, which makes the damping invariant to
+     * the scale of each parameter.
      */
     private void computeA(DenseMatrix64F A, DenseMatrix64F H, double lambda) {
         final int numParam = optmzParam.getNumElements();
 
         A.set(H);
         for (int i = 0; i < numParam; i++) {
-            A.set(i, i, A.get(i, i) + lambda);
+            A.set(i, i, A.get(i, i) * (1 + lambda));
         }
     }
 
@@ -278,10 +373,19 @@ public class LevenbergMarquardt {
      */
     private double cost(DenseMatrix64F param, DenseMatrix64F X, DenseMatrix64F Y) {
         func.compute(param, X, temp0);//Bob: Compute the predicted Fc (temp0) using the current parameters (param)
+        functionEvaluations++;
+
+        //Bob: Y are the actual Fc readings
+        //Summed directly as diffNormF declares a new matrix on every call
+        double[] predicted = temp0.data;
+        double[] observed = Y.data;
+        double error = 0;
+        for (int i = 0; i < X.numRows; i++) {
+            double diff = predicted[i] - observed[i];
+            error += diff * diff;
+        }
 
-        double error = diffNormF(temp0, Y);//Bob: Y are the actual Fc readings
-
-        return error * error / (double) X.numRows;
+        return error / (double) X.numRows;
     }
 
     /**
@@ -298,6 +402,7 @@ public class LevenbergMarquardt {
         double invDelta = 1.0 / DELTA;
 
         func.compute(param, pt, temp0);
+        functionEvaluations += 1 + param.numRows;
 
         // compute the jacobian by perturbing the parameters slightly
         // then seeing how it effects the results.
@@ -328,4 +433,24 @@ public class LevenbergMarquardt {
          */
         public void compute(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F y);
     }
+
+    /**
+     * A function that is also able to supply its own analytic Jacobian. When
+     * the function being optimized implements this interface the Jacobian is
+     * taken from it rather than being approximated by perturbing each
+     * parameter.
+     */
+    public interface JacobianFunction extends Function {
+
+        /**
+         * Computes the partial derivatives of the output with respect to each
+         * parameter for each value in matrix x.
+         *
+         * @param param The parameter for the function.
+         * @param x the input points.
+         * @param jacobian where the jacobian will be stored, one row per
+         * parameter and one column per input point
+         */
+        public void computeJacobian(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F jacobian);
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import org.ejml.data.DenseMatrix64F;
+
+/**
+ * The LRE sigmoid separated into its nonlinear (Emax, Fo and Fmax) and 
+ * linear (Fb and Fb-slope) parameters. 
+ * <p>
+ * Only Emax, Fo and Fmax are presented to the fitter. For each set of these, 
+ * Fb and Fb-slope are determined in closed form by linear regression of the 
+ * residuals between the observed Fc and the sigmoid, so the predicted Fc is 
+ * the sigmoid plus its least-squares baseline (variable projection). 
+ * Because the baseline does not depend on the nonlinear parameters, the 
+ * Jacobian of this projected model is the Jacobian of the sigmoid with its 
+ * own least-squares baseline removed.
+ * <p>
+ * The observed Fc must be supplied via setObservedFc before each fit.
+ *
+ * @author Bob Rutledge
+ */
+public class Lre3ParamProjection implements LevenbergMarquardt.JacobianFunction {
+
+    private double[] observedFc;
+    //Sums over the cycle numbers used to solve the 2x2 baseline normal equations
+    private double numPoints;
+    private double sumC;
+    private double sumCSq;
+    private double determinant;
+    //Baseline determined by the most recent evaluation
+    private double fb;
+    private double fbSlope;
+
+    /**
+     * Sets the profile being fit. The arrays are referenced, not copied, 
+     * so must not be modified until the fit is complete.
+     *
+     * @param x the cycle numbers
+     * @param y the observed Fc readings
+     */
+    public void setObservedFc(DenseMatrix64F x, DenseMatrix64F y) {
+        observedFc = y.data;
+        double[] cycles = x.data;
+        numPoints = x.numRows;
+        sumC = 0;
+        sumCSq = 0;
+        for (int i = 0; i < x.numRows; i++) {
+            sumC += cycles[i];
+            sumCSq += cycles[i] * cycles[i];
+        }
+        determinant = (numPoints * sumCSq) - (sumC * sumC);
+    }
+
+    /**
+     * @return the baseline fluorescence determined by the most recent evaluation
+     */
+    public double getFb() {
+        return fb;
+    }
+
+    /**
+     * @return the baseline slope determined by the most recent evaluation
+     */
+    public double getFbSlope() {
+        return fbSlope;
+    }
+
+    @Override
+    public void compute(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F y) {
+        y.reshape(x.numRows, 1, false);
+        double[] pFcArray = y.data;//Predicted Fc
+        double[] cycles = x.data;
+        double emax = param.get(0);//Emax
+        double fo = param.get(1);//Fo
+        double fmax = param.get(2);//Fmax
+        double sumR = 0;
+        double sumCR = 0;
+        for (int i = 0; i < x.numRows; i++) {
+//This is the LRE sigmoid without the baseline
+            pFcArray[i] = fmax / (1 + ((((fmax / fo) - 1) * Math.pow(emax + 1, -cycles[i]))));
+            double residual = observedFc[i] - pFcArray[i];
+            sumR += residual;
+            sumCR += cycles[i] * residual;
+        }
+        //Linear regression of the residuals generates the baseline
+        fb = ((sumCSq * sumR) - (sumC * sumCR)) / determinant;
+        fbSlope = ((numPoints * sumCR) - (sumC * sumR)) / determinant;
+        for (int i = 0; i < x.numRows; i++) {
+            pFcArray[i] += fb + (fbSlope * cycles[i]);
+        }
+    }
+
+    /**
+     * Partial derivatives of the projected model with respect to Emax, Fo 
+     * and Fmax, in that order.
+     */
+    @Override
+    public void computeJacobian(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F jacobian) {
+        double[] cycles = x.data;
+        double[] deriv = jacobian.data;
+        int n = x.numRows;
+        double emax = param.get(0);//Emax
+        double fo = param.get(1);//Fo
+        double fmax = param.get(2);//Fmax
+        double fmaxFoRatio = (fmax / fo) - 1;
+        //Sums used to remove the least-squares baseline from each derivative
+        double sumEmax = 0, sumCEmax = 0;
+        double sumFo = 0, sumCFo = 0;
+        double sumFmax = 0, sumCFmax = 0;
+
+        for (int i = 0; i < n; i++) {
+            double c = cycles[i];
+            double q = Math.pow(emax + 1, -c);
+            double denom = 1 + (fmaxFoRatio * q);
+            double denomSq = denom * denom;
+            //dFc/dEmax
+            double dEmax = (fmax * fmaxFoRatio * c * q) / ((emax + 1) * denomSq);
+            //dFc/dFo
+            double dFo = (fmax * fmax * q) / (fo * fo * denomSq);
+            //dFc/dFmax
+            double dFmax = (1 / denom) - ((fmax * q) / (fo * denomSq));
+            deriv[i] = dEmax;
+            deriv[n + i] = dFo;
+            deriv[2 * n + i] = dFmax;
+            sumEmax += dEmax;
+            sumCEmax += c * dEmax;
+            sumFo += dFo;
+            sumCFo += c * dFo;
+            sumFmax += dFmax;
+            sumCFmax += c * dFmax;
+        }
+        removeBaseline(deriv, 0, cycles, n, sumEmax, sumCEmax);
+        removeBaseline(deriv, n, cycles, n, sumFo, sumCFo);
+        removeBaseline(deriv, 2 * n, cycles, n, sumFmax, sumCFmax);
+    }
+
+    /**
+     * Subtracts the least-squares line from one row of the Jacobian.
+     */
+    private void removeBaseline(double[] deriv, int offset, double[] cycles, int n,
+            double sumD, double sumCD) {
+        double intercept = ((sumCSq * sumD) - (sumC * sumCD)) / determinant;
+        double slope = ((numPoints * sumCD) - (sumC * sumD)) / determinant;
+        for (int i = 0; i < n; i++) {
+            deriv[offset + i] -= intercept + (slope * cycles[i]);
+        }
+    }
+}
@@ -10,14 +10,20 @@ import org.ejml.data.DenseMatrix64F;
  *
  * Computes predicted fluorescence readings (Fc) using the LRE sigmoid model
  * using 5 parameters: Fb, Fb-slope, Fmax, Emax and Fo. 
+ * <p>
+ * The closed-form partial derivatives of the model are also supplied, 
+ * which avoids the poorly scaled numerical Jacobian given that Fo is typically 
+ * ~1e-6 while Fmax is in the thousands.
  *
  * @author Bob Rutledge
  */
-public class Lre5Param implements LevenbergMarquardt.Function {
+public class Lre5Param implements LevenbergMarquardt.JacobianFunction {
 
     @Override
     public void compute(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F y) {
-        double[] pFcArray = new double[x.getNumRows()];//Predicted Fc
+        //The predicted Fc are written directly into y, which only declares new memory when it must grow
+        y.reshape(x.numRows, 1, false);
+        double[] pFcArray = y.data;//Predicted Fc
         double[] cycles = x.data;
         double emax = param.get(0);//Emax
         double fb = param.get(1);//Fluorescence baseline Fb
@@ -29,6 +35,39 @@ public class Lre5Param implements LevenbergMarquardt.Function {
 //This is the LRE 5 parameteric sigmoidal equation
             pFcArray[i] = (fmax / (1 + ((((fmax / fo) - 1) * Math.pow(emax + 1, -cycles[i]))))) + fb + (slope * cycles[i]);
         }
-        y.setData(pFcArray);
+    }
+
+    /**
+     * Partial derivatives of the LRE sigmoid with respect to Emax, Fb, Fo, 
+     * Fmax and Fb-slope, in that order.
+     * <p>
+     * With q = (Emax+1)^-c and D = 1 + (Fmax/Fo - 1)q, Fc = Fmax/D + Fb + slope*c
+     */
+    @Override
+    public void computeJacobian(DenseMatrix64F param, DenseMatrix64F x, DenseMatrix64F jacobian) {
+        double[] cycles = x.data;
+        double[] deriv = jacobian.data;
+        int numPoints = x.numRows;
+        double emax = param.get(0);//Emax
+        double fo = param.get(2);//Fo
+        double fmax = param.get(3);//Fmax
+        double fmaxFoRatio = (fmax / fo) - 1;
+
+        for (int i = 0; i < numPoints; i++) {
+            double c = cycles[i];
+            double q = Math.pow(emax + 1, -c);
+            double denom = 1 + (fmaxFoRatio * q);
+            double denomSq = denom * denom;
+            //dFc/dEmax
+            deriv[i] = (fmax * fmaxFoRatio * c * q) / ((emax + 1) * denomSq);
+            //dFc/dFb
+            deriv[numPoints + i] = 1;
+            //dFc/dFo
+            deriv[2 * numPoints + i] = (fmax * fmax * q) / (fo * fo * denomSq);
+            //dFc/dFmax
+            deriv[3 * numPoints + i] = (1 / denom) - ((fmax * q) / (fo * denomSq));
+            //dFc/dFb-slope
+            deriv[4 * numPoints + i] = c;
+        }
     }
 }
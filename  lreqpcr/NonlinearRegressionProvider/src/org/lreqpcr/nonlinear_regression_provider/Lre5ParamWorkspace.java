@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import org.ejml.data.DenseMatrix64F;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+
+/**
+ * Workspace that fits all 5 parameters of the LRE model, including Fb and 
+ * Fb-slope, via Levenberg-Marquardt.
+ *
+ * @author Bob Rutledge
+ */
+class Lre5ParamWorkspace extends NonlinearRegressionWorkspace {
+
+    Lre5ParamWorkspace() {
+        super(new Lre5Param(), 5);
+    }
+
+    @Override
+    void setInitialParameters(LreParameters iniParam, DenseMatrix64F cycle,
+            DenseMatrix64F fc, double[] paramArray) {
+        paramArray[0] = iniParam.getEmax();//LRE-derived Emax
+        paramArray[1] = iniParam.getFb();//Fb derived from Fc average (e.g. cycles 4-9)
+        paramArray[2] = iniParam.getFo();//LRE-derived Fo
+        paramArray[3] = iniParam.getFmax();//LRE-derived Fmax
+        paramArray[4] = iniParam.getFbSlope();//Baseline slope 
+    }
+
+    @Override
+    void getOptimizedParameters(double[] optParamArray, DenseMatrix64F cycle,
+            DenseMatrix64F fc, LreParameters optParam) {
+        optParam.setEmax(optParamArray[0]);
+        optParam.setFb(optParamArray[1]);
+        optParam.setFo(optParamArray[2]);
+        optParam.setFmax(optParamArray[3]);
+        optParam.setFbSlope(optParamArray[4]);
+    }
+}
@@ -16,11 +16,14 @@
  */
 package org.lreqpcr.nonlinear_regression_provider;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
-import org.ejml.data.DenseMatrix64F;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import org.lreqpcr.nonlinear_regression_services.LreParameters;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics.StopReason;
 import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionServices;
 import org.openide.util.lookup.ServiceProvider;
 
@@ -30,49 +33,199 @@ import org.openide.util.lookup.ServiceProvider;
  * <p>
  * The analysis uses the 5 parametric LRE model that include baseline fluorescence 
  * and baseline slope correction, as declared within the LreParameters class. 
+ * Because Lre5Param supplies its own closed-form Jacobian, the fitter uses 
+ * analytic derivatives rather than perturbing each parameter on every iteration.
+ * <p>
+ * Fitting is conducted within a preallocated NonlinearRegressionWorkspace, such 
+ * that repeated fits using the primitive array method declare no new objects.
+ * Each calling thread is given its own workspace, so this provider is 
+ * reentrant and profiles can be analyzed concurrently. Batches of profiles 
+ * are split across a fork-join pool that uses all available processors. 
+ * The pool is shared by all instances and its threads are daemon threads, 
+ * so it never needs to be shut down.
+ * <p>
+ * This is the default provider. Subclasses can fit an alternative model 
+ * by supplying their own workspace.
  * 
  * @author Bob Rutledge
  */
-@ServiceProvider(service = NonlinearRegressionServices.class)
+@ServiceProvider(service = NonlinearRegressionServices.class, position = 100)
 public class NonlinearRegressionProvider extends NonlinearRegressionServices {
+
+    public static final String NAME = "5 parameter";
     
-    private Lre5Param func = new Lre5Param();
-    private LevenbergMarquardt fitter = new LevenbergMarquardt(func);
-    private DenseMatrix64F initialParam = new DenseMatrix64F(5, 1);
+    //A workspace is not thread safe, so each thread fits within its own workspace
+    private final ThreadLocal<NonlinearRegressionWorkspace> workspace = new ThreadLocal<NonlinearRegressionWorkspace>() {
+
+        @Override
+        protected NonlinearRegressionWorkspace initialValue() {
+            return createWorkspace();
+        }
+    };
+    //Batches smaller than this are fit by the calling thread
+    private static final int BATCH_THRESHOLD = 16;
+    //Termination criteria applied to every workspace before each fit
+    private volatile int maxIterations = 20;
+    private volatile double absoluteCostTolerance = 1e-6;
+    private volatile double relativeCostTolerance = 1e-10;
+    private volatile double gradientTolerance = 1e-12;
+
+    /**
+     * @return a new workspace for a thread that has not yet conducted a regression
+     */
+    NonlinearRegressionWorkspace createWorkspace() {
+        return new Lre5ParamWorkspace();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
 
     @Override
     public LreParameters conductNonlinearRegression(LreParameters iniParam, TreeMap<Integer, Double> cycleFc) {
-        List<Integer> cycleArray = new ArrayList<Integer>(cycleFc.keySet());
-        double[] cycles = new double[cycleArray.size()];
-        double[] fcReadings = new double[cycleArray.size()];
+        double[] cycles = new double[cycleFc.size()];
+        double[] fcReadings = new double[cycleFc.size()];
         //Construct the double arrays
-        for (int i = 0; i < cycles.length; i++) {
-            cycles[i] = cycleArray.get(i);
-            fcReadings[i] = cycleFc.get(cycleArray.get(i));
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : cycleFc.entrySet()) {
+            cycles[i] = entry.getKey();
+            fcReadings[i] = entry.getValue();
+            i++;
         }
-        //DenseMatrix require double[]
-        DenseMatrix64F cycle = new DenseMatrix64F(cycleArray.size(), 1);
-        cycle.setData(cycles);
-        DenseMatrix64F fc = new DenseMatrix64F(cycleArray.size(), 1);
-        fc.setData(fcReadings);
-        //Contruct the initial paramater array
-        double[] paramArray = new double[5];
-        paramArray[0] = iniParam.getEmax();//LRE-derived Emax
-        paramArray[1] = iniParam.getFb();//Fb derived from Fc average (e.g. cycles 4-9)
-        paramArray[2] = iniParam.getFo();//LRE-derived Fo
-        paramArray[3] = iniParam.getFmax();//LRE-derived Fmax
-        paramArray[4] = iniParam.getFbSlope();//Baseline slope 
-        initialParam.setData(paramArray);
-        //Returns true even when the NR fails!!!
-        fitter.optimize(initialParam, cycle, fc);
-        //Retrieve and set the optimized parameters
-        double[] optParamArray = fitter.getOptimizedParameters().getData();
         LreParameters optzParam = new LreParameters();
-        optzParam.setEmax(optParamArray[0]);
-        optzParam.setFb(optParamArray[1]);
-        optzParam.setFo(optParamArray[2]);
-        optzParam.setFmax(optParamArray[3]);
-        optzParam.setFbSlope(optParamArray[4]);
+        conductNonlinearRegression(iniParam, cycles, fcReadings, optzParam);
         return optzParam;
     }
+
+    @Override
+    public void conductNonlinearRegression(LreParameters iniParam, double[] cycles, double[] fcReadings, LreParameters optParam) {
+        if (cycles.length != fcReadings.length) {
+            throw new IllegalArgumentException("Number of cycles and Fc readings must be equal");
+        }
+        getWorkspace().fit(iniParam, cycles, fcReadings, 0, cycles.length, optParam);
+    }
+
+    @Override
+    public NonlinearRegressionDiagnostics getDiagnostics() {
+        return workspace.get().getDiagnostics();
+    }
+
+    @Override
+    public void setTerminationCriteria(int maxIterations, double absoluteCostTolerance,
+            double relativeCostTolerance, double gradientTolerance) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("At least one iteration is required");
+        }
+        this.maxIterations = maxIterations;
+        this.absoluteCostTolerance = absoluteCostTolerance;
+        this.relativeCostTolerance = relativeCostTolerance;
+        this.gradientTolerance = gradientTolerance;
+    }
+
+    /**
+     * @return the calling thread's workspace, configured with the current termination criteria
+     */
+    private NonlinearRegressionWorkspace getWorkspace() {
+        NonlinearRegressionWorkspace threadWorkspace = workspace.get();
+        threadWorkspace.setTerminationCriteria(maxIterations, absoluteCostTolerance,
+                relativeCostTolerance, gradientTolerance);
+        return threadWorkspace;
+    }
+
+    @Override
+    public void conductNonlinearRegression(double[] cycles, double[] fcReadings,
+            int[] offsets, int[] lengths, LreParameters[] iniParams,
+            LreParameters[] optParams, double[] finalCosts, boolean[] converged) {
+        if (cycles.length != fcReadings.length) {
+            throw new IllegalArgumentException("Number of cycles and Fc readings must be equal");
+        }
+        int numberOfProfiles = offsets.length;
+        if (lengths.length != numberOfProfiles || iniParams.length < numberOfProfiles
+                || optParams.length < numberOfProfiles || finalCosts.length < numberOfProfiles
+                || converged.length < numberOfProfiles) {
+            throw new IllegalArgumentException("Each profile must have an offset, length, initial and output parameters");
+        }
+        BatchFit batch = new BatchFit(cycles, fcReadings, offsets, lengths, iniParams,
+                optParams, finalCosts, converged, 0, numberOfProfiles);
+        if (numberOfProfiles <= BATCH_THRESHOLD) {
+            batch.compute();
+        } else {
+            PoolHolder.POOL.invoke(batch);
+        }
+    }
+
+    /**
+     * Holds the pool used to fit batches, which is created when the first 
+     * batch too large to be fit by the calling thread is received.
+     */
+    private static class PoolHolder {
+
+        //Sized as for the other fork-join pools, i.e. one thread per processor
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        //Idle workers must not prevent the application from exiting
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, null, false);
+    }
+
+    /**
+     * Fits a range of profiles within a batch, splitting the range in half 
+     * until it is small enough to be fit sequentially.
+     */
+    private class BatchFit extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final double[] cycles;
+        private final double[] fcReadings;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final LreParameters[] iniParams;
+        private final LreParameters[] optParams;
+        private final double[] finalCosts;
+        private final boolean[] converged;
+        private final int start;
+        private final int end;
+
+        BatchFit(double[] cycles, double[] fcReadings, int[] offsets, int[] lengths,
+                LreParameters[] iniParams, LreParameters[] optParams,
+                double[] finalCosts, boolean[] converged, int start, int end) {
+            this.cycles = cycles;
+            this.fcReadings = fcReadings;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.iniParams = iniParams;
+            this.optParams = optParams;
+            this.finalCosts = finalCosts;
+            this.converged = converged;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_THRESHOLD) {
+                NonlinearRegressionWorkspace threadWorkspace = getWorkspace();
+                for (int i = start; i < end; i++) {
+                    NonlinearRegressionDiagnostics diagnostics = threadWorkspace.fit(iniParams[i], cycles, fcReadings,
+                            offsets[i], lengths[i], optParams[i]);
+                    finalCosts[i] = diagnostics.getFinalCost();
+                    //A step that fails to reduce the cost does not establish that a minimum was reached
+                    converged[i] = diagnostics.hasConverged()
+                            && diagnostics.getStopReason() != StopReason.NO_IMPROVEMENT;
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new BatchFit(cycles, fcReadings, offsets, lengths, iniParams,
+                    optParams, finalCosts, converged, start, middle),
+                    new BatchFit(cycles, fcReadings, offsets, lengths, iniParams,
+                    optParams, finalCosts, converged, middle, end));
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import org.ejml.data.DenseMatrix64F;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics;
+
+/**
+ * Preallocated working storage for fitting the LRE model to one profile 
+ * at a time. 
+ * <p>
+ * The fitter and all of the matrices it operates on are declared once and 
+ * then reshaped for each profile, so that once they have grown to the 
+ * longest profile processed, a fit declares no new objects. Subclasses 
+ * determine which of the LRE parameters are optimized by the fitter and 
+ * how they are converted to and from the LreParameters. 
+ * A workspace is not thread safe and must only be used by one fit at a time.
+ *
+ * @author Bob Rutledge
+ */
+abstract class NonlinearRegressionWorkspace {
+
+    private LevenbergMarquardt fitter;
+    private DenseMatrix64F initialParam;
+    private DenseMatrix64F cycle = new DenseMatrix64F(1, 1);
+    private DenseMatrix64F fc = new DenseMatrix64F(1, 1);
+    private NonlinearRegressionDiagnostics diagnostics = new NonlinearRegressionDiagnostics();
+
+    /**
+     * @param func the model function to be fit
+     * @param numParam the number of parameters optimized by the fitter
+     */
+    NonlinearRegressionWorkspace(LevenbergMarquardt.Function func, int numParam) {
+        fitter = new LevenbergMarquardt(func);
+        initialParam = new DenseMatrix64F(numParam, 1);
+    }
+
+    /**
+     * Sets the criteria used to terminate iteration of subsequent fits.
+     *
+     * @see LevenbergMarquardt#setTerminationCriteria(int, double, double, double)
+     */
+    void setTerminationCriteria(int maxIterations, double absoluteCostTolerance,
+            double relativeCostTolerance, double gradientTolerance) {
+        fitter.setTerminationCriteria(maxIterations, absoluteCostTolerance,
+                relativeCostTolerance, gradientTolerance);
+    }
+
+    /**
+     * @return the diagnostics of the most recent fit, which are overwritten by the next fit
+     */
+    NonlinearRegressionDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Fits the LRE model to the cycles and Fc readings held within the 
+     * supplied arrays, starting at offset.
+     *
+     * @param iniParam initial values for the 5 LRE parameters
+     * @param cycles the cycle numbers 
+     * @param fcReadings the observed Fc readings corresponding to each cycle number
+     * @param offset the index of the first cycle to include
+     * @param length the number of cycles to include
+     * @param optParam receives the optimized parameters
+     * @return the diagnostics of this fit, which are overwritten by the next fit
+     */
+    NonlinearRegressionDiagnostics fit(LreParameters iniParam, double[] cycles, double[] fcReadings,
+            int offset, int length, LreParameters optParam) {
+        //Reshaping only declares new memory when the profile is longer than any previous profile
+        cycle.reshape(length, 1, false);
+        fc.reshape(length, 1, false);
+        System.arraycopy(cycles, offset, cycle.data, 0, length);
+        System.arraycopy(fcReadings, offset, fc.data, 0, length);
+        setInitialParameters(iniParam, cycle, fc, initialParam.data);
+        //Returns true even when the NR fails!!!
+        fitter.optimize(initialParam, cycle, fc);
+        getOptimizedParameters(fitter.getOptimizedParameters().data, cycle, fc, optParam);
+        diagnostics.setIterations(fitter.getIterations());
+        diagnostics.setFunctionEvaluations(fitter.getFunctionEvaluations());
+        diagnostics.setInitialCost(fitter.getInitialCost());
+        diagnostics.setFinalCost(fitter.getFinalCost());
+        diagnostics.setStopReason(fitter.getStopReason());
+        return diagnostics;
+    }
+
+    /**
+     * Constructs the initial parameter array optimized by the fitter.
+     *
+     * @param iniParam initial values for the 5 LRE parameters
+     * @param cycle the cycle numbers to be fit
+     * @param fc the observed Fc readings to be fit
+     * @param paramArray receives the initial values of the fitted parameters
+     */
+    abstract void setInitialParameters(LreParameters iniParam, DenseMatrix64F cycle,
+            DenseMatrix64F fc, double[] paramArray);
+
+    /**
+     * Sets the 5 LRE parameters from the parameters optimized by the fitter.
+     *
+     * @param optParamArray the optimized values of the fitted parameters
+     * @param cycle the cycle numbers that were fit
+     * @param fc the observed Fc readings that were fit
+     * @param optParam receives the optimized LRE parameters
+     */
+    abstract void getOptimizedParameters(double[] optParamArray, DenseMatrix64F cycle,
+            DenseMatrix64F fc, LreParameters optParam);
+}
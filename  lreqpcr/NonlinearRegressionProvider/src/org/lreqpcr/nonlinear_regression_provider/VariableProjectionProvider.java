@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionServices;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ * Nonlinear regression analysis using variable projection (separable 
+ * least squares). 
+ * <p>
+ * Fb and Fb-slope enter the LRE model linearly, so for any Emax, Fo and Fmax 
+ * their optimal values can be determined in closed form by linear regression. 
+ * Levenberg-Marquardt therefore only searches the 3 dimensional space of 
+ * the nonlinear parameters, which generally requires fewer iterations and 
+ * is not dependent on the initial Fb and Fb-slope. 
+ * <p>
+ * This provider is registered after the 5 parameter provider, so it must be 
+ * selected by name.
+ *
+ * @author Bob Rutledge
+ * @see Lre3ParamProjection
+ */
+@ServiceProvider(service = NonlinearRegressionServices.class, position = 200)
+public class VariableProjectionProvider extends NonlinearRegressionProvider {
+
+    public static final String NAME = "Variable projection";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    NonlinearRegressionWorkspace createWorkspace() {
+        return new VariableProjectionWorkspace();
+    }
+}
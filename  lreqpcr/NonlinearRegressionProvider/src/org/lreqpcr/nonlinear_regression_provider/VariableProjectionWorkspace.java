@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import org.ejml.data.DenseMatrix64F;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+
+/**
+ * Workspace that fits only Emax, Fo and Fmax via Levenberg-Marquardt, 
+ * with Fb and Fb-slope solved in closed form within every evaluation.
+ * The initial Fb and Fb-slope are therefore not used.
+ *
+ * @author Bob Rutledge
+ * @see Lre3ParamProjection
+ */
+class VariableProjectionWorkspace extends NonlinearRegressionWorkspace {
+
+    private Lre3ParamProjection func;
+    private DenseMatrix64F param = new DenseMatrix64F(3, 1);
+    private DenseMatrix64F predictedFc = new DenseMatrix64F(1, 1);
+
+    VariableProjectionWorkspace() {
+        this(new Lre3ParamProjection());
+    }
+
+    private VariableProjectionWorkspace(Lre3ParamProjection func) {
+        super(func, 3);
+        this.func = func;
+    }
+
+    @Override
+    void setInitialParameters(LreParameters iniParam, DenseMatrix64F cycle,
+            DenseMatrix64F fc, double[] paramArray) {
+        func.setObservedFc(cycle, fc);
+        paramArray[0] = iniParam.getEmax();//LRE-derived Emax
+        paramArray[1] = iniParam.getFo();//LRE-derived Fo
+        paramArray[2] = iniParam.getFmax();//LRE-derived Fmax
+    }
+
+    @Override
+    void getOptimizedParameters(double[] optParamArray, DenseMatrix64F cycle,
+            DenseMatrix64F fc, LreParameters optParam) {
+        //The baseline of the optimized parameters is determined by evaluating them
+        System.arraycopy(optParamArray, 0, param.data, 0, 3);
+        func.compute(param, cycle, predictedFc);
+        optParam.setEmax(optParamArray[0]);
+        optParam.setFb(func.getFb());
+        optParam.setFo(optParamArray[1]);
+        optParam.setFmax(optParamArray[2]);
+        optParam.setFbSlope(func.getFbSlope());
+    }
+}
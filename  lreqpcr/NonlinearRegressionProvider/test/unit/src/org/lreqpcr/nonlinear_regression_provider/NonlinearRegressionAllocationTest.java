@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+
+/**
+ * Measures the memory allocated by the calling thread while fitting
+ * profiles via the primitive array method, which once the workspace has
+ * grown to the longest profile should declare no new objects.
+ * <p>
+ * Allocation is measured via the HotSpot ThreadMXBean, so the test is
+ * skipped on virtual machines that do not support it.
+ *
+ * @author Bob Rutledge
+ */
+public class NonlinearRegressionAllocationTest {
+
+    private static final int WARMUP_FITS = 5000;
+    private static final int MEASURED_FITS = 20000;
+    //Allows for the allocation counter itself, but not for anything allocated per fit
+    private static final long ALLOCATION_ALLOWANCE = 1024;
+
+    @Test
+    public void testSteadyStateFitAllocatesNothing() {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        if (threadBean == null) {
+            return;
+        }
+        NonlinearRegressionProvider provider = new NonlinearRegressionProvider();
+        Random random = new Random(2);
+        SyntheticProfile[] profiles = new SyntheticProfile[100];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = new SyntheticProfile(random, 0.002);
+        }
+        LreParameters optParam = new LreParameters();
+        for (int i = 0; i < WARMUP_FITS; i++) {
+            SyntheticProfile profile = profiles[i % profiles.length];
+            provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FITS; i++) {
+            SyntheticProfile profile = profiles[i % profiles.length];
+            provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+        }
+        allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+        assertTrue(allocatedBytes + " bytes were allocated by " + MEASURED_FITS + " fits ("
+                + (double) allocatedBytes / MEASURED_FITS + " bytes per fit)",
+                allocatedBytes <= ALLOCATION_ALLOWANCE);
+    }
+
+    @Test
+    public void testLongerProfileOnlyGrowsTheWorkspace() {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        if (threadBean == null) {
+            return;
+        }
+        NonlinearRegressionProvider provider = new NonlinearRegressionProvider();
+        SyntheticProfile profile = new SyntheticProfile(new Random(3), 0.002);
+        LreParameters optParam = new LreParameters();
+        //A shorter profile fit after a longer one must reuse the workspace
+        provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+        double[] cycles = new double[profile.cycles.length - 10];
+        double[] fcReadings = new double[cycles.length];
+        System.arraycopy(profile.cycles, 0, cycles, 0, cycles.length);
+        System.arraycopy(profile.fcReadings, 0, fcReadings, 0, cycles.length);
+        for (int i = 0; i < WARMUP_FITS; i++) {
+            provider.conductNonlinearRegression(profile.iniParam, cycles, fcReadings, optParam);
+            provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FITS / 2; i++) {
+            provider.conductNonlinearRegression(profile.iniParam, cycles, fcReadings, optParam);
+            provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+        }
+        allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+        assertTrue(allocatedBytes + " bytes were allocated when alternating profile lengths",
+                allocatedBytes <= ALLOCATION_ALLOWANCE);
+    }
+
+    /**
+     * @return the thread bean with allocation measurement enabled, or null
+     * if allocation cannot be measured
+     */
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+}
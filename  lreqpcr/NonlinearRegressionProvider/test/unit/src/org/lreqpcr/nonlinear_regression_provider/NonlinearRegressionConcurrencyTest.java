@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics.StopReason;
+
+/**
+ * Fits thousands of synthetic profiles from many threads through one
+ * shared provider, as occurs when the registered provider is used to
+ * analyze profiles concurrently, and checks that every fit is identical
+ * to the same fit conducted by a single thread.
+ *
+ * @author Bob Rutledge
+ */
+public class NonlinearRegressionConcurrencyTest {
+
+    private static final int NUMBER_OF_PROFILES = 4000;
+    private static final int NUMBER_OF_THREADS = 8;
+    //Each thread fits every profile this many times
+    private static final int PASSES = 2;
+
+    @Test
+    public void testFiveParameterProviderIsReentrant() throws Exception {
+        assertConcurrentFitsMatch(new NonlinearRegressionProvider());
+    }
+
+    @Test
+    public void testVariableProjectionProviderIsReentrant() throws Exception {
+        assertConcurrentFitsMatch(new VariableProjectionProvider());
+    }
+
+    private void assertConcurrentFitsMatch(final NonlinearRegressionProvider provider) throws Exception {
+        Random random = new Random(4);
+        final SyntheticProfile[] profiles = new SyntheticProfile[NUMBER_OF_PROFILES];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = new SyntheticProfile(random, 0.005);
+        }
+        //The reference fits are conducted by a separate instance on this thread
+        NonlinearRegressionProvider singleThreadProvider = provider instanceof VariableProjectionProvider
+                ? new VariableProjectionProvider() : new NonlinearRegressionProvider();
+        final LreParameters[] expectedParams = new LreParameters[NUMBER_OF_PROFILES];
+        final double[] expectedCosts = new double[NUMBER_OF_PROFILES];
+        for (int i = 0; i < profiles.length; i++) {
+            expectedParams[i] = new LreParameters();
+            singleThreadProvider.conductNonlinearRegression(profiles[i].iniParam,
+                    profiles[i].cycles, profiles[i].fcReadings, expectedParams[i]);
+            expectedCosts[i] = singleThreadProvider.getDiagnostics().getFinalCost();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        try {
+            for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+                final int firstProfile = t * (NUMBER_OF_PROFILES / NUMBER_OF_THREADS);
+                results.add(executor.submit(new Callable<Integer>() {
+
+                    @Override
+                    public Integer call() throws Exception {
+                        LreParameters optParam = new LreParameters();
+                        int numberOfFits = 0;
+                        startSignal.await();
+                        //Each thread starts at a different profile so that different profiles are fit at the same time
+                        for (int n = 0; n < NUMBER_OF_PROFILES * PASSES; n++) {
+                            int i = (firstProfile + n) % NUMBER_OF_PROFILES;
+                            provider.conductNonlinearRegression(profiles[i].iniParam,
+                                    profiles[i].cycles, profiles[i].fcReadings, optParam);
+                            NonlinearRegressionDiagnostics diagnostics = provider.getDiagnostics();
+                            assertParametersEqual("Profile " + i, expectedParams[i], optParam);
+                            assertEquals("Profile " + i + " final cost", expectedCosts[i], diagnostics.getFinalCost(), 0);
+                            numberOfFits++;
+                        }
+                        return numberOfFits;
+                    }
+                }));
+            }
+            startSignal.countDown();
+            int numberOfFits = 0;
+            for (Future<Integer> result : results) {
+                //Rethrows any assertion failure within a thread
+                numberOfFits += result.get();
+            }
+            assertEquals(NUMBER_OF_PROFILES * PASSES * NUMBER_OF_THREADS, numberOfFits);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchFitMatchesSingleThreadFits() {
+        NonlinearRegressionProvider provider = new NonlinearRegressionProvider();
+        Random random = new Random(5);
+        int numberOfCycles = SyntheticProfile.NUMBER_OF_CYCLES - SyntheticProfile.FIRST_CYCLE + 1;
+        double[] cycles = new double[NUMBER_OF_PROFILES * numberOfCycles];
+        double[] fcReadings = new double[cycles.length];
+        int[] offsets = new int[NUMBER_OF_PROFILES];
+        int[] lengths = new int[NUMBER_OF_PROFILES];
+        LreParameters[] iniParams = new LreParameters[NUMBER_OF_PROFILES];
+        LreParameters[] optParams = new LreParameters[NUMBER_OF_PROFILES];
+        LreParameters[] expectedParams = new LreParameters[NUMBER_OF_PROFILES];
+        boolean[] expectedConverged = new boolean[NUMBER_OF_PROFILES];
+        for (int i = 0; i < NUMBER_OF_PROFILES; i++) {
+            SyntheticProfile profile = new SyntheticProfile(random, 0.005);
+            offsets[i] = i * numberOfCycles;
+            lengths[i] = numberOfCycles;
+            System.arraycopy(profile.cycles, 0, cycles, offsets[i], numberOfCycles);
+            System.arraycopy(profile.fcReadings, 0, fcReadings, offsets[i], numberOfCycles);
+            iniParams[i] = profile.iniParam;
+            optParams[i] = new LreParameters();
+            expectedParams[i] = new LreParameters();
+            provider.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, expectedParams[i]);
+            NonlinearRegressionDiagnostics diagnostics = provider.getDiagnostics();
+            expectedConverged[i] = diagnostics.hasConverged()
+                    && diagnostics.getStopReason() != StopReason.NO_IMPROVEMENT;
+        }
+        boolean[] converged = new boolean[NUMBER_OF_PROFILES];
+        provider.conductNonlinearRegression(cycles, fcReadings, offsets, lengths, iniParams,
+                optParams, new double[NUMBER_OF_PROFILES], converged);
+        for (int i = 0; i < NUMBER_OF_PROFILES; i++) {
+            assertParametersEqual("Profile " + i, expectedParams[i], optParams[i]);
+            assertEquals("Profile " + i + " converged", expectedConverged[i], converged[i]);
+        }
+        //The batch pool is never shut down, so its threads must not prevent the application from exiting
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("ForkJoinPool-")) {
+                assertTrue(thread.getName() + " is not a daemon thread", thread.isDaemon());
+            }
+        }
+    }
+
+    /**
+     * The fits are deterministic, so concurrent fits must be bitwise identical.
+     */
+    private static void assertParametersEqual(String message, LreParameters expected, LreParameters actual) {
+        assertEquals(message + " Emax", expected.getEmax(), actual.getEmax(), 0);
+        assertEquals(message + " Fb", expected.getFb(), actual.getFb(), 0);
+        assertEquals(message + " Fo", expected.getFo(), actual.getFo(), 0);
+        assertEquals(message + " Fmax", expected.getFmax(), actual.getFmax(), 0);
+        assertEquals(message + " Fb-slope", expected.getFbSlope(), actual.getFbSlope(), 0);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+
+/**
+ * A profile from the example RDML file (rdml_example.xml), held within
+ * rdml_example_profiles.txt as the well label followed by the raw Fc
+ * reading of each cycle.
+ * <p>
+ * As for LRE analysis, the profile is trimmed to exclude cycles 1-3 and the
+ * plateau phase, here taken as more than 3 cycles above C1/2. The initial
+ * parameters are crude estimates, as LRE analysis is not available.
+ *
+ * @author Bob Rutledge
+ */
+class RealProfile {
+
+    private static final String PROFILE_FILE = "rdml_example_profiles.txt";
+    //Early cycles are trimmed prior to nonlinear regression
+    private static final int FIRST_CYCLE = 4;
+    final String wellLabel;
+    final double[] cycles;
+    final double[] fcReadings;
+    final LreParameters iniParam = new LreParameters();
+
+    private RealProfile(String wellLabel, double[] cycles, double[] fcReadings) {
+        this.wellLabel = wellLabel;
+        this.cycles = cycles;
+        this.fcReadings = fcReadings;
+    }
+
+    /**
+     * Loads the example profiles that have been amplified.
+     *
+     * @return the trimmed profiles
+     * @throws IOException if the profile file cannot be read
+     */
+    static List<RealProfile> loadAmplifiedProfiles() throws IOException {
+        List<RealProfile> profileList = new ArrayList<RealProfile>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                RealProfile.class.getResourceAsStream(PROFILE_FILE), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                double[] rawFc = new double[fields.length - 1];
+                for (int i = 0; i < rawFc.length; i++) {
+                    rawFc[i] = Double.parseDouble(fields[i + 1]);
+                }
+                RealProfile profile = trimProfile(fields[0], rawFc);
+                if (profile != null) {
+                    profileList.add(profile);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return profileList;
+    }
+
+    /**
+     * @return the trimmed profile, or null if the profile was not amplified
+     */
+    private static RealProfile trimProfile(String wellLabel, double[] rawFc) {
+        //Fb is derived from the average Fc of cycles 4-9, as is done by LRE analysis
+        double fb = 0;
+        for (int i = FIRST_CYCLE - 1; i < 9; i++) {
+            fb += rawFc[i];
+        }
+        fb /= 9 - FIRST_CYCLE + 1;
+        double baselineSD = 0;
+        for (int i = FIRST_CYCLE - 1; i < 9; i++) {
+            baselineSD += (rawFc[i] - fb) * (rawFc[i] - fb);
+        }
+        baselineSD = Math.sqrt(baselineSD / (9 - FIRST_CYCLE));
+        double maxFc = rawFc[0];
+        for (double fc : rawFc) {
+            maxFc = Math.max(maxFc, fc);
+        }
+        double amplitude = maxFc - fb;
+        if (amplitude < 50 * baselineSD) {
+            return null;
+        }
+        //C1/2 is taken as the first cycle reaching half of the amplitude
+        int midC = FIRST_CYCLE;
+        while (rawFc[midC - 1] - fb < amplitude / 2) {
+            midC++;
+        }
+        int lastCycle = Math.min(rawFc.length, midC + 3);
+        int numberOfCycles = lastCycle - FIRST_CYCLE + 1;
+        double[] cycles = new double[numberOfCycles];
+        double[] fcReadings = new double[numberOfCycles];
+        for (int i = 0; i < numberOfCycles; i++) {
+            cycles[i] = FIRST_CYCLE + i;
+            fcReadings[i] = rawFc[FIRST_CYCLE - 1 + i];
+        }
+        RealProfile profile = new RealProfile(wellLabel, cycles, fcReadings);
+        profile.iniParam.setEmax(0.9);
+        profile.iniParam.setFmax(amplitude);
+        profile.iniParam.setFo(amplitude / (1 + Math.pow(1.9, midC)));
+        profile.iniParam.setFb(fb);
+        profile.iniParam.setFbSlope(0);
+        return profile;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.util.Random;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+
+/**
+ * A profile generated from the 5 parameter LRE model with random noise,
+ * along with initial parameters that deviate from those used to generate
+ * the profile, as would be derived from LRE analysis.
+ *
+ * @author Bob Rutledge
+ */
+class SyntheticProfile {
+
+    static final int NUMBER_OF_CYCLES = 40;
+    //Early cycles are trimmed prior to nonlinear regression
+    static final int FIRST_CYCLE = 4;
+    final double[] cycles;
+    final double[] fcReadings;
+    final LreParameters trueParam = new LreParameters();
+    final LreParameters iniParam = new LreParameters();
+
+    /**
+     * @param random the source of the model parameters and noise
+     * @param noise the standard deviation of the noise relative to Fmax
+     */
+    SyntheticProfile(Random random, double noise) {
+        double emax = 0.8 + random.nextDouble() * 0.15;
+        double fmax = 5000 + random.nextDouble() * 10000;
+        double midC = 18 + random.nextDouble() * 10;
+        //Fo places C1/2 at midC
+        double fo = fmax / (1 + Math.pow(emax + 1, midC));
+        double fb = 100 + random.nextDouble() * 400;
+        double fbSlope = (random.nextDouble() - 0.5) * 4;
+        trueParam.setEmax(emax);
+        trueParam.setFmax(fmax);
+        trueParam.setFo(fo);
+        trueParam.setFb(fb);
+        trueParam.setFbSlope(fbSlope);
+        int numberOfCycles = NUMBER_OF_CYCLES - FIRST_CYCLE + 1;
+        cycles = new double[numberOfCycles];
+        fcReadings = new double[numberOfCycles];
+        for (int i = 0; i < numberOfCycles; i++) {
+            double c = FIRST_CYCLE + i;
+            cycles[i] = c;
+            fcReadings[i] = (fmax / (1 + (((fmax / fo) - 1) * Math.pow(emax + 1, -c))))
+                    + fb + (fbSlope * c) + (random.nextGaussian() * noise * fmax);
+        }
+        iniParam.setEmax(emax * (0.95 + random.nextDouble() * 0.1));
+        iniParam.setFmax(fmax * (0.9 + random.nextDouble() * 0.2));
+        iniParam.setFo(fo * (0.7 + random.nextDouble() * 0.6));
+        //Fb is derived from the average Fc of the early cycles
+        iniParam.setFb(fb + (fbSlope * 6.5));
+        iniParam.setFbSlope(0);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics;
+
+/**
+ * Compares the accuracy of the variable projection provider with that of
+ * the 5 parameter provider, using synthetic profiles with known parameters
+ * and the amplified profiles of the example RDML file.
+ *
+ * @author Bob Rutledge
+ * @see VariableProjectionBenchmark
+ */
+public class VariableProjectionAccuracyTest {
+
+    private static final int NUMBER_OF_PROFILES = 1000;
+
+    @Test
+    public void testSyntheticBaselineIsRecovered() {
+        NonlinearRegressionProvider fiveParam = new NonlinearRegressionProvider();
+        NonlinearRegressionProvider projection = new VariableProjectionProvider();
+        Random random = new Random(7);
+        LreParameters fiveParamOpt = new LreParameters();
+        LreParameters projectionOpt = new LreParameters();
+        double fiveParamFbError = 0;
+        double projectionFbError = 0;
+        double fiveParamEmaxError = 0;
+        double projectionEmaxError = 0;
+        int fiveParamConverged = 0;
+        int projectionConverged = 0;
+        for (int i = 0; i < NUMBER_OF_PROFILES; i++) {
+            SyntheticProfile profile = new SyntheticProfile(random, 0.005);
+            double fmax = profile.trueParam.getFmax();
+            fiveParam.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, fiveParamOpt);
+            if (fiveParam.getDiagnostics().hasConverged()) {
+                fiveParamConverged++;
+            }
+            projection.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, projectionOpt);
+            if (projection.getDiagnostics().hasConverged()) {
+                projectionConverged++;
+            }
+            fiveParamFbError += Math.abs(fiveParamOpt.getFb() - profile.trueParam.getFb()) / fmax;
+            projectionFbError += Math.abs(projectionOpt.getFb() - profile.trueParam.getFb()) / fmax;
+            fiveParamEmaxError += Math.abs(fiveParamOpt.getEmax() - profile.trueParam.getEmax());
+            projectionEmaxError += Math.abs(projectionOpt.getEmax() - profile.trueParam.getEmax());
+            //The baseline is recovered to within the noise
+            assertEquals("Profile " + i + " Fb", profile.trueParam.getFb(), projectionOpt.getFb(), 0.02 * fmax);
+        }
+        assertTrue("Variable projection converged for " + projectionConverged + " profiles vs "
+                + fiveParamConverged + " for the 5 parameter provider", projectionConverged >= fiveParamConverged);
+        assertTrue("Variable projection mean Fb error " + projectionFbError / NUMBER_OF_PROFILES
+                + " vs " + fiveParamFbError / NUMBER_OF_PROFILES + " for the 5 parameter provider",
+                projectionFbError <= fiveParamFbError * 1.01);
+        assertTrue("Variable projection mean Emax error " + projectionEmaxError / NUMBER_OF_PROFILES
+                + " vs " + fiveParamEmaxError / NUMBER_OF_PROFILES + " for the 5 parameter provider",
+                projectionEmaxError <= fiveParamEmaxError * 1.01);
+    }
+
+    @Test
+    public void testInitialBaselineIsNotRequired() {
+        NonlinearRegressionProvider projection = new VariableProjectionProvider();
+        Random random = new Random(8);
+        LreParameters accurateOpt = new LreParameters();
+        LreParameters zeroBaselineOpt = new LreParameters();
+        for (int i = 0; i < 100; i++) {
+            SyntheticProfile profile = new SyntheticProfile(random, 0.005);
+            projection.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, accurateOpt);
+            //Fb and Fb-slope are solved in closed form, so their initial values are not used
+            LreParameters zeroBaseline = new LreParameters();
+            zeroBaseline.setEmax(profile.iniParam.getEmax());
+            zeroBaseline.setFo(profile.iniParam.getFo());
+            zeroBaseline.setFmax(profile.iniParam.getFmax());
+            projection.conductNonlinearRegression(zeroBaseline, profile.cycles, profile.fcReadings, zeroBaselineOpt);
+            assertEquals("Profile " + i + " Fb", accurateOpt.getFb(), zeroBaselineOpt.getFb(), 0);
+            assertEquals("Profile " + i + " Fb-slope", accurateOpt.getFbSlope(), zeroBaselineOpt.getFbSlope(), 0);
+            assertEquals("Profile " + i + " Emax", accurateOpt.getEmax(), zeroBaselineOpt.getEmax(), 0);
+        }
+    }
+
+    @Test
+    public void testRealProfilesFitAtLeastAsWell() throws Exception {
+        NonlinearRegressionProvider fiveParam = new NonlinearRegressionProvider();
+        NonlinearRegressionProvider projection = new VariableProjectionProvider();
+        List<RealProfile> profileList = RealProfile.loadAmplifiedProfiles();
+        assertTrue("Too few amplified example profiles", profileList.size() > 50);
+        LreParameters optParam = new LreParameters();
+        int lowerOrEqualCost = 0;
+        int fiveParamConverged = 0;
+        int projectionConverged = 0;
+        for (RealProfile profile : profileList) {
+            fiveParam.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+            NonlinearRegressionDiagnostics diagnostics = fiveParam.getDiagnostics();
+            double fiveParamCost = diagnostics.getFinalCost();
+            if (diagnostics.hasConverged()) {
+                fiveParamConverged++;
+            }
+            projection.conductNonlinearRegression(profile.iniParam, profile.cycles, profile.fcReadings, optParam);
+            diagnostics = projection.getDiagnostics();
+            if (diagnostics.hasConverged()) {
+                projectionConverged++;
+            }
+            assertFalse(profile.wellLabel + " cost is NaN", Double.isNaN(diagnostics.getFinalCost()));
+            if (diagnostics.getFinalCost() <= fiveParamCost * (1 + 1e-6)) {
+                lowerOrEqualCost++;
+            }
+        }
+        //The baseline is optimal for every Emax, Fo and Fmax, so the residual should not be larger
+        assertTrue("Variable projection cost was lower or equal for only " + lowerOrEqualCost
+                + " of " + profileList.size() + " profiles", lowerOrEqualCost >= profileList.size() * 0.95);
+        assertTrue("Variable projection converged for " + projectionConverged + " profiles vs "
+                + fiveParamConverged + " for the 5 parameter provider", projectionConverged >= fiveParamConverged);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_provider;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.lreqpcr.nonlinear_regression_services.LreParameters;
+import org.lreqpcr.nonlinear_regression_services.NonlinearRegressionDiagnostics;
+
+/**
+ * Compares the speed, iterations and accuracy of the 5 parameter and the
+ * variable projection providers. Usage:
+ * <pre>
+ * VariableProjectionBenchmark [-iterations n] [-profiles n]
+ * </pre>
+ * Synthetic profiles (by default 2000) are fit, along with the amplified
+ * profiles of the example RDML file, each being fit a number of times
+ * (by default 20) after an equal number of warm-up passes. For synthetic
+ * profiles the error of the NR-derived baseline is reported as a fraction
+ * of Fmax. Real profiles have no known parameters, so the final cost
+ * (mean squared residual) is compared instead.
+ *
+ * @author Bob Rutledge
+ */
+public class VariableProjectionBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = 20;
+        int numberOfProfiles = 2000;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-iterations")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-profiles")) {
+                numberOfProfiles = Integer.parseInt(args[++i]);
+            }
+        }
+        Random random = new Random(6);
+        int numberOfCycles = SyntheticProfile.NUMBER_OF_CYCLES - SyntheticProfile.FIRST_CYCLE + 1;
+        Dataset synthetic = new Dataset(numberOfProfiles);
+        for (int i = 0; i < numberOfProfiles; i++) {
+            SyntheticProfile profile = new SyntheticProfile(random, 0.005);
+            synthetic.set(i, profile.cycles, profile.fcReadings, profile.iniParam, profile.trueParam);
+        }
+        List<RealProfile> realProfiles = RealProfile.loadAmplifiedProfiles();
+        Dataset real = new Dataset(realProfiles.size());
+        for (int i = 0; i < realProfiles.size(); i++) {
+            RealProfile profile = realProfiles.get(i);
+            real.set(i, profile.cycles, profile.fcReadings, profile.iniParam, null);
+        }
+        System.out.println(String.format("%d synthetic profiles of %d cycles, %d real profiles",
+                numberOfProfiles, numberOfCycles, realProfiles.size()));
+        NonlinearRegressionProvider[] providers = {
+            new NonlinearRegressionProvider(), new VariableProjectionProvider()};
+        Result[][] results = new Result[providers.length][2];
+        for (int p = 0; p < providers.length; p++) {
+            results[p][0] = run(providers[p], synthetic, iterations);
+            results[p][1] = run(providers[p], real, iterations);
+        }
+        for (int p = 0; p < providers.length; p++) {
+            System.out.println(providers[p].getName() + ":");
+            System.out.println("  synthetic: " + results[p][0]);
+            System.out.println("  real:      " + results[p][1]);
+        }
+        int lowerCost = 0;
+        for (int i = 0; i < real.size(); i++) {
+            if (results[1][1].finalCosts[i] <= results[0][1].finalCosts[i] * (1 + 1e-9)) {
+                lowerCost++;
+            }
+        }
+        System.out.println(String.format("Variable projection cost <= 5 parameter cost for %d of %d real profiles",
+                lowerCost, real.size()));
+    }
+
+    private static Result run(NonlinearRegressionProvider provider, Dataset dataset, int iterations) {
+        LreParameters optParam = new LreParameters();
+        //Warm-up
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < dataset.size(); i++) {
+                provider.conductNonlinearRegression(dataset.iniParams[i], dataset.cycles[i], dataset.fcReadings[i], optParam);
+            }
+        }
+        Result result = new Result(dataset.size());
+        long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < dataset.size(); i++) {
+                provider.conductNonlinearRegression(dataset.iniParams[i], dataset.cycles[i], dataset.fcReadings[i], optParam);
+            }
+        }
+        result.microsecondsPerFit = (System.nanoTime() - start) / 1e3 / iterations / dataset.size();
+        for (int i = 0; i < dataset.size(); i++) {
+            provider.conductNonlinearRegression(dataset.iniParams[i], dataset.cycles[i], dataset.fcReadings[i], optParam);
+            result.add(i, provider.getDiagnostics(), optParam, dataset.trueParams[i]);
+        }
+        return result;
+    }
+
+    /**
+     * The profiles fit by each provider
+     */
+    private static class Dataset {
+
+        final double[][] cycles;
+        final double[][] fcReadings;
+        final LreParameters[] iniParams;
+        //Null for real profiles
+        final LreParameters[] trueParams;
+
+        Dataset(int size) {
+            cycles = new double[size][];
+            fcReadings = new double[size][];
+            iniParams = new LreParameters[size];
+            trueParams = new LreParameters[size];
+        }
+
+        void set(int i, double[] cycles, double[] fcReadings, LreParameters iniParam, LreParameters trueParam) {
+            this.cycles[i] = cycles;
+            this.fcReadings[i] = fcReadings;
+            iniParams[i] = iniParam;
+            trueParams[i] = trueParam;
+        }
+
+        int size() {
+            return cycles.length;
+        }
+    }
+
+    /**
+     * The performance and accuracy of one provider on one dataset
+     */
+    private static class Result {
+
+        double microsecondsPerFit;
+        final double[] finalCosts;
+        private int numberOfFits;
+        private int converged;
+        private long iterations;
+        private long functionEvaluations;
+        private double fbErrorSum;
+        private double fbSlopeErrorSum;
+        private int numberWithKnownParameters;
+
+        Result(int size) {
+            finalCosts = new double[size];
+        }
+
+        void add(int i, NonlinearRegressionDiagnostics diagnostics, LreParameters optParam, LreParameters trueParam) {
+            numberOfFits++;
+            finalCosts[i] = diagnostics.getFinalCost();
+            if (diagnostics.hasConverged()) {
+                converged++;
+            }
+            iterations += diagnostics.getIterations();
+            functionEvaluations += diagnostics.getFunctionEvaluations();
+            if (trueParam != null) {
+                numberWithKnownParameters++;
+                fbErrorSum += Math.abs(optParam.getFb() - trueParam.getFb()) / trueParam.getFmax();
+                //The slope error is expressed as the baseline error it produces at the last cycle
+                fbSlopeErrorSum += Math.abs(optParam.getFbSlope() - trueParam.getFbSlope())
+                        * SyntheticProfile.NUMBER_OF_CYCLES / trueParam.getFmax();
+            }
+        }
+
+        @Override
+        public String toString() {
+            String s = String.format("%.1f us per fit, %.1f iterations, %.1f evaluations, %.1f%% converged",
+                    microsecondsPerFit, (double) iterations / numberOfFits,
+                    (double) functionEvaluations / numberOfFits, 100.0 * converged / numberOfFits);
+            if (numberWithKnownParameters > 0) {
+                s += String.format(", mean Fb error %.3g, mean Fb-slope error %.3g (fraction of Fmax)",
+                        fbErrorSum / numberWithKnownParameters, fbSlopeErrorSum / numberWithKnownParameters);
+            }
+            return s;
+        }
+    }
+}
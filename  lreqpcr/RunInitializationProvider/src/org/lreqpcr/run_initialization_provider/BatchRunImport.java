@@ -0,0 +1,552 @@
+/*
+ * Copyright (C) 2013  Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.run_initialization_provider;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.lreqpcr.core.data_objects.CalibrationDbInfo;
+import org.lreqpcr.core.data_objects.CalibrationProfile;
+import org.lreqpcr.core.data_objects.ExptDbInfo;
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_objects.Run;
+import org.lreqpcr.core.data_objects.SampleProfile;
+import org.lreqpcr.core.data_objects.TargetStrandedness;
+import org.lreqpcr.core.database_services.DatabaseServiceFactory;
+import org.lreqpcr.core.database_services.DatabaseServices;
+import org.lreqpcr.core.database_services.DatabaseType;
+import org.lreqpcr.data_import_services.RunImportData;
+import org.lreqpcr.data_import_services.RunImportException;
+import org.lreqpcr.data_import_services.RunImportFileService;
+import org.lreqpcr.data_import_services.RunImportUtilities;
+import org.openide.util.Lookup;
+
+/**
+ * Non-interactive import of a directory of cycler export files, in which the
+ * Runs are imported, analyzed and stored without a GUI (e.g. the nightly
+ * import of the Runs exported by the instruments). Usage:
+ * <pre>
+ * BatchRunImport -format "AB7500 Ver 2" -dir exportDirectory
+ *     -exp experiment.exp -cal calibration.cal -amp amplicon.amp
+ *     -strandedness ss|ds [-threads n] [-report reportFile]
+ * </pre>
+ * The export files are read concurrently, whereas the Runs are initialized
+ * one at a time in the order of the file names, as Profile analysis is
+ * already conducted concurrently within each Run and the databases must be
+ * updated serially. A summary report is written to the export directory
+ * once all of the files have been processed, unless a report file is
+ * specified.
+ * <p>
+ * Note that all three databases must already exist.
+ *
+ * @author Bob Rutledge
+ */
+public class BatchRunImport {
+
+    private static final String DEFAULT_REPORT_FILE_NAME = "LRE batch import report.txt";
+    //Limits the number of export files that have been read but not yet initialized
+    private static final int FILES_READ_AHEAD_PER_THREAD = 2;
+    private RunImportFileService fileService;
+    private File exportDirectory;
+    private File exptDbFile;
+    private File calbnDbFile;
+    private File ampliconDbFile;
+    private TargetStrandedness targetStrandedness;
+    private int numberOfThreads;
+    private File reportFile;
+
+    /**
+     * @param fileService the import file service for the export file format
+     * @param exportDirectory the directory holding the export files
+     * @param exptDbFile the Experiment database file
+     * @param calbnDbFile the Calibration database file
+     * @param ampliconDbFile the Amplicon database file
+     * @param targetStrandedness the strandedness of the sample targets
+     * @param numberOfThreads the number of export files that are read concurrently
+     * @param reportFile the file to which the report is written
+     */
+    public BatchRunImport(RunImportFileService fileService, File exportDirectory,
+            File exptDbFile, File calbnDbFile, File ampliconDbFile,
+            TargetStrandedness targetStrandedness, int numberOfThreads, File reportFile) {
+        this.fileService = fileService;
+        this.exportDirectory = exportDirectory;
+        this.exptDbFile = exptDbFile;
+        this.calbnDbFile = calbnDbFile;
+        this.ampliconDbFile = ampliconDbFile;
+        this.targetStrandedness = targetStrandedness;
+        this.numberOfThreads = numberOfThreads;
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Conducts a batch import using the command line arguments. The exit
+     * status is 0 if all the export files were imported, 1 if one or more
+     * files could not be imported and 2 if the batch import could not be
+     * started.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        //Dialogs are replaced by logged messages, which are included in the report
+        System.setProperty("java.awt.headless", "true");
+        BatchRunImport batchImport = createBatchImport(args);
+        if (batchImport == null) {
+            System.exit(2);
+        }
+        int numberOfFailures;
+        try {
+            numberOfFailures = batchImport.importRuns();
+        } catch (IOException ex) {
+            System.err.println("The batch import failed: " + ex.getMessage());
+            System.exit(2);
+            return;
+        }
+        System.exit(numberOfFailures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Constructs the batch import from the command line arguments.
+     *
+     * @return the batch import, or null if the arguments are invalid
+     */
+    private static BatchRunImport createBatchImport(String[] args) {
+        String format = null;
+        String directory = null;
+        String exptDb = null;
+        String calbnDb = null;
+        String ampliconDb = null;
+        String strandedness = null;
+        String threads = null;
+        String report = null;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            if (args[i].equals("-format")) {
+                format = value;
+            } else if (args[i].equals("-dir")) {
+                directory = value;
+            } else if (args[i].equals("-exp")) {
+                exptDb = value;
+            } else if (args[i].equals("-cal")) {
+                calbnDb = value;
+            } else if (args[i].equals("-amp")) {
+                ampliconDb = value;
+            } else if (args[i].equals("-strandedness")) {
+                strandedness = value;
+            } else if (args[i].equals("-threads")) {
+                threads = value;
+            } else if (args[i].equals("-report")) {
+                report = value;
+            } else {
+                return displayUsage("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) {
+            return displayUsage("A value is missing for: " + args[args.length - 1]);
+        }
+        if (format == null || directory == null || exptDb == null || calbnDb == null
+                || ampliconDb == null || strandedness == null) {
+            return displayUsage("The format, directory, databases and strandedness must be specified");
+        }
+        RunImportFileService fileService = null;
+        for (RunImportFileService service : Lookup.getDefault().lookupAll(RunImportFileService.class)) {
+            if (service.getRunImportServiceName().equalsIgnoreCase(format)) {
+                fileService = service;
+            }
+        }
+        if (fileService == null) {
+            return displayUsage("Unknown import format: " + format);
+        }
+        File exportDirectory = new File(directory);
+        if (!exportDirectory.isDirectory()) {
+            return displayUsage("The export directory does not exist: " + directory);
+        }
+        TargetStrandedness targetStrandedness;
+        if (strandedness.equalsIgnoreCase("ss")) {
+            targetStrandedness = TargetStrandedness.SINGLESTRANDED;
+        } else if (strandedness.equalsIgnoreCase("ds")) {
+            targetStrandedness = TargetStrandedness.DOUBLESTRANDED;
+        } else {
+            return displayUsage("The strandedness must be either ss or ds: " + strandedness);
+        }
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        if (threads != null) {
+            try {
+                numberOfThreads = Integer.parseInt(threads);
+            } catch (NumberFormatException e) {
+                numberOfThreads = 0;
+            }
+            if (numberOfThreads < 1) {
+                return displayUsage("The number of threads must be a positive integer: " + threads);
+            }
+        }
+        File reportFile;
+        if (report != null) {
+            reportFile = new File(report);
+        } else {
+            reportFile = new File(exportDirectory, DEFAULT_REPORT_FILE_NAME);
+        }
+        return new BatchRunImport(fileService, exportDirectory, new File(exptDb),
+                new File(calbnDb), new File(ampliconDb), targetStrandedness,
+                numberOfThreads, reportFile);
+    }
+
+    private static BatchRunImport displayUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: BatchRunImport -format importFormat -dir exportDirectory");
+        System.err.println("    -exp experimentDatabase -cal calibrationDatabase -amp ampliconDatabase");
+        System.err.println("    -strandedness ss|ds [-threads n] [-report reportFile]");
+        StringBuilder formats = new StringBuilder();
+        for (RunImportFileService service : Lookup.getDefault().lookupAll(RunImportFileService.class)) {
+            formats.append(" \"").append(service.getRunImportServiceName()).append("\"");
+        }
+        System.err.println("Import formats:" + formats.toString());
+        return null;
+    }
+
+    /**
+     * Imports all of the export files within the export directory and then
+     * writes the report.
+     *
+     * @return the number of export files that could not be imported
+     * @throws IOException if a database could not be opened or the report
+     * could not be written
+     */
+    public int importRuns() throws IOException {
+        Date startTime = new Date();
+        List<File> importFiles = new ArrayList<File>();
+        File[] files = exportDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && fileService.isImportFile(file)) {
+                    importFiles.add(file);
+                }
+            }
+        }
+        Collections.sort(importFiles);
+        DatabaseServiceFactory dbFactory = Lookup.getDefault().lookup(DatabaseServiceFactory.class);
+        DatabaseServices exptDB = dbFactory.createDatabaseService(DatabaseType.EXPERIMENT);
+        DatabaseServices calbnDB = dbFactory.createDatabaseService(DatabaseType.CALIBRATION);
+        DatabaseServices ampliconDB = dbFactory.createDatabaseService(DatabaseType.AMPLICON);
+        List<FileImportResult> results;
+        try {
+            openDatabase(exptDB, exptDbFile, "an Experiment", ExptDbInfo.class);
+            openDatabase(calbnDB, calbnDbFile, "a Calibration", CalibrationDbInfo.class);
+            openDatabase(ampliconDB, ampliconDbFile, "an Amplicon", null);
+            results = importRuns(importFiles,
+                    new RunInializationProvider(exptDB, calbnDB, ampliconDB));
+        } finally {
+            //Closing the database files also commits all changes to disk
+            exptDB.closeDatabase();
+            calbnDB.closeDatabase();
+            ampliconDB.closeDatabase();
+        }
+        int numberOfFailures = 0;
+        for (FileImportResult result : results) {
+            if (result.error != null) {
+                numberOfFailures++;
+            }
+        }
+        writeReport(results, startTime, new Date());
+        System.out.println(results.size() + " export files processed, "
+                + (results.size() - numberOfFailures) + " imported, "
+                + numberOfFailures + " failed. See " + reportFile.getAbsolutePath());
+        return numberOfFailures;
+    }
+
+    /**
+     * Opens the database file, which must hold the supplied type of database
+     * information object, if one is supplied.
+     */
+    private void openDatabase(DatabaseServices db, File dbFile, String dbName, Class<?> dbInfoClass)
+            throws IOException {
+        if (!dbFile.isFile()) {
+            throw new IOException("The database file does not exist: " + dbFile.getPath());
+        }
+        boolean isOpen;
+        try {
+            isOpen = db.openDatabaseFile(dbFile) && db.isDatabaseOpen();
+        } catch (RuntimeException e) {
+            //The database service presents an error dialog, which is not available
+            isOpen = false;
+        }
+        if (!isOpen) {
+            throw new IOException("The database file could not be opened: " + dbFile.getPath());
+        }
+        if (dbInfoClass != null && (db.getAllObjects(dbInfoClass).isEmpty()
+                || db.getAllObjects(LreWindowSelectionParameters.class).isEmpty())) {
+            throw new IOException("The database file is not " + dbName
+                    + " database: " + dbFile.getPath());
+        }
+    }
+
+    /**
+     * Reads the export files concurrently and initializes the resulting Runs
+     * in the order of the export files.
+     */
+    private List<FileImportResult> importRuns(List<File> importFiles, RunInializationProvider runInitialization) {
+        List<FileImportResult> results = new ArrayList<FileImportResult>();
+        List<Future<RunImportData>> fileReads = new ArrayList<Future<RunImportData>>();
+        int maxFilesRead = numberOfThreads * FILES_READ_AHEAD_PER_THREAD;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        //Captures the messages generated during Run initialization
+        Logger importLogger = Logger.getLogger(RunImportUtilities.class.getName());
+        ImportMessageHandler messageHandler = new ImportMessageHandler();
+        importLogger.addHandler(messageHandler);
+        try {
+            for (int i = 0; i < importFiles.size(); i++) {
+                //Read ahead, but limit the number of Runs held in memory
+                while (fileReads.size() < importFiles.size() && fileReads.size() < i + maxFilesRead) {
+                    File file = importFiles.get(fileReads.size());
+                    fileReads.add(executor.submit(new ImportFileRead(fileService, file, targetStrandedness)));
+                }
+                FileImportResult result = new FileImportResult(importFiles.get(i));
+                results.add(result);
+                RunImportData importData;
+                try {
+                    importData = fileReads.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.error = "The batch import was interrupted";
+                    break;
+                } catch (ExecutionException e) {
+                    result.setError(e.getCause());
+                    continue;
+                } finally {
+                    //Release the Run once it has been retrieved
+                    fileReads.set(i, null);
+                }
+                result.error = validateImportData(importData);
+                if (result.error != null) {
+                    continue;
+                }
+                messageHandler.messages.clear();
+                try {
+                    runInitialization.intializeRun(importData);
+                } catch (RuntimeException e) {
+                    result.setError(e);
+                    result.error = result.error + " (the databases may hold a partially imported Run)";
+                }
+                result.warnings.addAll(messageHandler.messages);
+                result.setImportData(importData, runInitialization.getSampleRun(),
+                        runInitialization.getCalibrationRun());
+            }
+        } finally {
+            importLogger.removeHandler(messageHandler);
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Determines if the Run import data can be initialized.
+     *
+     * @return the reason why the Run cannot be imported, or null if it can
+     */
+    private String validateImportData(RunImportData importData) {
+        List<Profile> profileList = new ArrayList<Profile>();
+        if (importData.getSampleProfileList() != null) {
+            profileList.addAll(importData.getSampleProfileList());
+        }
+        if (importData.getCalibrationProfileList() != null) {
+            profileList.addAll(importData.getCalibrationProfileList());
+        }
+        if (profileList.isEmpty()) {
+            return "No profiles were found";
+        }
+        for (Profile profile : profileList) {
+            //Replicate profiles cannot be identified without both names
+            if (profile.getAmpliconName() == null || profile.getSampleName() == null) {
+                return "Either the Amplicon or Sample name is missing for well: "
+                        + profile.getWellLabel();
+            }
+        }
+        return null;
+    }
+
+    private void writeReport(List<FileImportResult> results, Date startTime, Date endTime) throws IOException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("dd MMM yyyy HH:mm:ss");
+        PrintWriter writer = new PrintWriter(new FileWriter(reportFile));
+        try {
+            writer.println("LRE Analyzer batch import report");
+            writer.println();
+            writer.println("Import format:        " + fileService.getRunImportServiceName());
+            writer.println("Export directory:     " + exportDirectory.getAbsolutePath());
+            writer.println("Experiment database:  " + exptDbFile.getAbsolutePath());
+            writer.println("Calibration database: " + calbnDbFile.getAbsolutePath());
+            writer.println("Amplicon database:    " + ampliconDbFile.getAbsolutePath());
+            writer.println("Target strandedness:  " + targetStrandedness);
+            writer.println("Started:              " + timeFormat.format(startTime));
+            writer.println("Completed:            " + timeFormat.format(endTime));
+            writer.println();
+            int numberOfFailures = 0;
+            for (FileImportResult result : results) {
+                result.write(writer);
+                if (result.error != null) {
+                    numberOfFailures++;
+                }
+            }
+            writer.println();
+            writer.println(results.size() + " export files processed, "
+                    + (results.size() - numberOfFailures) + " imported, "
+                    + numberOfFailures + " failed");
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("The report could not be written: " + reportFile.getPath());
+        }
+    }
+
+    /**
+     * Reads an export file and sets the target strandedness
+     */
+    private static class ImportFileRead implements Callable<RunImportData> {
+
+        private final RunImportFileService fileService;
+        private final File file;
+        private final TargetStrandedness targetStrandedness;
+
+        ImportFileRead(RunImportFileService fileService, File file, TargetStrandedness targetStrandedness) {
+            this.fileService = fileService;
+            this.file = file;
+            this.targetStrandedness = targetStrandedness;
+        }
+
+        public RunImportData call() throws RunImportException {
+            RunImportData importData = fileService.constructRunImportData(file);
+            RunImportUtilities.setTargetStrandedness(importData, targetStrandedness);
+            return importData;
+        }
+    }
+
+    /**
+     * Collects the messages that would otherwise be presented as dialogs
+     */
+    private static class ImportMessageHandler extends Handler {
+
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void publish(LogRecord record) {
+            //Dialog messages are formatted over several lines
+            messages.add(record.getMessage().replaceAll("\\s*\\n\\s*", " "));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * The outcome of importing a single export file
+     */
+    private static class FileImportResult {
+
+        private final File file;
+        private String error;
+        private final List<String> warnings = new ArrayList<String>();
+        private String runName;
+        private Date runDate;
+        private int numberOfSampleProfiles;
+        private int numberOfAverageSampleProfiles;
+        private int numberOfCalibrationProfiles;
+        private int numberOfAverageCalibrationProfiles;
+        private int numberOfProfilesWithoutLreWindow;
+
+        FileImportResult(File file) {
+            this.file = file;
+        }
+
+        void setError(Throwable cause) {
+            if (cause instanceof RunImportException) {
+                RunImportException importException = (RunImportException) cause;
+                error = importException.getTitle() + ": "
+                        + importException.getMessage().replaceAll("\\s*\\n\\s*", " ");
+            } else {
+                error = "Unable to import the file due to the error: \""
+                        + cause.getClass().getSimpleName() + "\"";
+            }
+        }
+
+        void setImportData(RunImportData importData, Run sampleRun, Run calRun) {
+            runName = importData.getRunName();
+            runDate = importData.getRunDate();
+            List<SampleProfile> sampleProfileList = importData.getSampleProfileList();
+            if (sampleProfileList != null) {
+                numberOfSampleProfiles = sampleProfileList.size();
+                for (Profile profile : sampleProfileList) {
+                    if (!profile.hasAnLreWindowBeenFound()) {
+                        numberOfProfilesWithoutLreWindow++;
+                    }
+                }
+            }
+            List<CalibrationProfile> calibrationProfileList = importData.getCalibrationProfileList();
+            if (calibrationProfileList != null) {
+                numberOfCalibrationProfiles = calibrationProfileList.size();
+                for (Profile profile : calibrationProfileList) {
+                    if (!profile.hasAnLreWindowBeenFound()) {
+                        numberOfProfilesWithoutLreWindow++;
+                    }
+                }
+            }
+            if (sampleRun != null && sampleRun.getAverageProfileList() != null) {
+                numberOfAverageSampleProfiles = sampleRun.getAverageProfileList().size();
+            }
+            if (calRun != null && calRun.getAverageProfileList() != null) {
+                numberOfAverageCalibrationProfiles = calRun.getAverageProfileList().size();
+            }
+        }
+
+        void write(PrintWriter writer) {
+            if (error != null) {
+                writer.println("FAILED    " + file.getName());
+                writer.println("    " + error);
+            } else {
+                SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMM yyyy");
+                writer.println("IMPORTED  " + file.getName() + "  (Run \"" + runName + "\", "
+                        + (runDate != null ? dateFormat.format(runDate) : "no run date") + ")");
+                writer.println("    " + numberOfSampleProfiles + " sample profiles ("
+                        + numberOfAverageSampleProfiles + " average), "
+                        + numberOfCalibrationProfiles + " calibration profiles ("
+                        + numberOfAverageCalibrationProfiles + " average), "
+                        + numberOfProfilesWithoutLreWindow + " profiles without an LRE window");
+            }
+            for (String warning : warnings) {
+                writer.println("    Warning: " + warning);
+            }
+        }
+    }
+}
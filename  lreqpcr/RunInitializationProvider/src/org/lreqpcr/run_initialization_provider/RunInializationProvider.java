@@ -16,10 +16,14 @@
  */
 package org.lreqpcr.run_initialization_provider;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import javax.swing.JOptionPane;
 import org.lreqpcr.analysis_services.LreAnalysisService;
 import org.lreqpcr.core.data_objects.*;
@@ -27,7 +31,7 @@ import org.lreqpcr.core.data_processing.ProfileSummary;
 import org.lreqpcr.core.data_processing.ProfileSummaryImp;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.data_import_services.AverageProfileGenerator;
 import org.lreqpcr.data_import_services.DataImportType;
@@ -42,6 +46,17 @@ import org.openide.windows.WindowManager;
 /**
  * Processes RunImportData objects, storing the resulting Run and its Profiles
  * into the appropriate database files.
+ * <p>
+ * Run initialization is conducted in stages: the imported Profiles are first
+ * prepared for analysis, the replicate Profiles are then analyzed
+ * concurrently, followed by construction of the AverageProfiles which are
+ * also analyzed concurrently. Analysis is conducted without database access,
+ * so that all of the Profiles are then saved and committed in a single
+ * persistence stage.
+ * <p>
+ * A non-interactive provider can also be constructed using specific
+ * databases (e.g. for batch import), which does not ask the user whether to
+ * continue if a database is not open and does not broadcast PanelMessages.
  *
  * @author Bob Rutledge
  */
@@ -55,6 +70,9 @@ public class RunInializationProvider implements RunInitializationService {
     private DataImportType importType;
     private Run sampleRun;
     private CalibrationRun calRun;
+    //Amplicon names that are not unique, which are reported once import is complete
+    private LinkedHashSet<String> nonUniqueAmpliconNames = new LinkedHashSet<String>();
+    private final boolean isInteractive;
 
     public RunInializationProvider() {
         //Retrieve the databases
@@ -63,6 +81,24 @@ public class RunInializationProvider implements RunInitializationService {
         experimentDB = (DatabaseServices) uLookup.getAll(DatabaseType.EXPERIMENT).get(0);
         calbnDB = (DatabaseServices) uLookup.getAll(DatabaseType.CALIBRATION).get(0);
         ampliconDB = (DatabaseServices) uLookup.getAll(DatabaseType.AMPLICON).get(0);
+        isInteractive = true;
+    }
+
+    /**
+     * Constructs a non-interactive Run initialization provider that stores
+     * the Runs into the supplied databases. Profiles for which a database is
+     * not open are not imported.
+     *
+     * @param experimentDB the Experiment database
+     * @param calbnDB the Calibration database
+     * @param ampliconDB the Amplicon database
+     */
+    public RunInializationProvider(DatabaseServices experimentDB, DatabaseServices calbnDB,
+            DatabaseServices ampliconDB) {
+        this.experimentDB = experimentDB;
+        this.calbnDB = calbnDB;
+        this.ampliconDB = ampliconDB;
+        isInteractive = false;
     }
 
     /**
@@ -77,28 +113,32 @@ public class RunInializationProvider implements RunInitializationService {
             //Run import has been cancelled
             return;
         }
-        UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_WAIT_CURSOR);
+        fireChangeEvent(PanelMessages.SET_WAIT_CURSOR);
         importType = importData.getImportType();
+        //The Runs from a previous import must not be used
+        sampleRun = null;
+        calRun = null;
         //This is obviously inefficient, but it is expected that data import will be limited
         //to very few types, with the manual data import being rare exceptions
         //Check for the necessary databases for each type of import format
         if (importType == DataImportType.STANDARD) {
             //All three databases will likely be needed
-            if (!experimentDB.isDatabaseOpen()) {
+            //A non-interactive import continues without the databases that are not open
+            if (!experimentDB.isDatabaseOpen() && isInteractive) {
                 if (!experimentDatabaseNotOpen()) {
-                    UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+                    fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
                     return;
                 }
             }
-            if (!calbnDB.isDatabaseOpen()) {
+            if (!calbnDB.isDatabaseOpen() && isInteractive) {
                 if (!calibrationDatabaseNotOpen()) {
-                    UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+                    fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
                     return;
                 }
             }
-            if (!ampliconDB.isDatabaseOpen()) {
+            if (!ampliconDB.isDatabaseOpen() && isInteractive) {
                 if (!ampliconDatabaseNotOpen()) {
-                    UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+                    fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
                     return;
                 }
             }
@@ -110,7 +150,7 @@ public class RunInializationProvider implements RunInitializationService {
                         + "Data import will be terminated.";
                 JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(), msg, "Experiment database not open",
                         JOptionPane.ERROR_MESSAGE);
-                UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+                fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
                 return;
             }
         }
@@ -120,7 +160,7 @@ public class RunInializationProvider implements RunInitializationService {
                         + "Data import will be terminated.";
                 JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(), msg, "No Calibration database is open",
                         JOptionPane.ERROR_MESSAGE);
-                UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+                fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
                 return;
             }
         }
@@ -129,8 +169,47 @@ public class RunInializationProvider implements RunInitializationService {
         List<SampleProfile> sampleProfileList = importData.getSampleProfileList();
         List<CalibrationProfile> calibnProfileList = importData.getCalibrationProfileList();
 
-        LreAnalysisService lreAnalysisService = Lookup.getDefault().lookup(LreAnalysisService.class);
+        nonUniqueAmpliconNames.clear();
+        //Profiles are analyzed concurrently using all available processors
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            processSampleProfiles(pool, sampleProfileList, runDate, runName);
+            processCalibrationProfiles(pool, calibnProfileList, runDate, runName);
+        } finally {
+            pool.shutdown();
+        }
+        RunImportUtilities.displayNonUniqueAmpliconNames(nonUniqueAmpliconNames);
+        fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
+    }//End of initialize run
 
+    /**
+     * @return the Run holding the SampleProfiles of the most recent Run 
+     * initialization, or null if no SampleProfiles were imported
+     */
+    public Run getSampleRun() {
+        return sampleRun;
+    }
+
+    /**
+     * @return the Run holding the CalibrationProfiles of the most recent Run
+     * initialization, or null if no CalibrationProfiles were imported
+     */
+    public CalibrationRun getCalibrationRun() {
+        return calRun;
+    }
+
+    /**
+     * Broadcasts a PanelMessage, which is only needed for interactive import.
+     */
+    private void fireChangeEvent(PanelMessages message) {
+        if (isInteractive) {
+            UniversalLookup.getDefault().fireChangeEvent(message);
+        }
+    }
+
+    @SuppressWarnings(value = "unchecked")
+    private void processSampleProfiles(ForkJoinPool pool, List<SampleProfile> sampleProfileList,
+            Date runDate, String runName) {
 //Process the SampleProfiles if an Experiment database is open
         if (sampleProfileList != null) {
             if (!sampleProfileList.isEmpty()) {//A manual Calibration Profile import type does not have an empty SampleProfile list
@@ -144,30 +223,28 @@ public class RunInializationProvider implements RunInitializationService {
                     double ocf = dbInfo.getOcf();
                     if (ocf == 0){
                         displayNoOcfWarning();
-                        UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_WAIT_CURSOR);
+                        fireChangeEvent(PanelMessages.SET_WAIT_CURSOR);
                     }
                     for (SampleProfile sampleProfile : sampleProfileList) {
                         sampleProfile.setRunDate(runDate);
-                        if (ampliconDB != null) {
-                            if (ampliconDB.isDatabaseOpen()
-                                    && !sampleProfile.getAmpliconName().equals("")
-                                    && sampleProfile.getAmpliconSize() == 0) {//Prevents over writting when using manual SampleProfile import
-                                RunImportUtilities.getAmpliconSize(ampliconDB, sampleProfile);
-                            }
-                        }
-                        //Initialize the new Profile which will conduct an automated LRE window selection
-                        ProfileSummary prfSum = new ProfileSummaryImp(sampleProfile, experimentDB);
-                        lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
+                    }
+                    setAmpliconSizes(sampleProfileList);
+                    //Initialize the new Profiles which will conduct an automated LRE window selection
+                    analyzeProfiles(pool, sampleProfileList, parameters);
+                    for (SampleProfile sampleProfile : sampleProfileList) {
                         sampleProfile.setOCF(ocf);
-                        experimentDB.saveObject(sampleProfile);
                     }
                     List<AverageProfile> averageSampleProfileList =
                             AverageProfileGenerator.averageSampleProfileConstruction(
                             sampleProfileList,
                             sampleRun,
-                            ocf,
-                            parameters,
-                            experimentDB);
+                            ocf);
+                    analyzeAverageProfiles(pool, averageSampleProfileList, parameters);
+                    //Save the analyzed Profiles
+                    for (SampleProfile sampleProfile : sampleProfileList) {
+                        experimentDB.saveObject(sampleProfile);
+                    }
+                    saveAverageProfiles(experimentDB, averageSampleProfileList);
                     experimentDB.saveObject(averageSampleProfileList);
                     sampleRun.setAverageProfileList((ArrayList<AverageProfile>) averageSampleProfileList);
                     //Deactivated due to a bug that can produce long delays during file import
@@ -189,14 +266,20 @@ public class RunInializationProvider implements RunInitializationService {
                     }
                     experimentDB.saveObject(sampleRun);
                     experimentDB.commitChanges();
-                    //This allows access to the newly imported Run
-                    UniversalLookup.getDefault().addSingleton(PanelMessages.RUN_IMPORTED, sampleRun);
+                    if (isInteractive) {
+                        //This allows access to the newly imported Run
+                        UniversalLookup.getDefault().addSingleton(PanelMessages.RUN_IMPORTED, sampleRun);
+                    }
                     //Broadcast that a new Run has been added to the Experiment database
-                    UniversalLookup.getDefault().fireChangeEvent(PanelMessages.RUN_IMPORTED);
+                    fireChangeEvent(PanelMessages.RUN_IMPORTED);
                 }
             }
         }//End of sample profile processing
+    }
 
+    @SuppressWarnings(value = "unchecked")
+    private void processCalibrationProfiles(ForkJoinPool pool, List<CalibrationProfile> calibnProfileList,
+            Date runDate, String runName) {
         //Process the CalibnProfileList
         if (calibnProfileList != null) {
             if (!calibnProfileList.isEmpty()) {//A manual Sample Profile import should have an empty Calibration Profile list.
@@ -209,23 +292,20 @@ public class RunInializationProvider implements RunInitializationService {
                     //Process the CalibnProfiles
                     for (Profile profile : calibnProfileList) {
                         profile.setRunDate(runDate);
-                        if (ampliconDB != null) {
-                            if (ampliconDB.isDatabaseOpen()
-                                    && !profile.getAmpliconName().equals("")
-                                    && profile.getAmpliconSize() == 0) {//Prevents over writting when using manual import
-                                RunImportUtilities.getAmpliconSize(ampliconDB, profile);
-                            }
-                        }
-                        ProfileSummary prfSum = new ProfileSummaryImp(profile, calbnDB);
-                        lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, lreWindowSelectionParameters);
                     }
+                    setAmpliconSizes(calibnProfileList);
+                    analyzeProfiles(pool, calibnProfileList, lreWindowSelectionParameters);
                     //Process the AverageCalibnProfiles
                     List<AverageProfile> averageCalbnProfileList =
                             (List<AverageProfile>) AverageProfileGenerator.averageCalbrationProfileConstruction(
                             calibnProfileList,
-                            lreWindowSelectionParameters,
-                            calRun,
-                            calbnDB);
+                            calRun);
+                    analyzeAverageProfiles(pool, averageCalbnProfileList, lreWindowSelectionParameters);
+                    //Save the analyzed Profiles
+                    for (Profile profile : calibnProfileList) {
+                        calbnDB.saveObject(profile);
+                    }
+                    saveAverageProfiles(calbnDB, averageCalbnProfileList);
                     calbnDB.saveObject(averageCalbnProfileList);
                     calRun.setAverageProfileList((ArrayList<AverageProfile>) averageCalbnProfileList);
                     calRun.calculateAverageOCF();
@@ -251,18 +331,140 @@ public class RunInializationProvider implements RunInitializationService {
                     }
                         calbnDB.commitChanges();
                     //Broadcast that the calibration panels must be updated
-                    UniversalLookup.getDefault().fireChangeEvent(PanelMessages.UPDATE_CALIBRATION_PANELS);
+                    fireChangeEvent(PanelMessages.UPDATE_CALIBRATION_PANELS);
                 }
             }
         }//End of calibration profile processing
-        UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
-    }//End of initialize run
+    }
+
+    /**
+     * Sets the amplicon size of the Profiles from the Amplicon database, if
+     * it is open. Profiles that already have an amplicon size (i.e. manual 
+     * import) are not changed.
+     *
+     * @param profiles the imported Profiles
+     */
+    private void setAmpliconSizes(List<? extends Profile> profiles) {
+        if (ampliconDB != null && ampliconDB.isDatabaseOpen()) {
+            nonUniqueAmpliconNames.addAll(RunImportUtilities.getAmpliconSizes(ampliconDB, profiles));
+        }
+    }
+
+    /**
+     * Analyzes the Profiles concurrently. The Profiles are not saved.
+     *
+     * @param pool the fork-join pool in which the analysis is conducted
+     * @param profiles the Profiles to analyze
+     * @param parameters the LRE window selection parameters
+     */
+    private void analyzeProfiles(ForkJoinPool pool, List<? extends Profile> profiles,
+            LreWindowSelectionParameters parameters) {
+        LreAnalysisService lreAnalysisService = Lookup.getDefault().lookup(LreAnalysisService.class);
+        List<ProfileAnalysis> tasks = new ArrayList<ProfileAnalysis>(profiles.size());
+        for (Profile profile : profiles) {
+            tasks.add(new ProfileAnalysis(lreAnalysisService, profile, parameters));
+        }
+        pool.invoke(new ConcurrentAnalysis(tasks));
+    }
+
+    /**
+     * Analyzes the AverageProfiles concurrently, which requires that their
+     * replicate Profiles have already been analyzed. The AverageProfiles are
+     * not saved.
+     *
+     * @param pool the fork-join pool in which the analysis is conducted
+     * @param averageProfiles the AverageProfiles to analyze, which can be null
+     * if AverageProfile construction was aborted
+     * @param parameters the LRE window selection parameters
+     */
+    private void analyzeAverageProfiles(ForkJoinPool pool, List<AverageProfile> averageProfiles,
+            LreWindowSelectionParameters parameters) {
+        if (averageProfiles == null) {
+            return;
+        }
+        List<AverageProfileAnalysis> tasks = new ArrayList<AverageProfileAnalysis>(averageProfiles.size());
+        for (AverageProfile averageProfile : averageProfiles) {
+            tasks.add(new AverageProfileAnalysis(averageProfile, parameters));
+        }
+        pool.invoke(new ConcurrentAnalysis(tasks));
+    }
+
+    private void saveAverageProfiles(DatabaseServices db, List<AverageProfile> averageProfiles) {
+        if (averageProfiles == null) {
+            return;
+        }
+        for (AverageProfile averageProfile : averageProfiles) {
+            db.saveObject(averageProfile);
+        }
+    }
+
+    /**
+     * Conducts a set of analyses concurrently
+     */
+    private static class ConcurrentAnalysis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<? extends RecursiveAction> tasks;
+
+        ConcurrentAnalysis(List<? extends RecursiveAction> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Initializes a new Profile, which conducts an automated LRE window selection
+     */
+    private static class ProfileAnalysis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final LreAnalysisService lreAnalysisService;
+        private final Profile profile;
+        private final LreWindowSelectionParameters parameters;
+
+        ProfileAnalysis(LreAnalysisService lreAnalysisService, Profile profile,
+                LreWindowSelectionParameters parameters) {
+            this.lreAnalysisService = lreAnalysisService;
+            this.profile = profile;
+            this.parameters = parameters;
+        }
+
+        @Override
+        protected void compute() {
+            //Without a database the ProfileSummary does not save the Profile
+            ProfileSummary prfSum = new ProfileSummaryImp(profile, null);
+            lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, parameters);
+        }
+    }
+
+    /**
+     * Initializes a new AverageProfile, if it is valid
+     */
+    private static class AverageProfileAnalysis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final AverageProfile averageProfile;
+        private final LreWindowSelectionParameters parameters;
+
+        AverageProfileAnalysis(AverageProfile averageProfile, LreWindowSelectionParameters parameters) {
+            this.averageProfile = averageProfile;
+            this.parameters = parameters;
+        }
+
+        @Override
+        protected void compute() {
+            AverageProfileGenerator.analyzeAverageProfile(averageProfile, parameters, null);
+        }
+    }
+
     //Determine the avFmax across all profiles and set this within the Calibration Run
 
     private void calculateTotalAvFmax() {
-        ArrayList<Double> fmaxList = new ArrayList<Double>();//Used to determine the SD
-        double fmaxSum = 0;
-        int profileCount = 0;
+        StatisticsAccumulator fmaxStats = new StatisticsAccumulator();//Used to determine the average and SD
         double averageFmax;
         double avFmaxCV = 0;
         //Combine the Sample and Calibration average profiles into a single array
@@ -271,16 +473,14 @@ public class RunInializationProvider implements RunInitializationService {
         for (AverageProfile avProfile : allAvPrfs) {
             for (Profile profile : avProfile.getReplicateProfileList()) {
                 if (profile.hasAnLreWindowBeenFound() && !profile.isExcluded()) {
-                    fmaxSum += profile.getFmax();
-                    profileCount++;
-                    fmaxList.add(profile.getFmax());
+                    fmaxStats.add(profile.getFmax());
                 }
             }
         }
-        if (profileCount >= 1 && fmaxSum > 0) {
-            averageFmax = fmaxSum / profileCount;
-            if (fmaxList.size() > 1) {
-                avFmaxCV = MathFunctions.calcStDev(fmaxList) / averageFmax;
+        if (fmaxStats.getCount() >= 1 && fmaxStats.getMean() > 0) {
+            averageFmax = fmaxStats.getMean();
+            if (fmaxStats.getCount() > 1) {
+                avFmaxCV = fmaxStats.getStDev() / averageFmax;
             } else {
                 avFmaxCV = 0;
             }
@@ -329,7 +529,9 @@ public class RunInializationProvider implements RunInitializationService {
      * Warns that an OCF must be entered manually. 
      */
     public void displayNoOcfWarning(){
-        Toolkit.getDefaultToolkit().beep();
+        if (!GraphicsEnvironment.isHeadless()) {
+            Toolkit.getDefaultToolkit().beep();
+        }
         String msg = "This appears to be a new experiment database for\n"
                    + "which an optical calibration factor (OCF) has not\n"
                    + "yet been entered.\n\n"
@@ -340,7 +542,7 @@ public class RunInializationProvider implements RunInitializationService {
                    + "Fmax can be used as a crude estimate of OCF.\n\n"
                    + "See Help for additional information.\n";
                 
-                JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(), msg, "An OCF has not been entered",
+                RunImportUtilities.displayImportMessage("An OCF has not been entered", msg,
                         JOptionPane.WARNING_MESSAGE);
     }
 }
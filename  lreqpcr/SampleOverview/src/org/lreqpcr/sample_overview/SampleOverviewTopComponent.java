@@ -35,7 +35,7 @@ import org.lreqpcr.core.data_objects.SampleProfile;
 import org.lreqpcr.core.database_services.DatabaseProvider;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.utilities.UniversalLookupListener;
 import org.lreqpcr.data_export_services.DataExportServices;
@@ -154,8 +154,7 @@ public final class SampleOverviewTopComponent extends TopComponent
             facadeSample.setName(sampleName);
             //Retrieve all average profiles derived from this sample
             List sampleNameAverageProfileList = currentDB.retrieveUsingFieldValue(AverageProfile.class, "sampleName", sampleName);
-            ArrayList<Double> emaxArrayList = new ArrayList<Double>();
-            double emaxTotal = 0;
+            StatisticsAccumulator emaxStats = new StatisticsAccumulator();
             for (int i = 0; i < sampleNameAverageProfileList.size(); i++) {
                 Profile profile = (Profile) sampleNameAverageProfileList.get(i);
                 //Check if a profile is present i.e. not flat
@@ -166,18 +165,16 @@ public final class SampleOverviewTopComponent extends TopComponent
                         AverageSampleProfile sampleProfile = (AverageSampleProfile) profile;
                         //Only includd AverageSampleProfiles with >10 molecules
                         if (!sampleProfile.isTheReplicateAverageNoLessThan10Molecules()) {
-                            emaxArrayList.add(profile.getEmax());
-                            emaxTotal = emaxTotal + profile.getEmax();
+                            emaxStats.add(profile.getEmax());
                         }
                     } else {//Must be a CalibrationProfile
-                        emaxArrayList.add(profile.getEmax());
-                        emaxTotal = emaxTotal + profile.getEmax();
+                        emaxStats.add(profile.getEmax());
                     }
                 }
             }
-            facadeSample.setEmaxAverage(emaxTotal / emaxArrayList.size());
-            if (emaxArrayList.size() > 1) {
-                facadeSample.setEmaxCV(MathFunctions.calcStDev(emaxArrayList) / facadeSample.getEmaxAverage());
+            facadeSample.setEmaxAverage(emaxStats.getMean());
+            if (emaxStats.getCount() > 1) {
+                facadeSample.setEmaxCV(emaxStats.getStDev() / facadeSample.getEmaxAverage());
             } else {
                 facadeSample.setEmaxCV(0);
             }
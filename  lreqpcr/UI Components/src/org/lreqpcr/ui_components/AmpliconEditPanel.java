@@ -27,6 +27,7 @@ import org.lreqpcr.core.data_objects.AmpliconImpl;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
 import org.lreqpcr.core.ui_elements.LreNode;
+import org.lreqpcr.core.utilities.AmpliconSizeDictionary;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.utilities.UniversalLookupListener;
 import org.openide.util.Lookup;
@@ -74,6 +75,7 @@ public class AmpliconEditPanel extends JPanel
                             selectedAmplicon.setName(nameDisplay.getText());
                             nameErrorDisplay.setText("");
                             selectedNode.saveLreObject();
+                            invalidateAmpliconSizeDictionary();
                             selectedNode.refreshNodeLabel();
                             UniversalLookup.getDefault().fireChangeEvent(PanelMessages.UPDATE_AMPLICON_TREE);
                         }
@@ -120,6 +122,7 @@ public class AmpliconEditPanel extends JPanel
                     }
                     nanErrorDisplay.setText("");
                     selectedAmplicon.setAmpliconSize(i);
+                    invalidateAmpliconSizeDictionary();
                 }
                 selectedNode.saveLreObject();
             }
@@ -155,6 +158,14 @@ public class AmpliconEditPanel extends JPanel
         }
     }
 
+    /**
+     * The amplicon size dictionary used during Run import must be reloaded
+     * once an amplicon has been renamed or resized.
+     */
+    private void invalidateAmpliconSizeDictionary() {
+        AmpliconSizeDictionary.getDictionary(selectedNode.getDatabaseServices()).invalidate();
+    }
+
     public void clearPanel() {
         selectedAmplicon = null;
         nameDisplay.setText("");
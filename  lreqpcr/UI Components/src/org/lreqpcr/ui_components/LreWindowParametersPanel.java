@@ -28,7 +28,6 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import javax.swing.JOptionPane;
-import org.lreqpcr.analysis_services.LreAnalysisService;
 import org.lreqpcr.core.data_objects.AverageCalibrationProfile;
 import org.lreqpcr.core.data_objects.AverageProfile;
 import org.lreqpcr.core.data_objects.AverageSampleProfile;
@@ -36,17 +35,15 @@ import org.lreqpcr.core.data_objects.DatabaseInfo;
 import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
 import org.lreqpcr.core.data_objects.Profile;
 import org.lreqpcr.core.data_objects.SampleProfile;
-import org.lreqpcr.core.data_processing.ProfileSummary;
-import org.lreqpcr.core.data_processing.ProfileSummaryImp;
 import org.lreqpcr.core.database_services.DatabaseProvider;
 import org.lreqpcr.core.database_services.DatabaseServices;
 import org.lreqpcr.core.database_services.DatabaseType;
 import org.lreqpcr.core.utilities.FormatingUtilities;
-import org.lreqpcr.core.utilities.MathFunctions;
+import org.lreqpcr.core.utilities.StatisticsAccumulator;
 import org.lreqpcr.core.utilities.UniversalLookup;
 import org.lreqpcr.core.utilities.UniversalLookupListener;
 import org.lreqpcr.data_import_services.RunImportUtilities;
-import org.openide.util.Lookup;
+import org.openide.util.RequestProcessor;
 import org.openide.windows.TopComponent;
 import org.openide.windows.WindowManager;
 
@@ -57,6 +54,9 @@ import org.openide.windows.WindowManager;
  */
 public class LreWindowParametersPanel extends javax.swing.JPanel implements UniversalLookupListener, PropertyChangeListener {
 
+    //Runs whole-database reanalyses one at a time
+    private static final RequestProcessor REANALYSIS_PROCESSOR =
+            new RequestProcessor("LRE window reanalysis", 1);
     private KeyAdapter keyAdapter;
 //    private Double minFc;//Can be set to zero to reset to automated StartCycle selection
 //    private Double foThreshold = 0d;
@@ -64,8 +64,6 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
     private DatabaseServices currentDB;//Experiment or Calibration database
     private DatabaseInfo dbInfo;
     private LreWindowSelectionParameters selectionParameters;
-    private LreAnalysisService lreAnalysisService =
-            Lookup.getDefault().lookup(LreAnalysisService.class);
     private UniversalLookup universalLookup = UniversalLookup.getDefault();
     private double averageFmax;
 
@@ -78,6 +76,7 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
         createKeyAdapter();
         minFcDisplay.addKeyListener(keyAdapter);
         foThresholdDisplay.addKeyListener(keyAdapter);
+        nrToleranceDisplay.addKeyListener(keyAdapter);
         updateDisplay();
         avReplCvDisplay.setText("");
     }
@@ -166,6 +165,18 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
                             resetFoThreshold();
                         }
                     }
+                    if (e.getComponent().equals(nrToleranceDisplay)) {
+                        //Returns -1 if parse fails
+                        double newNrTolerance = parseNrToleranceString(nrToleranceDisplay.getText());
+                        if (newNrTolerance >= 0) {
+                            selectionParameters.setNrConvergenceTolerance(newNrTolerance);
+                            currentDB.saveObject(selectionParameters);
+                            resetNrTolerance();
+                        } else {
+                            //Do not change the current tolerance
+                            updateDisplay();
+                        }
+                    }
                 }
                 UniversalLookup.getDefault().fireChangeEvent(PanelMessages.SET_DEFAULT_CURSOR);
             }
@@ -196,6 +207,39 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
         }
     }
 
+    /**
+     * Parses the NR convergence tolerance, which is entered as a percentage
+     * of Fmax. A blank entry signifies zero, that is, all regression passes
+     * are conducted.
+     *
+     * @param nrToleranceString the entered tolerance
+     * @return the tolerance as a fraction of Fmax, or -1 if the parse fails
+     */
+    private double parseNrToleranceString(String nrToleranceString) {
+        //Remove "%" at the end of the tolerance string, if one exsists
+        if (nrToleranceString.contains("%")) {
+            nrToleranceString = nrToleranceString.substring(0, nrToleranceString.indexOf("%"));
+        }
+        if (nrToleranceString.trim().equals("")) {
+            return 0;
+        }
+        double newNrTolerance;
+        try {
+            newNrTolerance = Double.valueOf(nrToleranceString) / 100;
+        } catch (NumberFormatException nan) {
+            newNrTolerance = -1;
+        }
+        if (!(newNrTolerance >= 0)) {
+            Toolkit.getDefaultToolkit().beep();
+            JOptionPane.showMessageDialog(WindowManager.getDefault().getMainWindow(),
+                    "The NR tolerance must be zero or a positive percentage of Fmax",
+                    "Invalid NR Tolerance",
+                    JOptionPane.ERROR_MESSAGE);
+            return -1;
+        }
+        return newNrTolerance;
+    }
+
     /**
      * The new minimum Fmax must not less than or equal to zero.
      *
@@ -244,59 +288,54 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
      * Resetting the Fo threshold only requires that the top of the LRE window 
      * be reset, so that the start cycle is not modified. 
      */
-    @SuppressWarnings("unchecked")
     private void resetFoThreshold() {
-        List<AverageProfile> profileList = retrieveAllAverageProfiles();
-        if (profileList.isEmpty()) {
-            return;
-        }
-        for (AverageProfile avProfile : profileList) {
-//Need to update the replicate profiles first in order to test if this is a valid AverageProfile
-            for (Profile profile : avProfile.getReplicateProfileList()) {
-                //Use the existing start cycle
-                ProfileSummary prfSum = new ProfileSummaryImp(profile, currentDB);
-                lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, selectionParameters);
-            }
-            if (!avProfile.isTheReplicateAverageNoLessThan10Molecules() && avProfile.areTheRepProfilesSufficientlyClustered()) {
-                //The AverageProfile is valid thus reinitialize it
-                //Use the exsiting start cycle
-                Profile profile = (Profile) avProfile;
-                ProfileSummary prfSum = new ProfileSummaryImp(profile, currentDB);
-                lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, selectionParameters);
-            }
-            currentDB.commitChanges();
-            broadcastUpdate();
-        }
+        //Use the existing start cycle
+        reanalyzeAllProfiles(false);
     }
     
+    /**
+     * The NR convergence tolerance only alters the regression-derived baseline,
+     * so the start cycle is not modified.
+     */
+    private void resetNrTolerance() {
+        reanalyzeAllProfiles(false);
+    }
+
     /**
      * Setting a new minFc requires that the LRE window be reinitialized.
      */
-    @SuppressWarnings("unchecked")
     private void resetMinFc(){
+        //Force a new start cycle to be identified
+        reanalyzeAllProfiles(true);
+    }
+
+    /**
+     * Reanalyzes all AverageProfiles and their replicate profiles as a 
+     * background job, during which the selection parameters cannot be changed. 
+     * The panels are updated once the job has ended.
+     * 
+     * @param resetStartCycle whether a new start cycle is to be identified
+     */
+    private void reanalyzeAllProfiles(boolean resetStartCycle) {
         List<AverageProfile> profileList = retrieveAllAverageProfiles();
-        if (profileList.isEmpty()) {
+        if (profileList == null || profileList.isEmpty()) {
             return;
         }
-        for (AverageProfile avProfile : profileList) {
-            //Need to update the replicate profiles first in order to test if this is a valid AverageProfile
-            for (Profile profile : avProfile.getReplicateProfileList()) {
-                //Force a new start cycle to be identified
-                profile.setHasAnLreWindowBeenFound(false);
-                ProfileSummary prfSum = new ProfileSummaryImp(profile, currentDB);
-                lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, selectionParameters);
-            }
-            if (!avProfile.isTheReplicateAverageNoLessThan10Molecules() && avProfile.areTheRepProfilesSufficientlyClustered()) {
-                //The AverageProfile is valid thus reinitialize it
-                Profile profile = (Profile) avProfile;
-                //Force a new start cycle to be identified
-                profile.setHasAnLreWindowBeenFound(false);
-                ProfileSummary prfSum = new ProfileSummaryImp(profile, currentDB);
-                lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, selectionParameters);
+        minFcDisplay.setEnabled(false);
+        foThresholdDisplay.setEnabled(false);
+        nrToleranceDisplay.setEnabled(false);
+        ProfileReanalysisJob job = new ProfileReanalysisJob(currentDB, profileList,
+                selectionParameters, resetStartCycle,
+                ProfileReanalysisJob.getCommitBatchSizeSetting(), new Runnable() {
+
+            public void run() {
+                minFcDisplay.setEnabled(true);
+                foThresholdDisplay.setEnabled(true);
+                nrToleranceDisplay.setEnabled(true);
+                broadcastUpdate();
             }
-            currentDB.commitChanges();
-            broadcastUpdate();
-        }
+        });
+        REANALYSIS_PROCESSOR.post(job);
     }
 
     private void broadcastUpdate() {
@@ -347,12 +386,16 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
         } else {
             foThresholdDisplay.setText("");//This absolutely should never happen...
         }
+        //Zero signifies that all regression passes are conducted
+        df.applyPattern("0.0##%");
+        nrToleranceDisplay.setText(df.format(selectionParameters.getNrConvergenceTolerance()));
         avReplCvDisplay.setText("");
     }
 
     void clearPanel() {
         minFcDisplay.setText("");
         foThresholdDisplay.setText("");
+        nrToleranceDisplay.setText("");
         avReplCvDisplay.setText("");
     }
 
@@ -390,18 +433,15 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
             }
             //Calculate and collect the Replicate Fo CVs
             for (AverageSampleProfile avProfile : avSampleProfileList) {
-                List<Double> noValues = Lists.newArrayList();
+                StatisticsAccumulator noStats = new StatisticsAccumulator();
                 if (!avProfile.isTheReplicateAverageNoLessThan10Molecules() && avProfile.areTheRepProfilesSufficientlyClustered()) {
 //Only include replicate that are >10 molecules in order to avoid scattering produced by Poisson distribution 
-                    double sum = 0;
                     for (SampleProfile profile : avProfile.getReplicateProfileList()) {
                         if (profile.hasAnLreWindowBeenFound() && !profile.isExcluded()) {
-                            noValues.add(profile.getNo());
-                            sum += profile.getNo();
+                            noStats.add(profile.getNo());
                         }
-                        if (noValues.size() > 1) {
-                            double avNo = sum / noValues.size();
-                            replCvValues.add(MathFunctions.calcStDev(noValues) / avNo);
+                        if (noStats.getCount() > 1) {
+                            replCvValues.add(noStats.getCV());
                         }
                     }
                 }
@@ -410,18 +450,15 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
         if (currentDB.getDatabaseType() == DatabaseType.CALIBRATION) {
             List<AverageCalibrationProfile> avCalProfileList = currentDB.getAllObjects(AverageCalibrationProfile.class);
             for (AverageCalibrationProfile avProfile : avCalProfileList) {
-                List<Double> foValues = Lists.newArrayList();
+                StatisticsAccumulator foStats = new StatisticsAccumulator();
                 //Don't be concerned about target quantity, so focus solely on avFo
-                double sum = 0;
                 for (Profile profile : avProfile.getReplicateProfileList()) {
                     if (profile.hasAnLreWindowBeenFound() && !profile.isExcluded()) {
-                        foValues.add(profile.getAvFo());
-                        sum += profile.getAvFo();
+                        foStats.add(profile.getAvFo());
                     }
                 }
-                if (foValues.size() > 1) {//A CV can only be determined if more than one replicate is available
-                    double avFo = sum / foValues.size();
-                    replCvValues.add(MathFunctions.calcStDev(foValues) / avFo);
+                if (foStats.getCount() > 1) {//A CV can only be determined if more than one replicate is available
+                    replCvValues.add(foStats.getCV());
                 }
             }
         }
@@ -452,6 +489,8 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
         minFcDisplay = new javax.swing.JTextField();
         jLabel2 = new javax.swing.JLabel();
         foThresholdDisplay = new javax.swing.JTextField();
+        jLabel3 = new javax.swing.JLabel();
+        nrToleranceDisplay = new javax.swing.JTextField();
         avReplCvDisplay = new javax.swing.JLabel();
         calcAvReplCV = new javax.swing.JRadioButton();
 
@@ -471,6 +510,11 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
 
         foThresholdDisplay.setColumns(4);
 
+        jLabel3.setText("NR tol:");
+        jLabel3.setToolTipText("Change in the NR-derived baseline (% of Fmax) below which further regression passes are not conducted, or zero to always conduct all passes");
+
+        nrToleranceDisplay.setColumns(4);
+
         avReplCvDisplay.setText("  ");
         avReplCvDisplay.setToolTipText("Note that Replicat Profiles with <10 molecules are not included");
 
@@ -501,7 +545,11 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(jLabel2)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(foThresholdDisplay, javax.swing.GroupLayout.PREFERRED_SIZE, 46, javax.swing.GroupLayout.PREFERRED_SIZE)))
+                        .addComponent(foThresholdDisplay, javax.swing.GroupLayout.PREFERRED_SIZE, 46, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                        .addComponent(jLabel3)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(nrToleranceDisplay, javax.swing.GroupLayout.PREFERRED_SIZE, 46, javax.swing.GroupLayout.PREFERRED_SIZE)))
                 .addContainerGap())
         );
         layout.setVerticalGroup(
@@ -513,7 +561,9 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(foThresholdDisplay, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(jLabel2))
+                    .addComponent(jLabel2)
+                    .addComponent(jLabel3)
+                    .addComponent(nrToleranceDisplay, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(avReplCvDisplay)
@@ -542,7 +592,9 @@ public class LreWindowParametersPanel extends javax.swing.JPanel implements Univ
     private javax.swing.JTextField foThresholdDisplay;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
+    private javax.swing.JLabel jLabel3;
     private javax.swing.JTextField minFcDisplay;
+    private javax.swing.JTextField nrToleranceDisplay;
     // End of variables declaration//GEN-END:variables
 
     /**
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.ui_components;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.lreqpcr.analysis_services.LreAnalysisService;
+import org.lreqpcr.core.data_objects.AverageProfile;
+import org.lreqpcr.core.data_objects.LreWindowSelectionParameters;
+import org.lreqpcr.core.data_objects.Profile;
+import org.lreqpcr.core.data_processing.ProfileSummary;
+import org.lreqpcr.core.data_processing.ProfileSummaryImp;
+import org.lreqpcr.core.database_services.DatabaseServices;
+import org.netbeans.api.progress.ProgressHandle;
+import org.netbeans.api.progress.ProgressHandleFactory;
+import org.openide.util.Cancellable;
+import org.openide.util.Lookup;
+
+/**
+ * Background reanalysis of all AverageProfiles within a database following 
+ * a change to the LRE window selection parameters. 
+ * <p>
+ * The profiles are held by the database and displayed by the panels, so they 
+ * are only read or modified on the event dispatch thread. Each profile is 
+ * instead analyzed as a detached copy holding its Fc datasets and LRE state, 
+ * with the results then applied to the profile on the event dispatch thread. 
+ * <p>
+ * AverageProfiles are analyzed in batches using a fork-join pool. The replicate 
+ * profiles of a batch are analyzed concurrently, followed by the AverageProfiles 
+ * whose replicates show them to be valid. The analyzed profiles of each batch 
+ * are then saved and committed. 
+ * <p>
+ * Progress is reported via a ProgressHandle that allows the job to be 
+ * cancelled, in which case the profiles analyzed so far are committed. 
+ * The completion task is run on the event dispatch thread once the job ends.
+ *
+ * @author Bob Rutledge
+ */
+class ProfileReanalysisJob implements Runnable, Cancellable {
+
+    /**
+     * The system property holding the number of AverageProfiles analyzed 
+     * between each commit, which can be set at startup 
+     * (e.g. -J-Dlreqpcr.reanalysis.commitBatchSize=200)
+     */
+    static final String COMMIT_BATCH_SIZE_PROPERTY = "lreqpcr.reanalysis.commitBatchSize";
+    /**
+     * The number of AverageProfiles analyzed between each commit if the 
+     * commit batch size property is not set
+     */
+    static final int DEFAULT_COMMIT_BATCH_SIZE = 50;
+    private final DatabaseServices db;
+    private final List<AverageProfile> averageProfiles;
+    private final LreWindowSelectionParameters selectionParameters;
+    private final boolean resetStartCycle;
+    private final int commitBatchSize;
+    private final Runnable completionTask;
+    private final LreAnalysisService lreAnalysisService =
+            Lookup.getDefault().lookup(LreAnalysisService.class);
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param db the database holding the AverageProfiles
+     * @param averageProfiles the AverageProfiles to be reanalyzed
+     * @param selectionParameters the new LRE window selection parameters
+     * @param resetStartCycle true if a new start cycle is to be identified 
+     * (i.e. a new minFc), false to use the existing start cycle (i.e. a new Fo threshold)
+     * @param commitBatchSize the number of AverageProfiles analyzed between each commit
+     * @param completionTask run on the event dispatch thread once the job ends
+     */
+    ProfileReanalysisJob(DatabaseServices db, List<AverageProfile> averageProfiles,
+            LreWindowSelectionParameters selectionParameters, boolean resetStartCycle,
+            int commitBatchSize, Runnable completionTask) {
+        if (commitBatchSize < 1) {
+            throw new IllegalArgumentException("The commit batch size must be at least one");
+        }
+        this.db = db;
+        this.averageProfiles = new ArrayList<AverageProfile>(averageProfiles);
+        this.selectionParameters = selectionParameters;
+        this.resetStartCycle = resetStartCycle;
+        this.commitBatchSize = commitBatchSize;
+        this.completionTask = completionTask;
+    }
+
+    /**
+     * Larger batches reduce the number of commits, whereas smaller batches 
+     * reduce the number of analyzed profiles lost if the application is 
+     * terminated during the reanalysis.
+     * 
+     * @return the commit batch size property, or the default commit batch size 
+     * if the property is not set or is less than one
+     */
+    static int getCommitBatchSizeSetting() {
+        Integer commitBatchSize = Integer.getInteger(COMMIT_BATCH_SIZE_PROPERTY);
+        if (commitBatchSize == null || commitBatchSize < 1) {
+            return DEFAULT_COMMIT_BATCH_SIZE;
+        }
+        return commitBatchSize;
+    }
+
+    public void run() {
+        ProgressHandle progress = ProgressHandleFactory.createHandle("Reanalyzing profiles", this);
+        int numberOfProfiles = averageProfiles.size();
+        progress.start(numberOfProfiles);
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            int analyzed = 0;
+            while (analyzed < numberOfProfiles && !cancelled) {
+                int end = Math.min(analyzed + commitBatchSize, numberOfProfiles);
+                analyzeBatch(pool, averageProfiles.subList(analyzed, end));
+                analyzed = end;
+                progress.progress(analyzed);
+            }
+        } finally {
+            pool.shutdown();
+            progress.finish();
+            EventQueue.invokeLater(completionTask);
+        }
+    }
+
+    public boolean cancel() {
+        cancelled = true;
+        return true;
+    }
+
+    private void analyzeBatch(ForkJoinPool pool, final List<AverageProfile> batch) {
+        final List<DetachedAnalysis> replicates = new ArrayList<DetachedAnalysis>();
+        runOnEventDispatchThread(new Runnable() {
+
+            public void run() {
+                for (AverageProfile avProfile : batch) {
+                    for (Profile profile : avProfile.getReplicateProfileList()) {
+                        replicates.add(new DetachedAnalysis(profile));
+                    }
+                }
+            }
+        });
+        pool.invoke(new BatchAnalysis(replicates));
+        final List<DetachedAnalysis> averages = new ArrayList<DetachedAnalysis>();
+        runOnEventDispatchThread(new Runnable() {
+
+            public void run() {
+                applyAndSave(replicates);
+                //Need to update the replicate profiles first in order to test if the AverageProfile is valid
+                for (AverageProfile avProfile : batch) {
+                    if (!avProfile.isTheReplicateAverageNoLessThan10Molecules() 
+                            && avProfile.areTheRepProfilesSufficientlyClustered()) {
+                        averages.add(new DetachedAnalysis((Profile) avProfile));
+                    }
+                }
+            }
+        });
+        pool.invoke(new BatchAnalysis(averages));
+        runOnEventDispatchThread(new Runnable() {
+
+            public void run() {
+                applyAndSave(averages);
+                db.commitChanges();
+            }
+        });
+    }
+
+    /**
+     * Applies the results of the analyses that were conducted to their 
+     * profiles and saves the profiles. This must be called on the event 
+     * dispatch thread.
+     */
+    private void applyAndSave(List<DetachedAnalysis> analyses) {
+        for (DetachedAnalysis analysis : analyses) {
+            if (analysis.applyResults()) {
+                db.saveObject(analysis.getProfile());
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the event dispatch thread and waits for it to complete.
+     */
+    private static void runOnEventDispatchThread(Runnable task) {
+        if (EventQueue.isDispatchThread()) {
+            task.run();
+            return;
+        }
+        try {
+            EventQueue.invokeAndWait(task);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The profile reanalysis was interrupted", ex);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The analysis of a Profile conducted on a detached copy. The copy is 
+     * made, and its results applied to the Profile, on the event dispatch 
+     * thread, whereas the copy can be analyzed on any thread.
+     */
+    private class DetachedAnalysis {
+
+        private final Profile profile;
+        private final DetachedProfile copy;
+        private boolean analyzed = false;
+
+        DetachedAnalysis(Profile profile) {
+            this.profile = profile;
+            //The analysis of an AverageProfile depends upon its type and validity
+            if (profile instanceof AverageProfile) {
+                copy = new DetachedAverageProfile((AverageProfile) profile, profile.isExcluded());
+            } else {
+                copy = new DetachedProfile(profile.isExcluded());
+            }
+            copyAnalysisState(profile, copy);
+            copy.setRawFcReadings(cloneReadings(profile.getRawFcReadings()));
+        }
+
+        Profile getProfile() {
+            return profile;
+        }
+
+        void analyze() {
+            if (cancelled) {
+                return;
+            }
+            if (resetStartCycle) {
+                //Force a new start cycle to be identified
+                copy.setHasAnLreWindowBeenFound(false);
+            }
+            //Without a database the ProfileSummary does not save the Profile
+            ProfileSummary prfSum = new ProfileSummaryImp(copy, null);
+            lreAnalysisService.optimizeLreWindowUsingNonlinearRegression(prfSum, selectionParameters);
+            analyzed = true;
+        }
+
+        /**
+         * @return true if the copy was analyzed and its results applied to the Profile
+         */
+        boolean applyResults() {
+            if (!analyzed) {
+                return false;
+            }
+            copyAnalysisState(copy, profile);
+            return true;
+        }
+    }
+
+    /**
+     * Copies the working Fc dataset and the LRE and nonlinear regression 
+     * state. The average Fo is set last, as this initiates the update of 
+     * Sample and Calibration Profiles.
+     */
+    private static void copyAnalysisState(Profile from, Profile to) {
+        to.setFcReadings(cloneReadings(from.getFcReadings()));
+        to.setHasAnLreWindowBeenFound(from.hasAnLreWindowBeenFound());
+        to.setWasNonlinearRegressionSuccessful(from.didNonlinearRegressionSucceed());
+        to.setStrCycleInt(from.getStrCycleInt());
+        to.setLreWinSize(from.getLreWinSize());
+        to.setEmax(from.getEmax());
+        to.setDeltaE(from.getDeltaE());
+        to.setR2(from.getR2());
+        to.setAvFoCV(from.getAvFoCV());
+        to.setMidC(from.getMidC());
+        to.setFb(from.getFb());
+        to.setNrFb(from.getNrFb());
+        to.setNrFbSlope(from.getNrFbSlope());
+        to.setNrEmax(from.getNrEmax());
+        to.setNrFo(from.getNrFo());
+        to.setNrFmax(from.getNrFmax());
+        to.setNrFbSD(from.getNrFbSD());
+        to.setNrFbSlopeSD(from.getNrFbSlopeSD());
+        to.setNrEmaxSD(from.getNrEmaxSD());
+        to.setNrFoSD(from.getNrFoSD());
+        to.setNrFmaxSD(from.getNrFmaxSD());
+        to.setAvFo(from.getAvFo());
+    }
+
+    private static double[] cloneReadings(double[] readings) {
+        return readings == null ? null : readings.clone();
+    }
+
+    /**
+     * The detached copy of a Profile, which is never stored. Excluding a 
+     * Profile updates its Run, so the exclusion is held by the copy itself.
+     */
+    private static class DetachedProfile extends Profile {
+
+        private final boolean excluded;
+
+        DetachedProfile(boolean excluded) {
+            this.excluded = excluded;
+        }
+
+        @Override
+        public boolean isExcluded() {
+            return excluded;
+        }
+    }
+
+    /**
+     * The detached copy of an AverageProfile. Its validity and the values 
+     * derived from its replicate profiles are determined when the copy is 
+     * made, so the replicate profiles are not referenced by the copy.
+     */
+    private static class DetachedAverageProfile extends DetachedProfile implements AverageProfile {
+
+        private final boolean lessThan10Molecules;
+        private final boolean sufficientlyClustered;
+        private final int numberOfActiveReplicateProfiles;
+        private final double avAmpTm;
+
+        DetachedAverageProfile(AverageProfile avProfile, boolean excluded) {
+            super(excluded);
+            lessThan10Molecules = avProfile.isTheReplicateAverageNoLessThan10Molecules();
+            sufficientlyClustered = avProfile.areTheRepProfilesSufficientlyClustered();
+            numberOfActiveReplicateProfiles = avProfile.getTheNumberOfActiveReplicateProfiles();
+            avAmpTm = avProfile.calculateAvAmpTm();
+        }
+
+        public List<? extends Profile> getReplicateProfileList() {
+            throw new UnsupportedOperationException("The replicate profiles are not detached");
+        }
+
+        public void setReplicateProfileList(List<? extends Profile> replicateProfileList) {
+            throw new UnsupportedOperationException("The replicate profiles are not detached");
+        }
+
+        public double calculateAvAmpTm() {
+            return avAmpTm;
+        }
+
+        public int getTheNumberOfActiveReplicateProfiles() {
+            return numberOfActiveReplicateProfiles;
+        }
+
+        public boolean isTheReplicateAverageNoLessThan10Molecules() {
+            return lessThan10Molecules;
+        }
+
+        public boolean areTheRepProfilesSufficientlyClustered() {
+            return sufficientlyClustered;
+        }
+    }
+
+    /**
+     * Analyzes the detached copies within a batch concurrently
+     */
+    private static class BatchAnalysis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<DetachedAnalysis> batch;
+
+        BatchAnalysis(List<DetachedAnalysis> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            List<ProfileAnalysis> tasks = new ArrayList<ProfileAnalysis>(batch.size());
+            for (DetachedAnalysis analysis : batch) {
+                tasks.add(new ProfileAnalysis(analysis));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static class ProfileAnalysis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final DetachedAnalysis analysis;
+
+        ProfileAnalysis(DetachedAnalysis analysis) {
+            this.analysis = analysis;
+        }
+
+        @Override
+        protected void compute() {
+            analysis.analyze();
+        }
+    }
+}
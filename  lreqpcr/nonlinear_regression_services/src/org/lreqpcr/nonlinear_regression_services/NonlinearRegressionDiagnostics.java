@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013   Bob Rutledge
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * and open the template in the editor.
+ */
+package org.lreqpcr.nonlinear_regression_services;
+
+/**
+ * Describes how a single nonlinear regression fit proceeded: the number of 
+ * iterations and function evaluations, the initial and final cost, and the 
+ * reason the fit was terminated. 
+ *
+ * @author Bob Rutledge
+ */
+public class NonlinearRegressionDiagnostics {
+
+    /**
+     * The reason a nonlinear regression fit was terminated.
+     */
+    public enum StopReason {
+
+        /** The maximum number of iterations was reached before any other criterion was met */
+        MAX_ITERATIONS(false),
+        /** The improvement in cost fell below the absolute cost tolerance */
+        ABSOLUTE_COST_TOLERANCE(true),
+        /** The improvement in cost fell below the relative cost tolerance */
+        RELATIVE_COST_TOLERANCE(true),
+        /** The norm of the cost gradient fell below the gradient tolerance */
+        GRADIENT_TOLERANCE(true),
+        /** None of the attempted step sizes reduced the cost */
+        NO_IMPROVEMENT(true),
+        /** The linear system used to determine the step could not be solved */
+        SINGULAR(false);
+        private final boolean converged;
+
+        private StopReason(boolean converged) {
+            this.converged = converged;
+        }
+
+        /**
+         * @return true if this reason signifies that the fit reached a minimum
+         */
+        public boolean hasConverged() {
+            return converged;
+        }
+    }
+    private int iterations;
+    private int functionEvaluations;
+    private double initialCost;
+    private double finalCost;
+    private StopReason stopReason;
+
+    /**
+     * @return the number of iterations, that is Jacobian evaluations, conducted
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return the number of times the model was evaluated across the profile, 
+     * including any evaluations used to approximate the Jacobian numerically
+     */
+    public int getFunctionEvaluations() {
+        return functionEvaluations;
+    }
+
+    public void setFunctionEvaluations(int functionEvaluations) {
+        this.functionEvaluations = functionEvaluations;
+    }
+
+    /**
+     * @return the cost (mean squared residual) of the initial parameters
+     */
+    public double getInitialCost() {
+        return initialCost;
+    }
+
+    public void setInitialCost(double initialCost) {
+        this.initialCost = initialCost;
+    }
+
+    /**
+     * @return the cost (mean squared residual) of the optimized parameters 
+     * or NaN if the fit failed
+     */
+    public double getFinalCost() {
+        return finalCost;
+    }
+
+    public void setFinalCost(double finalCost) {
+        this.finalCost = finalCost;
+    }
+
+    /**
+     * @return the reason the fit was terminated
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    public void setStopReason(StopReason stopReason) {
+        this.stopReason = stopReason;
+    }
+
+    /**
+     * @return true if the fit was terminated because it reached a minimum
+     */
+    public boolean hasConverged() {
+        return stopReason != null && stopReason.hasConverged();
+    }
+}
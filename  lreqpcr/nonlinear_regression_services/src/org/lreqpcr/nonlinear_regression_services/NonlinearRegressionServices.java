@@ -17,13 +17,40 @@
 package org.lreqpcr.nonlinear_regression_services;
 
 import java.util.TreeMap;
+import org.openide.util.Lookup;
 
 /**
+ * More than one implementation can be registered, in which case the 
+ * implementation with the lowest position is the default and the others 
+ * can be selected by name via getService.
  *
  * @author Bob Rutledge
  */
 public abstract class NonlinearRegressionServices {
     
+    /**
+     * Retrieves the registered implementation with the specified name. 
+     * 
+     * @param name the name of the implementation, or null for the default implementation
+     * @return the named implementation, or the default implementation if 
+     * no implementation has this name
+     */
+    public static NonlinearRegressionServices getService(String name) {
+        if (name != null) {
+            for (NonlinearRegressionServices service : Lookup.getDefault().lookupAll(NonlinearRegressionServices.class)) {
+                if (name.equals(service.getName())) {
+                    return service;
+                }
+            }
+        }
+        return Lookup.getDefault().lookup(NonlinearRegressionServices.class);
+    }
+    
+    /**
+     * @return the name that identifies this implementation
+     */
+    public abstract String getName();
+    
     /**
      * Conducts nonlinear regression analysis based on the LRE 
      * sigmoidal model as defined by the parameters declared in the 
@@ -55,4 +82,71 @@ public abstract class NonlinearRegressionServices {
      */
     public abstract LreParameters conductNonlinearRegression(LreParameters iniParam, TreeMap<Integer, Double> cycleFc);
     
+    /**
+     * Conducts nonlinear regression analysis as described above using primitive 
+     * arrays of the cycle numbers and the corresponding Fc readings, writing 
+     * the optimized parameters into the supplied LreParameters. 
+     * <p>
+     * This avoids construction of a cycle-Fc TreeMap and the boxing of each 
+     * reading, allowing repeated analysis without declaring any new objects.
+     * 
+     * @param iniParam initial values for the parameters used in the nonlinear regression analysis
+     * @param cycles the cycle numbers of the trimmed profile in ascending order
+     * @param fcReadings the observed Fc readings corresponding to each cycle number
+     * @param optParam receives the optimized parameters derived from the nonlinear regression analysis
+     */
+    public abstract void conductNonlinearRegression(LreParameters iniParam, double[] cycles, double[] fcReadings, LreParameters optParam);
+    
+    /**
+     * Conducts nonlinear regression analysis as described above on a batch 
+     * of profiles, whose cycle numbers and Fc readings are concatenated 
+     * within two flat arrays. Profile i occupies the elements from offsets[i] 
+     * to offsets[i] + lengths[i] - 1 of both arrays. 
+     * <p>
+     * The profiles are independent of one another, so implementations are free 
+     * to analyze them concurrently. All of the output arrays must be supplied 
+     * by the caller and hold at least one element per profile.
+     * 
+     * @param cycles the cycle numbers of all profiles
+     * @param fcReadings the observed Fc readings corresponding to each cycle number
+     * @param offsets the index of the first cycle of each profile
+     * @param lengths the number of cycles within each profile
+     * @param iniParams initial values for the parameters of each profile
+     * @param optParams receives the optimized parameters of each profile
+     * @param finalCosts receives the final cost (mean squared residual) of each profile, 
+     * or NaN if the regression failed
+     * @param converged receives whether the regression of each profile reached a minimum, 
+     * which excludes a regression terminated because no step reduced the cost
+     */
+    public abstract void conductNonlinearRegression(double[] cycles, double[] fcReadings,
+            int[] offsets, int[] lengths, LreParameters[] iniParams,
+            LreParameters[] optParams, double[] finalCosts, boolean[] converged);
+    
+    /**
+     * Returns the diagnostics of the most recent regression conducted by the 
+     * calling thread, describing the number of iterations and function 
+     * evaluations, the final cost and why the regression was terminated. 
+     * <p>
+     * The returned object is overwritten by the next regression conducted by 
+     * the calling thread, so its values must be copied if they are to be retained.
+     * 
+     * @return the diagnostics of the calling thread's most recent regression
+     */
+    public abstract NonlinearRegressionDiagnostics getDiagnostics();
+    
+    /**
+     * Sets the criteria used to terminate the iterative optimization of all 
+     * subsequent regressions. 
+     * 
+     * @param maxIterations the maximum number of iterations (default 20)
+     * @param absoluteCostTolerance terminate once an iteration improves the 
+     * cost (mean squared residual) by less than this (default 1e-6)
+     * @param relativeCostTolerance terminate once an iteration improves the 
+     * cost by less than this fraction of the previous cost (default 1e-10)
+     * @param gradientTolerance terminate once the largest element of the 
+     * cost gradient is smaller than this (default 1e-12)
+     */
+    public abstract void setTerminationCriteria(int maxIterations, double absoluteCostTolerance, 
+            double relativeCostTolerance, double gradientTolerance);
+    
 }